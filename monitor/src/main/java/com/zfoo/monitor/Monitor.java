@@ -15,6 +15,7 @@ package com.zfoo.monitor;
 import com.zfoo.monitor.util.OSUtils;
 import com.zfoo.net.util.NetUtils;
 import com.zfoo.protocol.collection.CollectionUtils;
+import com.zfoo.protocol.registration.ProtocolProfile;
 import com.zfoo.protocol.util.FileUtils;
 import com.zfoo.protocol.util.StringUtils;
 import com.zfoo.scheduler.util.TimeUtils;
@@ -37,13 +38,21 @@ public class Monitor {
 
     private List<Sar> sar;
 
-    public static Monitor valueOf(String uuid, Uptime uptime, List<DiskFileSystem> df, Memory free, List<Sar> sar) {
+    // 序列化字节数最多的协议，只有开启了ProtocolProfiler才有数据
+    private List<ProtocolProfile> protocols;
+
+    // 发送队列丢弃，合并和停止读取的次数
+    private Outbound outbound;
+
+    public static Monitor valueOf(String uuid, Uptime uptime, List<DiskFileSystem> df, Memory free, List<Sar> sar, List<ProtocolProfile> protocols, Outbound outbound) {
         var monitor = new Monitor();
         monitor.uuid = uuid;
         monitor.uptime = uptime;
         monitor.df = df;
         monitor.free = free;
         monitor.sar = sar;
+        monitor.protocols = protocols;
+        monitor.outbound = outbound;
         return monitor;
     }
 
@@ -74,6 +83,11 @@ public class Monitor {
                 messages.add(sarMessage);
             }
         }
+
+        var outboundMessage = outbound.pressure();
+        if (StringUtils.isNotBlank(outboundMessage)) {
+            messages.add(outboundMessage);
+        }
         return messages;
     }
 
@@ -102,6 +116,19 @@ public class Monitor {
                     , it.getName(), it.getRxpck(), it.getTxpck(), it.getRxBytes(), it.getTxBytes(), it.getInErrors(), it.getOutErrors(), it.getInDrops(), it.getCollisions(), TimeUtils.timeToString(it.getTimestamp())));
             builder.append(FileUtils.LS);
         });
+        if (CollectionUtils.isNotEmpty(protocols)) {
+            builder.append("5.protocol:");
+            builder.append(FileUtils.LS);
+            protocols.forEach(it -> {
+                builder.append(StringUtils.format("    [protocol:{}] [id:{}] [write:{}] [writeBytes:{}] [read:{}] [readBytes:{}] [sizeP99:{}] [writeP99:{}ns] [readP99:{}ns]"
+                        , it.protocolName(), it.getProtocolId(), it.getWriteCount(), it.getWriteBytes(), it.getReadCount(), it.getReadBytes()
+                        , it.sizePercentile(0.99), it.writeTimePercentile(0.99), it.readTimePercentile(0.99)));
+                builder.append(FileUtils.LS);
+            });
+        }
+        builder.append(StringUtils.format("6.outbound: [dropped:{}] [coalesced:{}] [suspended:{}] [{}]"
+                , outbound.getDropped(), outbound.getCoalesced(), outbound.getSuspended(), TimeUtils.timeToString(outbound.getTimestamp())));
+        builder.append(FileUtils.LS);
         var pressures = toPressures();
         if (CollectionUtils.isNotEmpty(pressures)) {
             builder.append("summary of errors:");
@@ -136,6 +163,19 @@ public class Monitor {
             builder.append(FileUtils.LS);
         });
         builder.append(FileUtils.LS);
+        if (CollectionUtils.isNotEmpty(protocols)) {
+            builder.append("**5.protocol:**");
+            builder.append(FileUtils.LS);
+            protocols.forEach(it -> {
+                builder.append(StringUtils.format("> [protocol:{}] [write:{}] [read:{}] [bytes:{}]"
+                        , it.protocolName(), it.getWriteCount(), it.getReadCount(), it.totalBytes()));
+                builder.append(FileUtils.LS);
+            });
+            builder.append(FileUtils.LS);
+        }
+        builder.append(StringUtils.format("**6.outbound: [dropped:{}] [coalesced:{}] [suspended:{}]**"
+                , outbound.getDropped(), outbound.getCoalesced(), outbound.getSuspended()));
+        builder.append(FileUtils.LS);
         return builder.toString();
     }
 
@@ -158,4 +198,12 @@ public class Monitor {
     public List<Sar> getSar() {
         return sar;
     }
+
+    public List<ProtocolProfile> getProtocols() {
+        return protocols;
+    }
+
+    public Outbound getOutbound() {
+        return outbound;
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package com.zfoo.monitor;
+
+import com.zfoo.protocol.util.StringUtils;
+import com.zfoo.scheduler.util.TimeUtils;
+
+/**
+ * 一个监控周期内所有session的发送队列OutboundQueue丢弃，合并和停止读取的次数
+ *
+ * @author godotg
+ */
+public class Outbound {
+
+    private long dropped;
+
+    private long coalesced;
+
+    private long suspended;
+
+    private long timestamp;
+
+    public static Outbound valueOf(long dropped, long coalesced, long suspended, long timestamp) {
+        var outbound = new Outbound();
+        outbound.dropped = dropped;
+        outbound.coalesced = coalesced;
+        outbound.suspended = suspended;
+        outbound.timestamp = timestamp;
+        return outbound;
+    }
+
+    public String pressure() {
+        if (dropped > 0) {
+            return StringUtils.format("outbound - 发送队列丢弃了[{}]个包[coalesced:{}][suspended:{}][{}]，性能影响：警告"
+                    , dropped, coalesced, suspended, TimeUtils.timeToString(timestamp));
+        }
+        return StringUtils.EMPTY;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getSuspended() {
+        return suspended;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -14,8 +14,11 @@
 package com.zfoo.monitor.util;
 
 import com.zfoo.monitor.*;
+import com.zfoo.net.packet.OutboundQueue;
 import com.zfoo.net.util.NetUtils;
+import com.zfoo.protocol.ProtocolManager;
 import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.registration.ProtocolProfile;
 import com.zfoo.protocol.util.FileUtils;
 import com.zfoo.protocol.util.IOUtils;
 import com.zfoo.protocol.util.StringUtils;
@@ -51,6 +54,13 @@ public abstract class MonitorUtils {
     private static Map<String, DiskFileSystem> maxDfMap;
     private static Memory maxFree;
     private static Map<String, Sar> maxSarMap;
+    // 上一个监控周期结束时发送队列的总计数，Outbound只统计这个周期内的增量
+    private static long lastDropped;
+    private static long lastCoalesced;
+    private static long lastSuspended;
+
+    // Monitor中只展示序列化字节数最多的几个协议
+    private static final int TOP_PROTOCOL_NUM = 10;
 
     static {
         initMonitor();
@@ -61,11 +71,14 @@ public abstract class MonitorUtils {
         maxDfMap = new ConcurrentHashMap<>(OSUtils.df().stream().collect(Collectors.toMap(key -> key.getName(), value -> value)));
         maxFree = OSUtils.free();
         maxSarMap = new ConcurrentHashMap<>(OSUtils.sar().stream().collect(Collectors.toMap(key -> key.getName(), value -> value)));
+        lastDropped = OutboundQueue.totalDroppedCount();
+        lastCoalesced = OutboundQueue.totalCoalescedCount();
+        lastSuspended = OutboundQueue.totalSuspendedCount();
     }
 
     public static Monitor maxMonitor() {
         var uuid = UuidUtils.getUUID();
-        var monitor = Monitor.valueOf(uuid, maxUptime, new ArrayList<>(maxDfMap.values()), maxFree, new ArrayList<>(maxSarMap.values()));
+        var monitor = Monitor.valueOf(uuid, maxUptime, new ArrayList<>(maxDfMap.values()), maxFree, new ArrayList<>(maxSarMap.values()), topProtocols(), outbound());
 
         initMonitor();
         return monitor;
@@ -100,7 +113,17 @@ public abstract class MonitorUtils {
             }
         }
 
-        return Monitor.valueOf(uuid, uptime, df, free, sar);
+        return Monitor.valueOf(uuid, uptime, df, free, sar, topProtocols(), outbound());
+    }
+
+    private static List<ProtocolProfile> topProtocols() {
+        var profiles = ProtocolManager.profiles();
+        return profiles.size() > TOP_PROTOCOL_NUM ? new ArrayList<>(profiles.subList(0, TOP_PROTOCOL_NUM)) : profiles;
+    }
+
+    private static Outbound outbound() {
+        return Outbound.valueOf(OutboundQueue.totalDroppedCount() - lastDropped, OutboundQueue.totalCoalescedCount() - lastCoalesced
+                , OutboundQueue.totalSuspendedCount() - lastSuspended, TimeUtils.now());
     }
 
 }
@@ -26,4 +26,12 @@ import java.lang.annotation.*;
 @Reflective
 public @interface PacketReceiver {
     Task value() default Task.TaskBus;
+
+    /**
+     * EN: Return the @Protocol(recycle = true) packet to the pool after the receiver returns.
+     * Only set it when the receiver does not send, forward, answer with or store the packet, they are encoded or used later.
+     * CN: 接收者返回之后把@Protocol(recycle = true)的协议对象回收到对象池。
+     * 只有接收者没有发送、转发、应答或者保存这个协议对象的时候才能使用，这些操作都会在之后才序列化或者使用协议对象。
+     */
+    boolean release() default false;
 }
@@ -24,6 +24,9 @@ public class ConsumerConfig {
 
     private List<ConsumerModule> consumers;
 
+    // 每个服务提供者建立的连接数量，同一个argument总是使用同一个连接，多个连接可以利用服务提供者更多的io线程
+    private int connections = 1;
+
     public static ConsumerConfig valueOf(List<ConsumerModule> modules) {
         ConsumerConfig config = new ConsumerConfig();
         config.consumers = modules;
@@ -38,6 +41,14 @@ public class ConsumerConfig {
         this.consumers = consumers;
     }
 
+    public int getConnections() {
+        return connections;
+    }
+
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
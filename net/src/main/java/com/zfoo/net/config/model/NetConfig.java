@@ -32,9 +32,45 @@ public class NetConfig {
      * {@link GenerateOperation}
      */
     private boolean foldProtocol;
+    /**
+     * {@link GenerateOperation}
+     */
+    private boolean versionedProtocol;
+    /**
+     * {@link GenerateOperation}
+     */
+    private String enhanceSourcePath;
+    /**
+     * {@link GenerateOperation}
+     */
+    private int enhanceThreads;
     private String protocolPath;
     private String protocolParam;
 
+    /**
+     * 包体压缩的阈值和压缩等级，{@link com.zfoo.net.packet.PacketCompressor}
+     * 只在zfoo之间的连接上生效，消费者连接提供者时开启，对方收到压缩的包后也开启，其它语言的客户端不会收到压缩的包
+     */
+    private int compressThreshold;
+    private int compressLevel = 1;
+
+    /**
+     * 传输层auto，io_uring，epoll，nio，{@link com.zfoo.net.core.NetTransport}
+     */
+    private String transport;
+
+    /**
+     * 服务器boss，worker和客户端的event loop线程数，0使用默认值
+     */
+    private int bossThreads;
+    private int workerThreads;
+    private int clientThreads;
+
+    /**
+     * 服务器合并同一个连接的flush，{@link com.zfoo.net.core.AbstractServer#addFlushConsolidation}
+     */
+    private boolean flushConsolidation;
+
     /**
      * 生成协议列表
      */
@@ -97,6 +133,30 @@ public class NetConfig {
         this.foldProtocol = foldProtocol;
     }
 
+    public boolean isVersionedProtocol() {
+        return versionedProtocol;
+    }
+
+    public void setVersionedProtocol(boolean versionedProtocol) {
+        this.versionedProtocol = versionedProtocol;
+    }
+
+    public int getEnhanceThreads() {
+        return enhanceThreads;
+    }
+
+    public void setEnhanceThreads(int enhanceThreads) {
+        this.enhanceThreads = enhanceThreads;
+    }
+
+    public String getEnhanceSourcePath() {
+        return enhanceSourcePath;
+    }
+
+    public void setEnhanceSourcePath(String enhanceSourcePath) {
+        this.enhanceSourcePath = enhanceSourcePath;
+    }
+
     public String getProtocolPath() {
         return protocolPath;
     }
@@ -113,6 +173,62 @@ public class NetConfig {
         this.protocolParam = protocolParam;
     }
 
+    public int getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    public int getCompressLevel() {
+        return compressLevel;
+    }
+
+    public void setCompressLevel(int compressLevel) {
+        this.compressLevel = compressLevel;
+    }
+
+    public String getTransport() {
+        return transport;
+    }
+
+    public void setTransport(String transport) {
+        this.transport = transport;
+    }
+
+    public int getBossThreads() {
+        return bossThreads;
+    }
+
+    public void setBossThreads(int bossThreads) {
+        this.bossThreads = bossThreads;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public int getClientThreads() {
+        return clientThreads;
+    }
+
+    public void setClientThreads(int clientThreads) {
+        this.clientThreads = clientThreads;
+    }
+
+    public boolean isFlushConsolidation() {
+        return flushConsolidation;
+    }
+
+    public void setFlushConsolidation(boolean flushConsolidation) {
+        this.flushConsolidation = flushConsolidation;
+    }
+
     public RegistryConfig getRegistry() {
         return registry;
     }
@@ -16,6 +16,7 @@ package com.zfoo.net.consumer;
 import com.zfoo.net.NetContext;
 import com.zfoo.net.consumer.balancer.AbstractConsumerLoadBalancer;
 import com.zfoo.net.consumer.balancer.IConsumerLoadBalancer;
+import com.zfoo.net.packet.RawPacket;
 import com.zfoo.net.packet.common.Error;
 import com.zfoo.net.router.Router;
 import com.zfoo.net.router.SignalBridge;
@@ -28,7 +29,6 @@ import com.zfoo.net.router.exception.NetTimeOutException;
 import com.zfoo.net.router.exception.UnexpectedProtocolException;
 import com.zfoo.net.session.Session;
 import com.zfoo.net.task.TaskBus;
-import com.zfoo.protocol.ProtocolManager;
 import com.zfoo.protocol.collection.CollectionUtils;
 import com.zfoo.protocol.exception.RunException;
 import com.zfoo.protocol.util.JsonUtils;
@@ -73,7 +73,7 @@ public class Consumer implements IConsumer {
     // find all session that can process interface/packet of protocolModule
     @Override
     public List<Session> findProviders(Object packet) {
-        var protocolModule = ProtocolManager.moduleByProtocol(packet.getClass());
+        var protocolModule = RawPacket.protocolModule(packet);
         var list = new ArrayList<Session>();
         NetContext.getSessionManager().forEachClientSession(session -> {
             var consumerAttribute = session.getConsumerRegister();
@@ -117,7 +117,7 @@ public class Consumer implements IConsumer {
             }
         }
         if (loadBalancer == null) {
-            var protocolModule = ProtocolManager.moduleByProtocol(packet.getClass());
+            var protocolModule = RawPacket.protocolModule(packet);
             throw new RunException("[protocol:{}] can not find any loadBalancer for the [module:{}]", packet.getClass().getSimpleName(), protocolModule);
         }
         return loadBalancer;
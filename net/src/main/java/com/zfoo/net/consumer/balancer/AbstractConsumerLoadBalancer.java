@@ -13,6 +13,7 @@
 
 package com.zfoo.net.consumer.balancer;
 
+import com.zfoo.net.session.Session;
 import com.zfoo.protocol.util.StringUtils;
 
 /**
@@ -38,4 +39,21 @@ public abstract class AbstractConsumerLoadBalancer implements IConsumerLoadBalan
         return balancer;
     }
 
+    /**
+     * 同一个服务提供者可能有多个连接（ConsumerConfig的connections），在这个服务提供者的连接中通过hash选择一个连接，
+     * 连接按照sid排序，连接不变的情况下相同的hash总是选择同一个连接，保证同一个argument的请求在同一个连接上按顺序发送
+     *
+     * @param connections 一个服务提供者按照sid排序的所有连接，在服务提供者变化的时候预先计算好
+     * @param hash        argument的hash
+     * @return 这个服务提供者的一个连接
+     */
+    protected static Session selectConnection(Session[] connections, int hash) {
+        if (connections.length == 1) {
+            return connections[0];
+        }
+        // 一致性hash环上落到同一个服务提供者的hash是相近的，打散后再取模
+        var index = Math.floorMod(Integer.rotateLeft(hash * 0x9E3779B9, 16), connections.length);
+        return connections[index];
+    }
+
 }
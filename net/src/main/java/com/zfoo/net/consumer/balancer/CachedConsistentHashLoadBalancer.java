@@ -1,8 +1,8 @@
 package com.zfoo.net.consumer.balancer;
 
 import com.zfoo.net.NetContext;
+import com.zfoo.net.packet.RawPacket;
 import com.zfoo.net.session.Session;
-import com.zfoo.protocol.ProtocolManager;
 import com.zfoo.scheduler.util.LazyCache;
 import com.zfoo.scheduler.util.TimeUtils;
 
@@ -42,7 +42,7 @@ public class CachedConsistentHashLoadBalancer extends AbstractConsumerLoadBalanc
         }
 
         var arg = (Number) argument;
-        var protocolModuleId = (long) ProtocolManager.moduleByProtocol(packet.getClass()).getId();
+        var protocolModuleId = (long) RawPacket.protocolModule(packet).getId();
         // 8 Byte cachedKey = 7 byte of argument + 1 byte of protocolModuleId
         var cachedKey = arg.longValue() << 8 | protocolModuleId;
         var sid = cache.get(cachedKey);
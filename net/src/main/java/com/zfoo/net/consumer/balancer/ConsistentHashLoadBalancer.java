@@ -13,6 +13,7 @@
 
 package com.zfoo.net.consumer.balancer;
 
+import com.zfoo.net.packet.RawPacket;
 import com.zfoo.net.session.Session;
 import com.zfoo.net.util.ConsistentHash;
 import com.zfoo.net.util.FastTreeMapIntLong;
@@ -22,10 +23,14 @@ import com.zfoo.protocol.collection.HashSetLong;
 import com.zfoo.protocol.exception.RunException;
 import com.zfoo.protocol.model.Pair;
 import com.zfoo.protocol.registration.ProtocolModule;
+import io.netty.util.collection.LongObjectHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.lang.Nullable;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicReferenceArray;
@@ -33,7 +38,7 @@ import java.util.concurrent.atomic.AtomicReferenceArray;
 /**
  * 一致性hash负载均衡器，同一个session总是发到同一提供者
  * <p>
- * 通过argument计算一致性hash
+ * 通过argument计算一致性hash，一致性hash环只包含服务提供者，同一个服务提供者有多个连接时再通过argument的hash选择其中一个连接
  *
  * @author godotg
  */
@@ -50,10 +55,13 @@ public class ConsistentHashLoadBalancer extends AbstractConsumerLoadBalancer {
     public static class ConsistentCache {
         public HashSetLong providerSids;
         public FastTreeMapIntLong treeMap;
+        // key为hash环上代表服务提供者的sid，value为这个服务提供者按照sid排序的所有连接
+        public LongObjectHashMap<Session[]> connections;
 
-        public ConsistentCache(HashSetLong providerSids, FastTreeMapIntLong treeMap) {
+        public ConsistentCache(HashSetLong providerSids, FastTreeMapIntLong treeMap, LongObjectHashMap<Session[]> connections) {
             this.providerSids = providerSids;
             this.treeMap = treeMap;
+            this.connections = connections;
         }
     }
 
@@ -78,7 +86,7 @@ public class ConsistentHashLoadBalancer extends AbstractConsumerLoadBalancer {
             return RandomLoadBalancer.getInstance().selectProvider(providers, packet, argument);
         }
 
-        var module = ProtocolManager.moduleByProtocol(packet.getClass());
+        var module = RawPacket.protocolModule(packet);
         var consistentCache = consistentHashMap.get(module.getId());
         if (consistentCache == null) {
             consistentCache = updateModuleToConsistentHash(providers, module);
@@ -89,21 +97,32 @@ public class ConsistentHashLoadBalancer extends AbstractConsumerLoadBalancer {
             consistentCache = updateModuleToConsistentHash(providers, module);
         }
         var treeMap = consistentCache.treeMap;
-        var nearestIndex = treeMap.indexOfNearestCeilingKey(HashUtils.fnvHash(argument));
+        var hash = HashUtils.fnvHash(argument);
+        var nearestIndex = treeMap.indexOfNearestCeilingKey(hash);
         if (nearestIndex < 0) {
             throw new RunException("no service provides the [module:{}]", module);
         }
         var sid = treeMap.getByIndex(nearestIndex);
-        // 因为每次都会对比sid，一定会从providers获得session
-        return providers.stream().filter(it -> it.getSid() == sid).findFirst().get();
+        // 因为每次都会对比sid，一定能获得这个服务提供者的连接
+        return selectConnection(consistentCache.connections.get(sid), hash);
     }
 
     @Nullable
     private ConsistentCache updateModuleToConsistentHash(List<Session> providers, ProtocolModule module) {
-        var sessionStringList = providers.stream()
-                .map(session -> new Pair<>(session.getConsumerRegister().toString(), session.getSid()))
-                .sorted((a, b) -> a.getKey().compareTo(b.getKey()))
-                .toList();
+        // 同一个服务提供者的多个连接在hash环上只出现一次，使用最小的sid代表这个服务提供者
+        var providerMap = new HashMap<String, List<Session>>();
+        for (var session : providers) {
+            providerMap.computeIfAbsent(session.getConsumerRegister().toString(), it -> new ArrayList<>()).add(session);
+        }
+        // 每个服务提供者的连接按照sid排序，选择连接的时候不需要再遍历和排序
+        var connections = new LongObjectHashMap<Session[]>(providerMap.size());
+        var sessionStringList = new ArrayList<Pair<String, Long>>(providerMap.size());
+        for (var entry : providerMap.entrySet()) {
+            var sortedSessions = entry.getValue().stream().sorted(Comparator.comparingLong(Session::getSid)).toArray(Session[]::new);
+            connections.put(sortedSessions[0].getSid(), sortedSessions);
+            sessionStringList.add(new Pair<>(entry.getKey(), sortedSessions[0].getSid()));
+        }
+        sessionStringList.sort((a, b) -> a.getKey().compareTo(b.getKey()));
 
         var consistentHash = new ConsistentHash<>(sessionStringList, VIRTUAL_NODE_NUMS);
         var virtualNodeTreeMap = consistentHash.getVirtualNodeTreeMap();
@@ -119,7 +138,7 @@ public class ConsistentHashLoadBalancer extends AbstractConsumerLoadBalancer {
         // 使用更高性能的tree map
         var fastTreeMap = new FastTreeMapIntLong(virtualTreeMap);
 
-        var consistentCache = new ConsistentCache(sidSet, fastTreeMap);
+        var consistentCache = new ConsistentCache(sidSet, fastTreeMap, connections);
         consistentHashMap.set(module.getId(), consistentCache);
         return consistentCache;
     }
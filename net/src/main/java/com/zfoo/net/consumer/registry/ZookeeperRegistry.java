@@ -49,6 +49,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -102,6 +103,10 @@ public class ZookeeperRegistry implements IRegistry {
      * 本地consumer需要消费的provider集合
      */
     private final Set<Register> providerRegisterSet = new ConcurrentHashSet<>();
+    /**
+     * 正在异步连接的provider，连接完成之前不重复连接
+     */
+    private final Set<Register> connectingProviderSet = new ConcurrentHashSet<>();
     /**
      * addListener中的cache全部会被添加到这个集合中，这个集合不包括providerCuratorCache
      */
@@ -458,6 +463,7 @@ public class ZookeeperRegistry implements IRegistry {
 
         var recheckFlag = false;
 
+        var connections = consumerConnections();
         for (var providerCache : providerRegisterSet) {
             // 先排除已经启动的consumer
             var consumerClientList = new ArrayList<Session>();
@@ -470,35 +476,61 @@ public class ZookeeperRegistry implements IRegistry {
                 }
             });
 
-            // consumerClientList大于等于1，说明消费者连接成功了
-            if (consumerClientList.size() == 1) {
-                var consumer = consumerClientList.get(0);
-                if (!SessionUtils.isActive(consumer)) {
-                    recheckFlag = true;
-                    NetContext.getSessionManager().removeClientSession(consumer);
-                    logger.error("[consumer:{}] lost connection, removed from ClientSession", consumer);
+            // 移除断开的连接，剩下的是连接成功的consumer
+            var activeCount = 0;
+            for (var consumer : consumerClientList) {
+                if (SessionUtils.isActive(consumer)) {
+                    activeCount++;
+                    continue;
+                }
+                recheckFlag = true;
+                NetContext.getSessionManager().removeClientSession(consumer);
+                logger.error("[consumer:{}] lost connection, removed from ClientSession", consumer);
+            }
+
+            if (activeCount >= connections) {
+                if (activeCount > connections) {
+                    logger.error("[consumerClientList:{}] are multiple duplicate [RegisterVO:{}]", consumerClientList, providerCache);
                 }
                 continue;
             }
 
-            if (consumerClientList.size() > 1) {
-                logger.error("[consumerClientList:{}] are multiple duplicate [RegisterVO:{}]", consumerClientList, providerCache);
+            // 正在连接中的provider
+            if (!connectingProviderSet.add(providerCache)) {
                 continue;
             }
 
             try {
-                // 自己作为消费者，要创建一个TcpClient去连接服务提供者
+                // 自己作为消费者，要创建TcpClient去连接服务提供者，异步连接，所有的provider同时连接，不阻塞当前线程
                 var client = new TcpClient(HostAndPort.valueOf(providerCache.getProviderConfig().getAddress()));
-                var session = client.start();
-                if (session == null) {
-                    recheckFlag = true;
-                    continue;
+                var futures = new CompletableFuture<?>[connections - activeCount];
+                for (var i = 0; i < futures.length; i++) {
+                    // 连接在netty的io线程中完成，回到注册中心的线程再修改状态和抛出事件，不阻塞io线程
+                    futures[i] = client.startAsync().whenCompleteAsync((session, throwable) -> {
+                        if (throwable != null) {
+                            return;
+                        }
+                        // 先设置consumerRegister再移除，下一次检查不会重复连接
+                        session.setConsumerRegister(providerCache);
+                        // 服务提供者也是zfoo，能解压和解码批量帧，消费者和提供者之间的连接开启压缩和批量帧
+                        session.setCompressThreshold(NetContext.getPacketService().compressThreshold());
+                        session.setBatchFrame(true);
+                        logger.info("Consumer starts consuming the provider:[{}] [session:{}]", providerCache, session);
+                        EventBus.post(ConsumerStartEvent.valueOf(providerCache, session));
+                    }, executor);
                 }
-
-                session.setConsumerRegister(providerCache);
-                logger.info("Consumer starts consuming the provider:[{}]", providerCache);
-                EventBus.post(ConsumerStartEvent.valueOf(providerCache, session));
+                CompletableFuture.allOf(futures).whenCompleteAsync((result, throwable) -> {
+                    connectingProviderSet.remove(providerCache);
+                    if (throwable != null) {
+                        logger.error("[consumer:{}] failed to start, wait [{}] seconds to recheck consumer", providerCache, RETRY_SECONDS, throwable);
+                        SchedulerBus.schedule(() -> checkConsumer(), RETRY_SECONDS, TimeUnit.SECONDS);
+                        return;
+                    }
+                    // 连接成功后重新检查，更新consumer节点的数据
+                    checkConsumer();
+                }, executor);
             } catch (Throwable t) {
+                connectingProviderSet.remove(providerCache);
                 logger.error("[consumer:{}] failed to start, wait [{}] seconds to recheck consumer", providerCache, RETRY_SECONDS, t);
                 recheckFlag = true;
             }
@@ -512,6 +544,11 @@ public class ZookeeperRegistry implements IRegistry {
         }
     }
 
+    private int consumerConnections() {
+        var consumerConfig = NetContext.getConfigManager().getLocalConfig().getConsumer();
+        return consumerConfig == null ? 1 : Math.max(consumerConfig.getConnections(), 1);
+    }
+
     private void updateConsumerData() {
         var list = new ArrayList<String>();
         NetContext.getSessionManager().forEachClientSession(session -> {
@@ -523,7 +560,11 @@ public class ZookeeperRegistry implements IRegistry {
             if (providerConfig == null) {
                 return;
             }
-            list.add(consumerAttribute.toProviderSimple());
+            // 同一个服务提供者可能有多个连接，只写一次
+            var providerSimple = consumerAttribute.toProviderSimple();
+            if (!list.contains(providerSimple)) {
+                list.add(providerSimple);
+            }
         });
 
         if (CollectionUtils.isEmpty(list)) {
@@ -13,6 +13,7 @@
 
 package com.zfoo.net.core;
 
+import com.zfoo.net.NetContext;
 import com.zfoo.net.session.Session;
 import com.zfoo.net.util.SessionUtils;
 import com.zfoo.protocol.exception.RunException;
@@ -21,16 +22,14 @@ import com.zfoo.protocol.util.ThreadUtils;
 import com.zfoo.scheduler.util.TimeUtils;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.epoll.EpollSocketChannel;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.SQLOutput;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author godotg
@@ -39,9 +38,12 @@ public abstract class AbstractClient<C extends Channel> extends ChannelInitializ
 
     protected static final Logger logger = LoggerFactory.getLogger(AbstractClient.class);
 
-    protected static final EventLoopGroup nioEventLoopGroup = Epoll.isAvailable()
-            ? new EpollEventLoopGroup(Runtime.getRuntime().availableProcessors() + 1, new DefaultThreadFactory("netty-client", true))
-            : new NioEventLoopGroup(Runtime.getRuntime().availableProcessors() + 1, new DefaultThreadFactory("netty-client", true));
+    // 所有客户端共用event loop，每种传输层在第一个客户端启动的时候创建
+    private static final Map<NetTransport, EventLoopGroup> clientEventLoopGroups = new EnumMap<>(NetTransport.class);
+
+    private static final long INITIAL_RECONNECT_DELAY_MILLIS = 100;
+
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 10 * TimeUtils.MILLIS_PER_SECOND;
 
     protected String hostAddress;
     protected int port;
@@ -53,51 +55,106 @@ public abstract class AbstractClient<C extends Channel> extends ChannelInitializ
         this.port = host.getPort();
     }
 
+    /**
+     * 阻塞等待连接完成，不能在客户端的event loop中调用，否则连接的回调永远不会执行
+     */
     @Override
     public synchronized Session start() {
-        return doStart();
+        if (inClientEventLoop(NetTransport.localTransport())) {
+            throw new RunException("[{}] cannot start in the client event loop [thread:{}], use startAsync instead", this.getClass().getSimpleName(), Thread.currentThread().getName());
+        }
+        try {
+            return startAsync().join();
+        } catch (CompletionException e) {
+            throw new RunException("[{}] started failed", this.getClass().getSimpleName(), e.getCause());
+        }
     }
 
-    private synchronized Session doStart() {
-        this.bootstrap = new Bootstrap();
-        this.bootstrap.group(nioEventLoopGroup)
-                .channel(Epoll.isAvailable() ? EpollSocketChannel.class : NioSocketChannel.class)
+    /**
+     * 异步连接，不阻塞调用线程，连接成功并且创建了session之后完成
+     */
+    public CompletableFuture<Session> startAsync() {
+        return startAsync(0);
+    }
+
+    /**
+     * 连接失败后在event loop中按照指数退避重连，不占用调用线程，重试maxRetries次之后还是失败则异常完成
+     */
+    public CompletableFuture<Session> startAsync(int maxRetries) {
+        var transport = NetTransport.localTransport();
+        var bootstrap = new Bootstrap();
+        bootstrap.group(clientEventLoopGroup(transport))
+                .channel(transport.socketChannelClass())
                 .option(ChannelOption.TCP_NODELAY, true)
                 .option(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(16 * IOUtils.BYTES_PER_KB, 16 * IOUtils.BYTES_PER_MB))
                 .handler(this);
-        var channelFuture = bootstrap.connect(hostAddress, port);
-        channelFuture.syncUninterruptibly();
 
-        if (channelFuture.cause() != null) {
-            throw new RuntimeException(channelFuture.cause());
-        }
+        var future = new CompletableFuture<Session>();
+        connect(bootstrap, future, 0, maxRetries);
+        return future;
+    }
 
-        if (!channelFuture.isSuccess() || !channelFuture.channel().isActive()) {
-            throw new RunException("[{}] started failed", this.getClass().getSimpleName());
+    /**
+     * future被cancel之后停止重连
+     */
+    private void connect(Bootstrap bootstrap, CompletableFuture<Session> future, int retry, int maxRetries) {
+        if (future.isDone()) {
+            return;
         }
+        bootstrap.connect(hostAddress, port).addListener((ChannelFutureListener) channelFuture -> {
+            if (channelFuture.isSuccess()) {
+                // 连接的promise在channelActive之前完成，下一个任务中channelActive已经创建了session
+                var channel = channelFuture.channel();
+                channel.eventLoop().execute(() -> {
+                    var session = SessionUtils.getSession(channel);
+                    if (future.isDone()) {
+                        channel.close();
+                        return;
+                    }
+                    if (session == null || !channel.isActive()) {
+                        channel.close();
+                        future.completeExceptionally(new RunException("[{}] started failed, channel is inactive", this.getClass().getSimpleName()));
+                        return;
+                    }
+                    logger.info("{} started at [{}]", this.getClass().getSimpleName(), channel.localAddress());
+                    future.complete(session);
+                });
+                return;
+            }
+            if (retry >= maxRetries) {
+                future.completeExceptionally(channelFuture.cause());
+                return;
+            }
+            var delayMillis = Math.min(MAX_RECONNECT_DELAY_MILLIS, INITIAL_RECONNECT_DELAY_MILLIS << Math.min(retry, 16));
+            logger.warn("{} failed to connect [{}:{}], retry [{}] after [{}] ms", this.getClass().getSimpleName(), hostAddress, port, retry + 1, delayMillis);
+            bootstrap.config().group().schedule(() -> connect(bootstrap, future, retry + 1, maxRetries), delayMillis, TimeUnit.MILLISECONDS);
+        });
+    }
 
-        var channel = channelFuture.channel();
-        var session = SessionUtils.getSession(channel);
-        var loop = 128;
-        var sleepMillisSeconds = 100;
-        for (int i = 0; i < loop; i++) {
-            ThreadUtils.sleep(sleepMillisSeconds);
-            session = SessionUtils.getSession(channel);
-            if (session != null) {
-                break;
+    private static boolean inClientEventLoop(NetTransport transport) {
+        for (var executor : clientEventLoopGroup(transport)) {
+            if (executor.inEventLoop()) {
+                return true;
             }
         }
-        if (session == null) {
-            channel.close();
-            throw new RunException("[{}] start client timeout after [{}] seconds", this.getClass().getSimpleName(), loop * sleepMillisSeconds / TimeUtils.MILLIS_PER_SECOND);
-        }
-        logger.info("{} started at [{}]", this.getClass().getSimpleName(), channel.localAddress());
-        return session;
+        return false;
     }
 
+    /**
+     * 线程数默认cpuNum + 1，可以通过net配置的client-threads修改
+     */
+    protected synchronized static EventLoopGroup clientEventLoopGroup(NetTransport transport) {
+        return clientEventLoopGroups.computeIfAbsent(transport, it -> {
+            var netConfig = NetContext.getNetContext() == null ? null : NetContext.getConfigManager().getLocalConfig();
+            var threads = netConfig == null || netConfig.getClientThreads() <= 0
+                    ? Runtime.getRuntime().availableProcessors() + 1
+                    : netConfig.getClientThreads();
+            return it.newEventLoopGroup(threads, "netty-client");
+        });
+    }
 
     public synchronized static void shutdown() {
-        ThreadUtils.shutdownEventLoopGracefully("netty-client", nioEventLoopGroup);
+        clientEventLoopGroups.values().forEach(it -> ThreadUtils.shutdownEventLoopGracefully("netty-client", it));
     }
 
 }
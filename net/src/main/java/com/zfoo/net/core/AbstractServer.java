@@ -13,16 +13,13 @@
 
 package com.zfoo.net.core;
 
+import com.zfoo.net.NetContext;
+import com.zfoo.net.config.model.NetConfig;
 import com.zfoo.protocol.util.IOUtils;
 import com.zfoo.protocol.util.ThreadUtils;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.epoll.EpollServerSocketChannel;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,19 +58,14 @@ public abstract class AbstractServer<C extends Channel> extends ChannelInitializ
     }
 
     protected synchronized void doStart() {
-        var cpuNum = Runtime.getRuntime().availableProcessors();
+        var transport = NetTransport.localTransport();
         // 一条线程持有一个端口对应的selector，如果我们启动不仅仅是一个服务器端口的话，为了更好的性能需要修改对应的bossGroup数量
-        bossGroup = Epoll.isAvailable()
-                ? new EpollEventLoopGroup(Math.max(1, cpuNum / 8), new DefaultThreadFactory("netty-boss", true))
-                : new NioEventLoopGroup(Math.max(1, cpuNum / 8), new DefaultThreadFactory("netty-boss", true));
-
-        workerGroup = Epoll.isAvailable()
-                ? new EpollEventLoopGroup(cpuNum * 2, new DefaultThreadFactory("netty-worker", true))
-                : new NioEventLoopGroup(cpuNum * 2, new DefaultThreadFactory("netty-worker", true));
+        bossGroup = transport.newEventLoopGroup(bossThreads(), "netty-boss");
+        workerGroup = transport.newEventLoopGroup(workerThreads(), "netty-worker");
 
         ServerBootstrap bootstrap = new ServerBootstrap();
         bootstrap.group(bossGroup, workerGroup)
-                .channel(Epoll.isAvailable() ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
+                .channel(transport.serverChannelClass())
                 .option(ChannelOption.SO_REUSEADDR, true)
                 .childOption(ChannelOption.TCP_NODELAY, true)
                 .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(16 * IOUtils.BYTES_PER_KB, 16 * IOUtils.BYTES_PER_MB))
@@ -94,6 +86,42 @@ public abstract class AbstractServer<C extends Channel> extends ChannelInitializ
     }
 
 
+    /**
+     * 默认cpuNum / 8，可以通过net配置的boss-threads修改
+     */
+    protected int bossThreads() {
+        var netConfig = localConfig();
+        return netConfig == null || netConfig.getBossThreads() <= 0
+                ? Math.max(1, Runtime.getRuntime().availableProcessors() / 8)
+                : netConfig.getBossThreads();
+    }
+
+    /**
+     * 默认cpuNum * 2，可以通过net配置的worker-threads修改
+     */
+    protected int workerThreads() {
+        var netConfig = localConfig();
+        return netConfig == null || netConfig.getWorkerThreads() <= 0
+                ? Runtime.getRuntime().availableProcessors() * 2
+                : netConfig.getWorkerThreads();
+    }
+
+    /**
+     * 开启了net配置的flush-consolidation时，在pipeline的最前面加入FlushConsolidationHandler。
+     * 读取过程中的flush合并到channelReadComplete，io线程以外的flush合并为下一次事件循环中的一次flush，
+     * 同一个session连续send的多个包只需要一次系统调用
+     */
+    protected void addFlushConsolidation(ChannelPipeline pipeline) {
+        var netConfig = localConfig();
+        if (netConfig != null && netConfig.isFlushConsolidation()) {
+            pipeline.addLast(new FlushConsolidationHandler(FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES, true));
+        }
+    }
+
+    private static NetConfig localConfig() {
+        return NetContext.getNetContext() == null ? null : NetContext.getConfigManager().getLocalConfig();
+    }
+
     @Override
     public synchronized void shutdown() {
         ThreadUtils.shutdownEventLoopGracefully("netty-boss", bossGroup);
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.zfoo.net.core;
+
+import com.zfoo.net.session.Session;
+import com.zfoo.net.util.SessionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * EN: Several connections to the same address, the broken connections are reconnected with exponential backoff on the event loop.
+ * <p>
+ * CN: 连接同一个地址的多个连接，读写分散到多个event loop上。连接断开或者第一次连接失败之后，在event loop中按照指数退避一直重连，不占用业务线程。
+ * 提供轮询，最少待发送字节和hash亲和三种选择方式，没有可用的连接时返回null
+ *
+ * @author godotg
+ */
+public class ClientPool implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientPool.class);
+
+    private final AbstractClient<?> client;
+
+    private final AtomicReferenceArray<Session> sessions;
+
+    // 正在重连的future，关闭的时候取消
+    private final AtomicReferenceArray<CompletableFuture<Session>> connectingFutures;
+
+    private final AtomicInteger roundRobinIndex = new AtomicInteger(0);
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param client 同一个client可以发起多个连接
+     * @param size   连接的数量
+     */
+    public ClientPool(AbstractClient<?> client, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        this.client = client;
+        this.sessions = new AtomicReferenceArray<>(size);
+        this.connectingFutures = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * 所有的连接都第一次尝试完成后结束，有连接失败则异常完成，失败的连接会在后台继续重连
+     */
+    public CompletableFuture<Void> startAsync() {
+        var futures = new CompletableFuture<?>[size()];
+        for (var i = 0; i < size(); i++) {
+            futures[i] = connect(i, 0);
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    private CompletableFuture<Session> connect(int index, int maxRetries) {
+        var future = client.startAsync(maxRetries);
+        connectingFutures.set(index, future);
+        // 返回whenComplete之后的future，完成的时候session已经放入连接池
+        return future.whenComplete((session, throwable) -> {
+            if (closed) {
+                if (session != null) {
+                    session.close();
+                }
+                return;
+            }
+            if (throwable != null) {
+                logger.warn("client pool connection [{}] failed to connect and keep reconnecting", index);
+                connect(index, Integer.MAX_VALUE);
+                return;
+            }
+            sessions.set(index, session);
+            session.getChannel().closeFuture().addListener(it -> {
+                sessions.compareAndSet(index, session, null);
+                if (!closed) {
+                    logger.warn("client pool connection [{}] is inactive and reconnect {}", index, SessionUtils.sessionSimpleInfo(session));
+                    connect(index, Integer.MAX_VALUE);
+                }
+            });
+        });
+    }
+
+    /**
+     * 轮询
+     */
+    public Session roundRobin() {
+        return select(roundRobinIndex.getAndIncrement());
+    }
+
+    /**
+     * 发送缓冲区中待发送的字节最少的连接
+     */
+    public Session leastPending() {
+        Session result = null;
+        var maxBytesBeforeUnwritable = -1L;
+        for (var i = 0; i < size(); i++) {
+            var session = sessions.get(i);
+            if (!SessionUtils.isActive(session)) {
+                continue;
+            }
+            var bytesBeforeUnwritable = session.getChannel().bytesBeforeUnwritable();
+            if (bytesBeforeUnwritable > maxBytesBeforeUnwritable) {
+                maxBytesBeforeUnwritable = bytesBeforeUnwritable;
+                result = session;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 相同的hash总是选择同一个连接，保证同一个hash的请求的顺序；这个连接断开的时候顺延到下一个可用的连接
+     */
+    public Session select(long hash) {
+        var size = size();
+        var start = (int) Math.floorMod(hash, (long) size);
+        for (var i = 0; i < size; i++) {
+            var session = sessions.get((start + i) % size);
+            if (SessionUtils.isActive(session)) {
+                return session;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 当前可用的连接
+     */
+    public List<Session> getSessions() {
+        var list = new ArrayList<Session>(size());
+        for (var i = 0; i < size(); i++) {
+            var session = sessions.get(i);
+            if (SessionUtils.isActive(session)) {
+                list.add(session);
+            }
+        }
+        return list;
+    }
+
+    public int size() {
+        return sessions.length();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (var i = 0; i < size(); i++) {
+            var future = connectingFutures.get(i);
+            if (future != null) {
+                future.cancel(false);
+            }
+            var session = sessions.getAndSet(i, null);
+            if (session != null) {
+                session.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.zfoo.net.core;
+
+import com.zfoo.net.NetContext;
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.util.StringUtils;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringDatagramChannel;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * EN: The netty transport used by all servers and clients, configured by the transport attribute of net config.
+ * <p>
+ * CN: 服务器和客户端使用的传输层，通过net配置的transport属性选择，auto按照io_uring，epoll，nio的顺序选择第一个可用的。
+ * io_uring和epoll只依赖了java类，需要自己引入对应平台的native包才可用；
+ * 指定的传输层不可用时打印警告，退回到auto，方便同一份配置在windows和mac的开发机上启动
+ *
+ * @author godotg
+ */
+public enum NetTransport {
+
+    AUTO("auto"),
+
+    IO_URING("io_uring"),
+
+    EPOLL("epoll"),
+
+    NIO("nio"),
+
+    ;
+
+    private static final Logger logger = LoggerFactory.getLogger(NetTransport.class);
+
+    private static final AtomicBoolean fallbackWarned = new AtomicBoolean(false);
+
+    private final String name;
+
+    NetTransport(String name) {
+        this.name = name;
+    }
+
+    public static NetTransport getTransportByName(String name) {
+        if (StringUtils.isBlank(name)) {
+            return AUTO;
+        }
+        for (var transport : values()) {
+            if (transport.name.equalsIgnoreCase(name.trim())) {
+                return transport;
+            }
+        }
+        throw new RunException("unknown net transport [{}], only support auto, io_uring, epoll, nio", name);
+    }
+
+    /**
+     * 当前配置的传输层，没有启动net的时候使用auto
+     */
+    public static NetTransport localTransport() {
+        if (NetContext.getNetContext() == null) {
+            return AUTO.resolve();
+        }
+        return getTransportByName(NetContext.getConfigManager().getLocalConfig().getTransport()).resolve();
+    }
+
+    public boolean isAvailable() {
+        switch (this) {
+            case IO_URING:
+                return IOUring.isAvailable();
+            case EPOLL:
+                return Epoll.isAvailable();
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * 返回实际可用的传输层，返回值不会是AUTO
+     */
+    public NetTransport resolve() {
+        if (this != AUTO && isAvailable()) {
+            return this;
+        }
+        // 每次创建channel都会调用resolve，退回的警告只打印一次
+        if (this != AUTO && fallbackWarned.compareAndSet(false, true)) {
+            logger.warn("net transport [{}] is not available and fall back to auto", name, this == IO_URING ? IOUring.unavailabilityCause() : Epoll.unavailabilityCause());
+        }
+        if (IO_URING.isAvailable()) {
+            return IO_URING;
+        }
+        return EPOLL.isAvailable() ? EPOLL : NIO;
+    }
+
+    public EventLoopGroup newEventLoopGroup(int threads, String threadName) {
+        var threadFactory = new DefaultThreadFactory(threadName, true);
+        switch (resolve()) {
+            case IO_URING:
+                return new IOUringEventLoopGroup(threads, threadFactory);
+            case EPOLL:
+                return new EpollEventLoopGroup(threads, threadFactory);
+            default:
+                return new NioEventLoopGroup(threads, threadFactory);
+        }
+    }
+
+    public Class<? extends ServerChannel> serverChannelClass() {
+        switch (resolve()) {
+            case IO_URING:
+                return IOUringServerSocketChannel.class;
+            case EPOLL:
+                return EpollServerSocketChannel.class;
+            default:
+                return NioServerSocketChannel.class;
+        }
+    }
+
+    public Class<? extends Channel> socketChannelClass() {
+        switch (resolve()) {
+            case IO_URING:
+                return IOUringSocketChannel.class;
+            case EPOLL:
+                return EpollSocketChannel.class;
+            default:
+                return NioSocketChannel.class;
+        }
+    }
+
+    public Class<? extends Channel> datagramChannelClass() {
+        switch (resolve()) {
+            case IO_URING:
+                return IOUringDatagramChannel.class;
+            case EPOLL:
+                return EpollDatagramChannel.class;
+            default:
+                return NioDatagramChannel.class;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+}
@@ -32,16 +32,26 @@ public class GatewayServer extends AbstractServer<SocketChannel> {
 
     private BiFunction<Session, Object, Boolean> packetFilter;
 
+    private boolean passThrough;
+
     public GatewayServer(HostAndPort host, @Nullable BiFunction<Session, Object, Boolean> packetFilter) {
+        this(host, packetFilter, false);
+    }
+
+    /**
+     * 透传模式下网关不会反序列化客户端的包，只是读取协议号之后直接转发原始字节给服务提供者，packetFilter收到的是RawPacket
+     */
+    public GatewayServer(HostAndPort host, @Nullable BiFunction<Session, Object, Boolean> packetFilter, boolean passThrough) {
         super(host);
         this.packetFilter = packetFilter;
+        this.passThrough = passThrough;
     }
 
     @Override
     protected void initChannel(SocketChannel channel) {
         channel.pipeline().addLast(new IdleStateHandler(0, 0, 180));
         channel.pipeline().addLast(new ServerIdleHandler());
-        channel.pipeline().addLast(new TcpCodecHandler());
+        channel.pipeline().addLast(new TcpCodecHandler(passThrough));
         channel.pipeline().addLast(new GatewayRouteHandler(packetFilter));
     }
 }
@@ -37,9 +37,19 @@ public class WebsocketGatewayServer extends AbstractServer<SocketChannel> {
 
     private BiFunction<Session, Object, Boolean> packetFilter;
 
+    private boolean passThrough;
+
     public WebsocketGatewayServer(HostAndPort host, @Nullable BiFunction<Session, Object, Boolean> packetFilter) {
+        this(host, packetFilter, false);
+    }
+
+    /**
+     * passThrough为true时网关直接转发客户端包的原始字节，参考GatewayServer
+     */
+    public WebsocketGatewayServer(HostAndPort host, @Nullable BiFunction<Session, Object, Boolean> packetFilter, boolean passThrough) {
         super(host);
         this.packetFilter = packetFilter;
+        this.passThrough = passThrough;
     }
 
     @Override
@@ -51,7 +61,7 @@ public class WebsocketGatewayServer extends AbstractServer<SocketChannel> {
         channel.pipeline().addLast(new HttpObjectAggregator(16 * IOUtils.BYTES_PER_MB));
         channel.pipeline().addLast(new WebSocketServerProtocolHandler("/websocket"));
         channel.pipeline().addLast(new ChunkedWriteHandler());
-        channel.pipeline().addLast(new WebSocketCodecHandler());
+        channel.pipeline().addLast(new WebSocketCodecHandler(passThrough));
         channel.pipeline().addLast(new GatewayRouteHandler(packetFilter));
     }
 }
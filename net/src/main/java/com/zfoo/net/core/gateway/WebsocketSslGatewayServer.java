@@ -43,7 +43,16 @@ public class WebsocketSslGatewayServer extends AbstractServer<SocketChannel> {
 
     private BiFunction<Session, Object, Boolean> packetFilter;
 
+    private boolean passThrough;
+
     public WebsocketSslGatewayServer(HostAndPort host, InputStream pem, InputStream key, @Nullable BiFunction<Session, Object, Boolean> packetFilter) {
+        this(host, pem, key, packetFilter, false);
+    }
+
+    /**
+     * passThrough为true时网关直接转发客户端包的原始字节，参考GatewayServer
+     */
+    public WebsocketSslGatewayServer(HostAndPort host, InputStream pem, InputStream key, @Nullable BiFunction<Session, Object, Boolean> packetFilter, boolean passThrough) {
         super(host);
         try {
             this.sslContext = SslContextBuilder.forServer(pem, key).build();
@@ -51,6 +60,7 @@ public class WebsocketSslGatewayServer extends AbstractServer<SocketChannel> {
             throw new IllegalArgumentException(e);
         }
         this.packetFilter = packetFilter;
+        this.passThrough = passThrough;
     }
 
     @Override
@@ -63,7 +73,7 @@ public class WebsocketSslGatewayServer extends AbstractServer<SocketChannel> {
         channel.pipeline().addLast(new HttpObjectAggregator(16 * IOUtils.BYTES_PER_MB));
         channel.pipeline().addLast(new WebSocketServerProtocolHandler("/"));
         channel.pipeline().addLast(new ChunkedWriteHandler());
-        channel.pipeline().addLast(new WebSocketCodecHandler());
+        channel.pipeline().addLast(new WebSocketCodecHandler(passThrough));
         channel.pipeline().addLast(new GatewayRouteHandler(packetFilter));
     }
 }
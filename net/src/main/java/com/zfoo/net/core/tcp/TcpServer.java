@@ -32,6 +32,7 @@ public class TcpServer extends AbstractServer<SocketChannel> {
 
     @Override
     protected void initChannel(SocketChannel channel) throws Exception {
+        addFlushConsolidation(channel.pipeline());
         channel.pipeline().addLast(new IdleStateHandler(0, 0, 180));
         channel.pipeline().addLast(new ServerIdleHandler());
         channel.pipeline().addLast(new TcpCodecHandler());
@@ -16,6 +16,7 @@ package com.zfoo.net.core.udp;
 import com.zfoo.net.NetContext;
 import com.zfoo.net.core.AbstractClient;
 import com.zfoo.net.core.HostAndPort;
+import com.zfoo.net.core.NetTransport;
 import com.zfoo.net.handler.BaseRouteHandler;
 import com.zfoo.net.handler.codec.udp.UdpCodecHandler;
 import com.zfoo.net.session.Session;
@@ -23,9 +24,8 @@ import com.zfoo.protocol.exception.RunException;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollDatagramChannel;
-import io.netty.channel.socket.nio.NioDatagramChannel;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author godotg
@@ -38,9 +38,10 @@ public class UdpClient extends AbstractClient<Channel> {
 
     @Override
     public synchronized Session start() {
+        var transport = NetTransport.localTransport();
         this.bootstrap = new Bootstrap();
-        this.bootstrap.group(nioEventLoopGroup)
-                .channel(Epoll.isAvailable() ? EpollDatagramChannel.class : NioDatagramChannel.class)
+        this.bootstrap.group(clientEventLoopGroup(transport))
+                .channel(transport.datagramChannelClass())
                 .option(ChannelOption.SO_BROADCAST, true)
                 .handler(this);
 
@@ -60,6 +61,14 @@ public class UdpClient extends AbstractClient<Channel> {
         return session;
     }
 
+    /**
+     * udp只需要绑定本地端口，不需要连接
+     */
+    @Override
+    public CompletableFuture<Session> startAsync(int maxRetries) {
+        return CompletableFuture.completedFuture(start());
+    }
+
     @Override
     protected void initChannel(Channel channel) {
         channel.pipeline().addLast(new UdpCodecHandler());
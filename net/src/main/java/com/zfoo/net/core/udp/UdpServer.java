@@ -14,16 +14,11 @@ package com.zfoo.net.core.udp;
 
 import com.zfoo.net.core.AbstractServer;
 import com.zfoo.net.core.HostAndPort;
+import com.zfoo.net.core.NetTransport;
 import com.zfoo.net.handler.codec.udp.UdpCodecHandler;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollDatagramChannel;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioDatagramChannel;
-import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,16 +34,14 @@ public class UdpServer extends AbstractServer<Channel> {
 
     @Override
     public void start() {
-        var cpuNum = Runtime.getRuntime().availableProcessors();
+        var transport = NetTransport.localTransport();
 
         // 配置服务端nio线程组
-        workerGroup = Epoll.isAvailable()
-                ? new EpollEventLoopGroup(cpuNum * 2, new DefaultThreadFactory("netty-worker", true))
-                : new NioEventLoopGroup(cpuNum * 2, new DefaultThreadFactory("netty-worker", true));
+        workerGroup = transport.newEventLoopGroup(workerThreads(), "netty-worker");
 
         Bootstrap bootstrap = new Bootstrap();
         bootstrap.group(workerGroup)
-                .channel(Epoll.isAvailable() ? EpollDatagramChannel.class : NioDatagramChannel.class)
+                .channel(transport.datagramChannelClass())
                 .option(ChannelOption.SO_BROADCAST, true)
                 .handler(this);
 
@@ -37,6 +37,7 @@ public class WebsocketServer extends AbstractServer<SocketChannel> {
 
     @Override
     public void initChannel(SocketChannel channel) {
+        addFlushConsolidation(channel.pipeline());
         channel.pipeline().addLast(new IdleStateHandler(0, 0, 180));
         channel.pipeline().addLast(new ServerIdleHandler());
         // 编解码 http 请求
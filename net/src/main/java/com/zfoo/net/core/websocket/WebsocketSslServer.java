@@ -62,6 +62,7 @@ public class WebsocketSslServer extends AbstractServer<SocketChannel> {
 
     @Override
     protected void initChannel(SocketChannel channel) {
+        addFlushConsolidation(channel.pipeline());
         channel.pipeline().addLast(new IdleStateHandler(0, 0, 180));
         channel.pipeline().addLast(new ServerIdleHandler());
         channel.pipeline().addLast(sslContext.newHandler(channel.alloc()));
@@ -93,6 +93,12 @@ public abstract class EnhanceUtils {
         }
         enhanceClazz.addMethod(attachmentMethod);
 
+        // 定义类实现的接口方法release
+        CtMethod releaseMethod = new CtMethod(CtClass.booleanType, "release", null, enhanceClazz);
+        releaseMethod.setModifiers(Modifier.PUBLIC + Modifier.FINAL);
+        releaseMethod.setBody(StringUtils.format("{ return {}; }", definition.isRelease()));
+        enhanceClazz.addMethod(releaseMethod);
+
         enhanceClazz.detach();
 
         var resultClazz = enhanceClazz.toClass(IPacketReceiver.class);
@@ -25,6 +25,8 @@ public interface IPacketReceiver {
 
     Class<?> attachment();
 
+    boolean release();
+
     void invoke(Session session, Object packet, Object attachment);
 
 }
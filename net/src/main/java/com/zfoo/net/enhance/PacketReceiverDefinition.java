@@ -52,6 +52,11 @@ public class PacketReceiverDefinition implements IPacketReceiver {
      */
     private Class<?> attachmentClazz;
 
+    /**
+     * release the recycled packet after the receiver returns, see PacketReceiver.release()
+     */
+    private boolean release;
+
     public PacketReceiverDefinition(Object bean, Method method, Task task, Class<?> packetClazz, Class<?> attachmentClazz) {
         this.bean = bean;
         this.method = method;
@@ -71,6 +76,11 @@ public class PacketReceiverDefinition implements IPacketReceiver {
         return attachmentClazz;
     }
 
+    @Override
+    public boolean release() {
+        return release;
+    }
+
 
     @Override
     public void invoke(Session session, Object packet, Object attachment) {
@@ -121,4 +131,11 @@ public class PacketReceiverDefinition implements IPacketReceiver {
         this.attachmentClazz = attachmentClazz;
     }
 
+    public boolean isRelease() {
+        return release;
+    }
+
+    public void setRelease(boolean release) {
+        this.release = release;
+    }
 }
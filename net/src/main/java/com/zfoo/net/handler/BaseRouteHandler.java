@@ -64,6 +64,15 @@ public abstract class BaseRouteHandler extends ChannelInboundHandlerAdapter {
         NetContext.getRouter().receive(session, decodedPacketInfo.getPacket(), decodedPacketInfo.getAttachment());
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        var session = SessionUtils.getSession(ctx);
+        if (session != null && session.getOutboundQueue() != null) {
+            session.getOutboundQueue().writabilityChanged();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         logger.error("{} session force close for exception", SessionUtils.sessionSimpleInfo(ctx), cause);
@@ -18,6 +18,7 @@ import com.zfoo.net.NetContext;
 import com.zfoo.net.core.gateway.IGatewayLoadBalancer;
 import com.zfoo.net.core.gateway.model.GatewaySessionInactiveEvent;
 import com.zfoo.net.packet.DecodedPacketInfo;
+import com.zfoo.net.packet.RawPacket;
 import com.zfoo.net.packet.common.Heartbeat;
 import com.zfoo.net.packet.common.Ping;
 import com.zfoo.net.packet.common.Pong;
@@ -56,13 +57,24 @@ public class GatewayRouteHandler extends ServerRouteHandler {
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        var decodedPacketInfo = (DecodedPacketInfo) msg;
+        try {
+            route(ctx, decodedPacketInfo);
+        } finally {
+            // 透传的包持有接收到的buffer的引用，转发的时候会另外持有，这里释放
+            if (decodedPacketInfo.getPacket() instanceof RawPacket rawPacket) {
+                rawPacket.release();
+            }
+        }
+    }
+
+    private void route(ChannelHandlerContext ctx, DecodedPacketInfo decodedPacketInfo) {
         // 请求者的session，一般是serverSession
         var session = SessionUtils.getSession(ctx);
         if (session == null) {
             return;
         }
 
-        var decodedPacketInfo = (DecodedPacketInfo) msg;
         var packet = decodedPacketInfo.getPacket();
         if (packet.getClass() == Heartbeat.class) {
             return;
@@ -88,8 +100,10 @@ public class GatewayRouteHandler extends ServerRouteHandler {
 
         // 网关优先使用IGatewayLoadBalancer作为一致性hash的计算参数，然后才会使用客户端的session做参数
         // 例子：以聊天服务来说，用户或玩家知道自己在哪个群组groupId中，那往这个群发送消息时，会在Packet中带上这个groupId做为一致性hash就可以了。
-        if (packet instanceof IGatewayLoadBalancer) {
-            var loadBalancerConsistentHashObject = ((IGatewayLoadBalancer) packet).loadBalancerConsistentHashObject();
+        // 透传模式下IGatewayLoadBalancer包会被反序列化出来
+        var balancerPacket = packet instanceof RawPacket rawPacket ? rawPacket.getPacket() : packet;
+        if (balancerPacket instanceof IGatewayLoadBalancer) {
+            var loadBalancerConsistentHashObject = ((IGatewayLoadBalancer) balancerPacket).loadBalancerConsistentHashObject();
             gatewayAttachment.setTaskExecutorHash(loadBalancerConsistentHashObject.hashCode());
             forwardingPacket(packet, gatewayAttachment, loadBalancerConsistentHashObject);
             return;
@@ -117,6 +131,10 @@ public class GatewayRouteHandler extends ServerRouteHandler {
             var providers = NetContext.getConsumer().findProviders(packet);
             var loadBalancer = NetContext.getConsumer().selectLoadBalancer(providers, packet);
             var providerSession = loadBalancer.selectProvider(providers, packet, argument);
+            if (packet instanceof RawPacket rawPacket) {
+                forwardingRawPacket(providerSession, rawPacket, attachment);
+                return;
+            }
             NetContext.getRouter().send(providerSession, packet, attachment);
         } catch (Exception e) {
             logger.error("An exception occurred at the gateway", e);
@@ -125,6 +143,18 @@ public class GatewayRouteHandler extends ServerRouteHandler {
         }
     }
 
+    /**
+     * 透传的包和普通的包走同样的发送路径，合并发送，发送队列，可写检查和压缩都会生效，编码的时候直接写入原始字节
+     */
+    private void forwardingRawPacket(Session providerSession, RawPacket rawPacket, Object attachment) {
+        // 和Provider的连接使用了字符串字典，只能反序列化之后重新编码
+        if (providerSession.getStringDictionary() != null) {
+            NetContext.getRouter().send(providerSession, rawPacket.decode(), attachment);
+            return;
+        }
+        NetContext.getRouter().send(providerSession, rawPacket.copy(), attachment);
+    }
+
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         var session = SessionUtils.getSession(ctx);
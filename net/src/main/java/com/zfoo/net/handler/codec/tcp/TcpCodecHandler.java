@@ -15,7 +15,11 @@ package com.zfoo.net.handler.codec.tcp;
 
 import com.zfoo.net.NetContext;
 import com.zfoo.net.packet.EncodedPacketInfo;
+import com.zfoo.net.packet.PacketBatch;
+import com.zfoo.net.packet.PacketCompressor;
 import com.zfoo.net.packet.PacketService;
+import com.zfoo.net.util.SessionUtils;
+import com.zfoo.protocol.buffer.StringDictionary;
 import com.zfoo.protocol.util.IOUtils;
 import com.zfoo.protocol.util.StringUtils;
 import io.netty.buffer.ByteBuf;
@@ -32,6 +36,19 @@ import java.util.List;
  */
 public class TcpCodecHandler extends ByteToMessageCodec<EncodedPacketInfo> {
 
+    /**
+     * 网关的透传模式，只读取协议号，协议体不会被反序列化，转发给服务提供者的时候也不会再序列化
+     */
+    private final boolean passThrough;
+
+    public TcpCodecHandler() {
+        this(false);
+    }
+
+    public TcpCodecHandler(boolean passThrough) {
+        this.passThrough = passThrough;
+    }
+
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
         // 不够读一个int
@@ -54,13 +71,44 @@ public class TcpCodecHandler extends ByteToMessageCodec<EncodedPacketInfo> {
 
         // readSlice和byte[]数组相比，readSlice减少了垃圾回收
         var sliceByteBuf = in.readSlice(length);
-        var packetInfo = NetContext.getPacketService().read(sliceByteBuf);
-        out.add(packetInfo);
+        var dictionary = SessionUtils.getStringDictionary(ctx);
+        // 对方发送了压缩的包，回复的包也可以压缩
+        if (PacketCompressor.isCompressed(sliceByteBuf)) {
+            SessionUtils.adoptCompressThreshold(ctx);
+        }
+        // 批量帧解码为多个包
+        if (PacketBatch.isBatch(sliceByteBuf)) {
+            SessionUtils.adoptBatchFrame(ctx);
+            StringDictionary.bind(dictionary);
+            try {
+                NetContext.getPacketService().readBatch(sliceByteBuf, out, passThrough && dictionary == null);
+            } finally {
+                StringDictionary.unbind();
+            }
+            return;
+        }
+        // 使用了字符串字典的连接只能按照顺序反序列化
+        if (passThrough && dictionary == null) {
+            out.add(NetContext.getPacketService().readPassThrough(sliceByteBuf));
+            return;
+        }
+        StringDictionary.bind(dictionary);
+        try {
+            var packetInfo = NetContext.getPacketService().read(sliceByteBuf);
+            out.add(packetInfo);
+        } finally {
+            StringDictionary.unbind();
+        }
     }
 
     @Override
     protected void encode(ChannelHandlerContext ctx, EncodedPacketInfo packetInfo, ByteBuf out) {
-        NetContext.getPacketService().writeHeaderAndBody(out, packetInfo.getPacket(), packetInfo.getAttachment());
+        StringDictionary.bind(SessionUtils.getStringDictionary(ctx));
+        try {
+            NetContext.getPacketService().writeHeaderAndBody(out, packetInfo.getPacket(), packetInfo.getAttachment(), SessionUtils.getCompressThreshold(ctx));
+        } finally {
+            StringDictionary.unbind();
+        }
     }
 
 }
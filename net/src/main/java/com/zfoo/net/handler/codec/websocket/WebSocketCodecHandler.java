@@ -15,6 +15,10 @@ package com.zfoo.net.handler.codec.websocket;
 
 import com.zfoo.net.NetContext;
 import com.zfoo.net.packet.EncodedPacketInfo;
+import com.zfoo.net.packet.PacketBatch;
+import com.zfoo.net.packet.PacketCompressor;
+import com.zfoo.net.util.SessionUtils;
+import com.zfoo.protocol.buffer.StringDictionary;
 import com.zfoo.protocol.util.IOUtils;
 import com.zfoo.protocol.util.StringUtils;
 import io.netty.buffer.ByteBuf;
@@ -33,6 +37,19 @@ import java.util.List;
  */
 public class WebSocketCodecHandler extends MessageToMessageCodec<WebSocketFrame, EncodedPacketInfo> {
 
+    /**
+     * 网关的透传模式，参考TcpCodecHandler
+     */
+    private final boolean passThrough;
+
+    public WebSocketCodecHandler() {
+        this(false);
+    }
+
+    public WebSocketCodecHandler(boolean passThrough) {
+        this.passThrough = passThrough;
+    }
+
     @Override
     protected void decode(ChannelHandlerContext channelHandlerContext, WebSocketFrame webSocketFrame, List<Object> list) {
         ByteBuf in = webSocketFrame.content();
@@ -42,14 +59,50 @@ public class WebSocketCodecHandler extends MessageToMessageCodec<WebSocketFrame,
             throw new IllegalArgumentException(StringUtils.format("illegal packet [length:{}]", length));
         }
         var sliceByteBuf = in.readSlice(length);
-        var packetInfo = NetContext.getPacketService().read(sliceByteBuf);
-        list.add(packetInfo);
+        var dictionary = SessionUtils.getStringDictionary(channelHandlerContext);
+        // 对方发送了压缩的包，回复的包也可以压缩
+        if (PacketCompressor.isCompressed(sliceByteBuf)) {
+            SessionUtils.adoptCompressThreshold(channelHandlerContext);
+        }
+        // 批量帧解码为多个包
+        if (PacketBatch.isBatch(sliceByteBuf)) {
+            SessionUtils.adoptBatchFrame(channelHandlerContext);
+            StringDictionary.bind(dictionary);
+            try {
+                NetContext.getPacketService().readBatch(sliceByteBuf, list, passThrough && dictionary == null);
+            } finally {
+                StringDictionary.unbind();
+            }
+            return;
+        }
+        // 使用了字符串字典的连接只能按照顺序反序列化
+        if (passThrough && dictionary == null) {
+            list.add(NetContext.getPacketService().readPassThrough(sliceByteBuf));
+            return;
+        }
+        StringDictionary.bind(dictionary);
+        try {
+            var packetInfo = NetContext.getPacketService().read(sliceByteBuf);
+            list.add(packetInfo);
+        } finally {
+            StringDictionary.unbind();
+        }
     }
 
     @Override
     protected void encode(ChannelHandlerContext channelHandlerContext, EncodedPacketInfo out, List<Object> list) {
         var byteBuf = channelHandlerContext.alloc().ioBuffer();
-        NetContext.getPacketService().writeHeaderAndBody(byteBuf, out.getPacket(), out.getAttachment());
+        StringDictionary.bind(SessionUtils.getStringDictionary(channelHandlerContext));
+        try {
+            NetContext.getPacketService().writeHeaderAndBody(byteBuf, out.getPacket(), out.getAttachment(), SessionUtils.getCompressThreshold(channelHandlerContext));
+        } finally {
+            StringDictionary.unbind();
+        }
+        // 序列化失败的包已经被丢弃，不发送空的帧
+        if (!byteBuf.isReadable()) {
+            byteBuf.release();
+            return;
+        }
         list.add(new BinaryWebSocketFrame(byteBuf));
     }
 
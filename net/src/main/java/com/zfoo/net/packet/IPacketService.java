@@ -15,6 +15,8 @@ package com.zfoo.net.packet;
 import io.netty.buffer.ByteBuf;
 import org.springframework.lang.Nullable;
 
+import java.util.List;
+
 /**
  * @author godotg
  */
@@ -24,9 +26,37 @@ public interface IPacketService {
 
     DecodedPacketInfo read(ByteBuf buffer);
 
+    /**
+     * 读取一个批量帧PacketBatch，每个包都解码为一个DecodedPacketInfo加入out，passThrough为true则使用readPassThrough解码
+     */
+    void readBatch(ByteBuf buffer, List<Object> out, boolean passThrough);
+
     void write(ByteBuf buffer, Object packet, @Nullable Object attachment);
 
+    /**
+     * write写入的精确字节数，不包括包头的长度
+     */
+    int sizeOf(Object packet, @Nullable Object attachment);
+
+    /**
+     * 不压缩的写入一个包
+     */
     void writeHeaderAndBody(ByteBuf buffer, Object packet, @Nullable Object attachment);
 
+    /**
+     * 包体达到compressThreshold字节数才压缩，0表示不压缩，由每个session自己决定，see Session.compressThreshold
+     */
+    void writeHeaderAndBody(ByteBuf buffer, Object packet, @Nullable Object attachment, int compressThreshold);
+
+    /**
+     * 本地配置的压缩阈值，只用于能解压的zfoo之间的连接，0表示不压缩
+     */
+    int compressThreshold();
+
+    /**
+     * 网关透传模式的读取，只读取协议号并跳过协议体，包被包装为RawPacket，附加包依然会被反序列化
+     */
+    DecodedPacketInfo readPassThrough(ByteBuf buffer);
+
     void writeHeaderBefore(ByteBuf buffer);
 }
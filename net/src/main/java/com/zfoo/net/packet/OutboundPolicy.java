@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.net.packet;
+
+/**
+ * EN: What to do with the packets sent to a session whose channel is not writable, see OutboundQueue
+ * <p>
+ * CN: channel不可写的时候，发送给这个session的包的处理策略，见OutboundQueue
+ *
+ * @author godotg
+ */
+public enum OutboundPolicy {
+
+    /**
+     * 有界队列，队列满了丢弃最早的包
+     */
+    DROP_OLDEST,
+
+    /**
+     * 同一个协议号只保留最新的包，适合状态同步这种只关心最新值的协议，需要在OutboundQueue中指定合并的协议号；其它的协议和DROP_OLDEST一样
+     */
+    COALESCE,
+
+    /**
+     * 队列满了直接断开连接，适合不能丢包的连接
+     */
+    DISCONNECT,
+
+    /**
+     * 停止读取这个连接的请求，直到channel重新可写，让对方感受到背压；不可写期间发送的包进入队列，队列满了断开连接
+     */
+    SUSPEND,
+
+    ;
+
+}
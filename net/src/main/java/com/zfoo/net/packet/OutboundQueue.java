@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.net.packet;
+
+import com.zfoo.net.session.Session;
+import com.zfoo.net.util.SessionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * EN: Per-session outbound queue, packets are queued by the OutboundPolicy instead of being written when the channel is not writable,
+ * and drained when channelWritabilityChanged fires.
+ * <p>
+ * CN: 每个session的发送队列。channel可写并且队列为空时直接写入；channel不可写时按照OutboundPolicy缓存，丢弃，合并或者断开连接，
+ * 不会再把包一直堆积到高水位之上。channelWritabilityChanged触发后在io线程中按顺序写出缓存的包。
+ * <p>
+ * 被丢弃或者合并的syncAsk和asyncAsk的请求会等到超时；所有队列丢弃，合并和停止读取的总次数见totalDroppedCount等方法，由monitor定时采集
+ *
+ * @author godotg
+ */
+public class OutboundQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundQueue.class);
+
+    // 所有session的发送队列的总计数
+    private static final AtomicLong totalDroppedCount = new AtomicLong(0);
+
+    private static final AtomicLong totalCoalescedCount = new AtomicLong(0);
+
+    private static final AtomicLong totalSuspendedCount = new AtomicLong(0);
+
+    private static class Entry {
+        private EncodedPacketInfo packetInfo;
+        private final short protocolId;
+
+        private Entry(EncodedPacketInfo packetInfo, short protocolId) {
+            this.packetInfo = packetInfo;
+            this.protocolId = protocolId;
+        }
+    }
+
+    private final Session session;
+
+    private final OutboundPolicy policy;
+
+    private final int capacity;
+
+    // COALESCE策略下只保留最新值的协议号，为空表示没有协议合并
+    private final Set<Short> coalesceProtocolIds;
+
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+
+    // 队列中每个可以合并的协议号对应的包
+    private final Map<Short, Entry> coalesceMap = new HashMap<>();
+
+    private final AtomicLong droppedCount = new AtomicLong(0);
+
+    private final AtomicLong coalescedCount = new AtomicLong(0);
+
+    private final AtomicLong suspendedCount = new AtomicLong(0);
+
+    /**
+     * 没有合并的协议，COALESCE策略需要使用指定了合并协议号的构造方法
+     */
+    public OutboundQueue(Session session, OutboundPolicy policy, int capacity) {
+        this(session, policy, capacity, Collections.emptySet());
+    }
+
+    public OutboundQueue(Session session, OutboundPolicy policy, int capacity, Set<Short> coalesceProtocolIds) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.session = session;
+        this.policy = policy;
+        this.capacity = capacity;
+        this.coalesceProtocolIds = Set.copyOf(coalesceProtocolIds);
+    }
+
+    public synchronized void send(Object packet, @Nullable Object attachment, boolean flush) {
+        var channel = session.getChannel();
+        var packetInfo = EncodedPacketInfo.valueOf(session.getSid(), session.getUid(), packet, attachment);
+        // 队列不为空的时候也要进入队列，保证包的顺序
+        if (queue.isEmpty() && channel.isWritable()) {
+            if (flush) {
+                channel.writeAndFlush(packetInfo);
+            } else {
+                channel.write(packetInfo);
+            }
+            return;
+        }
+
+        var protocolId = RawPacket.protocolId(packet);
+        if (policy == OutboundPolicy.COALESCE && coalesceProtocolIds.contains(protocolId)) {
+            var entry = coalesceMap.get(protocolId);
+            if (entry != null) {
+                entry.packetInfo = packetInfo;
+                coalescedCount.incrementAndGet();
+                totalCoalescedCount.incrementAndGet();
+                return;
+            }
+        }
+
+        if (queue.size() >= capacity) {
+            // SUSPEND不能丢包，停止读取之后其它线程发送的包依然超过了容量，只能断开连接
+            if (policy == OutboundPolicy.DISCONNECT || policy == OutboundPolicy.SUSPEND) {
+                droppedCount.addAndGet(queue.size() + 1);
+                totalDroppedCount.addAndGet(queue.size() + 1);
+                clear();
+                logger.warn("{} outbound queue overflow [capacity:{}] and disconnect", SessionUtils.sessionSimpleInfo(session), capacity);
+                channel.close();
+                return;
+            }
+            removeEntry(queue.poll());
+            droppedCount.incrementAndGet();
+            totalDroppedCount.incrementAndGet();
+        }
+
+        var entry = new Entry(packetInfo, protocolId);
+        queue.offer(entry);
+        if (policy == OutboundPolicy.COALESCE && coalesceProtocolIds.contains(protocolId)) {
+            coalesceMap.put(protocolId, entry);
+        }
+        // 之前sendNoFlush直接写入的包不能因为这个包进入了队列而一直留在发送缓冲区
+        if (flush) {
+            channel.flush();
+        }
+    }
+
+    /**
+     * 在io线程中调用，可写的时候依次写出缓存的包，写到不可写为止；SUSPEND策略在不可写的时候还会停止读取
+     */
+    public synchronized void writabilityChanged() {
+        var channel = session.getChannel();
+        if (policy == OutboundPolicy.SUSPEND) {
+            var writable = channel.isWritable();
+            if (!writable && channel.config().isAutoRead()) {
+                suspendedCount.incrementAndGet();
+                totalSuspendedCount.incrementAndGet();
+            }
+            channel.config().setAutoRead(writable);
+        }
+        if (!channel.isActive()) {
+            clear();
+            return;
+        }
+        if (queue.isEmpty() || !channel.isWritable()) {
+            return;
+        }
+        while (!queue.isEmpty() && channel.isWritable()) {
+            var entry = queue.poll();
+            removeEntry(entry);
+            channel.write(entry.packetInfo);
+        }
+        channel.flush();
+    }
+
+    private void removeEntry(Entry entry) {
+        if (policy == OutboundPolicy.COALESCE) {
+            coalesceMap.remove(entry.protocolId, entry);
+        }
+    }
+
+    private void clear() {
+        queue.clear();
+        coalesceMap.clear();
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    public OutboundPolicy getPolicy() {
+        return policy;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 丢弃的包的数量，包括断开连接时还在队列中的包
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * 被同一个协议号的新包替换掉的包的数量
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * SUSPEND策略停止读取的次数
+     */
+    public long getSuspendedCount() {
+        return suspendedCount.get();
+    }
+
+    public static long totalDroppedCount() {
+        return totalDroppedCount.get();
+    }
+
+    public static long totalCoalescedCount() {
+        return totalCoalescedCount.get();
+    }
+
+    public static long totalSuspendedCount() {
+        return totalSuspendedCount.get();
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.net.packet;
+
+import com.zfoo.net.NetContext;
+import com.zfoo.net.session.Session;
+import com.zfoo.protocol.util.IOUtils;
+import io.netty.buffer.ByteBuf;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * EN: Several packets encoded into one frame with a single header, the frame is
+ * header(4byte) + BATCH_FLAG(2byte) + (protocolId + packet + attachment) * n
+ * <p>
+ * CN: 把多个包编码为一个帧，只有一个包头，一次flush。协议号都是正数，压缩的包体用协议号取反的负数开头，
+ * 协议号最大只到MAX_PROTOCOL_NUM - 1，所以Short.MIN_VALUE不会和它们冲突，用来标记批量帧。
+ * <p>
+ * 只有zfoo的TcpCodecHandler和WebSocketCodecHandler能解码批量帧，生成的其它语言的协议不能，
+ * 所以只发给Session.batchFrame为true的连接，消费者连接提供者时开启，收到对方的批量帧后也开启
+ *
+ * @author godotg
+ */
+public class PacketBatch {
+
+    public static final short BATCH_FLAG = Short.MIN_VALUE;
+
+    /**
+     * 一个批量帧的最大字节数，超过了就拆成多个帧，远小于解码器限制的包长度
+     */
+    public static final int MAX_BATCH_LENGTH = 64 * IOUtils.BYTES_PER_KB;
+
+    private final List<Object> packets = new ArrayList<>();
+
+    private final List<Object> attachments = new ArrayList<>();
+
+    // 批量帧的包体长度，包括BATCH_FLAG
+    private int length = 2;
+
+    public static boolean isBatch(ByteBuf buffer) {
+        return buffer.readableBytes() >= 2 && buffer.getShort(buffer.readerIndex()) == BATCH_FLAG;
+    }
+
+    /**
+     * 按照MAX_BATCH_LENGTH拆分成尽量少的批量帧写入channel，最后只flush一次，只有一个包的时候不使用批量帧；
+     * 对方不能解码批量帧的时候每个包单独一个帧写入，最后也只flush一次
+     *
+     * @param attachments 和packets一一对应的附加包，为null表示都没有附加包
+     */
+    public static void writeAndFlush(Session session, List<Object> packets, @Nullable List<Object> attachments) {
+        var channel = session.getChannel();
+        if (packets.size() == 1 || !session.isBatchFrame()) {
+            for (var i = 0; i < packets.size(); i++) {
+                channel.write(EncodedPacketInfo.valueOf(session.getSid(), session.getUid(), packets.get(i), attachments == null ? null : attachments.get(i)));
+            }
+            channel.flush();
+            return;
+        }
+        var batch = new PacketBatch();
+        for (var i = 0; i < packets.size(); i++) {
+            var packet = packets.get(i);
+            var attachment = attachments == null ? null : attachments.get(i);
+            if (batch.add(packet, attachment)) {
+                continue;
+            }
+            channel.write(EncodedPacketInfo.valueOf(session.getSid(), session.getUid(), batch, null));
+            batch = new PacketBatch();
+            batch.add(packet, attachment);
+        }
+        channel.writeAndFlush(EncodedPacketInfo.valueOf(session.getSid(), session.getUid(), batch, null));
+    }
+
+    /**
+     * 加入一个包，超过了MAX_BATCH_LENGTH返回false并且不加入，空的批量帧总是可以加入一个包
+     */
+    public boolean add(Object packet, @Nullable Object attachment) {
+        var packetLength = NetContext.getPacketService().sizeOf(packet, attachment);
+        if (!packets.isEmpty() && length + packetLength > MAX_BATCH_LENGTH) {
+            return false;
+        }
+        packets.add(packet);
+        attachments.add(attachment);
+        length += packetLength;
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return packets.isEmpty();
+    }
+
+    public int size() {
+        return packets.size();
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public Object packet(int index) {
+        return packets.get(index);
+    }
+
+    public Object attachment(int index) {
+        return attachments.get(index);
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.net.packet;
+
+import com.zfoo.net.session.Session;
+import io.netty.util.internal.PlatformDependent;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * EN: Coalesce the packets sent to one session within a time window, then encode them into PacketBatch frames with a single flush.
+ * <p>
+ * CN: 合并一个session在时间窗口内发送的包，窗口结束后在channel的io线程中编码为批量帧，只flush一次。
+ * 多个task线程同时发送，使用多生产者单消费者的无锁队列，保证同一个session发送的包的顺序不变。
+ * windowMillis为0表示不等待，合并io线程执行到这个任务之前发送的所有包。
+ * <p>
+ * 只有Session.batchFrame为true的zfoo连接才编码为批量帧，其它语言的客户端每个包一个帧，同样只flush一次。
+ * session同时设置了OutboundQueue的时候，channel不可写或者发送队列不为空则合并的包逐个进入发送队列，按照OutboundPolicy处理
+ *
+ * @author godotg
+ */
+public class PacketCoalescer {
+
+    private final Session session;
+
+    private final long windowMillis;
+
+    private final Queue<EncodedPacketInfo> queue = PlatformDependent.newMpscQueue();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    public PacketCoalescer(Session session, long windowMillis) {
+        this.session = session;
+        this.windowMillis = windowMillis;
+    }
+
+    public void send(Object packet, @Nullable Object attachment) {
+        queue.offer(EncodedPacketInfo.valueOf(session.getSid(), session.getUid(), packet, attachment));
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        var eventLoop = session.getChannel().eventLoop();
+        if (windowMillis <= 0) {
+            eventLoop.execute(this::flush);
+        } else {
+            eventLoop.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 只能在channel的io线程中调用
+     */
+    private void flush() {
+        // 先重置标记再取包，取包之后加入的包会触发下一次flush
+        scheduled.set(false);
+        if (queue.isEmpty()) {
+            return;
+        }
+        var packets = new ArrayList<>(queue.size());
+        var attachments = new ArrayList<>(queue.size());
+        EncodedPacketInfo packetInfo;
+        while ((packetInfo = queue.poll()) != null) {
+            packets.add(packetInfo.getPacket());
+            attachments.add(packetInfo.getAttachment());
+        }
+        var channel = session.getChannel();
+        if (!channel.isActive()) {
+            return;
+        }
+        // 不可写的时候不能绕过发送队列，否则发送队列的背压不起作用；发送队列不为空的时候也要进入队列，保证包的顺序
+        var outboundQueue = session.getOutboundQueue();
+        if (outboundQueue != null && (!channel.isWritable() || outboundQueue.size() > 0)) {
+            for (var i = 0; i < packets.size(); i++) {
+                outboundQueue.send(packets.get(i), attachments.get(i), i == packets.size() - 1);
+            }
+            return;
+        }
+        PacketBatch.writeAndFlush(session, packets, attachments);
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+}
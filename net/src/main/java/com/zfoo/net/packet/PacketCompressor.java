@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.net.packet;
+
+import com.zfoo.net.util.security.ZipUtils;
+import com.zfoo.protocol.buffer.ByteBufUtils;
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.util.FastThreadLocalAdapter;
+import com.zfoo.protocol.util.IOUtils;
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static com.zfoo.protocol.ProtocolManager.MAX_PROTOCOL_NUM;
+
+/**
+ * EN: Packet level compression. A compressed packet body starts with the bitwise not of the protocolId, which is always negative,
+ * followed by the length of the uncompressed body after the protocolId and the deflate stream.
+ * Every protocol can have a preset dictionary trained from the captured traffic, both sides must register the same dictionary.
+ * <p>
+ * CN: 包级别的压缩，协议号都是正数，压缩的包体用协议号按位取反后的负数开头作为标记，后面是去掉协议号的包体原始长度和deflate压缩后的数据。
+ * 每个协议可以注册一个从实际流量中训练出来的预置字典，同一个协议的包结构相似，用字典压缩小包的效果远好于直接压缩。
+ * 发送方和接收方必须注册相同的字典，deflate流中带有字典的adler32校验值，字典不一致会解压失败
+ *
+ * @author godotg
+ */
+public abstract class PacketCompressor {
+
+    /**
+     * 解压后的最大长度，防止恶意构造的压缩包占用大量内存
+     */
+    public static final int MAX_UNCOMPRESSED_LENGTH = 16 * IOUtils.BYTES_PER_MB;
+
+    private static final byte[][] dictionaries = new byte[MAX_PROTOCOL_NUM][];
+
+    private static final int[] dictionaryIds = new int[MAX_PROTOCOL_NUM];
+
+    private static final FastThreadLocalAdapter<Deflater> LOCAL_DEFLATER = new FastThreadLocalAdapter<>(() -> new Deflater(Deflater.BEST_SPEED));
+
+    private static final FastThreadLocalAdapter<Inflater> LOCAL_INFLATER = new FastThreadLocalAdapter<>(Inflater::new);
+
+    // 每个协议采集的样本数量，0表示不采集
+    private static volatile int captureLimit = 0;
+
+    private static final Map<Short, ConcurrentLinkedQueue<byte[]>> captures = new ConcurrentHashMap<>();
+
+    private static final Map<Short, AtomicInteger> captureCounts = new ConcurrentHashMap<>();
+
+
+    public static boolean isCompressed(ByteBuf buffer) {
+        var flag = buffer.getShort(buffer.readerIndex());
+        return flag < 0 && flag != PacketBatch.BATCH_FLAG;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    public static void registerDictionary(short protocolId, byte[] dictionary) {
+        if (dictionary == null || dictionary.length == 0) {
+            dictionaries[protocolId] = null;
+            dictionaryIds[protocolId] = 0;
+            return;
+        }
+        var adler32 = new Adler32();
+        adler32.update(dictionary);
+        dictionaries[protocolId] = dictionary;
+        dictionaryIds[protocolId] = (int) adler32.getValue();
+    }
+
+    public static byte[] dictionary(short protocolId) {
+        return dictionaries[protocolId];
+    }
+
+    /**
+     * 开始采集发送的包，每个协议最多采集samplesPerProtocol个超过压缩阈值的包体，用来训练字典
+     */
+    public static void startCapture(int samplesPerProtocol) {
+        captures.clear();
+        captureCounts.clear();
+        captureLimit = samplesPerProtocol;
+    }
+
+    public static void stopCapture() {
+        captureLimit = 0;
+    }
+
+    /**
+     * 用采集到的样本给每个协议训练字典并注册，返回训练好的字典，需要保存下来并且在接收方注册相同的字典
+     */
+    public static Map<Short, byte[]> trainCaptured() {
+        stopCapture();
+        var result = new HashMap<Short, byte[]>();
+        for (var entry : captures.entrySet()) {
+            var dictionary = ZipUtils.trainDictionary(new ArrayList<>(entry.getValue()), ZipUtils.MAX_DICTIONARY_SIZE);
+            if (dictionary.length == 0) {
+                continue;
+            }
+            registerDictionary(entry.getKey(), dictionary);
+            result.put(entry.getKey(), dictionary);
+        }
+        captures.clear();
+        captureCounts.clear();
+        return result;
+    }
+
+    public static List<byte[]> captured(short protocolId) {
+        var samples = captures.get(protocolId);
+        return samples == null ? List.of() : List.copyOf(samples);
+    }
+
+    private static void capture(short protocolId, ByteBuf body) {
+        var limit = captureLimit;
+        if (limit <= 0) {
+            return;
+        }
+        if (captureCounts.computeIfAbsent(protocolId, it -> new AtomicInteger()).incrementAndGet() > limit) {
+            return;
+        }
+        captures.computeIfAbsent(protocolId, it -> new ConcurrentLinkedQueue<>()).offer(ByteBufUtils.readAllBytes(body.duplicate()));
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 把完整的包体body（协议号开头）压缩写入out，压缩后没有变小或者out不是一段连续的内存则什么都不写，返回false
+     */
+    public static boolean compress(ByteBuf body, ByteBuf out, int level) {
+        var protocolId = body.getShort(body.readerIndex());
+        var content = body.slice(body.readerIndex() + 2, body.readableBytes() - 2);
+        capture(protocolId, content);
+
+        var startIndex = out.writerIndex();
+        ByteBufUtils.writeShort(out, (short) ~protocolId);
+        ByteBufUtils.writeInt(out, content.readableBytes());
+        // 压缩后的总长度必须小于原始包体，否则直接发送原始包体
+        var maxLength = body.readableBytes() - (out.writerIndex() - startIndex) - 1;
+        out.ensureWritable(Math.max(maxLength, 0));
+        if (maxLength <= 0 || out.nioBufferCount() != 1 || content.nioBufferCount() != 1) {
+            out.writerIndex(startIndex);
+            return false;
+        }
+
+        var deflater = LOCAL_DEFLATER.get();
+        try {
+            deflater.setLevel(level);
+            var dictionary = dictionaries[protocolId];
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(content.nioBuffer());
+            deflater.finish();
+            var output = out.nioBuffer(out.writerIndex(), maxLength);
+            while (!deflater.finished() && output.hasRemaining()) {
+                deflater.deflate(output);
+            }
+            if (!deflater.finished()) {
+                out.writerIndex(startIndex);
+                return false;
+            }
+            out.writerIndex(out.writerIndex() + output.position());
+            return true;
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    /**
+     * 解压一个压缩的包体，返回以协议号开头的原始包体，使用后需要release
+     */
+    public static ByteBuf decompress(ByteBuf buffer) {
+        var protocolId = (short) ~ByteBufUtils.readShort(buffer);
+        var length = ByteBufUtils.readInt(buffer);
+        if (length < 0 || length > MAX_UNCOMPRESSED_LENGTH) {
+            throw new RunException("illegal compressed packet [protocolId:{}] [length:{}]", protocolId, length);
+        }
+
+        var out = buffer.alloc().heapBuffer(2 + length);
+        var inflater = LOCAL_INFLATER.get();
+        try {
+            ByteBufUtils.writeShort(out, protocolId);
+            var input = buffer.nioBufferCount() == 1 ? buffer.nioBuffer() : ByteBuffer.wrap(ByteBufUtils.readAllBytes(buffer.duplicate()));
+            inflater.setInput(input);
+            var output = out.nioBuffer(out.writerIndex(), length);
+            while (!inflater.finished()) {
+                if (inflater.inflate(output) > 0) {
+                    continue;
+                }
+                if (inflater.needsDictionary()) {
+                    var dictionary = dictionaries[protocolId];
+                    if (dictionary == null || dictionaryIds[protocolId] != inflater.getAdler()) {
+                        throw new RunException("compressed packet [protocolId:{}] needs a dictionary which is not registered or not matched", protocolId);
+                    }
+                    inflater.setDictionary(dictionary);
+                    continue;
+                }
+                if (!output.hasRemaining() || inflater.needsInput()) {
+                    break;
+                }
+            }
+            if (!inflater.finished() || output.position() != length) {
+                throw new RunException("illegal compressed packet [protocolId:{}] [length:{}] [uncompressed:{}]", protocolId, length, output.position());
+            }
+            buffer.skipBytes(buffer.readableBytes());
+            out.writerIndex(out.writerIndex() + length);
+            return out;
+        } catch (DataFormatException e) {
+            out.release();
+            throw new RunException(e);
+        } catch (Throwable t) {
+            out.release();
+            throw t;
+        } finally {
+            inflater.reset();
+        }
+    }
+
+}
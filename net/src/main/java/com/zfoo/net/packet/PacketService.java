@@ -13,14 +13,19 @@
 package com.zfoo.net.packet;
 
 import com.zfoo.net.NetContext;
+import com.zfoo.net.core.gateway.IGatewayLoadBalancer;
+import com.zfoo.net.packet.common.Heartbeat;
+import com.zfoo.net.packet.common.Ping;
 import com.zfoo.net.router.attachment.SignalAttachment;
 import com.zfoo.protocol.ProtocolManager;
 import com.zfoo.protocol.buffer.ByteBufUtils;
+import com.zfoo.protocol.buffer.StringDictionary;
 import com.zfoo.protocol.collection.CollectionUtils;
 import com.zfoo.protocol.exception.ExceptionUtils;
 import com.zfoo.protocol.generate.GenerateOperation;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.registration.IProtocolRegistration;
+import com.zfoo.protocol.registration.LazyPacket;
 import com.zfoo.protocol.serializer.CodeLanguage;
 import com.zfoo.protocol.util.DomUtils;
 import com.zfoo.protocol.util.NumberUtils;
@@ -35,6 +40,7 @@ import org.springframework.util.ResourceUtils;
 
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Predicate;
 
@@ -50,6 +56,13 @@ public class PacketService implements IPacketService {
      */
     public static final int PACKET_HEAD_LENGTH = 4;
 
+    /**
+     * zfoo之间的连接包体达到这个字节数才压缩，0表示不压缩，see PacketCompressor and Session.compressThreshold
+     */
+    private int compressThreshold;
+
+    private int compressLevel;
+
 
     public PacketService() {
 
@@ -61,10 +74,15 @@ public class PacketService implements IPacketService {
 
         var netConfig = NetContext.getConfigManager().getLocalConfig();
         var protocolLocation = netConfig.getProtocolLocation();
+        compressThreshold = netConfig.getCompressThreshold();
+        compressLevel = netConfig.getCompressLevel();
 
         var generateOperation = new GenerateOperation();
         generateOperation.setMergeProtocol(netConfig.isMergeProtocol());
         generateOperation.setFoldProtocol(netConfig.isFoldProtocol());
+        generateOperation.setVersionedProtocol(netConfig.isVersionedProtocol());
+        generateOperation.setEnhanceSourcePath(netConfig.getEnhanceSourcePath());
+        generateOperation.setEnhanceThreads(netConfig.getEnhanceThreads());
         generateOperation.setProtocolPath(netConfig.getProtocolPath());
         generateOperation.setProtocolParam(netConfig.getProtocolParam());
         var codeLanguageArr = StringUtils.tokenize(netConfig.getCodeLanguages(), ConfigurableApplicationContext.CONFIG_LOCATION_DELIMITERS);
@@ -84,6 +102,7 @@ public class PacketService implements IPacketService {
         try {
             var xmlProtocols = DomUtils.inputStream2Object(resource.getInputStream(), XmlProtocols.class);
             ProtocolManager.initProtocol(xmlProtocols, generateOperation);
+            logger.info("protocol startup {}", ProtocolManager.startupMetrics());
         } catch (IOException e) {
             logger.error(ExceptionUtils.getMessage(e));
             throw new RuntimeException(e);
@@ -119,6 +138,14 @@ public class PacketService implements IPacketService {
     @Override
     public DecodedPacketInfo read(ByteBuf buffer) {
         // 包的长度在上一层已经解析过
+        if (PacketCompressor.isCompressed(buffer)) {
+            var uncompressed = PacketCompressor.decompress(buffer);
+            try {
+                return read(uncompressed);
+            } finally {
+                uncompressed.release();
+            }
+        }
 
         // 解析包体
         var packet = ProtocolManager.read(buffer);
@@ -128,10 +155,24 @@ public class PacketService implements IPacketService {
         return DecodedPacketInfo.valueOf(packet, attachment);
     }
 
+    @Override
+    public void readBatch(ByteBuf buffer, List<Object> out, boolean passThrough) {
+        // 跳过BATCH_FLAG，后面是连续的多个包体
+        ByteBufUtils.readShort(buffer);
+        while (buffer.isReadable()) {
+            out.add(passThrough ? readPassThrough(buffer) : read(buffer));
+        }
+    }
+
     @Override
     public void write(ByteBuf buffer, Object packet, Object attachment) {
-        // 写入包packet
-        ProtocolManager.write(buffer, packet);
+        // 写入包packet，透传的包直接写入包括协议号的原始字节
+        if (packet instanceof RawPacket rawPacket) {
+            var rawBuffer = rawPacket.getBuffer();
+            buffer.writeBytes(rawBuffer, rawBuffer.readerIndex(), rawBuffer.readableBytes());
+        } else {
+            ProtocolManager.write(buffer, packet);
+        }
 
         // 写入包的附加包attachment
         if (attachment == null) {
@@ -143,21 +184,137 @@ public class PacketService implements IPacketService {
         }
     }
 
+    @Override
+    public int sizeOf(Object packet, Object attachment) {
+        // 包packet，附加包attachment是否存在的boolean，附加包attachment
+        var packetLength = packet instanceof RawPacket rawPacket ? rawPacket.getBuffer().readableBytes() : ProtocolManager.sizeOf(packet);
+        return packetLength + 1 + (attachment == null ? 0 : ProtocolManager.sizeOf(attachment));
+    }
+
     @Override
     public void writeHeaderAndBody(ByteBuf buffer, Object packet, Object attachment) {
+        writeHeaderAndBody(buffer, packet, attachment, 0);
+    }
+
+    @Override
+    public void writeHeaderAndBody(ByteBuf buffer, Object packet, Object attachment, int compressThreshold) {
+        var dictionary = StringDictionary.current();
+        var startIndex = buffer.writerIndex();
         try {
-            // 预留写入包的长度，一个int字节大小
-            buffer.ensureWritable(7);
-            buffer.writerIndex(PACKET_HEAD_LENGTH);
+            writeFrame(buffer, packet, attachment, compressThreshold);
+            if (dictionary != null) {
+                dictionary.commitWrite();
+            }
+        } catch (Throwable t) {
+            // 丢弃写了一半的包，这个包里新加入字典的字符串对方收不到，需要回滚
+            buffer.writerIndex(startIndex);
+            if (dictionary != null) {
+                dictionary.rollbackWrite();
+            }
+            logger.error("write packet exception", t);
+        }
+    }
+
+    private void writeFrame(ByteBuf buffer, Object packet, Object attachment, int compressThreshold) {
+        if (packet.getClass() == PacketBatch.class) {
+            writeBatch(buffer, (PacketBatch) packet);
+            return;
+        }
+        // 先精确计算出包的长度，一次分配好内存，序列化的过程中ByteBuf不会再扩容
+        var packetLength = sizeOf(packet, attachment);
+        if (compressThreshold > 0 && packetLength >= compressThreshold) {
+            writeCompressed(buffer, packet, attachment, packetLength);
+            return;
+        }
+        buffer.ensureWritable(PACKET_HEAD_LENGTH + packetLength);
 
+        if (StringDictionary.current() == null) {
+            // 直接写入包头，不需要再回头修改
+            buffer.writeInt(packetLength);
             write(buffer, packet, attachment);
+            return;
+        }
 
-            writeHeaderBefore(buffer);
-        } catch (Exception e) {
-            logger.error("write packet exception", e);
-        } catch (Throwable t) {
-            logger.error("write packet error", t);
+        // 绑定了字典时@Intern字符串实际写入的长度可能更少，预留写入包的长度，一个int字节大小
+        buffer.writerIndex(PACKET_HEAD_LENGTH);
+
+        write(buffer, packet, attachment);
+
+        writeHeaderBefore(buffer);
+    }
+
+    /**
+     * 批量帧里都是小包，不压缩
+     */
+    private void writeBatch(ByteBuf buffer, PacketBatch batch) {
+        buffer.ensureWritable(PACKET_HEAD_LENGTH + batch.length());
+        var headIndex = buffer.writerIndex();
+        buffer.writeInt(0);
+        ByteBufUtils.writeShort(buffer, PacketBatch.BATCH_FLAG);
+        for (var i = 0; i < batch.size(); i++) {
+            write(buffer, batch.packet(i), batch.attachment(i));
         }
+        buffer.setInt(headIndex, buffer.writerIndex() - headIndex - PACKET_HEAD_LENGTH);
+    }
+
+    /**
+     * 大包先序列化到临时的buffer再压缩，压缩后没有变小则直接写入原始包体，小包不经过这里没有任何额外开销
+     */
+    private void writeCompressed(ByteBuf buffer, Object packet, Object attachment, int packetLength) {
+        var body = buffer.alloc().heapBuffer(packetLength);
+        try {
+            write(body, packet, attachment);
+            var headIndex = buffer.writerIndex();
+            buffer.writeInt(0);
+            if (!PacketCompressor.compress(body, buffer, compressLevel)) {
+                buffer.writeBytes(body);
+            }
+            buffer.setInt(headIndex, buffer.writerIndex() - headIndex - PACKET_HEAD_LENGTH);
+        } finally {
+            body.release();
+        }
+    }
+
+    @Override
+    public int compressThreshold() {
+        return compressThreshold;
+    }
+
+    @Override
+    public DecodedPacketInfo readPassThrough(ByteBuf buffer) {
+        // 网关转发的是解压后的包体，由网关和后端服务之间的连接决定是否再压缩
+        if (PacketCompressor.isCompressed(buffer)) {
+            var uncompressed = PacketCompressor.decompress(buffer);
+            try {
+                return readPassThrough(uncompressed);
+            } finally {
+                uncompressed.release();
+            }
+        }
+        var startIndex = buffer.readerIndex();
+        var protocolId = buffer.getShort(startIndex);
+        var protocolClass = ProtocolManager.getProtocol(protocolId).protocolConstructor().getDeclaringClass();
+        // 心跳包在网关处理，不需要转发
+        if (protocolClass == Heartbeat.class || protocolClass == Ping.class) {
+            return read(buffer);
+        }
+
+        // 网关需要IGatewayLoadBalancer包计算一致性hash，只能反序列化出来，其它的包直接跳过协议体
+        Object packet = null;
+        if (IGatewayLoadBalancer.class.isAssignableFrom(protocolClass)) {
+            packet = ProtocolManager.read(buffer);
+        } else {
+            ByteBufUtils.readShort(buffer);
+            LazyPacket.skip(buffer, protocolId);
+        }
+        var endIndex = buffer.readerIndex();
+
+        // 解析包的附加包
+        var hasAttachment = ByteBufUtils.tryReadBool(buffer);
+        var attachment = hasAttachment ? (ProtocolManager.read(buffer)) : null;
+
+        var rawPacket = RawPacket.valueOf(protocolId, buffer.retainedSlice(startIndex, endIndex - startIndex), packet);
+        return DecodedPacketInfo.valueOf(rawPacket, attachment);
     }
 
     @Override
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.net.packet;
+
+import com.zfoo.protocol.ProtocolManager;
+import com.zfoo.protocol.registration.ProtocolModule;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import org.springframework.lang.Nullable;
+
+/**
+ * 网关透传模式下没有被反序列化的包，buffer是协议号加上协议体的原始字节，转发的时候直接写入发给服务提供者的包中，不需要再序列化
+ * <p>
+ * buffer持有接收到的数据的引用，使用完之后需要release
+ *
+ * @author godotg
+ */
+public class RawPacket {
+
+    private short protocolId;
+
+    /**
+     * 包括协议号的原始字节
+     */
+    private ByteBuf buffer;
+
+    /**
+     * 网关需要计算一致性hash的IGatewayLoadBalancer包会被反序列化，其它的包为空
+     */
+    private Object packet;
+
+
+    public static RawPacket valueOf(short protocolId, ByteBuf buffer, @Nullable Object packet) {
+        var rawPacket = new RawPacket();
+        rawPacket.protocolId = protocolId;
+        rawPacket.buffer = buffer;
+        rawPacket.packet = packet;
+        return rawPacket;
+    }
+
+    /**
+     * 包所在的模块，透传的包也可以和普通的包一样找到服务提供者
+     */
+    public static ProtocolModule protocolModule(Object packet) {
+        if (packet instanceof RawPacket rawPacket) {
+            return ProtocolManager.moduleByProtocolId(rawPacket.protocolId);
+        }
+        return ProtocolManager.moduleByProtocol(packet.getClass());
+    }
+
+    /**
+     * 包的协议号，透传的包使用原始字节中的协议号
+     */
+    public static short protocolId(Object packet) {
+        if (packet instanceof RawPacket rawPacket) {
+            return rawPacket.protocolId;
+        }
+        return ProtocolManager.protocolId(packet.getClass());
+    }
+
+    /**
+     * 拷贝一份不持有接收buffer引用的透传包，发送的时候可能在合并队列或者发送队列里等待，编码之前接收的buffer已经被释放了
+     */
+    public RawPacket copy() {
+        return valueOf(protocolId, Unpooled.wrappedBuffer(ByteBufUtil.getBytes(buffer)), packet);
+    }
+
+    /**
+     * 反序列化出原始的包，服务提供者的连接使用了字符串字典等不能直接转发字节的情况下使用
+     */
+    public Object decode() {
+        if (packet == null) {
+            packet = ProtocolManager.read(buffer.slice());
+        }
+        return packet;
+    }
+
+    public void release() {
+        ReferenceCountUtil.release(buffer);
+    }
+
+    public short getProtocolId() {
+        return protocolId;
+    }
+
+    public ByteBuf getBuffer() {
+        return buffer;
+    }
+
+    public Object getPacket() {
+        return packet;
+    }
+
+    @Override
+    public String toString() {
+        return "RawPacket{" + "protocolId=" + protocolId + ", length=" + buffer.readableBytes() + '}';
+    }
+}
@@ -19,6 +19,9 @@ import com.zfoo.net.session.Session;
 import com.zfoo.net.task.PacketReceiverTask;
 import org.springframework.lang.Nullable;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * @author godotg
  */
@@ -32,6 +35,28 @@ public interface IRouter {
 
     void send(Session session, Object packet, @Nullable Object attachment);
 
+    /**
+     * EN: write the packet without flush, call flush(session) after several packets to send them with one syscall
+     * CN: 只写入不flush，连续发送多个包之后调用flush(session)，合并为一次系统调用
+     */
+    void sendNoFlush(Session session, Object packet);
+
+    void flush(Session session);
+
+    /**
+     * EN: send several packets in batch frames with a single flush, batch frames are only used for zfoo peers (Session.batchFrame),
+     * other peers receive one frame per packet with a single flush
+     * CN: 批量发送，多个包编码为一个批量帧，只flush一次；批量帧只发给能解码的zfoo（Session.batchFrame），
+     * 其它语言的客户端每个包一个帧，依然只flush一次
+     */
+    void sendBatch(Session session, List<Object> packets);
+
+    /**
+     * EN: broadcast one packet to many sessions, the packet is serialized only once, throw RunException and send nothing if the serialization fails
+     * CN: 广播，同一个包只序列化一次，所有的session共享序列化后的字节，序列化失败则抛出RunException并且不发送
+     */
+    void broadcast(Collection<Session> sessions, Object packet);
+
     /**
      * EN: receive messages entry
      * CN: 接收消息的入口
@@ -21,7 +21,10 @@ import com.zfoo.net.core.event.ServerExceptionEvent;
 import com.zfoo.net.enhance.EnhanceUtils;
 import com.zfoo.net.enhance.IPacketReceiver;
 import com.zfoo.net.enhance.PacketReceiverDefinition;
+import com.zfoo.net.handler.codec.tcp.TcpCodecHandler;
+import com.zfoo.net.handler.codec.websocket.WebSocketCodecHandler;
 import com.zfoo.net.packet.EncodedPacketInfo;
+import com.zfoo.net.packet.PacketBatch;
 import com.zfoo.net.packet.PacketService;
 import com.zfoo.net.packet.common.Error;
 import com.zfoo.net.packet.common.Heartbeat;
@@ -39,16 +42,27 @@ import com.zfoo.net.task.PacketReceiverTask;
 import com.zfoo.net.task.TaskBus;
 import com.zfoo.protocol.ProtocolManager;
 import com.zfoo.protocol.collection.ArrayUtils;
+import com.zfoo.protocol.collection.CollectionUtils;
 import com.zfoo.protocol.exception.ExceptionUtils;
 import com.zfoo.protocol.exception.RunException;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
+import com.zfoo.protocol.registration.ProtocolRecycler;
 import com.zfoo.protocol.util.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.util.collection.ShortObjectHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.lang.Nullable;
 
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -195,6 +209,10 @@ public class Router implements IRouter {
 
     @Override
     public void send(Session session, Object packet, Object attachment) {
+        send(session, packet, attachment, true);
+    }
+
+    private void send(Session session, Object packet, Object attachment, boolean flush) {
         if (session == null || packet == null) {
             return;
         }
@@ -202,12 +220,24 @@ public class Router implements IRouter {
         if (!channel.isActive()) {
             return;
         }
+        // 同时有发送队列的session在合并之后进入发送队列，见PacketCoalescer
+        var packetCoalescer = session.getPacketCoalescer();
+        if (packetCoalescer != null) {
+            packetCoalescer.send(packet, attachment);
+            return;
+        }
+        var outboundQueue = session.getOutboundQueue();
+        if (outboundQueue != null) {
+            outboundQueue.send(packet, attachment, flush);
+            return;
+        }
         var packetInfo = EncodedPacketInfo.valueOf(session.getSid(), session.getUid(), packet, attachment);
-        if (!channel.isWritable()) {
-            logger.warn("send msg error, protocol [{}] sid=[{}] uid=[{}] isActive=[{}] isWritable=[{}]"
-                    , packet.getClass().getSimpleName(), session.getSid(), session.getUid(), channel.isActive(), channel.isWritable());
+        checkWritable(session, packet);
+        if (flush) {
+            channel.writeAndFlush(packetInfo);
+        } else {
+            channel.write(packetInfo);
         }
-        channel.writeAndFlush(packetInfo);
     }
 
     @Override
@@ -217,6 +247,143 @@ public class Router implements IRouter {
         send(session, packet, serverSignalAttachment);
     }
 
+    /**
+     * 只写入channel的发送缓冲区，连续发送多个包之后调用一次flush，只有一次系统调用。
+     * syncAsk和asyncAsk的请求还是立刻flush
+     */
+    @Override
+    public void sendNoFlush(Session session, Object packet) {
+        var serverSignalAttachment = serverReceiverAttachmentThreadLocal.get();
+        send(session, packet, serverSignalAttachment, false);
+    }
+
+    @Override
+    public void flush(Session session) {
+        if (session == null) {
+            return;
+        }
+        var channel = session.getChannel();
+        if (channel.isActive()) {
+            channel.flush();
+        }
+    }
+
+    @Override
+    public void sendBatch(Session session, List<Object> packets) {
+        if (session == null || CollectionUtils.isEmpty(packets)) {
+            return;
+        }
+        var channel = session.getChannel();
+        if (!channel.isActive()) {
+            return;
+        }
+        // 开启了合并的session也走合并队列，保证和其它发送的包的顺序一致
+        var packetCoalescer = session.getPacketCoalescer();
+        if (packetCoalescer != null) {
+            packets.forEach(it -> packetCoalescer.send(it, null));
+            return;
+        }
+        // 有发送队列的session逐个发送，不可写的时候按照策略处理
+        var outboundQueue = session.getOutboundQueue();
+        if (outboundQueue != null) {
+            for (var i = 0; i < packets.size(); i++) {
+                outboundQueue.send(packets.get(i), null, i == packets.size() - 1);
+            }
+            return;
+        }
+        PacketBatch.writeAndFlush(session, packets, null);
+    }
+
+    private void checkWritable(Session session, Object packet) {
+        var channel = session.getChannel();
+        if (!channel.isWritable()) {
+            logger.warn("send msg error, protocol [{}] sid=[{}] uid=[{}] isActive=[{}] isWritable=[{}]"
+                    , packet.getClass().getSimpleName(), session.getSid(), session.getUid(), channel.isActive(), channel.isWritable());
+        }
+    }
+
+    /**
+     * 包只序列化一次，每个channel写入共享buffer的retainedDuplicate，不再经过编码器。
+     * 按照channel所在的EventLoop分组，每个EventLoop只提交一个任务，写完这一组channel之后再依次flush。
+     * <p>
+     * 使用了字符串字典，开启了合并发送或者发送队列的session，以及json编解码的session，不能共享字节，还是各自调用send。
+     * 序列化失败会抛出异常，整个广播取消，任何一个session都不会收到这个包
+     */
+    @Override
+    public void broadcast(Collection<Session> sessions, Object packet) {
+        if (CollectionUtils.isEmpty(sessions) || packet == null) {
+            return;
+        }
+        var eventLoopMap = new HashMap<EventLoop, List<Session>>();
+        var sendSessions = new ArrayList<Session>();
+        for (var session : sessions) {
+            var channel = session.getChannel();
+            if (!channel.isActive()) {
+                continue;
+            }
+            if (session.getStringDictionary() != null || session.getPacketCoalescer() != null || session.getOutboundQueue() != null || !isBinaryChannel(channel)) {
+                sendSessions.add(session);
+                continue;
+            }
+            eventLoopMap.computeIfAbsent(channel.eventLoop(), it -> new ArrayList<>()).add(session);
+        }
+        if (eventLoopMap.isEmpty()) {
+            sendSessions.forEach(it -> send(it, packet, null));
+            return;
+        }
+
+        // 先序列化，失败了直接抛出异常，不会只发送给一部分session
+        var buffer = encodeBroadcast(packet);
+        try {
+            sendSessions.forEach(it -> send(it, packet, null));
+            for (var entry : eventLoopMap.entrySet()) {
+                var eventLoopSessions = entry.getValue();
+                // 每个EventLoop的任务持有一个引用，任务执行完释放
+                var shared = buffer.retainedDuplicate();
+                entry.getKey().execute(() -> {
+                    try {
+                        for (var session : eventLoopSessions) {
+                            var channel = session.getChannel();
+                            checkWritable(session, packet);
+                            var duplicate = shared.retainedDuplicate();
+                            channel.write(channel.pipeline().get(WebSocketCodecHandler.class) == null ? duplicate : new BinaryWebSocketFrame(duplicate));
+                        }
+                        for (var session : eventLoopSessions) {
+                            session.getChannel().flush();
+                        }
+                    } finally {
+                        shared.release();
+                    }
+                });
+            }
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * 广播的包不压缩，不使用字符串字典，所有的session共享同一份字节
+     */
+    private ByteBuf encodeBroadcast(Object packet) {
+        var packetService = NetContext.getPacketService();
+        var buffer = ByteBufAllocator.DEFAULT.ioBuffer();
+        try {
+            var packetLength = packetService.sizeOf(packet, null);
+            buffer.ensureWritable(PacketService.PACKET_HEAD_LENGTH + packetLength);
+            buffer.writeInt(packetLength);
+            packetService.write(buffer, packet, null);
+            return buffer;
+        } catch (Throwable t) {
+            buffer.release();
+            throw new RunException("broadcast packet [{}] encode exception, the broadcast is aborted", packet.getClass().getSimpleName(), t);
+        }
+    }
+
+    private boolean isBinaryChannel(Channel channel) {
+        var pipeline = channel.pipeline();
+        return pipeline.get(TcpCodecHandler.class) != null || pipeline.get(WebSocketCodecHandler.class) != null;
+    }
+
 
     @Override
     public <T> SyncAnswer<T> syncAsk(Session session, Object packet, @Nullable Class<T> answerClass, @Nullable Object argument) throws Exception {
@@ -382,6 +549,10 @@ public class Router implements IRouter {
         } finally {
             // 如果有服务器在处理同步或者异步消息的时候由于错误没有返回给客户端消息，则可能会残留serverAttachment，所以先移除
             serverReceiverAttachmentThreadLocal.set(null);
+            // 接收者声明了不会再持有协议对象，处理完成之后回收@Protocol(recycle = true)的协议对象
+            if (receiver.release()) {
+                ProtocolManager.release(packet);
+            }
         }
     }
 
@@ -448,10 +619,14 @@ public class Router implements IRouter {
                 throw new RunException("[class:{}][protocolId:{}] has no registration, please register for this protocol", packetClazz.getSimpleName(), protocolId);
             }
 
+            // 只有回收的协议才能在接收者返回之后回收
+            AssertionUtils.isTrue(!method.getDeclaredAnnotation(PacketReceiver.class).release() || ProtocolRecycler.isRecycle(protocolId), "[class:{}] [method:{}] @PacketReceiver(release = true) can only receive @Protocol(recycle = true) packet", bean.getClass().getName(), methodName);
+
             try {
                 AssertionUtils.isNull(receiverMap.get(protocolId), "duplicate protocol registration, @PacketReceiver [class:{}] is repeatedly received [at{}]", packetClazz.getSimpleName(), packetClazz.getSimpleName());
-                var task = method.getDeclaredAnnotation(PacketReceiver.class).value();
-                var receiverDefinition = new PacketReceiverDefinition(bean, method, task, packetClazz, attachmentClazz);
+                var packetReceiver = method.getDeclaredAnnotation(PacketReceiver.class);
+                var receiverDefinition = new PacketReceiverDefinition(bean, method, packetReceiver.value(), packetClazz, attachmentClazz);
+                receiverDefinition.setRelease(packetReceiver.release());
                 if (GraalVmUtils.isGraalVM()) {
                     receiverMap.put(protocolId, receiverDefinition);
                 } else {
@@ -105,6 +105,12 @@ public class NetDefinitionParser implements BeanDefinitionParser {
         resolvePlaceholder("merge-protocol", "mergeProtocol", builder, element, parserContext);
         // 文件是否折叠
         resolvePlaceholder("fold-protocol", "foldProtocol", builder, element, parserContext);
+        // 协议是否都写入长度，支持滚动升级
+        resolvePlaceholder("versioned-protocol", "versionedProtocol", builder, element, parserContext);
+        // 编译期生成增强类的java源文件的路径
+        resolvePlaceholder("enhance-source-path", "enhanceSourcePath", builder, element, parserContext);
+        // 并行编译增强类的线程数
+        resolvePlaceholder("enhance-threads", "enhanceThreads", builder, element, parserContext);
         // 生成各种语言的协议列表
         resolvePlaceholder("code-languages", "codeLanguages", builder, element, parserContext);
 
@@ -112,6 +118,18 @@ public class NetDefinitionParser implements BeanDefinitionParser {
 
         resolvePlaceholder("protocol-param", "protocolParam", builder, element, parserContext);
 
+        // 包体超过多少字节压缩，0不压缩；压缩等级1-9，1最快，对延迟敏感的连接用1
+        resolvePlaceholder("compress-threshold", "compressThreshold", builder, element, parserContext);
+        resolvePlaceholder("compress-level", "compressLevel", builder, element, parserContext);
+
+        // 传输层auto，io_uring，epoll，nio；event loop线程数，0使用默认值
+        resolvePlaceholder("transport", "transport", builder, element, parserContext);
+        resolvePlaceholder("boss-threads", "bossThreads", builder, element, parserContext);
+        resolvePlaceholder("worker-threads", "workerThreads", builder, element, parserContext);
+        resolvePlaceholder("client-threads", "clientThreads", builder, element, parserContext);
+        // 服务器合并同一个连接的flush
+        resolvePlaceholder("flush-consolidation", "flushConsolidation", builder, element, parserContext);
+
         // -----注册中心解析-----
         // 上面解析的都是config标签的属性，这里开始解析registry元素
         var registryElement = DomUtils.getFirstChildElementByTagName(element, "registry");
@@ -190,6 +208,7 @@ public class NetDefinitionParser implements BeanDefinitionParser {
 
         var consumerModules = parseConsumerModules("consumers", element, parserContext);
         builder.addPropertyValue("consumers", consumerModules);
+        resolvePlaceholder("connections", "connections", builder, element, parserContext);
         parserContext.getRegistry().registerBeanDefinition(clazz.getCanonicalName(), builder.getBeanDefinition());
     }
 
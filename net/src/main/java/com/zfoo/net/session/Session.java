@@ -13,6 +13,9 @@
 package com.zfoo.net.session;
 
 import com.zfoo.net.consumer.registry.Register;
+import com.zfoo.net.packet.OutboundQueue;
+import com.zfoo.net.packet.PacketCoalescer;
+import com.zfoo.protocol.buffer.StringDictionary;
 import com.zfoo.protocol.util.StringUtils;
 import io.netty.channel.Channel;
 
@@ -47,6 +50,37 @@ public class Session implements Closeable {
      */
     private Register consumerRegister = null;
 
+    /**
+     * EN:The string dictionary of @Intern fields, both sides of the connection must set it before sending packets
+     * CN:@Intern字段使用的字符串字典，连接两端都需要在发送协议之前设置
+     */
+    private StringDictionary stringDictionary = null;
+
+    /**
+     * EN:Packets larger than this threshold sent to this session are compressed, 0 means never compress,
+     * only set it when the peer can decode compressed frames, see PacketCompressor
+     * CN:发送给这个session的包达到这个字节数才压缩，0表示不压缩，只有对方能解压的时候才设置，参考PacketCompressor
+     */
+    private int compressThreshold = 0;
+
+    /**
+     * EN:Whether the peer can decode PacketBatch frames, only zfoo peers can, false means every packet is sent in its own frame
+     * CN:对方能否解码批量帧PacketBatch，只有zfoo能解码，为false则每个包都单独一个帧发送，其它语言的客户端不会收到批量帧
+     */
+    private boolean batchFrame = false;
+
+    /**
+     * EN:Coalesce the packets sent to this session into batch frames, null means every packet is flushed immediately
+     * CN:合并发送给这个session的包为批量帧，为null则每个包都立刻发送
+     */
+    private PacketCoalescer packetCoalescer = null;
+
+    /**
+     * EN:Queue, drop or coalesce the packets when the channel is not writable, null means warn and write anyway
+     * CN:channel不可写的时候按照策略缓存，丢弃或者合并发送给这个session的包，为null则打印警告后继续写入
+     */
+    private OutboundQueue outboundQueue = null;
+
     public Session(Channel channel) {
         if (channel == null) {
             throw new IllegalArgumentException("channel cannot be empty");
@@ -111,4 +145,44 @@ public class Session implements Closeable {
     public void setConsumerRegister(Register consumerRegister) {
         this.consumerRegister = consumerRegister;
     }
+
+    public StringDictionary getStringDictionary() {
+        return stringDictionary;
+    }
+
+    public void setStringDictionary(StringDictionary stringDictionary) {
+        this.stringDictionary = stringDictionary;
+    }
+
+    public int getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    public boolean isBatchFrame() {
+        return batchFrame;
+    }
+
+    public void setBatchFrame(boolean batchFrame) {
+        this.batchFrame = batchFrame;
+    }
+
+    public PacketCoalescer getPacketCoalescer() {
+        return packetCoalescer;
+    }
+
+    public void setPacketCoalescer(PacketCoalescer packetCoalescer) {
+        this.packetCoalescer = packetCoalescer;
+    }
+
+    public OutboundQueue getOutboundQueue() {
+        return outboundQueue;
+    }
+
+    public void setOutboundQueue(OutboundQueue outboundQueue) {
+        this.outboundQueue = outboundQueue;
+    }
 }
@@ -13,7 +13,9 @@
 
 package com.zfoo.net.util;
 
+import com.zfoo.net.NetContext;
 import com.zfoo.net.session.Session;
+import com.zfoo.protocol.buffer.StringDictionary;
 import com.zfoo.protocol.util.StringUtils;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
@@ -47,6 +49,37 @@ public abstract class SessionUtils {
         return channel.attr(SESSION_KEY).get();
     }
 
+    public static StringDictionary getStringDictionary(ChannelHandlerContext ctx) {
+        var session = getSession(ctx.channel());
+        return session == null ? null : session.getStringDictionary();
+    }
+
+    public static int getCompressThreshold(ChannelHandlerContext ctx) {
+        var session = getSession(ctx.channel());
+        return session == null ? 0 : session.getCompressThreshold();
+    }
+
+    /**
+     * 收到了压缩的包说明对方也是能解压的zfoo，没有设置压缩阈值的session使用本地配置的阈值压缩回复的包
+     */
+    public static void adoptCompressThreshold(ChannelHandlerContext ctx) {
+        var session = getSession(ctx.channel());
+        if (session == null || session.getCompressThreshold() > 0) {
+            return;
+        }
+        session.setCompressThreshold(NetContext.getPacketService().compressThreshold());
+    }
+
+    /**
+     * 收到了批量帧说明对方也是能解码批量帧的zfoo，发送给对方的包也可以使用批量帧
+     */
+    public static void adoptBatchFrame(ChannelHandlerContext ctx) {
+        var session = getSession(ctx.channel());
+        if (session != null) {
+            session.setBatchFrame(true);
+        }
+    }
+
     public static String toIp(Session session) {
         try {
             var remoteAddress = session.getChannel().remoteAddress().toString();
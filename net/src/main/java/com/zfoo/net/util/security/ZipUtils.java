@@ -19,7 +19,12 @@ import com.zfoo.protocol.util.StringUtils;
 
 import java.io.*;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.zip.*;
 
 /**
@@ -70,6 +75,86 @@ public abstract class ZipUtils {
         return baos.toByteArray();
     }
 
+    /**
+     * deflate的滑动窗口是32K，预置字典超过32K的部分不会被引用
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32 * IOUtils.BYTES_PER_KB;
+
+    // 训练字典时统计重复片段的最小长度，正好是一个long
+    private static final int DICTIONARY_WINDOW = 8;
+
+    /**
+     * 从样本数据中训练deflate的预置字典(Deflater.setDictionary)，适合大量结构相似的小数据，比如同一个协议的序列化字节
+     * <p>
+     * 先统计每个8字节的片段出现在多少个样本中，至少在两个样本中出现的片段连续拼接成一段，按照出现的样本数打分，
+     * 分数越高的段越靠近字典的末尾（deflate引用的距离越近编码越短），总长度不超过maxSize
+     */
+    public static byte[] trainDictionary(List<byte[]> samples, int maxSize) {
+        maxSize = Math.min(maxSize, MAX_DICTIONARY_SIZE);
+        var windowCounts = new HashMap<Long, Integer>();
+        for (var sample : samples) {
+            var windows = new HashSet<Long>();
+            for (var i = 0; i + DICTIONARY_WINDOW <= sample.length; i++) {
+                var window = window(sample, i);
+                if (windows.add(window)) {
+                    windowCounts.merge(window, 1, Integer::sum);
+                }
+            }
+        }
+
+        // 连续的重复片段合并成一段，ISO_8859_1可以无损的把byte转为char，用来给段去重
+        var segmentScores = new HashMap<String, Long>();
+        for (var sample : samples) {
+            var start = -1;
+            var score = 0L;
+            for (var i = 0; i + DICTIONARY_WINDOW <= sample.length + 1; i++) {
+                var count = i + DICTIONARY_WINDOW <= sample.length ? windowCounts.get(window(sample, i)) : 0;
+                if (count >= 2) {
+                    if (start < 0) {
+                        start = i;
+                        score = 0;
+                    }
+                    score += count;
+                    continue;
+                }
+                if (start >= 0) {
+                    var segment = new String(sample, start, i - 1 - start + DICTIONARY_WINDOW, StandardCharsets.ISO_8859_1);
+                    segmentScores.merge(segment, score, Math::max);
+                    start = -1;
+                }
+            }
+        }
+
+        var segments = new ArrayList<>(segmentScores.entrySet());
+        segments.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        var selected = new ArrayList<String>();
+        var size = 0;
+        for (var entry : segments) {
+            var segment = entry.getKey();
+            if (size + segment.length() > maxSize) {
+                continue;
+            }
+            selected.add(segment);
+            size += segment.length();
+        }
+
+        var dictionary = new byte[size];
+        var index = size;
+        for (var segment : selected) {
+            index -= segment.length();
+            System.arraycopy(segment.getBytes(StandardCharsets.ISO_8859_1), 0, dictionary, index, segment.length());
+        }
+        return dictionary;
+    }
+
+    private static long window(byte[] bytes, int index) {
+        var value = 0L;
+        for (var i = 0; i < DICTIONARY_WINDOW; i++) {
+            value = (value << 8) | (bytes[index + i] & 0xFF);
+        }
+        return value;
+    }
+
     // -----------------------------------------------------------------------------------------------------------------
 
     /**
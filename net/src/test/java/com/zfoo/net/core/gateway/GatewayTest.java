@@ -83,6 +83,19 @@ public class GatewayTest {
         ThreadUtils.sleep(Long.MAX_VALUE);
     }
 
+    /**
+     * 透传模式的网关，不反序列化客户端的包，直接把原始字节转发到Provider
+     */
+    @Test
+    public void startPassThroughGateway() {
+        var context = new ClassPathXmlApplicationContext("gateway/gateway_config.xml");
+        SessionUtilsTest.printSessionInfo();
+
+        var gatewayServer = new GatewayServer(HostAndPort.valueOf("127.0.0.1:9000"), null, true);
+        gatewayServer.start();
+        ThreadUtils.sleep(Long.MAX_VALUE);
+    }
+
     /**
      * 这里是客户端，客户端先请求数据到到网关(毕竟自己连接的就是网关)
      */
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.zfoo.net.core.pool;
+
+import com.zfoo.net.core.ClientPool;
+import com.zfoo.net.core.HostAndPort;
+import com.zfoo.net.core.tcp.TcpClient;
+import com.zfoo.net.core.tcp.TcpServer;
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.util.ThreadUtils;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * @author godotg
+ */
+@Ignore
+public class ClientPoolTest {
+
+    @Test
+    public void poolTest() {
+        var context = new ClassPathXmlApplicationContext("config.xml");
+        var host = HostAndPort.valueOf("127.0.0.1:9000");
+        var server = new TcpServer(host);
+        server.start();
+
+        var pool = new ClientPool(new TcpClient(host), 4);
+        pool.startAsync().join();
+        Assert.assertEquals(4, pool.getSessions().size());
+        // 相同的hash总是选择同一个连接
+        Assert.assertSame(pool.select(5), pool.select(9));
+        Assert.assertNotNull(pool.roundRobin());
+        Assert.assertNotNull(pool.leastPending());
+
+        // 断开的连接自动重连
+        var session = pool.select(0);
+        session.close();
+        ThreadUtils.sleep(1000);
+        Assert.assertEquals(4, pool.getSessions().size());
+        Assert.assertNotSame(session, pool.select(0));
+
+        pool.close();
+        server.shutdown();
+        context.close();
+    }
+
+    @Test
+    public void startInEventLoopTest() throws Exception {
+        var context = new ClassPathXmlApplicationContext("config.xml");
+        var host = HostAndPort.valueOf("127.0.0.1:9000");
+        var server = new TcpServer(host);
+        server.start();
+
+        // 在客户端的event loop中阻塞的start会死锁，直接抛出异常
+        var session = new TcpClient(host).startAsync().join();
+        var future = session.getChannel().eventLoop().submit(() -> new TcpClient(host).start());
+        try {
+            future.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RunException);
+        }
+
+        session.close();
+        server.shutdown();
+        context.close();
+    }
+
+    @Test
+    public void backoffTest() {
+        var context = new ClassPathXmlApplicationContext("config.xml");
+        // 没有启动服务器，重试3次之后失败
+        try {
+            new TcpClient(HostAndPort.valueOf("127.0.0.1:9000")).startAsync(3).join();
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertNotNull(e.getCause());
+        }
+        context.close();
+    }
+
+}
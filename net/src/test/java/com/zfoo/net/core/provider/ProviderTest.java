@@ -147,4 +147,26 @@ public class ProviderTest {
 
         ThreadUtils.sleep(Long.MAX_VALUE);
     }
+
+    /**
+     * 每个服务提供者建立4个连接，同一个argument总是使用同一个连接，所以同一个argument的请求是有序的
+     */
+    @Test
+    public void startMultipleConnectionsConsumer() {
+        var context = new ClassPathXmlApplicationContext("provider/consumer_connections_config.xml");
+        SessionUtilsTest.printSessionInfo();
+
+        var ask = new ProviderMessAsk();
+        ask.setMessage("Hello, this is the consumer!");
+        var atomicInteger = new AtomicInteger(0);
+
+        for (int i = 0; i < 1000; i++) {
+            ThreadUtils.sleep(1000);
+            NetContext.getConsumer().asyncAsk(ask, ProviderMessAnswer.class, i % 10).whenComplete(answer -> {
+                logger.info("消费者请求[{}]收到消息[{}]", atomicInteger.incrementAndGet(), JsonUtils.object2String(answer));
+            });
+        }
+
+        ThreadUtils.sleep(Long.MAX_VALUE);
+    }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.net.core.recycle;
+
+import com.zfoo.net.NetContext;
+import com.zfoo.net.anno.PacketReceiver;
+import com.zfoo.net.packet.recycle.RecycleForwardRequest;
+import com.zfoo.net.packet.recycle.RecycleReleaseRequest;
+import com.zfoo.net.session.Session;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author godotg
+ */
+@Component
+public class RecycleController {
+
+    /**
+     * 转发的目标
+     */
+    public static Session forwardSession;
+
+    /**
+     * 转发的包之后才会被序列化，不能在接收者返回的时候回收
+     */
+    @PacketReceiver
+    public void atRecycleForwardRequest(Session session, RecycleForwardRequest request) {
+        NetContext.getRouter().send(forwardSession, request);
+    }
+
+    /**
+     * 没有持有协议对象，接收者返回之后回收
+     */
+    @PacketReceiver(release = true)
+    public void atRecycleReleaseRequest(Session session, RecycleReleaseRequest request) {
+    }
+
+}
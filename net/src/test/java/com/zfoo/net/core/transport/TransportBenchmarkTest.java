@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+package com.zfoo.net.core.transport;
+
+import com.zfoo.net.NetContext;
+import com.zfoo.net.core.HostAndPort;
+import com.zfoo.net.core.NetTransport;
+import com.zfoo.net.core.tcp.TcpClient;
+import com.zfoo.net.core.tcp.TcpServer;
+import com.zfoo.net.packet.tcp.AsyncMessAnswer;
+import com.zfoo.net.packet.tcp.AsyncMessAsk;
+import com.zfoo.net.packet.tcp.SyncMessAnswer;
+import com.zfoo.net.packet.tcp.SyncMessAsk;
+import com.zfoo.net.session.Session;
+import com.zfoo.protocol.util.StringUtils;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 在同一个进程中依次使用io_uring，epoll，nio启动服务器和客户端，跑BenchmarkSyncTest和BenchmarkAsyncTest的场景，比较每秒处理的请求数。
+ * 当前平台不可用的传输层会跳过，io_uring和epoll需要在classpath中加入对应的native包
+ *
+ * @author godotg
+ */
+@Ignore
+public class TransportBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransportBenchmarkTest.class);
+
+    private static final int THREAD_NUM = Runtime.getRuntime().availableProcessors();
+
+    private static final int SYNC_REQUEST_NUM = 1_0000;
+
+    // 异步请求一起发送过去，太多了服务器排队处理容易超时
+    private static final int ASYNC_REQUEST_NUM = 1000;
+
+    @Test
+    public void benchmarkTest() throws Exception {
+        var context = new ClassPathXmlApplicationContext("config.xml");
+        var netConfig = NetContext.getConfigManager().getLocalConfig();
+
+        var reports = new ArrayList<String>();
+        var port = 9000;
+        for (var transport : new NetTransport[]{NetTransport.IO_URING, NetTransport.EPOLL, NetTransport.NIO}) {
+            if (!transport.isAvailable()) {
+                reports.add(StringUtils.format("[{}] not available", transport.getName()));
+                continue;
+            }
+            netConfig.setTransport(transport.getName());
+
+            var host = HostAndPort.valueOf("127.0.0.1", port++);
+            var server = new TcpServer(host);
+            server.start();
+            var session = new TcpClient(host).start();
+
+            // 先预热一遍再计时
+            syncBenchmark(session);
+            var syncQps = syncBenchmark(session);
+            asyncBenchmark(session);
+            var asyncQps = asyncBenchmark(session);
+            reports.add(StringUtils.format("[{}] [sync:{} req/s] [async:{} req/s]", transport.getName(), syncQps, asyncQps));
+
+            session.close();
+            server.shutdown();
+        }
+
+        reports.forEach(it -> logger.info(it));
+        context.close();
+    }
+
+    private long syncBenchmark(Session session) throws InterruptedException {
+        var countdown = new CountDownLatch(THREAD_NUM);
+        var startTime = System.nanoTime();
+        for (int i = 0; i < THREAD_NUM; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < SYNC_REQUEST_NUM; i++) {
+                        try {
+                            var ask = new SyncMessAsk();
+                            ask.setMessage("Hello, this is sync client!");
+                            NetContext.getRouter().syncAsk(session, ask, SyncMessAnswer.class, null);
+                        } catch (Exception e) {
+                            logger.info("同步请求异常", e);
+                        }
+                    }
+                    countdown.countDown();
+                }
+            }).start();
+        }
+        countdown.await();
+        return qps(THREAD_NUM * SYNC_REQUEST_NUM, System.nanoTime() - startTime);
+    }
+
+    private long asyncBenchmark(Session session) throws InterruptedException {
+        var countdown = new CountDownLatch(THREAD_NUM * ASYNC_REQUEST_NUM);
+        var startTime = System.nanoTime();
+        for (int i = 0; i < THREAD_NUM; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < ASYNC_REQUEST_NUM; i++) {
+                        var ask = new AsyncMessAsk();
+                        ask.setMessage("Hello, this is async client!");
+                        NetContext.getRouter().asyncAsk(session, ask, AsyncMessAnswer.class, null)
+                                .notComplete(() -> countdown.countDown())
+                                .whenComplete(answer -> countdown.countDown());
+                    }
+                }
+            }).start();
+        }
+        countdown.await();
+        return qps(THREAD_NUM * ASYNC_REQUEST_NUM, System.nanoTime() - startTime);
+    }
+
+    private long qps(long requests, long nanos) {
+        return requests * 1_000_000_000L / Math.max(nanos, 1L);
+    }
+
+}
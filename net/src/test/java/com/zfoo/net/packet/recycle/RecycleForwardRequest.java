@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.net.packet.recycle;
+
+import com.zfoo.protocol.anno.Protocol;
+
+import java.util.List;
+
+/**
+ * @author godotg
+ */
+@Protocol(id = 1900, recycle = true)
+public class RecycleForwardRequest {
+
+    private int id;
+
+    private String message;
+
+    private List<Integer> values;
+
+    public static RecycleForwardRequest valueOf(int id, String message, List<Integer> values) {
+        var request = new RecycleForwardRequest();
+        request.id = id;
+        request.message = message;
+        request.values = values;
+        return request;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public List<Integer> getValues() {
+        return values;
+    }
+
+    public void setValues(List<Integer> values) {
+        this.values = values;
+    }
+}
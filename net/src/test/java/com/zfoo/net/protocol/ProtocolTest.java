@@ -14,15 +14,39 @@
 package com.zfoo.net.protocol;
 
 import com.zfoo.net.NetContext;
+import com.zfoo.net.config.model.ProviderConfig;
+import com.zfoo.net.consumer.balancer.ConsistentHashLoadBalancer;
+import com.zfoo.net.consumer.registry.Register;
+import com.zfoo.net.core.HostAndPort;
+import com.zfoo.net.core.recycle.RecycleController;
+import com.zfoo.net.core.tcp.TcpServer;
+import com.zfoo.net.handler.BaseRouteHandler;
+import com.zfoo.net.handler.codec.tcp.TcpCodecHandler;
+import com.zfoo.net.handler.codec.websocket.WebSocketCodecHandler;
 import com.zfoo.net.packet.*;
+import com.zfoo.net.packet.recycle.RecycleForwardRequest;
+import com.zfoo.net.packet.recycle.RecycleReleaseRequest;
 import com.zfoo.net.router.attachment.SignalAttachment;
+import com.zfoo.net.session.Session;
+import com.zfoo.net.task.PacketReceiverTask;
+import com.zfoo.net.util.security.ZipUtils;
+import com.zfoo.protocol.ProtocolManager;
+import com.zfoo.protocol.buffer.ByteBufUtils;
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.registration.LazyPacket;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -243,4 +267,544 @@ public class ProtocolTest {
         Assert.assertNull(packetInfo.getAttachment());
     }
 
+    @Test
+    public void testLazyPacket() {
+        CM_Map cm = new CM_Map();
+        cm.setMap(Map.of(Integer.MIN_VALUE, Integer.MIN_VALUE, 0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE));
+        cm.setMapA(mapWithObject);
+        cm.setMapB(Map.of(objectA0, "objectA0", objectA1, "objectA1"));
+        cm.setMapC(Map.of(objectA0, objectA0, objectA1, objectA1));
+        cm.setMapWithListAndMap(Map.of(list, Map.of(list, objectA0)));
+
+        CM_Object cmObject = new CM_Object();
+        cmObject.setA(Integer.MIN_VALUE);
+        cmObject.setB(objectA1);
+
+        ByteBuf buffer = Unpooled.buffer();
+        ProtocolManager.write(buffer, cm);
+        ProtocolManager.write(buffer, cmObject);
+
+        // 延迟读取只跳过字段，读取之后的位置和完整的反序列化相同
+        LazyPacket lazyMap = ProtocolManager.readLazy(buffer);
+        LazyPacket lazyObject = ProtocolManager.readLazy(buffer);
+        Assert.assertFalse(buffer.isReadable());
+
+        Assert.assertEquals(cm.getMapC(), lazyMap.get("mapC"));
+        Assert.assertEquals(cm.getMapWithListAndMap(), lazyMap.get("mapWithListAndMap"));
+        Assert.assertEquals(cm, lazyMap.toPacket());
+
+        Assert.assertEquals(Integer.MIN_VALUE, (int) lazyObject.get("a"));
+        Assert.assertEquals(Integer.MIN_VALUE, (int) lazyObject.get(LazyPacket.fieldIndex(CM_Object.class, "a")));
+        Assert.assertNotNull(lazyObject.getLazy(LazyPacket.fieldIndex(CM_Object.class, "b")));
+        LazyPacket lazyA = lazyObject.getLazy("b");
+        Assert.assertEquals(Integer.MIN_VALUE, (int) lazyA.get("a"));
+        Assert.assertEquals(objectB, lazyA.get("objectB"));
+        Assert.assertEquals(objectA1, lazyA.toPacket());
+        Assert.assertEquals(cmObject, lazyObject.toPacket());
+
+        lazyMap.release();
+        lazyObject.release();
+        Assert.assertEquals(1, buffer.refCnt());
+    }
+
+    @Test
+    public void testPassThrough() {
+        CM_Object cm = new CM_Object();
+        cm.setA(Integer.MIN_VALUE);
+        cm.setB(objectA0);
+
+        ByteBuf writeBuff = Unpooled.buffer();
+        packetService.writeHeaderAndBody(writeBuff, cm, attachment);
+        writeBuff.readerIndex(PacketService.PACKET_HEAD_LENGTH);// 信息头的长度
+
+        // 透传模式只读取协议号，附加包依然会被反序列化
+        DecodedPacketInfo packetInfo = packetService.readPassThrough(writeBuff);
+        Assert.assertFalse(writeBuff.isReadable());
+        Assert.assertEquals(packetInfo.getAttachment(), attachment);
+        RawPacket rawPacket = (RawPacket) packetInfo.getPacket();
+        Assert.assertEquals(ProtocolManager.protocolId(CM_Object.class), rawPacket.getProtocolId());
+        Assert.assertNull(rawPacket.getPacket());
+
+        // 转发的透传包和普通的包走同样的发送路径，不可写的时候进入发送队列，接收的buffer释放之后依然可以编码
+        var channel = new EmbeddedChannel();
+        var providerSession = new Session(channel);
+        providerSession.setOutboundQueue(new OutboundQueue(providerSession, OutboundPolicy.DROP_OLDEST, 16));
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        NetContext.getRouter().send(providerSession, rawPacket.copy(), null);
+        rawPacket.release();
+        Assert.assertEquals(1, writeBuff.refCnt());
+        Assert.assertEquals(1, providerSession.getOutboundQueue().size());
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        providerSession.getOutboundQueue().writabilityChanged();
+        var forwardPacketInfo = (EncodedPacketInfo) channel.readOutbound();
+
+        // 写入原始字节之后的包和直接序列化的包相同
+        ByteBuf forwardBuff = Unpooled.buffer();
+        packetService.writeHeaderAndBody(forwardBuff, forwardPacketInfo.getPacket(), forwardPacketInfo.getAttachment());
+        Assert.assertEquals(forwardBuff.readableBytes() - PacketService.PACKET_HEAD_LENGTH, forwardBuff.readInt());
+        DecodedPacketInfo decodedPacketInfo = packetService.read(forwardBuff);
+        Assert.assertEquals(decodedPacketInfo.getPacket(), cm);
+        Assert.assertNull(decodedPacketInfo.getAttachment());
+        Assert.assertEquals(packetService.sizeOf(cm, null), packetService.sizeOf(forwardPacketInfo.getPacket(), null));
+    }
+
+    @Test
+    public void testCompress() {
+        var protocolId = ProtocolManager.protocolId(CM_Int.class);
+        // 用同一个协议的不同的包训练字典
+        var samples = new ArrayList<byte[]>();
+        for (var i = 0; i < 100; i++) {
+            var body = Unpooled.buffer();
+            packetService.write(body, newCMInt(i), attachment);
+            body.skipBytes(2);
+            samples.add(ByteBufUtils.readAllBytes(body));
+        }
+        var dictionary = ZipUtils.trainDictionary(samples, ZipUtils.MAX_DICTIONARY_SIZE);
+        Assert.assertTrue(dictionary.length > 0);
+
+        var cm = newCMInt(Integer.MAX_VALUE);
+        ByteBuf body = Unpooled.buffer();
+        packetService.write(body, cm, attachment);
+
+        ByteBuf compressed = Unpooled.buffer();
+        Assert.assertTrue(PacketCompressor.compress(body, compressed, 1));
+        Assert.assertTrue(PacketCompressor.isCompressed(compressed));
+        Assert.assertTrue(compressed.readableBytes() < body.readableBytes());
+        Assert.assertEquals(packetService.read(compressed.duplicate()).getPacket(), cm);
+
+        PacketCompressor.registerDictionary(protocolId, dictionary);
+        try {
+            ByteBuf dictionaryCompressed = Unpooled.buffer();
+            Assert.assertTrue(PacketCompressor.compress(body, dictionaryCompressed, 1));
+            Assert.assertTrue(dictionaryCompressed.readableBytes() < compressed.readableBytes());
+
+            DecodedPacketInfo packetInfo = packetService.read(dictionaryCompressed.duplicate());
+            Assert.assertEquals(packetInfo.getPacket(), cm);
+            Assert.assertEquals(packetInfo.getAttachment(), attachment);
+
+            // 网关透传解压后的包体
+            packetInfo = packetService.readPassThrough(dictionaryCompressed.duplicate());
+            Assert.assertEquals(packetInfo.getAttachment(), attachment);
+            RawPacket rawPacket = (RawPacket) packetInfo.getPacket();
+            Assert.assertEquals(protocolId, rawPacket.getProtocolId());
+            rawPacket.release();
+
+            // 接收方的字典不一致
+            PacketCompressor.registerDictionary(protocolId, new byte[]{1, 2, 3});
+            Assert.assertThrows(RunException.class, () -> packetService.read(dictionaryCompressed.duplicate()));
+        } finally {
+            PacketCompressor.registerDictionary(protocolId, null);
+        }
+    }
+
+    @Test
+    public void testSessionCompress() {
+        var cm = newCMInt(Integer.MAX_VALUE);
+
+        // 没有设置压缩阈值的session不压缩，其它语言的客户端不会收到压缩的包
+        var channel = new EmbeddedChannel(new TcpCodecHandler());
+        var session = new Session(channel);
+        channel.attr(BaseRouteHandler.SESSION_KEY).set(session);
+        channel.writeOutbound(EncodedPacketInfo.valueOf(session.getSid(), 0, cm, null));
+        ByteBuf frame = channel.readOutbound();
+        frame.skipBytes(PacketService.PACKET_HEAD_LENGTH);
+        Assert.assertFalse(PacketCompressor.isCompressed(frame));
+        frame.release();
+
+        // 开启了压缩的session
+        session.setCompressThreshold(16);
+        channel.writeOutbound(EncodedPacketInfo.valueOf(session.getSid(), 0, cm, null));
+        ByteBuf compressedFrame = channel.readOutbound();
+        Assert.assertTrue(PacketCompressor.isCompressed(compressedFrame.duplicate().skipBytes(PacketService.PACKET_HEAD_LENGTH)));
+
+        // 收到压缩的包的一方使用本地配置的压缩阈值，已经设置了压缩阈值的session不变
+        var receiveChannel = new EmbeddedChannel(new TcpCodecHandler());
+        var receiveSession = new Session(receiveChannel);
+        receiveChannel.attr(BaseRouteHandler.SESSION_KEY).set(receiveSession);
+        receiveSession.setCompressThreshold(8);
+        receiveChannel.writeInbound(compressedFrame.retainedDuplicate());
+        Assert.assertEquals(8, receiveSession.getCompressThreshold());
+        Assert.assertEquals(cm, ((DecodedPacketInfo) receiveChannel.readInbound()).getPacket());
+
+        receiveSession.setCompressThreshold(0);
+        receiveChannel.writeInbound(compressedFrame);
+        Assert.assertEquals(packetService.compressThreshold(), receiveSession.getCompressThreshold());
+        Assert.assertEquals(cm, ((DecodedPacketInfo) receiveChannel.readInbound()).getPacket());
+    }
+
+    @Test
+    public void testBatch() {
+        var batch = new PacketBatch();
+        var packets = new ArrayList<>();
+        for (var i = 0; i < 10; i++) {
+            var cm = newCMInt(i);
+            packets.add(cm);
+            Assert.assertTrue(batch.add(cm, i % 2 == 0 ? attachment : null));
+        }
+
+        ByteBuf writeBuff = Unpooled.buffer();
+        packetService.writeHeaderAndBody(writeBuff, batch, null);
+        Assert.assertEquals(writeBuff.readableBytes() - PacketService.PACKET_HEAD_LENGTH, writeBuff.readInt());
+        Assert.assertEquals(batch.length(), writeBuff.readableBytes());
+        Assert.assertTrue(PacketBatch.isBatch(writeBuff));
+
+        var out = new ArrayList<>();
+        packetService.readBatch(writeBuff.duplicate(), out, false);
+        Assert.assertEquals(10, out.size());
+        for (var i = 0; i < 10; i++) {
+            var packetInfo = (DecodedPacketInfo) out.get(i);
+            Assert.assertEquals(packets.get(i), packetInfo.getPacket());
+            Assert.assertEquals(i % 2 == 0 ? attachment : null, packetInfo.getAttachment());
+        }
+
+        // 网关透传模式每个包都是一个RawPacket
+        out.clear();
+        packetService.readBatch(writeBuff.duplicate(), out, true);
+        Assert.assertEquals(10, out.size());
+        for (var i = 0; i < 10; i++) {
+            var rawPacket = (RawPacket) ((DecodedPacketInfo) out.get(i)).getPacket();
+            Assert.assertEquals(ProtocolManager.protocolId(CM_Int.class), rawPacket.getProtocolId());
+            rawPacket.release();
+        }
+    }
+
+    @Test
+    public void testSendBatch() {
+        var packets = new ArrayList<>();
+        for (var i = 0; i < 3; i++) {
+            packets.add(newCMInt(i));
+        }
+
+        // 没有开启批量帧的session每个包单独一个帧，其它语言的客户端不会收到批量帧
+        var channel = new EmbeddedChannel();
+        var session = new Session(channel);
+        NetContext.getRouter().sendBatch(session, packets);
+        for (var packet : packets) {
+            Assert.assertEquals(packet, ((EncodedPacketInfo) channel.readOutbound()).getPacket());
+        }
+        Assert.assertNull(channel.readOutbound());
+
+        // 开启了批量帧的zfoo连接编码为一个批量帧
+        var tcpChannel = new EmbeddedChannel(new TcpCodecHandler());
+        var tcpSession = new Session(tcpChannel);
+        tcpChannel.attr(BaseRouteHandler.SESSION_KEY).set(tcpSession);
+        tcpSession.setBatchFrame(true);
+        NetContext.getRouter().sendBatch(tcpSession, packets);
+        ByteBuf batchFrame = tcpChannel.readOutbound();
+        Assert.assertNull(tcpChannel.readOutbound());
+        Assert.assertTrue(PacketBatch.isBatch(batchFrame.duplicate().skipBytes(PacketService.PACKET_HEAD_LENGTH)));
+
+        // 收到批量帧的一方也开启批量帧
+        var receiveChannel = new EmbeddedChannel(new TcpCodecHandler());
+        var receiveSession = new Session(receiveChannel);
+        receiveChannel.attr(BaseRouteHandler.SESSION_KEY).set(receiveSession);
+        Assert.assertFalse(receiveSession.isBatchFrame());
+        receiveChannel.writeInbound(batchFrame);
+        Assert.assertTrue(receiveSession.isBatchFrame());
+        for (var packet : packets) {
+            Assert.assertEquals(packet, ((DecodedPacketInfo) receiveChannel.readInbound()).getPacket());
+        }
+
+        Assert.assertFalse(tcpChannel.finishAndReleaseAll());
+        Assert.assertFalse(receiveChannel.finishAndReleaseAll());
+    }
+
+    @Test
+    public void testBroadcast() {
+        var tcpChannel = new EmbeddedChannel(new TcpCodecHandler());
+        var tcpSession = new Session(tcpChannel);
+        var webSocketChannel = new EmbeddedChannel(new WebSocketCodecHandler());
+        var webSocketSession = new Session(webSocketChannel);
+        var queueChannel = new EmbeddedChannel();
+        var queueSession = new Session(queueChannel);
+        queueSession.setOutboundQueue(new OutboundQueue(queueSession, OutboundPolicy.DROP_OLDEST, 16));
+        var sessions = List.of(tcpSession, webSocketSession, queueSession);
+
+        // 序列化失败则整个广播取消，任何一个session都不会收到
+        Assert.assertThrows(RunException.class, () -> NetContext.getRouter().broadcast(sessions, new Object()));
+        tcpChannel.runPendingTasks();
+        webSocketChannel.runPendingTasks();
+        Assert.assertNull(tcpChannel.readOutbound());
+        Assert.assertNull(webSocketChannel.readOutbound());
+        Assert.assertNull(queueChannel.readOutbound());
+
+        // 不可写的channel和send一样打印警告后继续写入
+        var cm = newCMInt(1);
+        tcpChannel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        NetContext.getRouter().broadcast(sessions, cm);
+        tcpChannel.runPendingTasks();
+        webSocketChannel.runPendingTasks();
+
+        var tcpReceiver = new EmbeddedChannel(new TcpCodecHandler());
+        tcpReceiver.writeInbound((ByteBuf) tcpChannel.readOutbound());
+        Assert.assertEquals(cm, ((DecodedPacketInfo) tcpReceiver.readInbound()).getPacket());
+
+        var webSocketReceiver = new EmbeddedChannel(new WebSocketCodecHandler());
+        webSocketReceiver.writeInbound((BinaryWebSocketFrame) webSocketChannel.readOutbound());
+        Assert.assertEquals(cm, ((DecodedPacketInfo) webSocketReceiver.readInbound()).getPacket());
+
+        // 有发送队列的session不共享字节，还是经过自己的发送队列
+        Assert.assertEquals(cm, ((EncodedPacketInfo) queueChannel.readOutbound()).getPacket());
+
+        Assert.assertFalse(tcpChannel.finishAndReleaseAll());
+        Assert.assertFalse(webSocketChannel.finishAndReleaseAll());
+    }
+
+    @Test
+    public void testSendNoFlush() {
+        // sendNoFlush只写入发送缓冲区，flush之后才发送
+        var channel = new EmbeddedChannel(new TcpCodecHandler());
+        var session = new Session(channel);
+        NetContext.getRouter().sendNoFlush(session, newCMInt(1));
+        NetContext.getRouter().sendNoFlush(session, newCMInt(2));
+        Assert.assertNull(channel.readOutbound());
+        NetContext.getRouter().flush(session);
+        Assert.assertEquals(2, channel.outboundMessages().size());
+        Assert.assertTrue(channel.finishAndReleaseAll());
+
+        // 开启了flush-consolidation的服务器在pipeline中加入FlushConsolidationHandler
+        var netConfig = NetContext.getConfigManager().getLocalConfig();
+        var server = new TcpServer(HostAndPort.valueOf("127.0.0.1", 0)) {
+            private void initPipeline(ChannelPipeline pipeline) {
+                addFlushConsolidation(pipeline);
+                pipeline.addLast(new TcpCodecHandler());
+            }
+        };
+        var noConsolidationChannel = new EmbeddedChannel();
+        server.initPipeline(noConsolidationChannel.pipeline());
+        Assert.assertNull(noConsolidationChannel.pipeline().get(FlushConsolidationHandler.class));
+
+        netConfig.setFlushConsolidation(true);
+        try {
+            var consolidationChannel = new EmbeddedChannel();
+            server.initPipeline(consolidationChannel.pipeline());
+            Assert.assertNotNull(consolidationChannel.pipeline().get(FlushConsolidationHandler.class));
+
+            // 合并的flush在事件循环中执行，包依然都会被发送
+            var consolidationSession = new Session(consolidationChannel);
+            NetContext.getRouter().send(consolidationSession, newCMInt(1));
+            NetContext.getRouter().send(consolidationSession, newCMInt(2));
+            consolidationChannel.runPendingTasks();
+            Assert.assertEquals(2, consolidationChannel.outboundMessages().size());
+            Assert.assertTrue(consolidationChannel.finishAndReleaseAll());
+        } finally {
+            netConfig.setFlushConsolidation(false);
+        }
+    }
+
+    @Test
+    public void testOutboundQueue() {
+        var totalDroppedCount = OutboundQueue.totalDroppedCount();
+        var totalCoalescedCount = OutboundQueue.totalCoalescedCount();
+        var totalSuspendedCount = OutboundQueue.totalSuspendedCount();
+
+        // 队列满了丢弃最早的包，可写之后按顺序写出
+        var channel = new EmbeddedChannel();
+        var outboundQueue = new OutboundQueue(new Session(channel), OutboundPolicy.DROP_OLDEST, 3);
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        for (var i = 0; i < 5; i++) {
+            outboundQueue.send(newCMInt(i), null, true);
+        }
+        Assert.assertEquals(3, outboundQueue.size());
+        Assert.assertEquals(2, outboundQueue.getDroppedCount());
+        Assert.assertNull(channel.readOutbound());
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        outboundQueue.writabilityChanged();
+        for (var i = 2; i < 5; i++) {
+            Assert.assertEquals(newCMInt(i), ((EncodedPacketInfo) channel.readOutbound()).getPacket());
+        }
+        Assert.assertEquals(0, outboundQueue.size());
+
+        // 同一个协议号只保留最新的包，位置不变
+        channel = new EmbeddedChannel();
+        outboundQueue = new OutboundQueue(new Session(channel), OutboundPolicy.COALESCE, 3, Set.of(ProtocolManager.protocolId(CM_Int.class)));
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        var sm = new SM_Int();
+        outboundQueue.send(newCMInt(1), null, true);
+        outboundQueue.send(sm, null, true);
+        outboundQueue.send(sm, null, true);
+        outboundQueue.send(newCMInt(2), null, true);
+        Assert.assertEquals(3, outboundQueue.size());
+        Assert.assertEquals(1, outboundQueue.getCoalescedCount());
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        outboundQueue.writabilityChanged();
+        Assert.assertEquals(newCMInt(2), ((EncodedPacketInfo) channel.readOutbound()).getPacket());
+        Assert.assertSame(sm, ((EncodedPacketInfo) channel.readOutbound()).getPacket());
+        Assert.assertSame(sm, ((EncodedPacketInfo) channel.readOutbound()).getPacket());
+        Assert.assertNull(channel.readOutbound());
+
+        // 没有指定合并的协议号则没有协议合并
+        channel = new EmbeddedChannel();
+        outboundQueue = new OutboundQueue(new Session(channel), OutboundPolicy.COALESCE, 3);
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        outboundQueue.send(newCMInt(1), null, true);
+        outboundQueue.send(newCMInt(2), null, true);
+        Assert.assertEquals(2, outboundQueue.size());
+        Assert.assertEquals(0, outboundQueue.getCoalescedCount());
+
+        // 不可写的时候停止读取，发送的包进入队列，可写之后恢复读取并按顺序写出，队列满了断开连接
+        channel = new EmbeddedChannel();
+        outboundQueue = new OutboundQueue(new Session(channel), OutboundPolicy.SUSPEND, 2);
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        outboundQueue.writabilityChanged();
+        Assert.assertFalse(channel.config().isAutoRead());
+        Assert.assertEquals(1, outboundQueue.getSuspendedCount());
+        outboundQueue.send(newCMInt(1), null, true);
+        outboundQueue.send(newCMInt(2), null, true);
+        Assert.assertEquals(2, outboundQueue.size());
+        Assert.assertNull(channel.readOutbound());
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        outboundQueue.writabilityChanged();
+        Assert.assertTrue(channel.config().isAutoRead());
+        Assert.assertEquals(newCMInt(1), ((EncodedPacketInfo) channel.readOutbound()).getPacket());
+        Assert.assertEquals(newCMInt(2), ((EncodedPacketInfo) channel.readOutbound()).getPacket());
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        for (var i = 0; i < 3; i++) {
+            outboundQueue.send(newCMInt(i), null, true);
+        }
+        Assert.assertFalse(channel.isActive());
+        Assert.assertEquals(3, outboundQueue.getDroppedCount());
+
+        // 队列满了断开连接
+        channel = new EmbeddedChannel();
+        outboundQueue = new OutboundQueue(new Session(channel), OutboundPolicy.DISCONNECT, 2);
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        for (var i = 0; i < 3; i++) {
+            outboundQueue.send(newCMInt(i), null, true);
+        }
+        Assert.assertFalse(channel.isActive());
+        Assert.assertEquals(3, outboundQueue.getDroppedCount());
+
+        // 所有发送队列的总计数，由monitor采集
+        Assert.assertEquals(2 + 3 + 3, OutboundQueue.totalDroppedCount() - totalDroppedCount);
+        Assert.assertEquals(1, OutboundQueue.totalCoalescedCount() - totalCoalescedCount);
+        Assert.assertEquals(1, OutboundQueue.totalSuspendedCount() - totalSuspendedCount);
+    }
+
+    @Test
+    public void testCoalescerWithOutboundQueue() {
+        // 同时设置了合并和发送队列，不可写的时候合并的包也经过发送队列的背压
+        var channel = new EmbeddedChannel();
+        var session = new Session(channel);
+        session.setPacketCoalescer(new PacketCoalescer(session, 0));
+        var outboundQueue = new OutboundQueue(session, OutboundPolicy.DROP_OLDEST, 2);
+        session.setOutboundQueue(outboundQueue);
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        for (var i = 1; i <= 3; i++) {
+            NetContext.getRouter().send(session, newCMInt(i));
+        }
+        channel.runPendingTasks();
+        Assert.assertEquals(2, outboundQueue.size());
+        Assert.assertEquals(1, outboundQueue.getDroppedCount());
+        Assert.assertNull(channel.readOutbound());
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        outboundQueue.writabilityChanged();
+        Assert.assertEquals(newCMInt(2), ((EncodedPacketInfo) channel.readOutbound()).getPacket());
+        Assert.assertEquals(newCMInt(3), ((EncodedPacketInfo) channel.readOutbound()).getPacket());
+        Assert.assertNull(channel.readOutbound());
+
+        // 可写并且发送队列为空的时候合并的包直接写出
+        NetContext.getRouter().send(session, newCMInt(4));
+        channel.runPendingTasks();
+        Assert.assertEquals(newCMInt(4), ((EncodedPacketInfo) channel.readOutbound()).getPacket());
+
+        // 进入发送队列的包需要flush的时候，之前没有flush的包也会被发送
+        session.setPacketCoalescer(null);
+        NetContext.getRouter().sendNoFlush(session, newCMInt(5));
+        Assert.assertNull(channel.readOutbound());
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        NetContext.getRouter().send(session, newCMInt(6));
+        Assert.assertEquals(newCMInt(5), ((EncodedPacketInfo) channel.readOutbound()).getPacket());
+        Assert.assertNull(channel.readOutbound());
+        Assert.assertEquals(1, outboundQueue.size());
+    }
+
+    @Test
+    public void testConsistentHashConnection() {
+        // 2个服务提供者，每个服务提供者4个连接
+        var providers = new ArrayList<Session>();
+        for (var address : List.of("127.0.0.1:9001", "127.0.0.1:9002")) {
+            var register = Register.valueOf(address, ProviderConfig.valueOf(address, List.of()), null);
+            for (var i = 0; i < 4; i++) {
+                var session = new Session(new EmbeddedChannel());
+                session.setConsumerRegister(register);
+                providers.add(session);
+            }
+        }
+        var balancer = ConsistentHashLoadBalancer.getInstance();
+        var cm = newCMInt(1);
+        var counts = new HashMap<Session, Integer>();
+        var count = 10000;
+        for (var i = 0; i < count; i++) {
+            var session = balancer.selectProvider(providers, cm, i);
+            // 相同的argument总是选择同一个连接
+            Assert.assertSame(session, balancer.selectProvider(providers, cm, i));
+            counts.merge(session, 1, Integer::sum);
+        }
+        // 所有的连接都会被选中，并且比较均匀
+        Assert.assertEquals(providers.size(), counts.size());
+        counts.values().forEach(it -> Assert.assertTrue(it > count / providers.size() / 2));
+
+        // providers的顺序变化不影响选择的连接
+        var reversedProviders = new ArrayList<>(providers);
+        Collections.reverse(reversedProviders);
+        for (var i = 0; i < 100; i++) {
+            Assert.assertSame(balancer.selectProvider(providers, cm, i), balancer.selectProvider(reversedProviders, cm, i));
+        }
+    }
+
+    @Test
+    public void testRecycleForward() {
+        var session = new Session(new EmbeddedChannel());
+        // 转发的目标连接暂时不可写，转发的包在队列里等待，可写之后才会被序列化
+        var forwardChannel = new EmbeddedChannel();
+        var forwardSession = new Session(forwardChannel);
+        forwardSession.setOutboundQueue(new OutboundQueue(forwardSession, OutboundPolicy.DROP_OLDEST, 16));
+        forwardChannel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        RecycleController.forwardSession = forwardSession;
+
+        // 接收者没有声明release，转发中的包不能被下一个包复用
+        var first = (RecycleForwardRequest) receive(session, RecycleForwardRequest.valueOf(1, "first", List.of(1, 2, 3)));
+        var second = (RecycleForwardRequest) receive(session, RecycleForwardRequest.valueOf(2, "second", List.of(4)));
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(2, forwardSession.getOutboundQueue().size());
+
+        forwardChannel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        forwardSession.getOutboundQueue().writabilityChanged();
+        var forwardFirst = (RecycleForwardRequest) ((EncodedPacketInfo) forwardChannel.readOutbound()).getPacket();
+        var forwardSecond = (RecycleForwardRequest) ((EncodedPacketInfo) forwardChannel.readOutbound()).getPacket();
+        Assert.assertEquals(1, forwardFirst.getId());
+        Assert.assertEquals("first", forwardFirst.getMessage());
+        Assert.assertEquals(List.of(1, 2, 3), forwardFirst.getValues());
+        Assert.assertEquals(2, forwardSecond.getId());
+        Assert.assertEquals("second", forwardSecond.getMessage());
+        Assert.assertEquals(List.of(4), forwardSecond.getValues());
+
+        // 声明了release的接收者返回之后，协议对象会被下一个包复用
+        var released = receive(session, RecycleReleaseRequest.valueOf(1));
+        var reused = (RecycleReleaseRequest) receive(session, RecycleReleaseRequest.valueOf(2));
+        Assert.assertSame(released, reused);
+        Assert.assertEquals(2, reused.getId());
+    }
+
+    private Object receive(Session session, Object packet) {
+        var buffer = Unpooled.buffer();
+        packetService.writeHeaderAndBody(buffer, packet, null);
+        buffer.readerIndex(PacketService.PACKET_HEAD_LENGTH);
+        var decoded = packetService.read(buffer).getPacket();
+        NetContext.getRouter().atReceiver(new PacketReceiverTask(session, decoded, null));
+        return decoded;
+    }
+
+    private CM_Int newCMInt(int value) {
+        CM_Int cm = new CM_Int();
+        cm.setFlag(value % 2 == 0);
+        cm.setA((byte) value);
+        cm.setB((short) value);
+        cm.setC(value);
+        cm.setD(value * 1000L);
+        cm.setF("Hello Jaysunxiao，this is the World " + value + "!!!!!!!!!!!!!!!!!!!!!!!!!!!!");
+        return cm;
+    }
+
 }
@@ -13,12 +13,18 @@
 package com.zfoo.protocol;
 
 import com.zfoo.protocol.buffer.ByteBufUtils;
+import com.zfoo.protocol.buffer.StringDictionary;
 import com.zfoo.protocol.collection.HashMapIntShort;
 import com.zfoo.protocol.exception.DecodeException;
 import com.zfoo.protocol.generate.GenerateOperation;
 import com.zfoo.protocol.registration.IProtocolRegistration;
+import com.zfoo.protocol.registration.LazyPacket;
 import com.zfoo.protocol.registration.ProtocolAnalysis;
 import com.zfoo.protocol.registration.ProtocolModule;
+import com.zfoo.protocol.registration.ProtocolProfile;
+import com.zfoo.protocol.registration.ProtocolProfiler;
+import com.zfoo.protocol.registration.ProtocolRecycler;
+import com.zfoo.protocol.registration.ProtocolStartupMetrics;
 import com.zfoo.protocol.util.AssertionUtils;
 import com.zfoo.protocol.xml.XmlProtocols;
 import io.netty.buffer.ByteBuf;
@@ -58,12 +64,28 @@ public class ProtocolManager {
      */
     public static void write(ByteBuf buffer, Object packet) {
         var protocolId = protocolId(packet.getClass());
+        if (ProtocolProfiler.isEnable()) {
+            var startIndex = buffer.writerIndex();
+            var startTime = System.nanoTime();
+            ByteBufUtils.writeShort(buffer, protocolId);
+            protocols[protocolId].write(buffer, packet);
+            ProtocolProfiler.recordWrite(protocolId, buffer.writerIndex() - startIndex, System.nanoTime() - startTime);
+            return;
+        }
         // write the protocolId
         ByteBufUtils.writeShort(buffer, protocolId);
         // write the package
         protocols[protocolId].write(buffer, packet);
     }
 
+    /**
+     * the exact number of bytes that write(buffer, packet) will write, including the protocolId
+     */
+    public static int sizeOf(Object packet) {
+        var protocolId = protocolId(packet.getClass());
+        return 2 + protocols[protocolId].sizeOf(packet);
+    }
+
     /**
      * deserialization a packet from the buffer
      * <p>
@@ -73,6 +95,14 @@ public class ProtocolManager {
     public static Object read(ByteBuf buffer) {
         short protocolId = -1;
         try {
+            if (ProtocolProfiler.isEnable()) {
+                var startIndex = buffer.readerIndex();
+                var startTime = System.nanoTime();
+                protocolId = ByteBufUtils.readShort(buffer);
+                var packet = protocols[protocolId].read(buffer);
+                ProtocolProfiler.recordRead(protocolId, buffer.readerIndex() - startIndex, System.nanoTime() - startTime);
+                return packet;
+            }
             protocolId = ByteBufUtils.readShort(buffer);
             return protocols[protocolId].read(buffer);
         } catch (Throwable e) {
@@ -80,6 +110,59 @@ public class ProtocolManager {
         }
     }
 
+    /**
+     * deserialization a packet lazily, the fields are decoded on first access, see LazyPacket
+     * <p>
+     * the returned LazyPacket retains the buffer, call LazyPacket.release() after use
+     */
+    public static LazyPacket readLazy(ByteBuf buffer) {
+        short protocolId = -1;
+        try {
+            protocolId = ByteBufUtils.readShort(buffer);
+            return LazyPacket.read(buffer, protocolId);
+        } catch (Throwable e) {
+            throw new DecodeException(e, protocolId);
+        }
+    }
+
+    /**
+     * serialize the packet with the string dictionary of a session, see @Intern
+     */
+    public static void write(ByteBuf buffer, Object packet, StringDictionary dictionary) {
+        StringDictionary.bind(dictionary);
+        try {
+            write(buffer, packet);
+            dictionary.commitWrite();
+        } catch (Throwable t) {
+            dictionary.rollbackWrite();
+            throw t;
+        } finally {
+            StringDictionary.unbind();
+        }
+    }
+
+    /**
+     * deserialization a packet with the string dictionary of a session, see @Intern
+     */
+    public static Object read(ByteBuf buffer, StringDictionary dictionary) {
+        StringDictionary.bind(dictionary);
+        try {
+            return read(buffer);
+        } finally {
+            StringDictionary.unbind();
+        }
+    }
+
+    /**
+     * return a @Protocol(recycle = true) packet to the pool, the packet can not be used after release
+     */
+    public static void release(Object packet) {
+        if (packet == null) {
+            return;
+        }
+        ProtocolRecycler.release(protocolId(packet.getClass()), packet);
+    }
+
     public static IProtocolRegistration getProtocol(short protocolId) {
         return protocols[protocolId];
     }
@@ -124,6 +207,21 @@ public class ProtocolManager {
         return protocolIdMap == null ? protocolIdPrimitiveMap.containsKey(clazz.hashCode()) : protocolIdMap.containsKey(clazz);
     }
 
+    /**
+     * EN: Time spent in each phase of the protocol initialization: analysis, code generation, enhancement
+     * CN: 协议初始化各个阶段的耗时：解析协议，生成协议文件，字节码增强
+     */
+    public static ProtocolStartupMetrics startupMetrics() {
+        return ProtocolAnalysis.startupMetrics();
+    }
+
+    /**
+     * serialization statistics of every protocol, sorted by the total bytes, only recorded when ProtocolProfiler is enabled
+     */
+    public static List<ProtocolProfile> profiles() {
+        return ProtocolProfiler.profiles();
+    }
+
     public static void initProtocol(Set<Class<?>> protocolClassSet) {
         ProtocolAnalysis.analyze(protocolClassSet, GenerateOperation.NO_OPERATION);
     }
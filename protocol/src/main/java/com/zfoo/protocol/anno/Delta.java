@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.anno;
+
+import java.lang.annotation.*;
+
+/**
+ * EN: Send sorted int/long arrays and lists with delta and bit-packed encoding, only for Java, C# and TypeScript
+ * CN: 有序的int/long数组和列表使用差值加位打包发送，只支持Java，C#和TypeScript
+ *
+ * @author godotg
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD})
+public @interface Delta {
+
+}
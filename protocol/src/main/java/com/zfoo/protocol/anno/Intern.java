@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.anno;
+
+import java.lang.annotation.*;
+
+/**
+ * EN: The String field is sent through the per session StringDictionary, a repeated value is sent as a varint reference.
+ * It takes effect only when both sides of the connection bind a StringDictionary, otherwise it is sent as a normal String.
+ * A @Compatible field can be skipped by an older peer, so strings inside it are always sent as normal Strings.
+ * <p>
+ * CN: String字段使用连接独享的字符串字典发送，重复的字符串只发送一个可变长int引用。
+ * 只有连接两端都绑定了StringDictionary才会生效，否则和普通的String一样发送。
+ * 旧版本的对方可能会跳过@Compatible字段，所以@Compatible字段里的字符串总是按照普通String发送。
+ *
+ * @author godotg
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD})
+public @interface Intern {
+
+}
@@ -33,5 +33,13 @@ public @interface Protocol {
      */
     boolean enhance() default true;
 
+    /**
+     * EN: Decode the protocol into a recycled instance, call ProtocolManager.release(packet) to return it when it is no longer used.
+     * The packet and its primitive collections will be reused, so do not hold or send them after release.
+     * CN: 反序列化的时候复用已经回收的协议对象，不再使用的时候调用ProtocolManager.release(packet)回收。
+     * 协议对象和它的基础类型集合都会被复用，所以回收过后不能再持有或者发送它们。
+     */
+    boolean recycle() default false;
+
 }
 
@@ -20,6 +20,7 @@ import io.netty.buffer.ByteBufUtil;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.collection.IntObjectHashMap;
 import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.internal.PlatformDependent;
 
 import java.util.Collection;
 import java.util.List;
@@ -35,6 +36,15 @@ import java.util.Set;
  */
 public abstract class ByteBufUtils {
 
+    /**
+     * EN: Varints are read and written through the backing array or the memory address of the buffer,
+     * the index and reference count of the buffer are checked once per varint instead of once per byte.
+     * Disable it with -Dzfoo.protocol.rawBuffer=false
+     * <p>
+     * CN: 可变长整数直接读写ByteBuf底层的数组或者堆外内存地址，每个整数只检查一次下标和引用计数，而不是每个字节都检查一次
+     */
+    private static final boolean RAW_BUFFER = Boolean.parseBoolean(System.getProperty("zfoo.protocol.rawBuffer", "true"));
+
     //---------------------------------compatible--------------------------------------
     public static final Double ZERO_DOUBLE = Double.valueOf(0D);
     public static final Float ZERO_FLOAT = Float.valueOf(0F);
@@ -148,6 +158,19 @@ public abstract class ByteBufUtils {
         int writeIndex = byteBuf.writerIndex();
         byteBuf.ensureWritable(5);
 
+        if (RAW_BUFFER) {
+            if (byteBuf.hasArray()) {
+                var length = writeRawVarLong(byteBuf.array(), byteBuf.arrayOffset() + writeIndex, value & 0xFFFFFFFFL);
+                byteBuf.writerIndex(writeIndex + length);
+                return length;
+            }
+            if (byteBuf.hasMemoryAddress()) {
+                var length = writeRawVarLong(byteBuf.memoryAddress() + writeIndex, value & 0xFFFFFFFFL);
+                byteBuf.writerIndex(writeIndex + length);
+                return length;
+            }
+        }
+
         byteBuf.setByte(writeIndex++, value | 0x80);
         int b = value >>> 14;
         if (b == 0) {
@@ -182,6 +205,27 @@ public abstract class ByteBufUtils {
         int readIndex = byteBuf.readerIndex();
         int b = byteBuf.getByte(readIndex++);
         int value = b;
+        if (b < 0 && RAW_BUFFER && byteBuf.writerIndex() - readIndex >= 4) {
+            if (byteBuf.hasArray()) {
+                var array = byteBuf.array();
+                var offset = byteBuf.arrayOffset();
+                for (int shift = 7; b < 0 && shift < 35; shift += 7) {
+                    b = array[offset + readIndex++];
+                    value = value & ~(-1 << shift) | b << shift;
+                }
+                byteBuf.readerIndex(readIndex);
+                return ((value >>> 1) ^ -(value & 1));
+            }
+            if (byteBuf.hasMemoryAddress()) {
+                var address = byteBuf.memoryAddress();
+                for (int shift = 7; b < 0 && shift < 35; shift += 7) {
+                    b = PlatformDependent.getByte(address + readIndex++);
+                    value = value & ~(-1 << shift) | b << shift;
+                }
+                byteBuf.readerIndex(readIndex);
+                return ((value >>> 1) ^ -(value & 1));
+            }
+        }
         if (b < 0) {
             b = byteBuf.getByte(readIndex++);
             value = value & 0x0000007F | b << 7;
@@ -242,6 +286,19 @@ public abstract class ByteBufUtils {
             return;
         }
 
+        if (RAW_BUFFER) {
+            int writeIndex = byteBuf.writerIndex();
+            byteBuf.ensureWritable(9);
+            if (byteBuf.hasArray()) {
+                byteBuf.writerIndex(writeIndex + writeRawVarLong(byteBuf.array(), byteBuf.arrayOffset() + writeIndex, mask));
+                return;
+            }
+            if (byteBuf.hasMemoryAddress()) {
+                byteBuf.writerIndex(writeIndex + writeRawVarLong(byteBuf.memoryAddress() + writeIndex, mask));
+                return;
+            }
+        }
+
         byte[] bytes = new byte[9];
         bytes[0] = (byte) (mask | 0x80);
         bytes[1] = (byte) (mask >>> 7 | 0x80);
@@ -291,6 +348,27 @@ public abstract class ByteBufUtils {
         int readIndex = byteBuf.readerIndex();
         long b = byteBuf.getByte(readIndex++);
         long value = b;
+        if (b < 0 && RAW_BUFFER && byteBuf.writerIndex() - readIndex >= 8) {
+            if (byteBuf.hasArray()) {
+                var array = byteBuf.array();
+                var offset = byteBuf.arrayOffset();
+                for (int shift = 7; b < 0 && shift < 63; shift += 7) {
+                    b = array[offset + readIndex++];
+                    value = value & ~(-1L << shift) | b << shift;
+                }
+                byteBuf.readerIndex(readIndex);
+                return ((value >>> 1) ^ -(value & 1));
+            }
+            if (byteBuf.hasMemoryAddress()) {
+                var address = byteBuf.memoryAddress();
+                for (int shift = 7; b < 0 && shift < 63; shift += 7) {
+                    b = PlatformDependent.getByte(address + readIndex++);
+                    value = value & ~(-1L << shift) | b << shift;
+                }
+                byteBuf.readerIndex(readIndex);
+                return ((value >>> 1) ^ -(value & 1));
+            }
+        }
         if (b < 0) {
             b = byteBuf.getByte(readIndex++);
             value = value & 0x00000000_0000007FL | b << 7;
@@ -327,6 +405,39 @@ public abstract class ByteBufUtils {
         return ((value >>> 1) ^ -(value & 1));
     }
 
+    /**
+     * 写入已经zigzag编码过的可变长整数，前8个字节每个字节7位，第9个字节是完整的8位，调用之前需要确保有9个字节的可写空间
+     */
+    private static int writeRawVarLong(byte[] array, int index, long mask) {
+        var startIndex = index;
+        for (var i = 0; i < 8 && (mask & ~0x7FL) != 0; i++) {
+            array[index++] = (byte) (mask | 0x80);
+            mask >>>= 7;
+        }
+        array[index++] = (byte) mask;
+        return index - startIndex;
+    }
+
+    private static int writeRawVarLong(long address, long mask) {
+        var startAddress = address;
+        for (var i = 0; i < 8 && (mask & ~0x7FL) != 0; i++) {
+            PlatformDependent.putByte(address++, (byte) (mask | 0x80));
+            mask >>>= 7;
+        }
+        PlatformDependent.putByte(address++, (byte) mask);
+        return (int) (address - startAddress);
+    }
+
+    public static int writeLongCount(long value) {
+        long mask = (value << 1) ^ (value >> 63);
+        for (var i = 1; i < 9; i++) {
+            if (mask >>> (7 * i) == 0) {
+                return i;
+            }
+        }
+        return 9;
+    }
+
     public static void writeLongBox(ByteBuf byteBuf, Long value) {
         writeLong(byteBuf, value == null ? 0L : value);
     }
@@ -376,28 +487,21 @@ public abstract class ByteBufUtils {
             return;
         }
 
-        // 预估需要写入的字节数，并预留位置
-        var beforeWriteIndex = byteBuf.writerIndex();
-        var maxLength = ByteBufUtil.utf8MaxBytes(value);
-        var writeIntCountByte = writeInt(byteBuf, maxLength);
-
-        var length = byteBuf.writeCharSequence(value, StringUtils.DEFAULT_CHARSET);
-
-        var currentWriteIndex = byteBuf.writerIndex();
+        // 先一次遍历计算出精确的utf8字节数（ascii字符走快速路径），再写入长度和内容，避免预留长度后再移动字节
+        var length = ByteBufUtil.utf8Bytes(value);
+        writeInt(byteBuf, length);
+        ByteBufUtil.reserveAndWriteUtf8(byteBuf, value, length);
+    }
 
-        // 因为写入的是可变长的int，如果预留的位置过多，则清除多余的位置
-        var padding = writeIntCountByte - writeIntCount(length);
-        if (padding == 0) {
-            byteBuf.writerIndex(beforeWriteIndex);
-            writeInt(byteBuf, length);
-            byteBuf.writerIndex(currentWriteIndex);
-        } else {
-            var retainedByteBuf = byteBuf.retainedSlice(currentWriteIndex - length, length);
-            byteBuf.writerIndex(beforeWriteIndex);
-            writeInt(byteBuf, length);
-            byteBuf.writeBytes(retainedByteBuf);
-            ReferenceCountUtil.release(retainedByteBuf);
+    /**
+     * writeString写入的精确字节数
+     */
+    public static int writeStringCount(String value) {
+        if (StringUtils.isEmpty(value)) {
+            return 1;
         }
+        var length = ByteBufUtil.utf8Bytes(value);
+        return writeIntCount(length) + length;
     }
 
     public static String readString(ByteBuf byteBuf) {
@@ -405,6 +509,48 @@ public abstract class ByteBufUtils {
         return length <= 0 ? StringUtils.EMPTY : (String) byteBuf.readCharSequence(length, StringUtils.DEFAULT_CHARSET);
     }
 
+    /**
+     * 没有绑定StringDictionary时和writeString完全一样；绑定了则0代表空字符串，正数代表字典中的引用id，负数代表新字符串的字节长度
+     */
+    public static void writeInternString(ByteBuf byteBuf, String value) {
+        var dictionary = StringDictionary.current();
+        if (dictionary == null) {
+            writeString(byteBuf, value);
+            return;
+        }
+        if (StringUtils.isEmpty(value)) {
+            writeInt(byteBuf, 0);
+            return;
+        }
+        var id = dictionary.writeId(value);
+        if (id > 0) {
+            writeInt(byteBuf, id);
+            return;
+        }
+        var length = ByteBufUtil.utf8Bytes(value);
+        writeInt(byteBuf, -length);
+        ByteBufUtil.reserveAndWriteUtf8(byteBuf, value, length);
+        dictionary.addWrite(value, length);
+    }
+
+    public static String readInternString(ByteBuf byteBuf) {
+        var dictionary = StringDictionary.current();
+        if (dictionary == null) {
+            return readString(byteBuf);
+        }
+        var value = readInt(byteBuf);
+        if (value == 0) {
+            return StringUtils.EMPTY;
+        }
+        if (value > 0) {
+            return dictionary.readString(value);
+        }
+        var length = -value;
+        var str = (String) byteBuf.readCharSequence(length, StringUtils.DEFAULT_CHARSET);
+        dictionary.addRead(str, length);
+        return str;
+    }
+
 
     //-----------------------------------------------------------------------
     //---------------------------------以下方法会被字节码生成的代码调用--------------------------------------
@@ -451,6 +597,13 @@ public abstract class ByteBufUtils {
             return;
         }
         writeInt(byteBuf, map.size());
+        if (map instanceof HashMapIntInt primitiveMap) {
+            for (var i = primitiveMap.nextIndex(0); i >= 0; i = primitiveMap.nextIndex(i + 1)) {
+                writeInt(byteBuf, primitiveMap.keyAt(i));
+                writeInt(byteBuf, primitiveMap.valueAt(i));
+            }
+            return;
+        }
         for (var entry : map.entrySet()) {
             writeIntBox(byteBuf, entry.getKey());
             writeIntBox(byteBuf, entry.getValue());
@@ -466,12 +619,31 @@ public abstract class ByteBufUtils {
         return map;
     }
 
+    public static Map<Integer, Integer> readIntIntMap(ByteBuf byteBuf, Map<Integer, Integer> reuse) {
+        if (!(reuse instanceof HashMapIntInt map)) {
+            return readIntIntMap(byteBuf);
+        }
+        map.clear();
+        var length = readInt(byteBuf);
+        for (var i = 0; i < length; i++) {
+            map.putPrimitive(readInt(byteBuf), readInt(byteBuf));
+        }
+        return map;
+    }
+
     public static void writeIntLongMap(ByteBuf byteBuf, Map<Integer, Long> map) {
         if (map == null) {
             byteBuf.writeByte(0);
             return;
         }
         writeInt(byteBuf, map.size());
+        if (map instanceof HashMapIntLong primitiveMap) {
+            for (var i = primitiveMap.nextIndex(0); i >= 0; i = primitiveMap.nextIndex(i + 1)) {
+                writeInt(byteBuf, primitiveMap.keyAt(i));
+                writeLong(byteBuf, primitiveMap.valueAt(i));
+            }
+            return;
+        }
         for (var entry : map.entrySet()) {
             writeIntBox(byteBuf, entry.getKey());
             writeLongBox(byteBuf, entry.getValue());
@@ -487,6 +659,18 @@ public abstract class ByteBufUtils {
         return map;
     }
 
+    public static Map<Integer, Long> readIntLongMap(ByteBuf byteBuf, Map<Integer, Long> reuse) {
+        if (!(reuse instanceof HashMapIntLong map)) {
+            return readIntLongMap(byteBuf);
+        }
+        map.clear();
+        var length = readInt(byteBuf);
+        for (var i = 0; i < length; i++) {
+            map.putPrimitive(readInt(byteBuf), readLong(byteBuf));
+        }
+        return map;
+    }
+
     public static void writeIntStringMap(ByteBuf byteBuf, Map<Integer, String> map) {
         if (map == null) {
             byteBuf.writeByte(0);
@@ -535,6 +719,13 @@ public abstract class ByteBufUtils {
             return;
         }
         writeInt(byteBuf, map.size());
+        if (map instanceof HashMapLongInt primitiveMap) {
+            for (var i = primitiveMap.nextIndex(0); i >= 0; i = primitiveMap.nextIndex(i + 1)) {
+                writeLong(byteBuf, primitiveMap.keyAt(i));
+                writeInt(byteBuf, primitiveMap.valueAt(i));
+            }
+            return;
+        }
         for (var entry : map.entrySet()) {
             writeLongBox(byteBuf, entry.getKey());
             writeIntBox(byteBuf, entry.getValue());
@@ -550,12 +741,31 @@ public abstract class ByteBufUtils {
         return map;
     }
 
+    public static Map<Long, Integer> readLongIntMap(ByteBuf byteBuf, Map<Long, Integer> reuse) {
+        if (!(reuse instanceof HashMapLongInt map)) {
+            return readLongIntMap(byteBuf);
+        }
+        map.clear();
+        var length = readInt(byteBuf);
+        for (var i = 0; i < length; i++) {
+            map.putPrimitive(readLong(byteBuf), readInt(byteBuf));
+        }
+        return map;
+    }
+
     public static void writeLongLongMap(ByteBuf byteBuf, Map<Long, Long> map) {
         if (map == null) {
             byteBuf.writeByte(0);
             return;
         }
         writeInt(byteBuf, map.size());
+        if (map instanceof HashMapLongLong primitiveMap) {
+            for (var i = primitiveMap.nextIndex(0); i >= 0; i = primitiveMap.nextIndex(i + 1)) {
+                writeLong(byteBuf, primitiveMap.keyAt(i));
+                writeLong(byteBuf, primitiveMap.valueAt(i));
+            }
+            return;
+        }
         for (var entry : map.entrySet()) {
             writeLongBox(byteBuf, entry.getKey());
             writeLongBox(byteBuf, entry.getValue());
@@ -571,6 +781,18 @@ public abstract class ByteBufUtils {
         return map;
     }
 
+    public static Map<Long, Long> readLongLongMap(ByteBuf byteBuf, Map<Long, Long> reuse) {
+        if (!(reuse instanceof HashMapLongLong map)) {
+            return readLongLongMap(byteBuf);
+        }
+        map.clear();
+        var length = readInt(byteBuf);
+        for (var i = 0; i < length; i++) {
+            map.putPrimitive(readLong(byteBuf), readLong(byteBuf));
+        }
+        return map;
+    }
+
     public static void writeLongStringMap(ByteBuf byteBuf, Map<Long, String> map) {
         if (map == null) {
             byteBuf.writeByte(0);
@@ -937,6 +1159,25 @@ public abstract class ByteBufUtils {
             return;
         }
         writeInt(byteBuf, array.length);
+        // 有底层数组的时候先计算出准确的长度一次扩容，再直接写入底层数组，避免每个元素都做边界检查和移动writerIndex
+        // 直接内存逐个写入，不多遍历一次；空的组合buffer扩容之后就没有底层数组了，所以扩容之后再判断一次
+        if (byteBuf.hasArray()) {
+            var byteLength = 0;
+            for (var value : array) {
+                byteLength += writeIntCount(value);
+            }
+            byteBuf.ensureWritable(byteLength);
+        }
+        if (byteBuf.hasArray()) {
+            var bytes = byteBuf.array();
+            var offset = byteBuf.arrayOffset();
+            var writeIndex = offset + byteBuf.writerIndex();
+            for (var value : array) {
+                writeIndex = setVarInt(bytes, writeIndex, (value << 1) ^ (value >> 31));
+            }
+            byteBuf.writerIndex(writeIndex - offset);
+            return;
+        }
         for (var value : array) {
             writeInt(byteBuf, value);
         }
@@ -945,12 +1186,41 @@ public abstract class ByteBufUtils {
     public static int[] readIntArray(ByteBuf byteBuf) {
         var length = readInt(byteBuf);
         var ints = new int[CollectionUtils.comfortableIntLength(length)];
+        if (byteBuf.hasArray() && length > 0) {
+            var bytes = byteBuf.array();
+            var offset = byteBuf.arrayOffset();
+            var readIndex = offset + byteBuf.readerIndex();
+            for (var i = 0; i < length; i++) {
+                int b = bytes[readIndex++];
+                int value = b & 0x7F;
+                for (var shift = 7; b < 0 && shift <= 28; shift += 7) {
+                    b = bytes[readIndex++];
+                    value |= (b & 0x7F) << shift;
+                }
+                ints[i] = (value >>> 1) ^ -(value & 1);
+            }
+            // 超过了可读的范围会抛出IndexOutOfBoundsException
+            byteBuf.readerIndex(readIndex - offset);
+            return ints;
+        }
         for (var i = 0; i < length; i++) {
             ints[i] = readInt(byteBuf);
         }
         return ints;
     }
 
+    /**
+     * 把zigzag之后的int按照可变长格式写入数组，返回写入之后的下标
+     */
+    private static int setVarInt(byte[] bytes, int index, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[index++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        bytes[index++] = (byte) value;
+        return index;
+    }
+
     public static void writeIntBoxArray(ByteBuf byteBuf, Integer[] array) {
         if (array == null) {
             byteBuf.writeByte(0);
@@ -977,6 +1247,18 @@ public abstract class ByteBufUtils {
             return;
         }
         writeInt(byteBuf, collection.size());
+        if (collection instanceof ArrayListInt list) {
+            for (var i = 0; i < list.size(); i++) {
+                writeInt(byteBuf, list.getPrimitive(i));
+            }
+            return;
+        }
+        if (collection instanceof HashSetInt set) {
+            for (var iterator = set.iteratorPrimitive(); iterator.hasNext(); ) {
+                writeInt(byteBuf, iterator.nextInt());
+            }
+            return;
+        }
         for (var value : collection) {
             writeIntBox(byteBuf, value);
         }
@@ -990,6 +1272,18 @@ public abstract class ByteBufUtils {
         return new ArrayListInt(readIntArray(byteBuf));
     }
 
+    public static List<Integer> readIntList(ByteBuf byteBuf, List<Integer> reuse) {
+        if (!(reuse instanceof ArrayListInt list)) {
+            return readIntList(byteBuf);
+        }
+        list.clear();
+        var length = readInt(byteBuf);
+        for (var i = 0; i < length; i++) {
+            list.addPrimitive(readInt(byteBuf));
+        }
+        return list;
+    }
+
     public static void writeIntSet(ByteBuf byteBuf, Set<Integer> set) {
         writeIntCollection(byteBuf, set);
     }
@@ -1003,6 +1297,18 @@ public abstract class ByteBufUtils {
         return set;
     }
 
+    public static Set<Integer> readIntSet(ByteBuf byteBuf, Set<Integer> reuse) {
+        if (!(reuse instanceof HashSetInt set)) {
+            return readIntSet(byteBuf);
+        }
+        set.clear();
+        var length = readInt(byteBuf);
+        for (var i = 0; i < length; i++) {
+            set.add(readInt(byteBuf));
+        }
+        return set;
+    }
+
 
     //---------------------------------long--------------------------------------
     public static void writeLongArray(ByteBuf byteBuf, long[] array) {
@@ -1011,6 +1317,23 @@ public abstract class ByteBufUtils {
             return;
         }
         writeInt(byteBuf, array.length);
+        if (byteBuf.hasArray()) {
+            var byteLength = 0;
+            for (var value : array) {
+                byteLength += writeLongCount(value);
+            }
+            byteBuf.ensureWritable(byteLength);
+        }
+        if (byteBuf.hasArray()) {
+            var bytes = byteBuf.array();
+            var offset = byteBuf.arrayOffset();
+            var writeIndex = offset + byteBuf.writerIndex();
+            for (var value : array) {
+                writeIndex = setVarLong(bytes, writeIndex, (value << 1) ^ (value >> 63));
+            }
+            byteBuf.writerIndex(writeIndex - offset);
+            return;
+        }
         for (var value : array) {
             writeLong(byteBuf, value);
         }
@@ -1019,12 +1342,49 @@ public abstract class ByteBufUtils {
     public static long[] readLongArray(ByteBuf byteBuf) {
         var length = readInt(byteBuf);
         var longs = new long[CollectionUtils.comfortableLongLength(length)];
+        if (byteBuf.hasArray() && length > 0) {
+            var bytes = byteBuf.array();
+            var offset = byteBuf.arrayOffset();
+            var readIndex = offset + byteBuf.readerIndex();
+            for (var i = 0; i < length; i++) {
+                long b = bytes[readIndex++];
+                long value = b & 0x7F;
+                var shift = 7;
+                for (; b < 0 && shift < 56; shift += 7) {
+                    b = bytes[readIndex++];
+                    value |= (b & 0x7F) << shift;
+                }
+                if (b < 0) {
+                    // 第9个字节的8位全部是数据
+                    value |= (bytes[readIndex++] & 0xFFL) << 56;
+                }
+                longs[i] = (value >>> 1) ^ -(value & 1);
+            }
+            byteBuf.readerIndex(readIndex - offset);
+            return longs;
+        }
         for (var i = 0; i < length; i++) {
             longs[i] = readLong(byteBuf);
         }
         return longs;
     }
 
+    /**
+     * 把zigzag之后的long按照可变长格式写入数组，前8个字节每个字节7位数据，第9个字节8位数据，返回写入之后的下标
+     */
+    private static int setVarLong(byte[] bytes, int index, long value) {
+        for (var i = 0; i < 8; i++) {
+            if ((value & ~0x7FL) == 0) {
+                bytes[index++] = (byte) value;
+                return index;
+            }
+            bytes[index++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        bytes[index++] = (byte) value;
+        return index;
+    }
+
     public static void writeLongBoxArray(ByteBuf byteBuf, Long[] array) {
         if (array == null) {
             byteBuf.writeByte(0);
@@ -1051,6 +1411,18 @@ public abstract class ByteBufUtils {
             return;
         }
         writeInt(byteBuf, collection.size());
+        if (collection instanceof ArrayListLong list) {
+            for (var i = 0; i < list.size(); i++) {
+                writeLong(byteBuf, list.getPrimitive(i));
+            }
+            return;
+        }
+        if (collection instanceof HashSetLong set) {
+            for (var iterator = set.iteratorPrimitive(); iterator.hasNext(); ) {
+                writeLong(byteBuf, iterator.nextLong());
+            }
+            return;
+        }
         for (var value : collection) {
             writeLongBox(byteBuf, value);
         }
@@ -1064,6 +1436,18 @@ public abstract class ByteBufUtils {
         return new ArrayListLong(readLongArray(byteBuf));
     }
 
+    public static List<Long> readLongList(ByteBuf byteBuf, List<Long> reuse) {
+        if (!(reuse instanceof ArrayListLong list)) {
+            return readLongList(byteBuf);
+        }
+        list.clear();
+        var length = readInt(byteBuf);
+        for (var i = 0; i < length; i++) {
+            list.addPrimitive(readLong(byteBuf));
+        }
+        return list;
+    }
+
     public static void writeLongSet(ByteBuf byteBuf, Set<Long> set) {
         writeLongCollection(byteBuf, set);
     }
@@ -1077,6 +1461,421 @@ public abstract class ByteBufUtils {
         return set;
     }
 
+    public static Set<Long> readLongSet(ByteBuf byteBuf, Set<Long> reuse) {
+        if (!(reuse instanceof HashSetLong set)) {
+            return readLongSet(byteBuf);
+        }
+        set.clear();
+        var length = readInt(byteBuf);
+        for (var i = 0; i < length; i++) {
+            set.add(readLong(byteBuf));
+        }
+        return set;
+    }
+
+    //---------------------------------size--------------------------------------
+    /*
+     * 集合写入的精确字节数，包括集合的长度，给字节码增强的sizeOf使用，一个集合字段只需要生成一行代码
+     */
+    public static int writeFixedCount(int length, int elementSize) {
+        return writeIntCount(length) + length * elementSize;
+    }
+
+    public static int writeIntArrayCount(int[] array) {
+        if (array == null) {
+            return 1;
+        }
+        var size = writeIntCount(array.length);
+        for (var value : array) {
+            size += writeIntCount(value);
+        }
+        return size;
+    }
+
+    public static int writeIntBoxArrayCount(Integer[] array) {
+        if (array == null) {
+            return 1;
+        }
+        var size = writeIntCount(array.length);
+        for (var value : array) {
+            size += writeIntCount(value == null ? 0 : value);
+        }
+        return size;
+    }
+
+    public static int writeIntCollectionCount(Collection<Integer> collection) {
+        if (collection == null) {
+            return 1;
+        }
+        var size = writeIntCount(collection.size());
+        if (collection instanceof ArrayListInt list) {
+            for (var i = 0; i < list.size(); i++) {
+                size += writeIntCount(list.getPrimitive(i));
+            }
+            return size;
+        }
+        if (collection instanceof HashSetInt set) {
+            for (var iterator = set.iteratorPrimitive(); iterator.hasNext(); ) {
+                size += writeIntCount(iterator.nextInt());
+            }
+            return size;
+        }
+        for (var value : collection) {
+            size += writeIntCount(value == null ? 0 : value);
+        }
+        return size;
+    }
+
+    public static int writeLongArrayCount(long[] array) {
+        if (array == null) {
+            return 1;
+        }
+        var size = writeIntCount(array.length);
+        for (var value : array) {
+            size += writeLongCount(value);
+        }
+        return size;
+    }
+
+    public static int writeLongBoxArrayCount(Long[] array) {
+        if (array == null) {
+            return 1;
+        }
+        var size = writeIntCount(array.length);
+        for (var value : array) {
+            size += writeLongCount(value == null ? 0L : value);
+        }
+        return size;
+    }
+
+    public static int writeLongCollectionCount(Collection<Long> collection) {
+        if (collection == null) {
+            return 1;
+        }
+        var size = writeIntCount(collection.size());
+        if (collection instanceof ArrayListLong list) {
+            for (var i = 0; i < list.size(); i++) {
+                size += writeLongCount(list.getPrimitive(i));
+            }
+            return size;
+        }
+        if (collection instanceof HashSetLong set) {
+            for (var iterator = set.iteratorPrimitive(); iterator.hasNext(); ) {
+                size += writeLongCount(iterator.nextLong());
+            }
+            return size;
+        }
+        for (var value : collection) {
+            size += writeLongCount(value == null ? 0L : value);
+        }
+        return size;
+    }
+
+    public static int writeIntIntMapCount(Map<Integer, Integer> map) {
+        if (map == null) {
+            return 1;
+        }
+        var size = writeIntCount(map.size());
+        if (map instanceof HashMapIntInt primitiveMap) {
+            for (var i = primitiveMap.nextIndex(0); i >= 0; i = primitiveMap.nextIndex(i + 1)) {
+                size += writeIntCount(primitiveMap.keyAt(i)) + writeIntCount(primitiveMap.valueAt(i));
+            }
+            return size;
+        }
+        for (var entry : map.entrySet()) {
+            var key = entry.getKey();
+            var value = entry.getValue();
+            size += writeIntCount(key == null ? 0 : key) + writeIntCount(value == null ? 0 : value);
+        }
+        return size;
+    }
+
+    public static int writeIntLongMapCount(Map<Integer, Long> map) {
+        if (map == null) {
+            return 1;
+        }
+        var size = writeIntCount(map.size());
+        if (map instanceof HashMapIntLong primitiveMap) {
+            for (var i = primitiveMap.nextIndex(0); i >= 0; i = primitiveMap.nextIndex(i + 1)) {
+                size += writeIntCount(primitiveMap.keyAt(i)) + writeLongCount(primitiveMap.valueAt(i));
+            }
+            return size;
+        }
+        for (var entry : map.entrySet()) {
+            var key = entry.getKey();
+            var value = entry.getValue();
+            size += writeIntCount(key == null ? 0 : key) + writeLongCount(value == null ? 0L : value);
+        }
+        return size;
+    }
+
+    public static int writeLongIntMapCount(Map<Long, Integer> map) {
+        if (map == null) {
+            return 1;
+        }
+        var size = writeIntCount(map.size());
+        if (map instanceof HashMapLongInt primitiveMap) {
+            for (var i = primitiveMap.nextIndex(0); i >= 0; i = primitiveMap.nextIndex(i + 1)) {
+                size += writeLongCount(primitiveMap.keyAt(i)) + writeIntCount(primitiveMap.valueAt(i));
+            }
+            return size;
+        }
+        for (var entry : map.entrySet()) {
+            var key = entry.getKey();
+            var value = entry.getValue();
+            size += writeLongCount(key == null ? 0L : key) + writeIntCount(value == null ? 0 : value);
+        }
+        return size;
+    }
+
+    public static int writeLongLongMapCount(Map<Long, Long> map) {
+        if (map == null) {
+            return 1;
+        }
+        var size = writeIntCount(map.size());
+        if (map instanceof HashMapLongLong primitiveMap) {
+            for (var i = primitiveMap.nextIndex(0); i >= 0; i = primitiveMap.nextIndex(i + 1)) {
+                size += writeLongCount(primitiveMap.keyAt(i)) + writeLongCount(primitiveMap.valueAt(i));
+            }
+            return size;
+        }
+        for (var entry : map.entrySet()) {
+            var key = entry.getKey();
+            var value = entry.getValue();
+            size += writeLongCount(key == null ? 0L : key) + writeLongCount(value == null ? 0L : value);
+        }
+        return size;
+    }
+
+    public static int writeStringArrayCount(String[] array) {
+        if (array == null) {
+            return 1;
+        }
+        var size = writeIntCount(array.length);
+        for (var value : array) {
+            size += writeStringCount(value);
+        }
+        return size;
+    }
+
+    public static int writeStringCollectionCount(Collection<String> collection) {
+        if (collection == null) {
+            return 1;
+        }
+        var size = writeIntCount(collection.size());
+        for (var value : collection) {
+            size += writeStringCount(value);
+        }
+        return size;
+    }
+
+    public static int writePacketArrayCount(Object[] array, IProtocolRegistration protocolRegistration) {
+        if (array == null) {
+            return 1;
+        }
+        var size = writeIntCount(array.length);
+        for (var value : array) {
+            size += protocolRegistration.sizeOf(value);
+        }
+        return size;
+    }
+
+    public static int writePacketCollectionCount(Collection<?> collection, IProtocolRegistration protocolRegistration) {
+        if (collection == null) {
+            return 1;
+        }
+        var size = writeIntCount(collection.size());
+        for (var value : collection) {
+            size += protocolRegistration.sizeOf(value);
+        }
+        return size;
+    }
+
+    //---------------------------------delta--------------------------------------
+    /**
+     * {@link com.zfoo.protocol.anno.Delta}的编码格式，适合有序的id列表：
+     * 长度，第一个元素，差值的最小值base，位宽bitWidth(1个字节)，然后把每个(差值 - base)按照bitWidth从低位到高位连续打包
+     */
+    public static void writeLongDeltaArray(ByteBuf byteBuf, long[] array) {
+        if (array == null || array.length == 0) {
+            byteBuf.writeByte(0);
+            return;
+        }
+        var length = array.length;
+        writeInt(byteBuf, length);
+        writeLong(byteBuf, array[0]);
+        if (length == 1) {
+            return;
+        }
+        var base = deltaBase(array);
+        var bitWidth = deltaBitWidth(array, base);
+        writeLong(byteBuf, base);
+        byteBuf.writeByte(bitWidth);
+        if (bitWidth == 0) {
+            return;
+        }
+        var bits = 0L;
+        var bitCount = 0;
+        for (var i = 1; i < length; i++) {
+            var offset = array[i] - array[i - 1] - base;
+            var total = bitCount + bitWidth;
+            bits |= offset << bitCount;
+            if (total >= Long.SIZE) {
+                byteBuf.writeLongLE(bits);
+                bits = bitCount == 0 ? 0 : offset >>> (Long.SIZE - bitCount);
+                total -= Long.SIZE;
+            }
+            bitCount = total;
+        }
+        for (; bitCount > 0; bitCount -= 8) {
+            byteBuf.writeByte((int) bits);
+            bits >>>= 8;
+        }
+    }
+
+    /**
+     * writeLongDeltaArray写入的精确字节数
+     */
+    public static int writeLongDeltaArrayCount(long[] array) {
+        if (array == null || array.length == 0) {
+            return 1;
+        }
+        var length = array.length;
+        var count = writeIntCount(length) + writeLongCount(array[0]);
+        if (length == 1) {
+            return count;
+        }
+        var base = deltaBase(array);
+        var bitWidth = deltaBitWidth(array, base);
+        return count + writeLongCount(base) + 1 + (int) (((long) (length - 1) * bitWidth + 7) >>> 3);
+    }
+
+    private static long deltaBase(long[] array) {
+        var base = Long.MAX_VALUE;
+        for (var i = 1; i < array.length; i++) {
+            base = Math.min(base, array[i] - array[i - 1]);
+        }
+        return base;
+    }
+
+    private static int deltaBitWidth(long[] array, long base) {
+        // 差值减去base之后都是无符号数，按位或的最高位就是需要的位宽
+        var maxOffset = 0L;
+        for (var i = 1; i < array.length; i++) {
+            maxOffset |= array[i] - array[i - 1] - base;
+        }
+        return Long.SIZE - Long.numberOfLeadingZeros(maxOffset);
+    }
+
+    public static long[] readLongDeltaArray(ByteBuf byteBuf) {
+        var length = readInt(byteBuf);
+        var longs = new long[CollectionUtils.comfortableLongLength(length)];
+        if (length <= 0) {
+            return longs;
+        }
+        var value = readLong(byteBuf);
+        longs[0] = value;
+        if (length == 1) {
+            return longs;
+        }
+        var base = readLong(byteBuf);
+        var bitWidth = byteBuf.readUnsignedByte();
+        var mask = bitWidth == Long.SIZE ? -1L : (1L << bitWidth) - 1;
+        // 上一个字节剩下没有用完的位
+        var bits = 0L;
+        var bitCount = 0;
+        for (var i = 1; i < length; i++) {
+            var offset = bits;
+            var count = bitCount;
+            while (count < bitWidth) {
+                long b = byteBuf.readUnsignedByte();
+                offset |= b << count;
+                bits = b >>> (bitWidth - count);
+                count += 8;
+            }
+            if (count == bitCount) {
+                bits >>>= bitWidth;
+            }
+            bitCount = count - bitWidth;
+            value += base + (offset & mask);
+            longs[i] = value;
+        }
+        return longs;
+    }
+
+    /**
+     * 跳过int和long的@Delta数组，两者的格式一样
+     */
+    public static void skipDeltaArray(ByteBuf byteBuf) {
+        var length = readInt(byteBuf);
+        if (length <= 0) {
+            return;
+        }
+        readLong(byteBuf);
+        if (length == 1) {
+            return;
+        }
+        readLong(byteBuf);
+        var bitWidth = byteBuf.readUnsignedByte();
+        byteBuf.skipBytes((int) (((long) (length - 1) * bitWidth + 7) >>> 3));
+    }
+
+    public static void writeIntDeltaArray(ByteBuf byteBuf, int[] array) {
+        if (array == null || array.length == 0) {
+            byteBuf.writeByte(0);
+            return;
+        }
+        writeLongDeltaArray(byteBuf, intToLongs(array));
+    }
+
+    public static int writeIntDeltaArrayCount(int[] array) {
+        if (array == null || array.length == 0) {
+            return 1;
+        }
+        return writeLongDeltaArrayCount(intToLongs(array));
+    }
+
+    private static long[] intToLongs(int[] array) {
+        var longs = new long[array.length];
+        for (var i = 0; i < array.length; i++) {
+            longs[i] = array[i];
+        }
+        return longs;
+    }
+
+    public static int[] readIntDeltaArray(ByteBuf byteBuf) {
+        var longs = readLongDeltaArray(byteBuf);
+        var ints = new int[longs.length];
+        for (var i = 0; i < longs.length; i++) {
+            ints[i] = (int) longs[i];
+        }
+        return ints;
+    }
+
+    public static void writeIntDeltaList(ByteBuf byteBuf, List<Integer> list) {
+        writeIntDeltaArray(byteBuf, list == null ? null : ArrayUtils.intToArray(list));
+    }
+
+    public static int writeIntDeltaListCount(List<Integer> list) {
+        return writeIntDeltaArrayCount(list == null ? null : ArrayUtils.intToArray(list));
+    }
+
+    public static List<Integer> readIntDeltaList(ByteBuf byteBuf) {
+        return new ArrayListInt(readIntDeltaArray(byteBuf));
+    }
+
+    public static void writeLongDeltaList(ByteBuf byteBuf, List<Long> list) {
+        writeLongDeltaArray(byteBuf, list == null ? null : ArrayUtils.longToArray(list));
+    }
+
+    public static int writeLongDeltaListCount(List<Long> list) {
+        return writeLongDeltaArrayCount(list == null ? null : ArrayUtils.longToArray(list));
+    }
+
+    public static List<Long> readLongDeltaList(ByteBuf byteBuf) {
+        return new ArrayListLong(readLongDeltaArray(byteBuf));
+    }
+
     //---------------------------------float--------------------------------------
     public static void writeFloatArray(ByteBuf byteBuf, float[] array) {
         if (array == null) {
@@ -1087,6 +1886,12 @@ public abstract class ByteBufUtils {
         writeInt(byteBuf, length);
         var writeIndex = byteBuf.writerIndex();
         byteBuf.ensureWritable(length * 4);
+        if (byteBuf.nioBufferCount() == 1) {
+            // 只有一块连续内存的时候直接整块拷贝，和逐个setFloat的大端格式相同
+            byteBuf.nioBuffer(writeIndex, length * 4).asFloatBuffer().put(array);
+            byteBuf.writerIndex(writeIndex + length * 4);
+            return;
+        }
         for (var value : array) {
             byteBuf.setFloat(writeIndex, value);
             writeIndex += 4;
@@ -1098,6 +1903,11 @@ public abstract class ByteBufUtils {
         var length = readInt(byteBuf);
         var floats = new float[CollectionUtils.comfortableIntLength(length)];
         var readIndex = byteBuf.readerIndex();
+        if (byteBuf.nioBufferCount() == 1) {
+            byteBuf.nioBuffer(readIndex, length * 4).asFloatBuffer().get(floats);
+            byteBuf.readerIndex(readIndex + length * 4);
+            return floats;
+        }
         for (var i = 0; i < length; i++) {
             floats[i] = byteBuf.getFloat(readIndex);
             readIndex += 4;
@@ -1168,6 +1978,11 @@ public abstract class ByteBufUtils {
         writeInt(byteBuf, length);
         var writeIndex = byteBuf.writerIndex();
         byteBuf.ensureWritable(length * 8);
+        if (byteBuf.nioBufferCount() == 1) {
+            byteBuf.nioBuffer(writeIndex, length * 8).asDoubleBuffer().put(array);
+            byteBuf.writerIndex(writeIndex + length * 8);
+            return;
+        }
         for (var value : array) {
             byteBuf.setDouble(writeIndex, value);
             writeIndex += 8;
@@ -1179,6 +1994,11 @@ public abstract class ByteBufUtils {
         var length = readInt(byteBuf);
         var doubles = new double[CollectionUtils.comfortableLongLength(length)];
         var readIndex = byteBuf.readerIndex();
+        if (byteBuf.nioBufferCount() == 1) {
+            byteBuf.nioBuffer(readIndex, length * 8).asDoubleBuffer().get(doubles);
+            byteBuf.readerIndex(readIndex + length * 8);
+            return doubles;
+        }
         for (var i = 0; i < length; i++) {
             doubles[i] = byteBuf.getDouble(readIndex);
             readIndex += 8;
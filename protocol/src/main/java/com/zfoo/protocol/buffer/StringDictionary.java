@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.buffer;
+
+import com.zfoo.protocol.util.FastThreadLocalAdapter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EN: Per session string dictionary, a repeated @Intern string is sent as a small varint reference.
+ * Both sides of a connection must use a dictionary with the same capacity, and one dictionary can only be used by one connection.
+ * <p>
+ * CN: 一个连接独享的字符串字典，被@Intern标记的字符串重复出现时只发送一个很小的可变长int引用，读取时直接返回缓存的String不需要再分配内存。
+ * 连接的两端必须同时使用相同容量的字典，写入和读取分别维护自己方向的字典，所以一个字典只能被一个连接使用。
+ * <p>
+ * 旧版本的读取方会直接跳过不认识的@Compatible字段，跳过的字节里的新字符串不会被加入字典，
+ * 所以@Compatible字段（包括里面嵌套的协议）在读写的时候都会暂停使用字典，按照普通字符串读写。
+ * 写入方新加入字典的字符串在一个完整的包序列化成功之后才提交，序列化失败则回滚，对方没有收到的字符串不会被引用。
+ *
+ * @author godotg
+ */
+public class StringDictionary {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * 超过这个utf8字节长度的字符串不会被放入字典，避免聊天内容这种不重复的长字符串占用内存
+     */
+    public static final int MAX_STRING_BYTES = 256;
+
+    /**
+     * 当前线程正在序列化或者反序列化使用的字典，为空则@Intern字符串按照普通字符串读写
+     */
+    private static final FastThreadLocalAdapter<StringDictionary> currentDictionary = new FastThreadLocalAdapter<>();
+
+    private final int capacity;
+
+    // 写入方向，字符串对应的引用id，id从1开始
+    private final Map<String, Integer> writeIdMap = new HashMap<>();
+
+    // 写入方向，当前包新加入字典还没有提交的字符串
+    private final List<String> pendingWrites = new ArrayList<>();
+
+    // 读取方向，下标加1就是引用id
+    private final List<String> readStrings = new ArrayList<>();
+
+    // 大于0代表正在读写@Compatible字段，暂停使用字典
+    private int suspended;
+
+    public StringDictionary() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public StringDictionary(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * 当前线程绑定的字典，没有绑定或者正在读写@Compatible字段则返回null
+     */
+    public static StringDictionary current() {
+        var dictionary = currentDictionary.get();
+        return dictionary == null || dictionary.suspended > 0 ? null : dictionary;
+    }
+
+    public static void bind(StringDictionary dictionary) {
+        if (dictionary != null) {
+            dictionary.suspended = 0;
+        }
+        currentDictionary.set(dictionary);
+    }
+
+    /**
+     * 开始读写@Compatible字段，可以嵌套调用，必须和resume()成对出现
+     */
+    public static void suspend() {
+        var dictionary = currentDictionary.get();
+        if (dictionary != null) {
+            dictionary.suspended++;
+        }
+    }
+
+    public static void resume() {
+        var dictionary = currentDictionary.get();
+        if (dictionary != null) {
+            dictionary.suspended--;
+        }
+    }
+
+    public static void unbind() {
+        currentDictionary.set(null);
+    }
+
+    public int writeId(String value) {
+        var id = writeIdMap.get(value);
+        return id == null ? 0 : id;
+    }
+
+    public void addWrite(String value, int byteLength) {
+        if (byteLength > MAX_STRING_BYTES || writeIdMap.size() >= capacity) {
+            return;
+        }
+        writeIdMap.put(value, writeIdMap.size() + 1);
+        pendingWrites.add(value);
+    }
+
+    /**
+     * 包序列化成功，当前包新加入的字符串对方一定会收到
+     */
+    public void commitWrite() {
+        pendingWrites.clear();
+    }
+
+    /**
+     * 包序列化失败，对方收不到当前包，移除当前包新加入的字符串
+     */
+    public void rollbackWrite() {
+        for (var value : pendingWrites) {
+            writeIdMap.remove(value);
+        }
+        pendingWrites.clear();
+    }
+
+    public String readString(int id) {
+        return readStrings.get(id - 1);
+    }
+
+    public void addRead(String value, int byteLength) {
+        if (byteLength > MAX_STRING_BYTES || readStrings.size() >= capacity) {
+            return;
+        }
+        readStrings.add(value);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+}
@@ -276,15 +276,25 @@ public class ArrayListInt implements List<Integer> {
 
     @Override
     public boolean equals(Object o) {
+        if (o instanceof ArrayListInt list) {
+            return Arrays.equals(array, 0, size, list.array, 0, list.size);
+        }
         if (!(o instanceof List<?> l)) {
             return false;
         }
         return l.equals(this);
     }
 
+    /**
+     * 和List接口约定的hashCode保持一致，可以和其它List一样作为HashMap的key
+     */
     @Override
     public int hashCode() {
-        return super.hashCode();
+        var hashCode = 1;
+        for (var i = 0; i < size; i++) {
+            hashCode = 31 * hashCode + Integer.hashCode(array[i]);
+        }
+        return hashCode;
     }
 
     @Override
@@ -304,6 +304,9 @@ public abstract class ArrayUtils {
         if (CollectionUtils.isEmpty(list)) {
             return EMPTY_INT_ARRAY;
         }
+        if (list instanceof ArrayListInt primitiveList) {
+            return primitiveList.toArrayPrimitive();
+        }
         var size = list.size();
         var array = new int[size];
         for (var i = 0; i < size; i++) {
@@ -317,6 +320,9 @@ public abstract class ArrayUtils {
         if (CollectionUtils.isEmpty(list)) {
             return EMPTY_LONG_ARRAY;
         }
+        if (list instanceof ArrayListLong primitiveList) {
+            return primitiveList.toArrayPrimitive();
+        }
         var size = list.size();
         var array = new long[size];
         for (var i = 0; i < size; i++) {
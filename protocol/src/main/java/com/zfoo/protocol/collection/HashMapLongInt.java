@@ -194,6 +194,28 @@ public class HashMapLongInt implements Map<Long, Integer> {
         return new EntrySet();
     }
 
+    /**
+     * 不装箱的遍历方式，返回从index开始下一个有值的下标，没有则返回-1，配合keyAt和valueAt使用
+     * <p>
+     * {@code for (var i = map.nextIndex(0); i >= 0; i = map.nextIndex(i + 1))}
+     */
+    public int nextIndex(int index) {
+        for (; index < statuses.length; index++) {
+            if (statuses[index] == FILLED) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    public long keyAt(int index) {
+        return keys[index];
+    }
+
+    public int valueAt(int index) {
+        return values[index];
+    }
+
     private int hashIndex(long key) {
         return ((int) (key ^ (key >>> 32))) & mask;
     }
@@ -388,15 +410,34 @@ public class HashMapLongInt implements Map<Long, Integer> {
 
     @Override
     public boolean equals(Object o) {
+        if (o instanceof HashMapLongInt map) {
+            if (map.size != size) {
+                return false;
+            }
+            for (var i = map.nextIndex(0); i >= 0; i = map.nextIndex(i + 1)) {
+                var index = indexOf(map.keys[i]);
+                if (index < 0 || values[index] != map.values[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
         if (!(o instanceof Map<?, ?> m)) {
             return false;
         }
         return m.equals(this);
     }
 
+    /**
+     * 和Map接口约定的hashCode保持一致
+     */
     @Override
     public int hashCode() {
-        return super.hashCode();
+        var hashCode = 0;
+        for (var i = nextIndex(0); i >= 0; i = nextIndex(i + 1)) {
+            hashCode += Long.hashCode(keys[i]) ^ Integer.hashCode(values[i]);
+        }
+        return hashCode;
     }
 
     @Override
@@ -16,6 +16,7 @@ import io.netty.util.collection.IntObjectHashMap;
 
 import java.util.AbstractSet;
 import java.util.Iterator;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 
 /**
@@ -38,6 +39,24 @@ public class HashSetInt extends AbstractSet<Integer> {
         return map.keySet().iterator();
     }
 
+    /**
+     * 不装箱的遍历方式
+     */
+    public PrimitiveIterator.OfInt iteratorPrimitive() {
+        var iterator = map.entries().iterator();
+        return new PrimitiveIterator.OfInt() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public int nextInt() {
+                return iterator.next().key();
+            }
+        };
+    }
+
     @Override
     public int size() {
         return map.size();
@@ -78,14 +97,32 @@ public class HashSetInt extends AbstractSet<Integer> {
 
     @Override
     public boolean equals(Object o) {
+        if (o instanceof HashSetInt set) {
+            if (set.size() != size()) {
+                return false;
+            }
+            for (var iterator = set.iteratorPrimitive(); iterator.hasNext(); ) {
+                if (!contains(iterator.nextInt())) {
+                    return false;
+                }
+            }
+            return true;
+        }
         if (!(o instanceof Set<?> s)) {
             return false;
         }
         return s.equals(this);
     }
 
+    /**
+     * 和Set接口约定的hashCode保持一致
+     */
     @Override
     public int hashCode() {
-        return map.hashCode();
+        var hashCode = 0;
+        for (var iterator = iteratorPrimitive(); iterator.hasNext(); ) {
+            hashCode += Integer.hashCode(iterator.nextInt());
+        }
+        return hashCode;
     }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.collection;
+
+import com.zfoo.protocol.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * EN: Protocol fields can be declared as primitive collections such as HashMapIntInt or ArrayListLong,
+ * their wire format is the same as the boxed Map, Set and List, so they are resolved as the equivalent generic type.
+ * <p>
+ * CN: 协议字段可以直接声明为HashMapIntInt，ArrayListLong这些基础类型的集合，序列化格式和装箱的Map，Set，List完全一样，
+ * 所以解析协议和生成其它语言的协议文件的时候都当作对应的泛型类型处理
+ *
+ * @author godotg
+ */
+public abstract class PrimitiveCollectionUtils {
+
+    private static Map<Integer, Integer> intIntMap;
+    private static Map<Integer, Long> intLongMap;
+    private static Map<Long, Integer> longIntMap;
+    private static Map<Long, Long> longLongMap;
+    private static Set<Integer> intSet;
+    private static Set<Long> longSet;
+    private static List<Integer> intList;
+    private static List<Long> longList;
+
+    private static final Map<Class<?>, Type> genericTypeMap = Map.of(
+            HashMapIntInt.class, fieldGenericType("intIntMap"),
+            HashMapIntLong.class, fieldGenericType("intLongMap"),
+            HashMapLongInt.class, fieldGenericType("longIntMap"),
+            HashMapLongLong.class, fieldGenericType("longLongMap"),
+            HashSetInt.class, fieldGenericType("intSet"),
+            HashSetLong.class, fieldGenericType("longSet"),
+            ArrayListInt.class, fieldGenericType("intList"),
+            ArrayListLong.class, fieldGenericType("longList")
+    );
+
+    private static Type fieldGenericType(String fieldName) {
+        return ReflectionUtils.getFieldByNameInPOJOClass(PrimitiveCollectionUtils.class, fieldName).getGenericType();
+    }
+
+    public static boolean isPrimitiveCollection(Class<?> clazz) {
+        return genericTypeMap.containsKey(clazz);
+    }
+
+    /**
+     * 基础类型的集合返回对应的泛型类型，比如HashMapIntInt返回Map&lt;Integer, Integer&gt;，其它的字段返回原本的泛型类型
+     */
+    public static Type genericType(Field field) {
+        var type = genericTypeMap.get(field.getType());
+        return type == null ? field.getGenericType() : type;
+    }
+
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.collection.lpmap;
+
+import com.zfoo.protocol.ProtocolManager;
+import com.zfoo.protocol.buffer.ByteBufUtils;
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.registration.IProtocolRegistration;
+import com.zfoo.protocol.util.FileUtils;
+import com.zfoo.protocol.util.IOUtils;
+import com.zfoo.protocol.util.StringUtils;
+import com.zfoo.protocol.util.ThreadUtils;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.internal.MathUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * EN: Concurrent LpMap with the same file format as FileChannelMap. Writes are staged in lock-striped buffers in memory,
+ * a background thread commits all the staged values with one positional write per interval.
+ * <p>
+ * CN: 并发的LpMap，文件格式和FileChannelMap相同，可以互相打开。
+ * put在调用线程中序列化，然后放进按key分段加锁的暂存区，不同段的写入互不竞争；后台线程每隔commitIntervalMillis把所有暂存的值
+ * 拼成一段数据，一次positional write追加到db文件的末尾，再把连续的key的索引合并成一次写入，fsync为true时每次提交都刷盘。
+ * <p>
+ * 读取先查暂存区和正在提交的数据，再读文件，所以put之后立刻就能读到。
+ * 进程崩溃会丢失最后一个提交周期内的数据，适合聊天记录，战报这种高频追加的日志
+ *
+ * @author godotg
+ */
+public class GroupCommitFileChannelMap<V> implements LpMap<V>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitFileChannelMap.class);
+
+    private static final int INDEX_ENTRY_LENGTH = 16;
+
+    // 暂存区中表示被删除的值
+    private static final byte[] DELETED = new byte[0];
+
+    private static class Stripe {
+        private Map<Long, byte[]> staged = new HashMap<>();
+        // 后台线程正在写入文件的数据，写完之前读取也要能看到
+        private Map<Long, byte[]> committing = new HashMap<>();
+    }
+
+    private final RandomAccessFile dbFileRandomAccess;
+    private final FileChannel dbFileChannel;
+
+    private final RandomAccessFile indexFileRandomAccess;
+    private final FileChannel indexFileChannel;
+
+    private final IProtocolRegistration protocolRegistration;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    private final boolean fsync;
+
+    private final ScheduledExecutorService executor;
+
+    private final AtomicLong maxIndex;
+
+    // db文件的末尾，只在提交的时候修改
+    private long dbTail;
+
+    private final Object commitLock = new Object();
+
+    public GroupCommitFileChannelMap(String dbPath, Class<V> clazz) {
+        this(dbPath, clazz, 10, false);
+    }
+
+    /**
+     * @param commitIntervalMillis 提交的间隔，间隔越大每次合并的写入越多
+     * @param fsync                每次提交后是否强制刷盘
+     */
+    public GroupCommitFileChannelMap(String dbPath, Class<V> clazz, long commitIntervalMillis, boolean fsync) {
+        try {
+            var dbFile = FileUtils.getOrCreateFile(dbPath, StringUtils.format("{}.db", clazz.getSimpleName()));
+            this.dbFileRandomAccess = new RandomAccessFile(dbFile, "rw");
+            this.dbFileChannel = dbFileRandomAccess.getChannel();
+
+            var indexFile = FileUtils.getOrCreateFile(dbPath, StringUtils.format("{}.index", clazz.getSimpleName()));
+            this.indexFileRandomAccess = new RandomAccessFile(indexFile, "rw");
+            this.indexFileChannel = indexFileRandomAccess.getChannel();
+
+            this.protocolRegistration = ProtocolManager.getProtocol(ProtocolManager.protocolId(clazz));
+            this.maxIndex = new AtomicLong(indexFileChannel.size() / INDEX_ENTRY_LENGTH);
+            this.dbTail = dbFileChannel.size();
+        } catch (IOException e) {
+            throw new RunException(e);
+        }
+
+        var stripeNum = MathUtil.safeFindNextPositivePowerOfTwo(Runtime.getRuntime().availableProcessors() * 4);
+        this.stripes = new Stripe[stripeNum];
+        for (var i = 0; i < stripeNum; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = stripeNum - 1;
+        this.fsync = fsync;
+
+        var threadName = StringUtils.format("group-commit-{}", clazz.getSimpleName());
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(ThreadUtils.safeRunnable(this::flush), commitIntervalMillis, commitIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private Stripe stripe(long key) {
+        return stripes[(int) (key ^ (key >>> 32)) & stripeMask];
+    }
+
+    @Override
+    public V put(long key, V packet) {
+        checkKey(key);
+
+        var buffer = ByteBufAllocator.DEFAULT.heapBuffer(protocolRegistration.sizeOf(packet));
+        byte[] bytes;
+        try {
+            protocolRegistration.write(buffer, packet);
+            bytes = ByteBufUtils.readAllBytes(buffer);
+        } finally {
+            buffer.release();
+        }
+
+        var previousMaxIndex = maxIndex.getAndAccumulate(key, Math::max);
+        var stripe = stripe(key);
+        synchronized (stripe) {
+            var previous = key <= previousMaxIndex ? get(stripe, key) : null;
+            stripe.staged.put(key, bytes);
+            return previous;
+        }
+    }
+
+    @Override
+    public V delete(long key) {
+        checkKey(key);
+
+        if (key > maxIndex.get()) {
+            return null;
+        }
+        var stripe = stripe(key);
+        synchronized (stripe) {
+            var previous = get(stripe, key);
+            if (previous != null) {
+                stripe.staged.put(key, DELETED);
+            }
+            return previous;
+        }
+    }
+
+    @Override
+    public V get(long key) {
+        checkKey(key);
+
+        if (key > maxIndex.get()) {
+            return null;
+        }
+        var stripe = stripe(key);
+        synchronized (stripe) {
+            return get(stripe, key);
+        }
+    }
+
+    private V get(Stripe stripe, long key) {
+        var bytes = stripe.staged.get(key);
+        if (bytes == null) {
+            bytes = stripe.committing.get(key);
+        }
+        if (bytes == null) {
+            bytes = readFile(key);
+        }
+        if (bytes == null || bytes == DELETED) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        var packet = (V) protocolRegistration.read(Unpooled.wrappedBuffer(bytes));
+        return packet;
+    }
+
+    /**
+     * positional read不修改channel的position，多个线程可以同时读
+     */
+    private byte[] readFile(long key) {
+        try {
+            var indexBuffer = ByteBuffer.allocate(INDEX_ENTRY_LENGTH);
+            readFully(indexFileChannel, indexBuffer, key * INDEX_ENTRY_LENGTH);
+            if (indexBuffer.hasRemaining()) {
+                return null;
+            }
+            var packetPosition = indexBuffer.getLong(0);
+            var packetSize = indexBuffer.getLong(8);
+            if (packetSize <= 0) {
+                return null;
+            }
+            var dbBuffer = ByteBuffer.allocate((int) packetSize);
+            readFully(dbFileChannel, dbBuffer, packetPosition);
+            return dbBuffer.array();
+        } catch (IOException e) {
+            throw new RunException(e);
+        }
+    }
+
+    @Override
+    public long getMaxIndex() {
+        return maxIndex.get();
+    }
+
+    @Override
+    public long getIncrementIndex() {
+        return maxIndex.incrementAndGet();
+    }
+
+    @Override
+    public void forEach(BiConsumer<Long, V> biConsumer) {
+        for (var i = 0L; i <= getMaxIndex(); i++) {
+            var value = get(i);
+            if (value != null) {
+                biConsumer.accept(i, value);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (commitLock) {
+            for (var stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.staged = new HashMap<>();
+                    stripe.committing = new HashMap<>();
+                }
+            }
+            try {
+                maxIndex.set(0);
+                dbTail = 0;
+                indexFileRandomAccess.setLength(0);
+                dbFileRandomAccess.setLength(0);
+            } catch (IOException e) {
+                throw new RunException(e);
+            }
+        }
+    }
+
+    /**
+     * 把所有暂存的值提交到文件，后台线程定时调用，也可以手动调用
+     */
+    public void flush() {
+        synchronized (commitLock) {
+            var entries = new ArrayList<Map.Entry<Long, byte[]>>();
+            for (var stripe : stripes) {
+                synchronized (stripe) {
+                    // 上一次提交失败的数据还在committing中，和新的数据合并后重新提交
+                    if (stripe.committing.isEmpty()) {
+                        stripe.committing = stripe.staged;
+                    } else {
+                        stripe.committing.putAll(stripe.staged);
+                    }
+                    stripe.staged = new HashMap<>();
+                    entries.addAll(stripe.committing.entrySet());
+                }
+            }
+            if (entries.isEmpty()) {
+                return;
+            }
+            entries.sort(Map.Entry.comparingByKey());
+
+            try {
+                commit(entries);
+            } catch (IOException e) {
+                throw new RunException(e);
+            }
+
+            for (var stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.committing = new HashMap<>();
+                }
+            }
+        }
+    }
+
+    /**
+     * 所有的值一次追加写入db文件，再写索引，先写数据再写索引，崩溃的时候索引不会指向没有写入的数据
+     */
+    private void commit(ArrayList<Map.Entry<Long, byte[]>> entries) throws IOException {
+        var dataLength = 0;
+        for (var entry : entries) {
+            dataLength += entry.getValue().length;
+        }
+        var dataBuffer = ByteBuffer.allocate(dataLength);
+        var indexBuffer = ByteBuffer.allocate(entries.size() * INDEX_ENTRY_LENGTH);
+        var position = dbTail;
+        for (var entry : entries) {
+            var bytes = entry.getValue();
+            dataBuffer.put(bytes);
+            indexBuffer.putLong(bytes == DELETED ? 0L : position);
+            indexBuffer.putLong(bytes.length);
+            position += bytes.length;
+        }
+        dataBuffer.flip();
+        writeFully(dbFileChannel, dataBuffer, dbTail);
+        if (fsync) {
+            dbFileChannel.force(false);
+        }
+
+        // 连续的key合并成一次写入
+        var start = 0;
+        for (var i = 1; i <= entries.size(); i++) {
+            if (i < entries.size() && entries.get(i).getKey() == entries.get(i - 1).getKey() + 1) {
+                continue;
+            }
+            var run = indexBuffer.duplicate();
+            run.position(start * INDEX_ENTRY_LENGTH).limit(i * INDEX_ENTRY_LENGTH);
+            writeFully(indexFileChannel, run, entries.get(start).getKey() * INDEX_ENTRY_LENGTH);
+            start = i;
+        }
+        if (fsync) {
+            indexFileChannel.force(false);
+        }
+        dbTail = position;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            var count = channel.read(buffer, position);
+            if (count < 0) {
+                return;
+            }
+            position += count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ThreadUtils.shutdown(executor);
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("GroupCommitFileChannelMap close exception", e);
+        }
+        IOUtils.closeIO(indexFileRandomAccess, indexFileChannel, dbFileRandomAccess, dbFileChannel);
+    }
+
+}
@@ -0,0 +1,539 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.collection.lpmap;
+
+import com.zfoo.protocol.ProtocolManager;
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.registration.IProtocolRegistration;
+import com.zfoo.protocol.util.FileUtils;
+import com.zfoo.protocol.util.IOUtils;
+import com.zfoo.protocol.util.StringUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * EN: LpMap on memory mapped files, get is a memory read and the protocol object is decoded straight from the mapped memory.
+ * <p>
+ * CN: 使用内存映射文件的LpMap，和FileChannelMap相比get不需要系统调用，直接从映射的内存中反序列化协议对象。
+ * <p>
+ * 数据文件是只追加的日志，每条记录是crc(4byte) + key(8byte) + length(4byte) + 协议对象，length为-1表示删除；
+ * 索引文件是64个字节的文件头加上每个key一个8字节的long，值为记录位置+1，0表示没有值。
+ * 两个文件都按块映射和扩容，记录不会跨块，块的剩余空间放不下的时候跳到下一个块。
+ * <p>
+ * 先写数据再写索引，数据日志可以完整的重建索引。打开的时候把文件头标记为未正常关闭，close的时候才标记为正常关闭，
+ * 所以进程崩溃后重新打开会扫描数据日志，校验crc，丢弃末尾写了一半的记录，然后重建索引。
+ * 被覆盖和删除的记录超过一半的时候压缩数据日志，只复制有效的记录到新文件，然后原子的替换掉旧文件。
+ * <p>
+ * 和FileChannelMap一样不是线程安全的，只有flush和close才会强制刷盘
+ *
+ * @author godotg
+ */
+public class MappedLpMap<V> implements LpMap<V>, Closeable {
+
+    public static final int DATA_CHUNK_SIZE = 64 * IOUtils.BYTES_PER_MB;
+    public static final int INDEX_CHUNK_SIZE = 4 * IOUtils.BYTES_PER_MB;
+
+    private static final int MAGIC = 0x7A666D70;
+    private static final int VERSION = 1;
+
+    // 索引文件头：magic(4) + version(4) + clean(4) + 保留(4) + tail(8) + maxIndex(8) + garbage(8)，预留到64个字节
+    private static final int HEADER_LENGTH = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CLEAN_OFFSET = 8;
+    private static final int TAIL_OFFSET = 16;
+    private static final int MAX_INDEX_OFFSET = 24;
+    private static final int GARBAGE_OFFSET = 32;
+
+    private static final int RECORD_HEADER_LENGTH = 16;
+    private static final int TOMBSTONE = -1;
+    // 块末尾的填充标记，扫描到这个key直接跳到下一个块
+    private static final long PADDING_KEY = -1L;
+
+    // 垃圾数据超过这个大小并且超过数据日志的一半才压缩
+    private static final long COMPACT_MIN_GARBAGE = DATA_CHUNK_SIZE;
+
+    private final File dataFile;
+    private final File indexFile;
+    private final File compactFile;
+
+    private MappedFile data;
+    private MappedFile index;
+
+    private final IProtocolRegistration protocolRegistration;
+
+    private final CRC32C crc32c = new CRC32C();
+
+    // 数据日志的逻辑长度，下一条记录写入的位置
+    private long tail;
+    private long maxIndex;
+    // 被覆盖和删除的记录占用的字节数
+    private long garbage;
+
+    public MappedLpMap(String dbPath, Class<V> clazz) {
+        try {
+            this.dataFile = FileUtils.getOrCreateFile(dbPath, StringUtils.format("{}.mdb", clazz.getSimpleName()));
+            this.indexFile = FileUtils.getOrCreateFile(dbPath, StringUtils.format("{}.mindex", clazz.getSimpleName()));
+            this.compactFile = new File(dataFile.getAbsolutePath() + ".compact");
+            // 压缩到一半的时候进程崩溃了，旧的数据文件还是完整的
+            Files.deleteIfExists(compactFile.toPath());
+
+            this.protocolRegistration = ProtocolManager.getProtocol(ProtocolManager.protocolId(clazz));
+            this.data = new MappedFile(dataFile, DATA_CHUNK_SIZE);
+            this.index = new MappedFile(indexFile, INDEX_CHUNK_SIZE);
+            open();
+        } catch (IOException e) {
+            throw new RunException(e);
+        }
+    }
+
+    private void open() {
+        var magic = index.getInt(MAGIC_OFFSET);
+        if (magic == 0) {
+            initHeader();
+            return;
+        }
+        if (magic != MAGIC || index.getInt(VERSION_OFFSET) != VERSION) {
+            throw new RunException("[{}] is not a MappedLpMap index file", indexFile.getAbsolutePath());
+        }
+        if (index.getInt(CLEAN_OFFSET) == 1) {
+            tail = index.getLong(TAIL_OFFSET);
+            maxIndex = index.getLong(MAX_INDEX_OFFSET);
+            garbage = index.getLong(GARBAGE_OFFSET);
+        } else {
+            recover();
+        }
+        // 打开期间都是未正常关闭的状态
+        index.putInt(CLEAN_OFFSET, 0);
+    }
+
+    private void initHeader() {
+        tail = 0;
+        maxIndex = 0;
+        garbage = 0;
+        index.putInt(MAGIC_OFFSET, MAGIC);
+        index.putInt(VERSION_OFFSET, VERSION);
+        index.putInt(CLEAN_OFFSET, 0);
+        writeHeader();
+    }
+
+    private void writeHeader() {
+        index.putLong(TAIL_OFFSET, tail);
+        index.putLong(MAX_INDEX_OFFSET, maxIndex);
+        index.putLong(GARBAGE_OFFSET, garbage);
+    }
+
+    /**
+     * 没有正常关闭，扫描数据日志重建索引，遇到第一条不完整的记录就认为是日志的末尾。
+     * tail之后的数据全部清零，否则之后追加的记录和旧的记录刚好对齐时，下一次恢复会把丢弃的旧记录当成有效的记录
+     */
+    private void recover() {
+        index.zero(HEADER_LENGTH);
+        tail = 0;
+        maxIndex = 0;
+        garbage = 0;
+        var position = 0L;
+        while (position < data.length()) {
+            var offset = data.offset(position);
+            if (DATA_CHUNK_SIZE - offset < RECORD_HEADER_LENGTH || data.chunk(position).getLong(offset + 4) == PADDING_KEY) {
+                position = nextChunk(position);
+                continue;
+            }
+            var buf = data.chunk(position);
+            var key = buf.getLong(offset + 4);
+            var length = buf.getInt(offset + 12);
+            var bodyLength = Math.max(length, 0);
+            if (key < 0 || length == 0 || length < TOMBSTONE || offset + RECORD_HEADER_LENGTH + bodyLength > DATA_CHUNK_SIZE
+                    || buf.getInt(offset) != crc(buf, offset, bodyLength)) {
+                break;
+            }
+            var previous = indexEntry(key);
+            if (previous != 0) {
+                garbage += recordLength(previous - 1);
+            }
+            if (length == TOMBSTONE) {
+                garbage += RECORD_HEADER_LENGTH;
+                setIndexEntry(key, 0);
+            } else {
+                setIndexEntry(key, position + 1);
+            }
+            maxIndex = Math.max(maxIndex, key);
+            position += RECORD_HEADER_LENGTH + bodyLength;
+            tail = position;
+        }
+        data.zero(tail);
+        data.force();
+        writeHeader();
+    }
+
+    @Override
+    public V put(long key, V packet) {
+        checkKey(key);
+
+        V previousValue = null;
+        if (key <= maxIndex) {
+            previousValue = get(key);
+        } else {
+            maxIndex = key;
+        }
+
+        var position = writeRecord(key, packet, false);
+        replaceIndexEntry(key, position + 1);
+        compactIfNecessary();
+        return previousValue;
+    }
+
+    @Override
+    public V delete(long key) {
+        checkKey(key);
+
+        if (key > maxIndex || indexEntry(key) == 0) {
+            return null;
+        }
+        var previousValue = get(key);
+        writeRecord(key, null, true);
+        replaceIndexEntry(key, 0);
+        garbage += RECORD_HEADER_LENGTH;
+        compactIfNecessary();
+        return previousValue;
+    }
+
+    @Override
+    public V get(long key) {
+        checkKey(key);
+
+        if (key > maxIndex) {
+            return null;
+        }
+        var entry = indexEntry(key);
+        if (entry == 0) {
+            return null;
+        }
+        var position = entry - 1;
+        var buf = data.chunk(position);
+        var offset = data.offset(position);
+        var length = buf.getInt(offset + 12);
+        var packet = protocolRegistration.read(buf.slice(offset + RECORD_HEADER_LENGTH, length));
+        @SuppressWarnings("unchecked")
+        var p = (V) packet;
+        return p;
+    }
+
+    /**
+     * 获取从startKey到endKey的值
+     *
+     * @param startKey inclusive
+     * @param endKey   exclusive
+     * @return list
+     */
+    public List<V> getFrom(long startKey, long endKey) {
+        checkKey(startKey);
+        checkKey(endKey);
+
+        if (startKey >= endKey) {
+            throw new RunException("range error startKey < endKey");
+        }
+        if (startKey > maxIndex) {
+            return Collections.emptyList();
+        }
+
+        var list = new ArrayList<V>();
+        for (var i = startKey; i < endKey; i++) {
+            var value = get(i);
+            if (value != null) {
+                list.add(value);
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public long getMaxIndex() {
+        return maxIndex;
+    }
+
+    @Override
+    public long getIncrementIndex() {
+        maxIndex++;
+        index.putLong(MAX_INDEX_OFFSET, maxIndex);
+        return maxIndex;
+    }
+
+    @Override
+    public void forEach(BiConsumer<Long, V> biConsumer) {
+        for (var i = 0L; i <= getMaxIndex(); i++) {
+            var value = get(i);
+            if (value != null) {
+                biConsumer.accept(i, value);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            data.close();
+            index.close();
+            try (var dataAccess = new RandomAccessFile(dataFile, "rw"); var indexAccess = new RandomAccessFile(indexFile, "rw")) {
+                dataAccess.setLength(0);
+                indexAccess.setLength(0);
+            }
+            data = new MappedFile(dataFile, DATA_CHUNK_SIZE);
+            index = new MappedFile(indexFile, INDEX_CHUNK_SIZE);
+            initHeader();
+        } catch (IOException e) {
+            throw new RunException(e);
+        }
+    }
+
+    /**
+     * 强制把映射的内存刷到磁盘，先刷数据再刷索引
+     */
+    public void flush() {
+        data.force();
+        writeHeader();
+        index.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        index.putInt(CLEAN_OFFSET, 1);
+        index.force();
+        data.close();
+        index.close();
+    }
+
+    /**
+     * 压缩数据日志，按照key的顺序复制有效的记录到新文件，再替换掉旧的数据文件
+     * <p>
+     * 压缩过程中会直接修改索引，在替换数据文件之前崩溃的话，重新打开时会用完整的旧数据文件重建索引
+     */
+    public void compact() {
+        try {
+            var compactData = new MappedFile(compactFile, DATA_CHUNK_SIZE);
+            var position = 0L;
+            for (var key = 0L; key <= maxIndex; key++) {
+                var entry = indexEntry(key);
+                if (entry == 0) {
+                    continue;
+                }
+                var oldPosition = entry - 1;
+                var length = recordLength(oldPosition);
+                position = reserve(compactData, position, length);
+                compactData.chunk(position).setBytes(compactData.offset(position), data.chunk(oldPosition), data.offset(oldPosition), length);
+                setIndexEntry(key, position + 1);
+                position += length;
+            }
+            compactData.force();
+            compactData.close();
+            data.close();
+            Files.move(compactFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            data = new MappedFile(dataFile, DATA_CHUNK_SIZE);
+            tail = position;
+            garbage = 0;
+            writeHeader();
+        } catch (IOException e) {
+            throw new RunException(e);
+        }
+    }
+
+    private void compactIfNecessary() {
+        if (garbage > COMPACT_MIN_GARBAGE && garbage > tail / 2) {
+            compact();
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 在日志末尾追加一条记录，先写记录再移动tail，返回记录的位置
+     */
+    private long writeRecord(long key, V packet, boolean tombstone) {
+        var predictionLength = tombstone ? 0 : protocolRegistration.sizeOf(packet);
+        if (RECORD_HEADER_LENGTH + predictionLength > DATA_CHUNK_SIZE) {
+            throw new RunException("[key:{}] packet size [{}] is larger than the chunk size [{}]", key, predictionLength, DATA_CHUNK_SIZE);
+        }
+        var position = reserve(data, tail, RECORD_HEADER_LENGTH + predictionLength);
+        var buf = data.chunk(position);
+        var offset = data.offset(position);
+
+        var length = TOMBSTONE;
+        if (!tombstone) {
+            // 直接序列化到映射的内存中
+            var body = buf.slice(offset + RECORD_HEADER_LENGTH, DATA_CHUNK_SIZE - offset - RECORD_HEADER_LENGTH);
+            body.writerIndex(0);
+            protocolRegistration.write(body, packet);
+            length = body.writerIndex();
+        }
+        buf.setLong(offset + 4, key);
+        buf.setInt(offset + 12, length);
+        buf.setInt(offset, crc(buf, offset, Math.max(length, 0)));
+
+        tail = position + RECORD_HEADER_LENGTH + Math.max(length, 0);
+        index.putLong(TAIL_OFFSET, tail);
+        return position;
+    }
+
+    /**
+     * 记录不跨块，当前块剩余的空间不够就写一个填充标记，返回下一个块的开始位置
+     */
+    private long reserve(MappedFile file, long position, int recordLength) {
+        var offset = file.offset(position);
+        if (offset + recordLength <= DATA_CHUNK_SIZE) {
+            return position;
+        }
+        if (DATA_CHUNK_SIZE - offset >= RECORD_HEADER_LENGTH) {
+            file.chunk(position).setLong(offset + 4, PADDING_KEY);
+        }
+        return nextChunk(position);
+    }
+
+    private long nextChunk(long position) {
+        return (position / DATA_CHUNK_SIZE + 1) * DATA_CHUNK_SIZE;
+    }
+
+    private int recordLength(long position) {
+        var length = data.chunk(position).getInt(data.offset(position) + 12);
+        return RECORD_HEADER_LENGTH + Math.max(length, 0);
+    }
+
+    // crc校验key，length和协议对象
+    private int crc(ByteBuf buf, int offset, int bodyLength) {
+        crc32c.reset();
+        crc32c.update(buf.nioBuffer(offset + 4, 12 + bodyLength));
+        return (int) crc32c.getValue();
+    }
+
+    private long indexEntry(long key) {
+        var position = HEADER_LENGTH + key * 8;
+        if (position >= index.length()) {
+            return 0;
+        }
+        return index.getLong(position);
+    }
+
+    private void setIndexEntry(long key, long entry) {
+        index.putLong(HEADER_LENGTH + key * 8, entry);
+    }
+
+    private void replaceIndexEntry(long key, long entry) {
+        var previous = indexEntry(key);
+        if (previous != 0) {
+            garbage += recordLength(previous - 1);
+            index.putLong(GARBAGE_OFFSET, garbage);
+        }
+        setIndexEntry(key, entry);
+    }
+
+    /**
+     * 按块映射的文件，每个块是一个MappedByteBuffer，访问超过文件长度的位置时映射新的块，文件也随之扩容
+     */
+    private static class MappedFile implements Closeable {
+
+        private final RandomAccessFile randomAccessFile;
+        private final FileChannel channel;
+        private final int chunkSize;
+        private final List<MappedByteBuffer> buffers = new ArrayList<>();
+        private final List<ByteBuf> chunks = new ArrayList<>();
+
+        private MappedFile(File file, int chunkSize) throws IOException {
+            this.randomAccessFile = new RandomAccessFile(file, "rw");
+            this.channel = randomAccessFile.getChannel();
+            this.chunkSize = chunkSize;
+            var chunkNum = Math.max((channel.size() + chunkSize - 1) / chunkSize, 1);
+            for (var i = 0; i < chunkNum; i++) {
+                map();
+            }
+        }
+
+        private void map() throws IOException {
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, (long) buffers.size() * chunkSize, chunkSize);
+            buffers.add(buffer);
+            chunks.add(Unpooled.wrappedBuffer(buffer));
+        }
+
+        private long length() {
+            return (long) buffers.size() * chunkSize;
+        }
+
+        private int offset(long position) {
+            return (int) (position % chunkSize);
+        }
+
+        private ByteBuf chunk(long position) {
+            var chunkIndex = (int) (position / chunkSize);
+            try {
+                while (chunkIndex >= chunks.size()) {
+                    map();
+                }
+            } catch (IOException e) {
+                throw new RunException(e);
+            }
+            return chunks.get(chunkIndex);
+        }
+
+        private int getInt(long position) {
+            return chunk(position).getInt(offset(position));
+        }
+
+        private long getLong(long position) {
+            return chunk(position).getLong(offset(position));
+        }
+
+        private void putInt(long position, int value) {
+            chunk(position).setInt(offset(position), value);
+        }
+
+        private void putLong(long position, long value) {
+            chunk(position).setLong(offset(position), value);
+        }
+
+        private void zero(long fromPosition) {
+            for (var position = fromPosition; position < length(); ) {
+                var offset = offset(position);
+                chunk(position).setZero(offset, chunkSize - offset);
+                position += chunkSize - offset;
+            }
+        }
+
+        private void force() {
+            buffers.forEach(MappedByteBuffer::force);
+        }
+
+        @Override
+        public void close() {
+            // 解除映射，否则在windows上不能替换或者截断文件
+            buffers.forEach(PlatformDependent::freeDirectBuffer);
+            buffers.clear();
+            chunks.clear();
+            IOUtils.closeIO(channel, randomAccessFile);
+        }
+    }
+
+}
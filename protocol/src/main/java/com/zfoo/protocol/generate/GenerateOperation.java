@@ -53,6 +53,34 @@ public class GenerateOperation {
      */
     private String protocolPath = StringUtils.EMPTY;
 
+    /**
+     * EN: All String fields are sent through the per session StringDictionary, same as marking every String field with @Intern
+     * CN: 所有的String字段都使用连接独享的字符串字典发送，等同于给每一个String字段加上@Intern注解
+     */
+    private boolean internString;
+
+    /**
+     * EN: Every protocol writes the length of its fields, same as every protocol has a @Compatible field.
+     * An older node can skip the unknown fields and the unknown nested protocols at any depth, so nodes can be upgraded one by one.
+     * <p>
+     * CN: 所有的协议都写入字段的长度，等同于每个协议都有@Compatible字段，旧的节点可以跳过任意嵌套层级中不认识的字段和协议，方便滚动升级
+     */
+    private boolean versionedProtocol;
+
+    /**
+     * EN: Write the enhanced serializers as java source files to this path at build time.
+     * The compiled classes are loaded at startup instead of being generated by javassist, and also work in GraalVM native image.
+     * <p>
+     * CN: 在编译期把字节码增强的序列化器生成为java源文件，编译之后启动时直接加载，不再使用javassist，GraalVM的native image也可以使用
+     */
+    private String enhanceSourcePath;
+
+    /**
+     * EN: The number of threads to compile the enhanced protocols, 0 means choosing by the number of protocols and processors
+     * CN: 并行编译增强类的线程数，0代表根据协议数量和处理器数量自动选择，每个线程至少分配32个协议
+     */
+    private int enhanceThreads;
+
     /**
      * Reserved parameters，保留参数
      */
@@ -88,6 +116,38 @@ public class GenerateOperation {
         this.foldProtocol = foldProtocol;
     }
 
+    public boolean isInternString() {
+        return internString;
+    }
+
+    public void setInternString(boolean internString) {
+        this.internString = internString;
+    }
+
+    public boolean isVersionedProtocol() {
+        return versionedProtocol;
+    }
+
+    public void setVersionedProtocol(boolean versionedProtocol) {
+        this.versionedProtocol = versionedProtocol;
+    }
+
+    public String getEnhanceSourcePath() {
+        return enhanceSourcePath;
+    }
+
+    public void setEnhanceSourcePath(String enhanceSourcePath) {
+        this.enhanceSourcePath = enhanceSourcePath;
+    }
+
+    public int getEnhanceThreads() {
+        return enhanceThreads;
+    }
+
+    public void setEnhanceThreads(int enhanceThreads) {
+        this.enhanceThreads = enhanceThreads;
+    }
+
     public String getProtocolParam() {
         return protocolParam;
     }
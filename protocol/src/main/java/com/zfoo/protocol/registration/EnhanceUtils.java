@@ -15,22 +15,29 @@ package com.zfoo.protocol.registration;
 
 import com.zfoo.protocol.anno.Compatible;
 import com.zfoo.protocol.buffer.ByteBufUtils;
-import com.zfoo.protocol.collection.ArrayUtils;
-import com.zfoo.protocol.collection.CollectionUtils;
+import com.zfoo.protocol.buffer.StringDictionary;
+import com.zfoo.protocol.collection.*;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
-import com.zfoo.protocol.registration.field.IFieldRegistration;
+import com.zfoo.protocol.registration.field.*;
 import com.zfoo.protocol.serializer.enhance.*;
 import com.zfoo.protocol.serializer.reflect.*;
 import com.zfoo.protocol.util.FieldUtils;
+import com.zfoo.protocol.util.FileUtils;
 import com.zfoo.protocol.util.StringUtils;
 import io.netty.buffer.ByteBuf;
 import javassist.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.util.*;
 
+import static com.zfoo.protocol.util.FileUtils.LS;
+
 /**
  * 对应于ProtocolRegistration
  *
@@ -38,6 +45,13 @@ import java.util.*;
  */
 public abstract class EnhanceUtils {
 
+    private static final Logger logger = LoggerFactory.getLogger(EnhanceUtils.class);
+
+    /**
+     * 编译期生成的增强类所在的包，类名称格式：com.zfoo.protocol.registration.aot.ProtocolRegistration1
+     */
+    public static final String ENHANCE_SOURCE_PACKAGE = "com.zfoo.protocol.registration.aot";
+
     // 临时变量，是一个基本类型序列化器对应的增强类型序列化器
     private static Map<ISerializer, IEnhanceSerializer> enhanceSerializerMap = new HashMap<>();
 
@@ -47,10 +61,27 @@ public abstract class EnhanceUtils {
     public static String byteBufUtilsReadBoolean = byteBufUtils + ".readBoolean($1)";
     public static String byteBufUtilsWriteInt0 = byteBufUtils + ".writeInt($1, 0);";
 
+    // 默认的ClassPool第一次编译增强类的时候才初始化，全部使用编译期生成的增强类时不会初始化javassist
+    private static boolean defaultClassPoolInitialized = false;
+
     static {
-        var classArray = new Class<?>[]{IProtocolRegistration.class, IFieldRegistration.class, ByteBuf.class};
+        enhanceSerializerMap.put(BoolSerializer.INSTANCE, new EnhanceBoolSerializer());
+        enhanceSerializerMap.put(ByteSerializer.INSTANCE, new EnhanceByteSerializer());
+        enhanceSerializerMap.put(ShortSerializer.INSTANCE, new EnhanceShortSerializer());
+        enhanceSerializerMap.put(IntSerializer.INSTANCE, new EnhanceIntSerializer());
+        enhanceSerializerMap.put(LongSerializer.INSTANCE, new EnhanceLongSerializer());
+        enhanceSerializerMap.put(FloatSerializer.INSTANCE, new EnhanceFloatSerializer());
+        enhanceSerializerMap.put(DoubleSerializer.INSTANCE, new EnhanceDoubleSerializer());
+        enhanceSerializerMap.put(StringSerializer.INSTANCE, new EnhanceStringSerializer());
+        enhanceSerializerMap.put(ObjectProtocolSerializer.INSTANCE, new EnhanceObjectProtocolSerializer());
+        enhanceSerializerMap.put(ListSerializer.INSTANCE, new EnhanceListSerializer());
+        enhanceSerializerMap.put(SetSerializer.INSTANCE, new EnhanceSetSerializer());
+        enhanceSerializerMap.put(MapSerializer.INSTANCE, new EnhanceMapSerializer());
+        enhanceSerializerMap.put(ArraySerializer.INSTANCE, new EnhanceArraySerializer());
+    }
 
-        var classPool = ClassPool.getDefault();
+    private static void initClassPool(ClassPool classPool) {
+        var classArray = new Class<?>[]{IProtocolRegistration.class, IFieldRegistration.class, ByteBuf.class};
 
         // 导入需要的包
         classPool.importPackage(ByteBufUtils.class.getName());
@@ -68,26 +99,70 @@ public abstract class EnhanceUtils {
                 classPool.insertClassPath(classPath);
             }
         }
+    }
 
-        enhanceSerializerMap.put(BoolSerializer.INSTANCE, new EnhanceBoolSerializer());
-        enhanceSerializerMap.put(ByteSerializer.INSTANCE, new EnhanceByteSerializer());
-        enhanceSerializerMap.put(ShortSerializer.INSTANCE, new EnhanceShortSerializer());
-        enhanceSerializerMap.put(IntSerializer.INSTANCE, new EnhanceIntSerializer());
-        enhanceSerializerMap.put(LongSerializer.INSTANCE, new EnhanceLongSerializer());
-        enhanceSerializerMap.put(FloatSerializer.INSTANCE, new EnhanceFloatSerializer());
-        enhanceSerializerMap.put(DoubleSerializer.INSTANCE, new EnhanceDoubleSerializer());
-        enhanceSerializerMap.put(StringSerializer.INSTANCE, new EnhanceStringSerializer());
-        enhanceSerializerMap.put(ObjectProtocolSerializer.INSTANCE, new EnhanceObjectProtocolSerializer());
-        enhanceSerializerMap.put(ListSerializer.INSTANCE, new EnhanceListSerializer());
-        enhanceSerializerMap.put(SetSerializer.INSTANCE, new EnhanceSetSerializer());
-        enhanceSerializerMap.put(MapSerializer.INSTANCE, new EnhanceMapSerializer());
-        enhanceSerializerMap.put(ArraySerializer.INSTANCE, new EnhanceArraySerializer());
+    public static ClassPool defaultClassPool() {
+        var classPool = ClassPool.getDefault();
+        if (!defaultClassPoolInitialized) {
+            initClassPool(classPool);
+            defaultClassPoolInitialized = true;
+        }
+        return classPool;
+    }
+
+    /**
+     * 并行增强的时候每个线程使用一个独立的ClassPool，javassist的ClassPool不是线程安全的
+     */
+    public static ClassPool newClassPool() {
+        var classPool = new ClassPool(true);
+        initClassPool(classPool);
+        return classPool;
     }
 
     public static IEnhanceSerializer enhanceSerializer(ISerializer serializer) {
         return enhanceSerializerMap.get(serializer);
     }
 
+    /**
+     * 集合写入的字节数（包括集合的长度），元素是基础类型或者协议时直接调用ByteBufUtils.writeXxxCount，一个集合字段只生成一行代码，
+     * 字段很多的大协议也不会超过方法字节码的长度限制；元素是嵌套的集合则返回null，需要生成循环
+     *
+     * @param collection 集合或者数组的表达式
+     * @param length     集合长度的表达式
+     * @param type       Array，BoxArray或者Collection
+     */
+    public static String collectionSizeOf(IFieldRegistration elementRegistration, String collection, String length, String type) {
+        var serializer = elementRegistration.serializer();
+        if (serializer == BoolSerializer.INSTANCE || serializer == ByteSerializer.INSTANCE) {
+            return StringUtils.format("{}.writeFixedCount({}, 1)", byteBufUtils, length);
+        }
+        if (serializer == ShortSerializer.INSTANCE) {
+            return StringUtils.format("{}.writeFixedCount({}, 2)", byteBufUtils, length);
+        }
+        if (serializer == FloatSerializer.INSTANCE) {
+            return StringUtils.format("{}.writeFixedCount({}, 4)", byteBufUtils, length);
+        }
+        if (serializer == DoubleSerializer.INSTANCE) {
+            return StringUtils.format("{}.writeFixedCount({}, 8)", byteBufUtils, length);
+        }
+        if (serializer == IntSerializer.INSTANCE) {
+            return StringUtils.format("{}.writeInt{}Count({})", byteBufUtils, type, collection);
+        }
+        if (serializer == LongSerializer.INSTANCE) {
+            return StringUtils.format("{}.writeLong{}Count({})", byteBufUtils, type, collection);
+        }
+        // String和协议的数组只有一种
+        type = type.endsWith("Array") ? "Array" : type;
+        if (serializer == StringSerializer.INSTANCE) {
+            return StringUtils.format("{}.writeString{}Count({})", byteBufUtils, type, collection);
+        }
+        if (serializer == ObjectProtocolSerializer.INSTANCE) {
+            var protocolId = ((ObjectProtocolField) elementRegistration).getProtocolId();
+            return StringUtils.format("{}.writePacket{}Count({}, {})", byteBufUtils, type, collection, getProtocolRegistrationFieldNameByProtocolId(protocolId));
+        }
+        return null;
+    }
+
     public static void clear() {
         enhanceSerializerMap.clear();
         enhanceSerializerMap = null;
@@ -98,8 +173,47 @@ public abstract class EnhanceUtils {
         byteBufUtilsReadBoolean = null;
         byteBufUtilsWriteInt0 = null;
 
-        var classPool = ClassPool.getDefault();
-        classPool.clearImportedPackages();
+        if (defaultClassPoolInitialized) {
+            ClassPool.getDefault().clearImportedPackages();
+            defaultClassPoolInitialized = false;
+        }
+    }
+
+    /**
+     * 增强类的源代码，生成源代码使用了静态的局部变量计数器GenerateProtocolFile.localVariableId，只能单线程生成；编译源代码可以并行
+     */
+    public static class ProtocolSource {
+        private final ProtocolRegistration registration;
+        private final List<Short> subProtocolIds;
+        private final String sizeOfBody;
+        private final String writeBody;
+        private final String readBody;
+
+        private ProtocolSource(ProtocolRegistration registration) {
+            this.registration = registration;
+            this.subProtocolIds = ProtocolAnalysis.getAllSubProtocolIds(registration.getId())
+                    .stream()
+                    .sorted((a, b) -> Short.compare(a, b))
+                    .toList();
+            this.sizeOfBody = sizeOfMethodBody(registration);
+            this.writeBody = writeMethodBody(registration);
+            this.readBody = readMethodBody(registration);
+        }
+
+        public short protocolId() {
+            return registration.getId();
+        }
+
+        /**
+         * 源代码的签名，协议的字段或者序列化方式改变之后签名也会改变，用来检查编译期生成的增强类是否过期
+         */
+        public int signature() {
+            return Objects.hash(subProtocolIds, sizeOfBody, writeBody, readBody);
+        }
+    }
+
+    public static ProtocolSource protocolSource(ProtocolRegistration registration) {
+        return new ProtocolSource(registration);
     }
 
     /**
@@ -107,9 +221,15 @@ public abstract class EnhanceUtils {
      * @return 返回类的名称格式：EnhanceUtilsProtocolRegistration1
      */
     public static IProtocolRegistration createProtocolRegistration(ProtocolRegistration registration) throws NotFoundException, CannotCompileException, NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
-        var classPool = ClassPool.getDefault();
+        return createProtocolRegistration(defaultClassPool(), protocolSource(registration));
+    }
+
+    /**
+     * 编译增强类，不同的线程使用不同的classPool时可以并行调用
+     */
+    public static IProtocolRegistration createProtocolRegistration(ClassPool classPool, ProtocolSource source) throws NotFoundException, CannotCompileException, NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
+        var registration = source.registration;
         var protocolId = registration.getId();
-        var packetFields = registration.getFieldRegistrations();
 
         // 定义类名称
         CtClass enhanceClazz = classPool.makeClass(ProtocolRegistration.class.getName() + protocolId);
@@ -122,12 +242,7 @@ public abstract class EnhanceUtils {
 
 
         // 定义类所包含的所有子协议成员
-        var allSubProtocolIds = ProtocolAnalysis.getAllSubProtocolIds(protocolId)
-                .stream()
-                .sorted((a, b) -> Short.compare(a, b))
-                .toList();
-
-        for (var subProtocolId : allSubProtocolIds) {
+        for (var subProtocolId : source.subProtocolIds) {
             var protocolRegistrationField = new CtField(classPool.get(IProtocolRegistration.class.getName()), getProtocolRegistrationFieldNameByProtocolId(subProtocolId), enhanceClazz);
             protocolRegistrationField.setModifiers(Modifier.PRIVATE);
             enhanceClazz.addField(protocolRegistrationField);
@@ -155,14 +270,19 @@ public abstract class EnhanceUtils {
         moduleMethod.setBody("{return " + registration.module() + ";}");
         enhanceClazz.addMethod(moduleMethod);
 
+        CtMethod sizeOfMethod = new CtMethod(classPool.get(int.class.getName()), "sizeOf", classPool.get(new String[]{Object.class.getName()}), enhanceClazz);
+        sizeOfMethod.setModifiers(Modifier.PUBLIC + Modifier.FINAL);
+        sizeOfMethod.setBody(source.sizeOfBody);
+        enhanceClazz.addMethod(sizeOfMethod);
+
         CtMethod writeMethod = new CtMethod(classPool.get(void.class.getName()), "write", classPool.get(new String[]{ByteBuf.class.getName(), Object.class.getName()}), enhanceClazz);
         writeMethod.setModifiers(Modifier.PUBLIC + Modifier.FINAL);
-        writeMethod.setBody(writeMethodBody(registration));
+        writeMethod.setBody(source.writeBody);
         enhanceClazz.addMethod(writeMethod);
 
         CtMethod readMethod = new CtMethod(classPool.get(Object.class.getName()), "read", classPool.get(new String[]{ByteBuf.class.getName()}), enhanceClazz);
         readMethod.setModifiers(Modifier.PUBLIC + Modifier.FINAL);
-        readMethod.setBody(readMethodBody(registration));
+        readMethod.setBody(source.readBody);
         enhanceClazz.addMethod(readMethod);
 
         // 释放缓存
@@ -174,6 +294,74 @@ public abstract class EnhanceUtils {
         return (IProtocolRegistration) resultConstructor.newInstance(registration.protocolConstructor());
     }
 
+    /**
+     * 把增强类的javassist源代码转换为普通的java源代码，在编译期生成，运行时不再需要javassist
+     */
+    public static String javaSource(ProtocolSource source) {
+        var registration = source.registration;
+        var protocolId = registration.getId();
+        var className = ProtocolRegistration.class.getSimpleName() + protocolId;
+
+        var builder = new StringBuilder();
+        builder.append(StringUtils.format("package {};", ENHANCE_SOURCE_PACKAGE)).append(LS).append(LS);
+        for (var clazz : List.of(ByteBufUtils.class, CollectionUtils.class, ArrayUtils.class, IProtocolRegistration.class, ByteBuf.class
+                , Constructor.class, Iterator.class, List.class, Map.class, Set.class)) {
+            builder.append(StringUtils.format("import {};", clazz.getName())).append(LS);
+        }
+        builder.append(LS);
+        builder.append(StringUtils.format("/**{} * Generated by zfoo at build time, do not edit. Protocol: {}{} */", LS, registration.getConstructor().getDeclaringClass().getCanonicalName(), LS)).append(LS);
+        builder.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})").append(LS);
+        builder.append(StringUtils.format("public final class {} implements IProtocolRegistration {", className)).append(LS).append(LS);
+        builder.append(StringUtils.format("    public static final int SIGNATURE = {};", source.signature())).append(LS).append(LS);
+        builder.append("    private final Constructor constructor;").append(LS);
+        for (var subProtocolId : source.subProtocolIds) {
+            builder.append(StringUtils.format("    private IProtocolRegistration {};", getProtocolRegistrationFieldNameByProtocolId(subProtocolId))).append(LS);
+        }
+        builder.append(LS);
+        builder.append(StringUtils.format("    public {}(Constructor constructor) {this.constructor = constructor;}", className)).append(LS).append(LS);
+        builder.append(StringUtils.format("    public final short protocolId() {return {};}", protocolId)).append(LS).append(LS);
+        builder.append("    public final Constructor protocolConstructor() {return this.constructor;}").append(LS).append(LS);
+        builder.append(StringUtils.format("    public final byte module() {return {};}", registration.module())).append(LS).append(LS);
+        builder.append("    public final int sizeOf(Object obj) ").append(javaMethodBody(source.sizeOfBody, "obj")).append(LS).append(LS);
+        builder.append("    public final void write(ByteBuf buffer, Object obj) ").append(javaMethodBody(source.writeBody, "buffer", "obj")).append(LS).append(LS);
+        builder.append("    public final Object read(ByteBuf buffer) ").append(javaMethodBody(source.readBody, "buffer")).append(LS);
+        builder.append("}").append(LS);
+        return builder.toString();
+    }
+
+    private static String javaMethodBody(String body, String... params) {
+        // javassist的参数是$1，$2，生成的代码中的类名都是getCanonicalName，javassist和java源代码都可以使用
+        for (var i = params.length; i > 0; i--) {
+            body = body.replace("$" + i, params[i - 1]);
+        }
+        return body;
+    }
+
+    public static void writeJavaSource(String path, ProtocolSource source) {
+        var packagePath = ENHANCE_SOURCE_PACKAGE.replace(StringUtils.PERIOD, StringUtils.SLASH);
+        var file = new File(StringUtils.format("{}/{}/{}{}.java", path, packagePath, ProtocolRegistration.class.getSimpleName(), source.protocolId()));
+        FileUtils.writeStringToFile(file, javaSource(source), false);
+    }
+
+    /**
+     * 加载编译期生成的增强类，不存在或者签名和当前协议不一致的时候返回null，使用javassist重新增强
+     */
+    public static IProtocolRegistration loadProtocolRegistration(ProtocolSource source) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException, NoSuchFieldException {
+        var constructor = source.registration.protocolConstructor();
+        var className = StringUtils.format("{}.{}{}", ENHANCE_SOURCE_PACKAGE, ProtocolRegistration.class.getSimpleName(), source.protocolId());
+        Class<?> clazz;
+        try {
+            clazz = Class.forName(className, true, constructor.getDeclaringClass().getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        if (clazz.getField("SIGNATURE").getInt(null) != source.signature()) {
+            logger.warn("[{}] is out of date with [protocol:{}], regenerate the enhanced source", className, constructor.getDeclaringClass().getName());
+            return null;
+        }
+        return (IProtocolRegistration) clazz.getConstructor(Constructor.class).newInstance(constructor);
+    }
+
     // see: ProtocolRegistration.write()
     private static String writeMethodBody(ProtocolRegistration registration) {
         GenerateProtocolFile.localVariableId = 0;
@@ -187,16 +375,19 @@ public abstract class EnhanceUtils {
         var builder = new StringBuilder();
         builder.append("{");
         builder.append("if ($2 == null) { $1.writeByte(0); return; }");
-        builder.append(StringUtils.format("{} packet = ({})$2;", packetClazz.getName(), packetClazz.getName()));
+        builder.append(StringUtils.format("{} packet = ({})$2;", packetClazz.getCanonicalName(), packetClazz.getCanonicalName()));
         if (compatible) {
-            builder.append("int beforeWriteIndex = $1.writerIndex();");
-            builder.append(StringUtils.format("{}.writeInt($1, {});", byteBufUtils, registration.getPredictionLength()));
+            builder.append(StringUtils.format("int beforeWriteIndex = $1.writerIndex(); {}.writeInt($1, {});", byteBufUtils, registration.getPredictionLength()));
         } else {
             builder.append("$1.writeByte(1);");
         }
+        var stringDictionary = StringDictionary.class.getName();
         for (var i = 0; i < fields.length; i++) {
             var field = fields[i];
             var fieldRegistration = fieldRegistrations[i];
+            if (i == registration.getCompatibleIndex()) {
+                builder.append(StringUtils.format("{}.suspend();", stringDictionary));
+            }
 
             if (Modifier.isPublic(field.getModifiers())) {
                 enhanceSerializer(fieldRegistration.serializer())
@@ -206,6 +397,9 @@ public abstract class EnhanceUtils {
                         .writeObject(builder, StringUtils.format("packet.{}()", FieldUtils.fieldToGetMethod(packetClazz, field)), field, fieldRegistration);
             }
         }
+        if (registration.getCompatibleIndex() < fields.length) {
+            builder.append(StringUtils.format("{}.resume();", stringDictionary));
+        }
         if (compatible) {
             builder.append(StringUtils.format("{}.adjustPadding($1, {}, beforeWriteIndex);", byteBufUtils, registration.getPredictionLength()));
         }
@@ -213,6 +407,39 @@ public abstract class EnhanceUtils {
         return builder.toString();
     }
 
+    // see: ProtocolRegistration.sizeOf()
+    private static String sizeOfMethodBody(ProtocolRegistration registration) {
+        GenerateProtocolFile.localVariableId = 0;
+        var fields = registration.getFields();
+        var fieldRegistrations = registration.getFieldRegistrations();
+        var packetClazz = registration.getConstructor().getDeclaringClass();
+
+        var builder = new StringBuilder();
+        builder.append("{");
+        builder.append("if ($1 == null) { return 1; }");
+        builder.append(StringUtils.format("{} packet = ({})$1;", packetClazz.getCanonicalName(), packetClazz.getCanonicalName()));
+        builder.append("int size = 0;");
+        for (var i = 0; i < fields.length; i++) {
+            var field = fields[i];
+            var fieldRegistration = fieldRegistrations[i];
+
+            if (Modifier.isPublic(field.getModifiers())) {
+                enhanceSerializer(fieldRegistration.serializer())
+                        .sizeOf(builder, StringUtils.format("packet.{}", field.getName()), field, fieldRegistration);
+            } else {
+                enhanceSerializer(fieldRegistration.serializer())
+                        .sizeOf(builder, StringUtils.format("packet.{}()", FieldUtils.fieldToGetMethod(packetClazz, field)), field, fieldRegistration);
+            }
+        }
+        if (registration.isCompatible()) {
+            builder.append(StringUtils.format("return {}.writeIntCount(size) + size;", byteBufUtils));
+        } else {
+            builder.append("return 1 + size;");
+        }
+        builder.append("}");
+        return builder.toString();
+    }
+
     // see: ProtocolRegistration.read()
     private static String readMethodBody(ProtocolRegistration registration) {
         GenerateProtocolFile.localVariableId = 0;
@@ -234,6 +461,9 @@ public abstract class EnhanceUtils {
                 var field = fields[i];
                 var fieldRegistration = fieldRegistrations[i];
                 int index = originFields.indexOf(field);
+                if (i == registration.getCompatibleIndex()) {
+                    builder.append(StringUtils.format("{}.suspend();", StringDictionary.class.getName()));
+                }
                 // protocol backwards compatibility，协议向后兼容
                 if (field.isAnnotationPresent(Compatible.class)) {
                     var defaultReadObject = enhanceSerializer(fieldRegistration.serializer()).defaultValue(builder, field, fieldRegistration);
@@ -241,41 +471,53 @@ public abstract class EnhanceUtils {
                     var compatibleReadObject = enhanceSerializer(fieldRegistration.serializer()).readObject(builder, field, fieldRegistration);
                     builder.append(StringUtils.format("{} = {};", defaultReadObject, compatibleReadObject));
                     builder.append("}");
-                    constructorParams[index] = defaultReadObject;
+                    constructorParams[index] = castFieldType(field, defaultReadObject);
                     continue;
                 }
 
                 var readObject = enhanceSerializer(fieldRegistration.serializer()).readObject(builder, field, fieldRegistration);
-                constructorParams[index] = readObject;
+                constructorParams[index] = castFieldType(field, readObject);
             }
-            builder.append(packetClazz.getName() + " packet=new " + packetClazz.getName() + "(" + String.join(StringUtils.COMMA, constructorParams) + ");");
+            builder.append(packetClazz.getCanonicalName() + " packet=new " + packetClazz.getCanonicalName() + "(" + String.join(StringUtils.COMMA, constructorParams) + ");");
         } else {
             var fields = registration.getFields();
-            builder.append(packetClazz.getName() + " packet=new " + packetClazz.getName() + "();");
+            if (registration.isRecycle()) {
+                // 优先复用回收的协议对象
+                builder.append(StringUtils.format("{} packet=({}){}.obtain((short){});", packetClazz.getCanonicalName(), packetClazz.getCanonicalName(), ProtocolRecycler.class.getCanonicalName(), registration.protocolId()));
+                builder.append(StringUtils.format("if(packet==null){packet=new {}();}", packetClazz.getCanonicalName()));
+            } else {
+                builder.append(packetClazz.getCanonicalName() + " packet=new " + packetClazz.getCanonicalName() + "();");
+            }
 
             for (var i = 0; i < fields.length; i++) {
                 var field = fields[i];
                 var fieldRegistration = fieldRegistrations[i];
+                if (i == registration.getCompatibleIndex()) {
+                    builder.append(StringUtils.format("{}.suspend();", StringDictionary.class.getName()));
+                }
                 // protocol backwards compatibility，协议向后兼容
                 if (field.isAnnotationPresent(Compatible.class)) {
                     builder.append(StringUtils.format("if ({}.compatibleRead($1, beforeReadIndex, length)) {", byteBufUtils));
                     var compatibleReadObject = enhanceSerializer(fieldRegistration.serializer()).readObject(builder, field, fieldRegistration);
                     if (Modifier.isPublic(field.getModifiers())) {
-                        builder.append(StringUtils.format("packet.{}={};", field.getName(), compatibleReadObject));
+                        builder.append(StringUtils.format("packet.{}={};", field.getName(), castFieldType(field, compatibleReadObject)));
                     } else {
-                        builder.append(StringUtils.format("packet.{}({});", FieldUtils.fieldToSetMethod(packetClazz, field), compatibleReadObject));
+                        builder.append(StringUtils.format("packet.{}({});", FieldUtils.fieldToSetMethod(packetClazz, field), castFieldType(field, compatibleReadObject)));
                     }
                     builder.append("} else {");
                     var defaultReadObject = enhanceSerializer(fieldRegistration.serializer()).defaultValue(builder, field, fieldRegistration);
                     if (Modifier.isPublic(field.getModifiers())) {
-                        builder.append(StringUtils.format("packet.{}={};", field.getName(), defaultReadObject));
+                        builder.append(StringUtils.format("packet.{}={};", field.getName(), castFieldType(field, defaultReadObject)));
                     } else {
-                        builder.append(StringUtils.format("packet.{}({});", FieldUtils.fieldToSetMethod(packetClazz, field), defaultReadObject));
+                        builder.append(StringUtils.format("packet.{}({});", FieldUtils.fieldToSetMethod(packetClazz, field), castFieldType(field, defaultReadObject)));
                     }
                     builder.append("}");
                     continue;
                 }
-                var readObject = enhanceSerializer(fieldRegistration.serializer()).readObject(builder, field, fieldRegistration);
+                var reuseReadMethod = registration.isRecycle() ? reuseReadMethod(fieldRegistration) : null;
+                var readObject = reuseReadMethod == null
+                        ? castFieldType(field, enhanceSerializer(fieldRegistration.serializer()).readObject(builder, field, fieldRegistration))
+                        : reuseReadObject(builder, reuseReadMethod, packetClazz, field);
                 if (Modifier.isPublic(field.getModifiers())) {
                     builder.append(StringUtils.format("packet.{}={};", field.getName(), readObject));
                 } else {
@@ -284,12 +526,81 @@ public abstract class EnhanceUtils {
             }
         }
 
+        if (registration.getCompatibleIndex() < registration.getFields().length) {
+            builder.append(StringUtils.format("{}.resume();", StringDictionary.class.getName()));
+        }
         builder.append("if (length > 0) { $1.readerIndex(beforeReadIndex + length); }");
 
         builder.append("return packet;}");
         return builder.toString();
     }
 
+    /**
+     * 复用协议对象时，基础类型的集合直接清空之后重新填充，不需要再分配新的集合
+     */
+    private static String reuseReadMethod(IFieldRegistration fieldRegistration) {
+        if (fieldRegistration instanceof ListField listField && !listField.isDelta()) {
+            var element = listField.getListElementRegistration().serializer();
+            return element == IntSerializer.INSTANCE ? "readIntList" : element == LongSerializer.INSTANCE ? "readLongList" : null;
+        }
+        if (fieldRegistration instanceof SetField setField) {
+            var element = setField.getSetElementRegistration().serializer();
+            return element == IntSerializer.INSTANCE ? "readIntSet" : element == LongSerializer.INSTANCE ? "readLongSet" : null;
+        }
+        if (fieldRegistration instanceof MapField mapField) {
+            var key = mapField.getMapKeyRegistration().serializer();
+            var value = mapField.getMapValueRegistration().serializer();
+            var keyName = key == IntSerializer.INSTANCE ? "Int" : key == LongSerializer.INSTANCE ? "Long" : null;
+            var valueName = value == IntSerializer.INSTANCE ? "Int" : value == LongSerializer.INSTANCE ? "Long" : null;
+            return keyName == null || valueName == null ? null : StringUtils.format("read{}{}Map", keyName, valueName);
+        }
+        return null;
+    }
+
+    private static String reuseReadObject(StringBuilder builder, String reuseReadMethod, Class<?> packetClazz, Field field) {
+        var reuse = Modifier.isPublic(field.getModifiers())
+                ? StringUtils.format("packet.{}", field.getName())
+                : StringUtils.format("packet.{}()", FieldUtils.fieldToGetMethod(packetClazz, field));
+        var result = "result" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("{} {} = ({}) {}.{}($1, {});", field.getType().getCanonicalName(), result, field.getType().getCanonicalName(), byteBufUtils, reuseReadMethod, reuse));
+        return result;
+    }
+
+    /**
+     * 字段声明为HashMapIntInt这种基础类型的集合时，读出来的Map，Set，List需要强转之后才能赋值
+     */
+    private static String castFieldType(Field field, String readObject) {
+        if (PrimitiveCollectionUtils.isPrimitiveCollection(field.getType())) {
+            return StringUtils.format("(({}) {})", field.getType().getCanonicalName(), readObject);
+        }
+        return readObject;
+    }
+
+    /**
+     * int和long的集合读出来都是基础类型的集合，默认值也使用同样的类型，这样字段可以直接声明为HashMapIntInt，ArrayListInt这些类型
+     */
+    public static Class<?> primitiveCollectionClass(IFieldRegistration fieldRegistration) {
+        if (fieldRegistration instanceof ListField listField) {
+            var element = listField.getListElementRegistration().serializer();
+            return element == IntSerializer.INSTANCE ? ArrayListInt.class : element == LongSerializer.INSTANCE ? ArrayListLong.class : null;
+        }
+        if (fieldRegistration instanceof SetField setField) {
+            var element = setField.getSetElementRegistration().serializer();
+            return element == IntSerializer.INSTANCE ? HashSetInt.class : element == LongSerializer.INSTANCE ? HashSetLong.class : null;
+        }
+        if (fieldRegistration instanceof MapField mapField) {
+            var key = mapField.getMapKeyRegistration().serializer();
+            var value = mapField.getMapValueRegistration().serializer();
+            if (key == IntSerializer.INSTANCE) {
+                return value == IntSerializer.INSTANCE ? HashMapIntInt.class : value == LongSerializer.INSTANCE ? HashMapIntLong.class : null;
+            }
+            if (key == LongSerializer.INSTANCE) {
+                return value == IntSerializer.INSTANCE ? HashMapLongInt.class : value == LongSerializer.INSTANCE ? HashMapLongLong.class : null;
+            }
+        }
+        return null;
+    }
+
     public static String getProtocolRegistrationFieldNameByProtocolId(short id) {
         return StringUtils.format("{}{}", StringUtils.uncapitalize(ProtocolRegistration.class.getSimpleName()), id);
     }
@@ -33,6 +33,13 @@ public interface IProtocolRegistration {
      */
     void write(ByteBuf buffer, Object packet);
 
+    /**
+     * write写入这个协议需要的精确字节数，在序列化之前一次性分配好内存，避免ByteBuf扩容
+     * <p>
+     * 绑定了StringDictionary时，@Intern字符串实际写入的字节数可能会更少
+     */
+    int sizeOf(Object packet);
+
     /**
      * 反序列化
      */
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.registration;
+
+import com.zfoo.protocol.ProtocolManager;
+import com.zfoo.protocol.anno.Compatible;
+import com.zfoo.protocol.buffer.ByteBufUtils;
+import com.zfoo.protocol.buffer.StringDictionary;
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.registration.field.ObjectProtocolField;
+import com.zfoo.protocol.util.ReflectionUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+
+import static com.zfoo.protocol.ProtocolManager.MAX_PROTOCOL_NUM;
+
+/**
+ * EN: Lazy decoded packet. Reading only skips through the buffer and records the offset of every field,
+ * a field is decoded when it is got for the first time, and a nested protocol can also be got as a lazy packet.
+ * The lazy packet retains the buffer, release it after use. It is not thread safe.
+ * Getting by field name scans the field names every time, resolve the index once by fieldIndex() for hot fields.
+ * <p>
+ * CN: 延迟解码的协议，读取的时候只是跳过每个字段并且记录字段的位置，字段第一次被get的时候才会反序列化，嵌套的协议也可以继续延迟解码。
+ * 延迟解码的协议持有buffer的引用，使用完之后需要调用release释放，不是线程安全的。
+ * 按照字段名get每次都要遍历字段名查找，频繁访问的字段先用fieldIndex()取得下标保存起来，再按照下标get。
+ * 绑定了@Intern字典的时候会完整的反序列化，这时get通过反射读取字段。
+ *
+ * @author godotg
+ */
+public class LazyPacket {
+
+    /**
+     * 反射的协议注册信息，字节码增强之后依然需要字段信息来跳过和读取单个字段
+     */
+    private static final ProtocolRegistration[] registrations = new ProtocolRegistration[MAX_PROTOCOL_NUM];
+
+    private final ProtocolRegistration registration;
+
+    // 包括协议长度前缀的完整协议内容，为空代表协议已经被完整的反序列化
+    private final ByteBuf buffer;
+    private final boolean retained;
+
+    // 每个字段在buffer中的位置，-1代表兼容协议中不存在的字段
+    private final int[] offsets;
+    private final Object[] values;
+    private final boolean[] decoded;
+
+    private Object packet;
+
+    private LazyPacket(ProtocolRegistration registration, ByteBuf buffer, boolean retained, int[] offsets) {
+        this.registration = registration;
+        this.buffer = buffer;
+        this.retained = retained;
+        this.offsets = offsets;
+        this.values = new Object[offsets.length];
+        this.decoded = new boolean[offsets.length];
+    }
+
+    private LazyPacket(ProtocolRegistration registration, Object packet) {
+        this.registration = registration;
+        this.buffer = null;
+        this.retained = false;
+        this.offsets = null;
+        this.values = null;
+        this.decoded = null;
+        this.packet = packet;
+    }
+
+    public static void register(ProtocolRegistration registration) {
+        registrations[registration.protocolId()] = registration;
+    }
+
+    /**
+     * 从buffer中延迟读取一个协议，为空对象则返回null
+     */
+    public static LazyPacket read(ByteBuf buffer, short protocolId) {
+        return read(buffer, protocolId, true);
+    }
+
+    private static LazyPacket read(ByteBuf buffer, short protocolId, boolean retain) {
+        var registration = registrations[protocolId];
+        if (StringDictionary.current() != null) {
+            // 绑定了字典时@Intern字符串必须按照顺序读取，所以直接完整的反序列化
+            var packet = ProtocolManager.getProtocol(protocolId).read(buffer);
+            return packet == null ? null : new LazyPacket(registration, packet);
+        }
+
+        var startIndex = buffer.readerIndex();
+        var length = ByteBufUtils.readInt(buffer);
+        if (length == 0) {
+            return null;
+        }
+
+        var beforeReadIndex = buffer.readerIndex();
+        var fields = registration.getFields();
+        var fieldRegistrations = registration.getFieldRegistrations();
+        var offsets = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            // 协议向后兼容
+            if (fields[i].isAnnotationPresent(Compatible.class) && !ByteBufUtils.compatibleRead(buffer, beforeReadIndex, length)) {
+                offsets[i] = -1;
+                continue;
+            }
+            offsets[i] = buffer.readerIndex() - startIndex;
+            fieldRegistrations[i].serializer().skipObject(buffer, fieldRegistrations[i]);
+        }
+
+        if (length > 0) {
+            buffer.readerIndex(beforeReadIndex + length);
+        }
+
+        var packetLength = buffer.readerIndex() - startIndex;
+        var slice = retain ? buffer.retainedSlice(startIndex, packetLength) : buffer.slice(startIndex, packetLength);
+        return new LazyPacket(registration, slice, retain, offsets);
+    }
+
+    /**
+     * 跳过buffer中的一个协议，不需要反序列化出对象
+     */
+    public static void skip(ByteBuf buffer, short protocolId) {
+        if (StringDictionary.current() != null) {
+            // 跳过的字节里可能有新加入字典的@Intern字符串，只能完整的读取
+            ProtocolManager.getProtocol(protocolId).read(buffer);
+            return;
+        }
+        var length = ByteBufUtils.readInt(buffer);
+        if (length == 0) {
+            return;
+        }
+        // 兼容协议带有协议体的长度，直接跳过
+        if (length > 0) {
+            buffer.skipBytes(length);
+            return;
+        }
+        var registration = registrations[protocolId];
+        for (var fieldRegistration : registration.getFieldRegistrations()) {
+            fieldRegistration.serializer().skipObject(buffer, fieldRegistration);
+        }
+    }
+
+    public short protocolId() {
+        return registration.protocolId();
+    }
+
+    public Class<?> protocolClass() {
+        return registration.protocolConstructor().getDeclaringClass();
+    }
+
+    /**
+     * 字段在协议中的下标，和协议的序列化顺序一致，可以提前取出来保存在常量里给get(int)和getLazy(int)使用
+     */
+    public static int fieldIndex(Class<?> protocolClass, String fieldName) {
+        return indexOf(registrations[ProtocolManager.protocolId(protocolClass)], fieldName);
+    }
+
+    /**
+     * 获取一个字段的值，第一次获取的时候才会反序列化这个字段
+     */
+    public <T> T get(String fieldName) {
+        return get(indexOf(registration, fieldName));
+    }
+
+    /**
+     * 按照fieldIndex()取得的下标获取一个字段的值，不需要查找字段名
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(int index) {
+        if (packet != null) {
+            return (T) ReflectionUtils.getField(registration.getFields()[index], packet);
+        }
+        if (!decoded[index]) {
+            var fieldRegistration = registration.getFieldRegistrations()[index];
+            values[index] = offsets[index] < 0
+                    ? fieldRegistration.defaultValue()
+                    : fieldRegistration.serializer().readObject(bufferAt(offsets[index]), fieldRegistration);
+            decoded[index] = true;
+        }
+        return (T) values[index];
+    }
+
+    /**
+     * 获取一个嵌套协议字段的延迟解码协议，嵌套的协议共享当前协议的buffer，当前协议release之后不能再使用
+     */
+    public LazyPacket getLazy(String fieldName) {
+        return getLazy(indexOf(registration, fieldName));
+    }
+
+    public LazyPacket getLazy(int index) {
+        if (!(registration.getFieldRegistrations()[index] instanceof ObjectProtocolField objectProtocolField)) {
+            throw new RunException("[class:{}] [field:{}] is not a protocol", protocolClass().getCanonicalName(), registration.getFields()[index].getName());
+        }
+        var protocolId = objectProtocolField.getProtocolId();
+        if (packet != null) {
+            var value = ReflectionUtils.getField(registration.getFields()[index], packet);
+            return value == null ? null : new LazyPacket(registrations[protocolId], value);
+        }
+        if (offsets[index] < 0) {
+            return null;
+        }
+        return read(bufferAt(offsets[index]), protocolId, false);
+    }
+
+    /**
+     * 完整的反序列化出协议对象
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T toPacket() {
+        if (packet == null) {
+            packet = ProtocolManager.getProtocol(registration.protocolId()).read(bufferAt(0));
+        }
+        return (T) packet;
+    }
+
+    public void release() {
+        if (retained) {
+            ReferenceCountUtil.release(buffer);
+        }
+    }
+
+    /**
+     * 从offset开始的视图，不能使用duplicate，池化的slice调用duplicate得到的是原始buffer的视图，下标不是相对于slice的
+     */
+    private ByteBuf bufferAt(int offset) {
+        return buffer.slice(offset, buffer.writerIndex() - offset);
+    }
+
+    private static int indexOf(ProtocolRegistration registration, String fieldName) {
+        var fields = registration.getFields();
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].getName().equals(fieldName)) {
+                return i;
+            }
+        }
+        throw new RunException("[class:{}] has no serializable [field:{}]", registration.protocolConstructor().getDeclaringClass().getCanonicalName(), fieldName);
+    }
+
+}
@@ -14,9 +14,14 @@ package com.zfoo.protocol.registration;
 
 import com.zfoo.protocol.ProtocolManager;
 import com.zfoo.protocol.anno.Compatible;
+import com.zfoo.protocol.anno.Delta;
+import com.zfoo.protocol.anno.Intern;
 import com.zfoo.protocol.anno.Protocol;
+import com.zfoo.protocol.collection.ArrayListInt;
+import com.zfoo.protocol.collection.ArrayListLong;
 import com.zfoo.protocol.collection.ArrayUtils;
 import com.zfoo.protocol.collection.CollectionUtils;
+import com.zfoo.protocol.collection.PrimitiveCollectionUtils;
 import com.zfoo.protocol.exception.RunException;
 import com.zfoo.protocol.exception.UnknownException;
 import com.zfoo.protocol.generate.GenerateOperation;
@@ -31,6 +36,10 @@ import javassist.NotFoundException;
 import java.io.IOException;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.zfoo.protocol.ProtocolManager.*;
 
@@ -75,6 +84,18 @@ public class ProtocolAnalysis {
      */
     private static Map<Class<?>, ISerializer> baseSerializerMap = new HashMap<>(128);
 
+    /**
+     * EN: Protocol enhancement is compiled by multiple threads when the number of enhanced protocols exceeds this batch size
+     * CN: 每个线程至少编译的增强协议数量，增强的协议比较少的时候创建线程反而更慢，直接单线程编译
+     */
+    private static final int ENHANCE_BATCH_SIZE = 32;
+
+    /**
+     * EN: Time spent in each phase of the protocol initialization
+     * CN: 协议初始化各个阶段的耗时
+     */
+    private static final ProtocolStartupMetrics startupMetrics = new ProtocolStartupMetrics();
+
     static {
         // 初始化基础类型序列化器
         baseSerializerMap.put(boolean.class, BoolSerializer.INSTANCE);
@@ -99,6 +120,7 @@ public class ProtocolAnalysis {
      */
     public static synchronized void analyze(Set<Class<?>> protocolClassSet, GenerateOperation generateOperation) {
         AssertionUtils.notNull(subProtocolIdMap, "[{}] initialization has already been completed, please do not repeat the initialization", ProtocolManager.class.getSimpleName());
+        var startTime = System.currentTimeMillis();
         // 检查协议类是否合法
         for (var protocolClass : protocolClassSet) {
             var protocolId = getProtocolIdAndCheckClass(protocolClass);
@@ -108,17 +130,19 @@ public class ProtocolAnalysis {
 
         // 协议id和协议信息对应起来
         for (var protocolClass : protocolClassSet) {
-            var registration = parseProtocolRegistration(protocolClass, ProtocolModule.DEFAULT_PROTOCOL_MODULE);
+            var registration = parseProtocolRegistration(protocolClass, ProtocolModule.DEFAULT_PROTOCOL_MODULE, generateOperation);
             protocols[registration.protocolId()] = registration;
         }
 
         // 通过指定类注册的协议，全部使用字节码增强
         var enhanceList = Arrays.stream(protocols).filter(Objects::nonNull).toList();
+        startupMetrics.setAnalyzeTime(System.currentTimeMillis() - startTime);
         enhance(generateOperation, enhanceList);
     }
 
     public static synchronized void analyzeAuto(List<Class<?>> protocolClassList, GenerateOperation generateOperation) {
         AssertionUtils.notNull(subProtocolIdMap, "[{}] initialization has already been completed, please do not repeat the initialization", ProtocolManager.class.getSimpleName());
+        var startTime = System.currentTimeMillis();
         var relevantClassSet = new LinkedHashSet<Class<?>>(protocolClassList);
         for (var clazz : protocolClassList) {
             relevantClassSet.addAll(ClassUtils.relevantClass(clazz));
@@ -150,12 +174,13 @@ public class ProtocolAnalysis {
 
         // 协议id和协议信息对应起来
         for (var protocolClass : relevantClassSet) {
-            var registration = parseProtocolRegistration(protocolClass, ProtocolModule.DEFAULT_PROTOCOL_MODULE);
+            var registration = parseProtocolRegistration(protocolClass, ProtocolModule.DEFAULT_PROTOCOL_MODULE, generateOperation);
             protocols[registration.protocolId()] = registration;
         }
 
         // 通过指定类注册的协议，全部使用字节码增强
         var enhanceList = Arrays.stream(protocols).filter(Objects::nonNull).toList();
+        startupMetrics.setAnalyzeTime(System.currentTimeMillis() - startTime);
         enhance(generateOperation, enhanceList);
     }
 
@@ -165,6 +190,7 @@ public class ProtocolAnalysis {
      */
     public static synchronized void analyze(XmlProtocols xmlProtocols, GenerateOperation generateOperation) {
         AssertionUtils.notNull(subProtocolIdMap, "[{}] initialization has already been completed, please do not repeat the initialization", ProtocolManager.class.getSimpleName());
+        var startTime = System.currentTimeMillis();
 
         var protocolXmlEnhanceMap = new HashMap<Class<?>, Boolean>();
         var classModuleDefinitionMap = new HashMap<Class<?>, Byte>();
@@ -281,7 +307,7 @@ public class ProtocolAnalysis {
             }
             for (Class<?> clazz : packetClazzList) {
                 var protocolId = ProtocolManager.protocolId(clazz);
-                var registration = parseProtocolRegistration(clazz, module);
+                var registration = parseProtocolRegistration(clazz, module, generateOperation);
                 // Protocol注解或者xml任意一个定义了增强协议，那么就增强协议
                 if ((clazz.isAnnotationPresent(Protocol.class) && clazz.getAnnotation(Protocol.class).enhance()) || protocolXmlEnhanceMap.get(clazz)) {
                     enhanceList.add(registration);
@@ -291,6 +317,7 @@ public class ProtocolAnalysis {
             }
         }
 
+        startupMetrics.setAnalyzeTime(System.currentTimeMillis() - startTime);
         enhance(generateOperation, enhanceList);
     }
 
@@ -316,34 +343,84 @@ public class ProtocolAnalysis {
     public static void enhance(GenerateOperation generateOperation, List<IProtocolRegistration> enhanceList) {
         try {
             enhanceProtocolBefore(generateOperation);
-            enhanceProtocolRegistration(enhanceList);
+            enhanceProtocolRegistration(generateOperation, enhanceList);
             enhanceProtocolAfter(generateOperation);
         } catch (Exception e) {
             throw new UnknownException(e);
         }
     }
 
+    public static ProtocolStartupMetrics startupMetrics() {
+        return startupMetrics;
+    }
+
     private static void enhanceProtocolBefore(GenerateOperation generateOperation) throws IOException, ClassNotFoundException {
         // 检查协议格式
         checkAllProtocolClass();
         // 检查模块格式
         checkAllModules();
         // 生成协议
+        var startTime = System.currentTimeMillis();
         GenerateProtocolFile.generate(generateOperation);
+        startupMetrics.setGenerateTime(System.currentTimeMillis() - startTime);
+        startupMetrics.setProtocolCount((int) Arrays.stream(protocols).filter(Objects::nonNull).count());
     }
 
-    private static void enhanceProtocolRegistration(List<IProtocolRegistration> enhanceList) throws NoSuchMethodException, IllegalAccessException, InstantiationException, CannotCompileException, NotFoundException, InvocationTargetException, NoSuchFieldException {
+    private static void enhanceProtocolRegistration(GenerateOperation generateOperation, List<IProtocolRegistration> enhanceList) throws NoSuchMethodException, IllegalAccessException, InstantiationException, CannotCompileException, NotFoundException, InvocationTargetException, NoSuchFieldException {
+        // 生成增强类的源代码，GenerateProtocolFile.localVariableId是静态变量，只能单线程生成
+        var startTime = System.currentTimeMillis();
+        var sources = new ArrayList<EnhanceUtils.ProtocolSource>(enhanceList.size());
+        for (var registration : enhanceList) {
+            sources.add(EnhanceUtils.protocolSource((ProtocolRegistration) registration));
+        }
+        // 编译期生成增强类的java源文件
+        if (StringUtils.isNotBlank(generateOperation.getEnhanceSourcePath())) {
+            for (var source : sources) {
+                EnhanceUtils.writeJavaSource(generateOperation.getEnhanceSourcePath(), source);
+            }
+        }
+        startupMetrics.setEnhanceSourceTime(System.currentTimeMillis() - startTime);
+
+        // 优先加载编译期生成的增强类，没有或者已经过期的增强类才需要使用javassist编译
+        startTime = System.currentTimeMillis();
+        var compileSources = new ArrayList<EnhanceUtils.ProtocolSource>();
+        for (var source : sources) {
+            var enhanceRegistration = EnhanceUtils.loadProtocolRegistration(source);
+            if (enhanceRegistration == null) {
+                compileSources.add(source);
+            } else {
+                protocols[source.protocolId()] = enhanceRegistration;
+            }
+        }
+        startupMetrics.setEnhanceLoadCount(sources.size() - compileSources.size());
+
+        // GraalVM不能在运行时生成类，使用反射的ProtocolRegistration
         if (GraalVmUtils.isGraalVM()) {
-            return;
+            compileSources.clear();
         }
-        // 字节码增强
-        for (var registration : enhanceList) {
-            protocols[registration.protocolId()] = EnhanceUtils.createProtocolRegistration((ProtocolRegistration) registration);
+
+        // 字节码增强，编译增强类比较耗时，协议多的时候每个线程使用独立的ClassPool并行编译
+        var threadNum = generateOperation.getEnhanceThreads() > 0
+                ? Math.min(generateOperation.getEnhanceThreads(), compileSources.size())
+                : Math.min(Runtime.getRuntime().availableProcessors(), compileSources.size() / ENHANCE_BATCH_SIZE);
+        if (threadNum <= 1) {
+            threadNum = 1;
+            for (var source : compileSources) {
+                protocols[source.protocolId()] = EnhanceUtils.createProtocolRegistration(EnhanceUtils.defaultClassPool(), source);
+            }
+        } else {
+            enhanceProtocolRegistrationParallel(compileSources, threadNum);
         }
+        startupMetrics.setEnhanceCompileTime(System.currentTimeMillis() - startTime);
+        startupMetrics.setEnhanceCount(sources.size());
+        startupMetrics.setEnhanceThreads(threadNum);
 
         // 字节码增强过后，初始化各个子协议成员变量
         for (var registration : enhanceList) {
             var enhanceProtocolRegistration = protocols[registration.protocolId()];
+            if (enhanceProtocolRegistration instanceof ProtocolRegistration) {
+                continue;
+            }
             var subProtocolIds = getAllSubProtocolIds(registration.protocolId());
             for (var subProtocolId : subProtocolIds) {
                 var protocolRegistrationField = enhanceProtocolRegistration.getClass().getDeclaredField(EnhanceUtils.getProtocolRegistrationFieldNameByProtocolId(subProtocolId));
@@ -353,6 +430,35 @@ public class ProtocolAnalysis {
         }
     }
 
+    private static void enhanceProtocolRegistrationParallel(List<EnhanceUtils.ProtocolSource> sources, int threadNum) {
+        var executor = Executors.newFixedThreadPool(threadNum);
+        try {
+            var index = new AtomicInteger(0);
+            var futures = new ArrayList<Future<?>>(threadNum);
+            for (var i = 0; i < threadNum; i++) {
+                futures.add(executor.submit(() -> {
+                    var classPool = EnhanceUtils.newClassPool();
+                    for (var j = index.getAndIncrement(); j < sources.size(); j = index.getAndIncrement()) {
+                        var source = sources.get(j);
+                        // 每个线程写入不同的协议号，不会冲突
+                        protocols[source.protocolId()] = EnhanceUtils.createProtocolRegistration(classPool, source);
+                    }
+                    return null;
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new RunException("parallel protocol enhancement exception", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RunException("parallel protocol enhancement interrupted", e);
+        } finally {
+            ThreadUtils.shutdown(executor);
+        }
+    }
+
     private static void enhanceProtocolAfter(GenerateOperation generateOperation) {
         var distinctHashcode = protocolIdMap.keySet().stream().map(Object::hashCode).distinct().count();
         if (distinctHashcode == protocolIdMap.size()) {
@@ -424,16 +530,29 @@ public class ProtocolAnalysis {
     }
 
     public static ProtocolRegistration parseProtocolRegistration(Class<?> clazz, ProtocolModule module) {
+        return parseProtocolRegistration(clazz, module, GenerateOperation.NO_OPERATION);
+    }
+
+    public static ProtocolRegistration parseProtocolRegistration(Class<?> clazz, ProtocolModule module, GenerateOperation generateOperation) {
         var protocolId = ProtocolManager.protocolId(clazz);
         var declaredFields = getFields(clazz);
         // 对象需要被序列化的属性
         var fields = customFieldOrder(clazz, declaredFields);
 
+        var protocol = clazz.getDeclaredAnnotation(Protocol.class);
+        if (protocol != null && protocol.recycle()) {
+            if (clazz.isRecord()) {
+                // record的字段不可变，不能被复用
+                throw new RunException("[class:{}] is a record, @Protocol(recycle = true) can not be used on record", clazz.getCanonicalName());
+            }
+            ProtocolRecycler.register(protocolId);
+        }
+
         try {
             var registrationList = new ArrayList<IFieldRegistration>();
             boolean isRecord = clazz.isRecord();
             for (var field : fields) {
-                registrationList.add(toRegistration(clazz, field));
+                registrationList.add(toRegistration(clazz, field, generateOperation));
             }
 
             Constructor<?> constructor;
@@ -444,33 +563,54 @@ public class ProtocolAnalysis {
             }
 
             ReflectionUtils.makeAccessible(constructor);
-            return new ProtocolRegistration(protocolId, module.getId(), constructor, ArrayUtils.listToArray(fields, Field.class), ArrayUtils.listToArray(registrationList, IFieldRegistration.class));
+            var registration = new ProtocolRegistration(protocolId, module.getId(), constructor, ArrayUtils.listToArray(fields, Field.class), ArrayUtils.listToArray(registrationList, IFieldRegistration.class));
+            // 版本化的协议都写入长度，读取的时候一直都会跳过不认识的部分，所以和非版本化的节点也可以互相读取
+            // 没有字段的协议长度为0，和空对象冲突，依然使用-1
+            if (generateOperation.isVersionedProtocol() && !fields.isEmpty()) {
+                registration.setCompatible(true);
+            }
+            LazyPacket.register(registration);
+            return registration;
         } catch (Exception e) {
             throw new RuntimeException(StringUtils.format("Resolve protocol [class:{}] exception", clazz), e);
         }
     }
 
-    private static IFieldRegistration toRegistration(Class<?> clazz, Field field) {
+    private static IFieldRegistration toRegistration(Class<?> clazz, Field field, GenerateOperation generateOperation) {
         Class<?> fieldTypeClazz = field.getType();
 
         ISerializer serializer = baseSerializerMap.get(fieldTypeClazz);
 
+        if (field.isAnnotationPresent(Intern.class) && serializer != StringSerializer.INSTANCE) {
+            // Intern注解只能用在String类型的字段上
+            throw new RunException("[class:{}] [field:{}] is not a String, @Intern can only be used on String field", clazz.getCanonicalName(), field.getName());
+        }
+
+        var delta = field.isAnnotationPresent(Delta.class);
+        if (delta && !isDeltaType(field)) {
+            // Delta注解只能用在int和long的数组或者列表上
+            throw new RunException("[class:{}] [field:{}] @Delta can only be used on int[], long[], List<Integer>, List<Long>, ArrayListInt or ArrayListLong field", clazz.getCanonicalName(), field.getName());
+        }
+
         // 是一个基本类型变量
         if (serializer != null) {
+            if (serializer == StringSerializer.INSTANCE && (field.isAnnotationPresent(Intern.class) || generateOperation.isInternString())) {
+                return InternStringField.INSTANCE;
+            }
             return BaseField.valueOf(serializer);
         } else if (fieldTypeClazz.isArray()) {
             // 是一个数组
             Class<?> arrayClazz = fieldTypeClazz.getComponentType();
 
             IFieldRegistration registration = typeToRegistration(clazz, arrayClazz);
-            return ArrayField.valueOf(registration, field.getType().getComponentType());
+            return ArrayField.valueOf(registration, field.getType().getComponentType(), delta);
         } else if (Set.class.isAssignableFrom(fieldTypeClazz)) {
-            if (!fieldTypeClazz.equals(Set.class)) {
-                // 必须是Set接口类型
-                throw new RunException("[class:{}] type declaration is incorrect, it must be of the Set interface type", clazz.getCanonicalName());
+            if (!fieldTypeClazz.equals(Set.class) && !PrimitiveCollectionUtils.isPrimitiveCollection(fieldTypeClazz)) {
+                // 必须是Set接口类型，或者HashSetInt这种基础类型的Set
+                throw new RunException("[class:{}] type declaration is incorrect, it must be of the Set interface type or HashSetInt, HashSetLong", clazz.getCanonicalName());
             }
 
-            Type type = field.getGenericType();
+            Type type = PrimitiveCollectionUtils.genericType(field);
 
             if (!(type instanceof ParameterizedType)) {
                 // 必须是泛型类
@@ -488,12 +628,12 @@ public class ProtocolAnalysis {
             return SetField.valueOf(registration, type);
         } else if (List.class.isAssignableFrom(fieldTypeClazz)) {
             // 是一个List
-            if (!fieldTypeClazz.equals(List.class)) {
-                // 必须是List接口类型
-                throw new RunException("[class:{}] type declaration is incorrect, it must be a List interface type", clazz.getCanonicalName());
+            if (!fieldTypeClazz.equals(List.class) && !PrimitiveCollectionUtils.isPrimitiveCollection(fieldTypeClazz)) {
+                // 必须是List接口类型，或者ArrayListInt这种基础类型的List
+                throw new RunException("[class:{}] type declaration is incorrect, it must be a List interface type or ArrayListInt, ArrayListLong", clazz.getCanonicalName());
             }
 
-            Type type = field.getGenericType();
+            Type type = PrimitiveCollectionUtils.genericType(field);
 
             if (!(type instanceof ParameterizedType)) {
                 // List类型必须声明泛型类
@@ -508,15 +648,15 @@ public class ProtocolAnalysis {
             }
 
             IFieldRegistration registration = typeToRegistration(clazz, types[0]);
-            return ListField.valueOf(registration, type);
+            return ListField.valueOf(registration, type, delta);
 
         } else if (Map.class.isAssignableFrom(fieldTypeClazz)) {
-            if (!fieldTypeClazz.equals(Map.class)) {
-                // 必须是Map接口类型
-                throw new RunException("[class:{}] type declaration is incorrect, it must be a Map interface type", clazz.getCanonicalName());
+            if (!fieldTypeClazz.equals(Map.class) && !PrimitiveCollectionUtils.isPrimitiveCollection(fieldTypeClazz)) {
+                // 必须是Map接口类型，或者HashMapIntInt这种基础类型的Map
+                throw new RunException("[class:{}] type declaration is incorrect, it must be a Map interface type or HashMapIntInt, HashMapIntLong, HashMapLongInt, HashMapLongLong", clazz.getCanonicalName());
             }
 
-            Type type = field.getGenericType();
+            Type type = PrimitiveCollectionUtils.genericType(field);
 
             if (!(type instanceof ParameterizedType)) {
                 // Map类型必须声明泛型类
@@ -674,6 +814,21 @@ public class ProtocolAnalysis {
         return protocolId;
     }
 
+    private static boolean isDeltaType(Field field) {
+        var fieldTypeClazz = field.getType();
+        if (fieldTypeClazz == int[].class || fieldTypeClazz == long[].class) {
+            return true;
+        }
+        if (fieldTypeClazz == ArrayListInt.class || fieldTypeClazz == ArrayListLong.class) {
+            return true;
+        }
+        if (fieldTypeClazz.equals(List.class) && field.getGenericType() instanceof ParameterizedType parameterizedType) {
+            var elementType = parameterizedType.getActualTypeArguments()[0];
+            return elementType == Integer.class || elementType == Long.class;
+        }
+        return false;
+    }
+
     private static void checkUnsupportedType(Class<?> clazz) {
         if (clazz.isEnum()) {
             throw new RunException("[{}] enum is not supported, since other language not support enum", clazz.getSimpleName());
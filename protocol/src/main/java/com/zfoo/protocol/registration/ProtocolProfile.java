@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.registration;
+
+import com.zfoo.protocol.ProtocolManager;
+
+/**
+ * EN: Snapshot of the serialization statistics of one protocol, see ProtocolProfiler. Sizes include the 2 bytes of protocolId, times are in nanoseconds.
+ * CN: 一个协议的序列化统计快照，字节数包含协议号的2个字节，时间单位纳秒
+ *
+ * @author godotg
+ */
+public class ProtocolProfile {
+
+    private short protocolId;
+
+    private long writeCount;
+    private long writeBytes;
+    private long writeNanos;
+
+    private long readCount;
+    private long readBytes;
+    private long readNanos;
+
+    // 编码和解码的字节数都统计在sizeHistogram，第i个桶是[2^(i-1), 2^i)
+    private long[] sizeHistogram;
+    private long[] writeTimeHistogram;
+    private long[] readTimeHistogram;
+
+    public static ProtocolProfile valueOf(short protocolId, long writeCount, long writeBytes, long writeNanos
+            , long readCount, long readBytes, long readNanos
+            , long[] sizeHistogram, long[] writeTimeHistogram, long[] readTimeHistogram) {
+        var profile = new ProtocolProfile();
+        profile.protocolId = protocolId;
+        profile.writeCount = writeCount;
+        profile.writeBytes = writeBytes;
+        profile.writeNanos = writeNanos;
+        profile.readCount = readCount;
+        profile.readBytes = readBytes;
+        profile.readNanos = readNanos;
+        profile.sizeHistogram = sizeHistogram;
+        profile.writeTimeHistogram = writeTimeHistogram;
+        profile.readTimeHistogram = readTimeHistogram;
+        return profile;
+    }
+
+    public String protocolName() {
+        var protocol = ProtocolManager.protocols[protocolId];
+        return protocol == null ? String.valueOf(protocolId) : protocol.protocolConstructor().getDeclaringClass().getSimpleName();
+    }
+
+    public long totalBytes() {
+        return writeBytes + readBytes;
+    }
+
+    /**
+     * 字节数的近似百分位数，percentile的范围是(0, 1]，比如0.99
+     */
+    public long sizePercentile(double percentile) {
+        return percentile(sizeHistogram, percentile);
+    }
+
+    public long writeTimePercentile(double percentile) {
+        return percentile(writeTimeHistogram, percentile);
+    }
+
+    public long readTimePercentile(double percentile) {
+        return percentile(readTimeHistogram, percentile);
+    }
+
+    private static long percentile(long[] histogram, double percentile) {
+        var total = 0L;
+        for (var count : histogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        var rank = (long) Math.ceil(total * percentile);
+        var accumulate = 0L;
+        for (var i = 0; i < histogram.length; i++) {
+            accumulate += histogram[i];
+            if (accumulate >= rank) {
+                return ProtocolProfiler.bucketUpperBound(i);
+            }
+        }
+        return ProtocolProfiler.bucketUpperBound(histogram.length - 1);
+    }
+
+    public short getProtocolId() {
+        return protocolId;
+    }
+
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    public long getWriteBytes() {
+        return writeBytes;
+    }
+
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    public long getReadCount() {
+        return readCount;
+    }
+
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    public long getReadNanos() {
+        return readNanos;
+    }
+
+    public long[] getSizeHistogram() {
+        return sizeHistogram;
+    }
+
+    public long[] getWriteTimeHistogram() {
+        return writeTimeHistogram;
+    }
+
+    public long[] getReadTimeHistogram() {
+        return readTimeHistogram;
+    }
+
+    @Override
+    public String toString() {
+        return "ProtocolProfile{" +
+                "protocol=" + protocolName() +
+                ", id=" + protocolId +
+                ", write=" + writeCount +
+                ", writeBytes=" + writeBytes +
+                ", read=" + readCount +
+                ", readBytes=" + readBytes +
+                ", sizeP50=" + sizePercentile(0.5) +
+                ", sizeP99=" + sizePercentile(0.99) +
+                ", writeP50=" + writeTimePercentile(0.5) + "ns" +
+                ", writeP99=" + writeTimePercentile(0.99) + "ns" +
+                ", readP50=" + readTimePercentile(0.5) + "ns" +
+                ", readP99=" + readTimePercentile(0.99) + "ns" +
+                '}';
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.registration;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.zfoo.protocol.ProtocolManager.MAX_PROTOCOL_NUM;
+
+/**
+ * EN: Per protocol serialization profiler, records the call count, the encoded size histogram and the encode/decode time histogram
+ * of ProtocolManager.write and ProtocolManager.read. Disabled by default, enable it with -Dzfoo.protocol.profiler=true or enable().
+ * <p>
+ * CN: 协议序列化的性能统计，按协议号记录ProtocolManager.write和read的调用次数，序列化后字节大小的分布，编解码耗时的分布。
+ * 默认关闭，关闭的时候只多了一次volatile读；开启后使用LongAdder分段计数，多个io线程同时统计也不会竞争同一个变量。
+ * 直方图的桶按2的幂次划分，所以百分位数是近似值（所在桶的上界）
+ *
+ * @author godotg
+ */
+public abstract class ProtocolProfiler {
+
+    // 第i个桶统计[2^(i-1), 2^i)范围内的值，第0个桶统计0
+    public static final int SIZE_BUCKETS = Integer.SIZE + 1;
+    public static final int TIME_BUCKETS = Long.SIZE + 1;
+
+    private static volatile boolean enable = Boolean.parseBoolean(System.getProperty("zfoo.protocol.profiler", "false"));
+
+    private static final Counter[] counters = new Counter[MAX_PROTOCOL_NUM];
+
+    private static class Counter {
+        private final LongAdder writeCount = new LongAdder();
+        private final LongAdder writeBytes = new LongAdder();
+        private final LongAdder writeNanos = new LongAdder();
+        private final LongAdder readCount = new LongAdder();
+        private final LongAdder readBytes = new LongAdder();
+        private final LongAdder readNanos = new LongAdder();
+        private final LongAdder[] sizeHistogram = newAdders(SIZE_BUCKETS);
+        private final LongAdder[] writeTimeHistogram = newAdders(TIME_BUCKETS);
+        private final LongAdder[] readTimeHistogram = newAdders(TIME_BUCKETS);
+    }
+
+    public static boolean isEnable() {
+        return enable;
+    }
+
+    public static void enable() {
+        enable = true;
+    }
+
+    public static void disable() {
+        enable = false;
+    }
+
+    /**
+     * 清空所有的统计数据，开关状态不变
+     */
+    public static synchronized void reset() {
+        for (var i = 0; i < counters.length; i++) {
+            counters[i] = null;
+        }
+    }
+
+    public static void recordWrite(short protocolId, int bytes, long nanos) {
+        var counter = counter(protocolId);
+        counter.writeCount.increment();
+        counter.writeBytes.add(bytes);
+        counter.writeNanos.add(nanos);
+        counter.sizeHistogram[sizeBucket(bytes)].increment();
+        counter.writeTimeHistogram[timeBucket(nanos)].increment();
+    }
+
+    public static void recordRead(short protocolId, int bytes, long nanos) {
+        var counter = counter(protocolId);
+        counter.readCount.increment();
+        counter.readBytes.add(bytes);
+        counter.readNanos.add(nanos);
+        counter.sizeHistogram[sizeBucket(bytes)].increment();
+        counter.readTimeHistogram[timeBucket(nanos)].increment();
+    }
+
+    /**
+     * 某个协议的统计快照，没有统计数据返回null
+     */
+    public static ProtocolProfile profile(short protocolId) {
+        var counter = counters[protocolId];
+        return counter == null ? null : snapshot(protocolId, counter);
+    }
+
+    /**
+     * 所有有统计数据的协议的快照，按照编解码的总字节数从大到小排序
+     */
+    public static List<ProtocolProfile> profiles() {
+        var list = new ArrayList<ProtocolProfile>();
+        for (var i = 0; i < counters.length; i++) {
+            var counter = counters[i];
+            if (counter != null) {
+                list.add(snapshot((short) i, counter));
+            }
+        }
+        list.sort(Comparator.comparingLong(ProtocolProfile::totalBytes).reversed());
+        return list;
+    }
+
+    private static Counter counter(short protocolId) {
+        var counter = counters[protocolId];
+        if (counter != null) {
+            return counter;
+        }
+        synchronized (ProtocolProfiler.class) {
+            if (counters[protocolId] == null) {
+                counters[protocolId] = new Counter();
+            }
+            return counters[protocolId];
+        }
+    }
+
+    private static ProtocolProfile snapshot(short protocolId, Counter counter) {
+        return ProtocolProfile.valueOf(protocolId
+                , counter.writeCount.sum(), counter.writeBytes.sum(), counter.writeNanos.sum()
+                , counter.readCount.sum(), counter.readBytes.sum(), counter.readNanos.sum()
+                , sums(counter.sizeHistogram), sums(counter.writeTimeHistogram), sums(counter.readTimeHistogram));
+    }
+
+    static int sizeBucket(int value) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(value, 0));
+    }
+
+    static int timeBucket(long value) {
+        return Long.SIZE - Long.numberOfLeadingZeros(Math.max(value, 0L));
+    }
+
+    /**
+     * 桶的上界
+     */
+    static long bucketUpperBound(int bucket) {
+        return bucket >= Long.SIZE ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    private static LongAdder[] newAdders(int length) {
+        var adders = new LongAdder[length];
+        for (var i = 0; i < length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        var values = new long[adders.length];
+        for (var i = 0; i < adders.length; i++) {
+            values[i] = adders[i].sum();
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.registration;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.Queue;
+
+import static com.zfoo.protocol.ProtocolManager.MAX_PROTOCOL_NUM;
+
+/**
+ * EN: Object pool of the protocols with @Protocol(recycle = true).
+ * The packet is decoded in the io thread and released in the task thread, so a bounded lock free mpmc queue is used for every protocol.
+ * <p>
+ * CN: @Protocol(recycle = true)协议的对象池，协议在io线程解码，在task线程回收，所以每个协议使用一个有界的无锁多生产者多消费者队列
+ *
+ * @author godotg
+ */
+public abstract class ProtocolRecycler {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    @SuppressWarnings("unchecked")
+    private static final Queue<Object>[] pools = new Queue[MAX_PROTOCOL_NUM];
+
+    public static void register(short protocolId) {
+        if (pools[protocolId] == null) {
+            pools[protocolId] = PlatformDependent.newFixedMpmcQueue(DEFAULT_CAPACITY);
+        }
+    }
+
+    public static boolean isRecycle(short protocolId) {
+        return pools[protocolId] != null;
+    }
+
+    /**
+     * 获取一个回收的协议对象，池中没有则返回null
+     */
+    public static Object obtain(short protocolId) {
+        var pool = pools[protocolId];
+        return pool == null ? null : pool.poll();
+    }
+
+    public static void release(short protocolId, Object packet) {
+        var pool = pools[protocolId];
+        if (pool == null || packet == null) {
+            return;
+        }
+        // 池满了直接丢弃，交给gc回收
+        pool.offer(packet);
+    }
+
+}
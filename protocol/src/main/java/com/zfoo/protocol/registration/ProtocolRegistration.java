@@ -14,7 +14,9 @@
 package com.zfoo.protocol.registration;
 
 import com.zfoo.protocol.anno.Compatible;
+import com.zfoo.protocol.anno.Protocol;
 import com.zfoo.protocol.buffer.ByteBufUtils;
+import com.zfoo.protocol.buffer.StringDictionary;
 import com.zfoo.protocol.registration.field.IFieldRegistration;
 import com.zfoo.protocol.serializer.reflect.ISerializer;
 import com.zfoo.protocol.util.ReflectionUtils;
@@ -43,6 +45,11 @@ public class ProtocolRegistration implements IProtocolRegistration {
     // 兼容相关
     private boolean compatible;
     private int predictionLength;
+    // 第一个@Compatible字段的下标，@Compatible字段都排在最后，没有则为字段的数量
+    private int compatibleIndex;
+
+    // 反序列化时是否复用回收的协议对象
+    private boolean recycle;
 
     public ProtocolRegistration(short id, byte module, Constructor<?> constructor, Field[] fields, IFieldRegistration[] fieldRegistrations) {
         this.id = id;
@@ -52,7 +59,17 @@ public class ProtocolRegistration implements IProtocolRegistration {
         this.fieldRegistrations = fieldRegistrations;
 
         this.compatible = Arrays.stream(fields).anyMatch(it -> it.isAnnotationPresent(Compatible.class));
+        this.compatibleIndex = fields.length;
+        for (var i = 0; i < fields.length; i++) {
+            if (fields[i].isAnnotationPresent(Compatible.class)) {
+                this.compatibleIndex = i;
+                break;
+            }
+        }
         this.predictionLength = Arrays.stream(fieldRegistrations).mapToInt(it -> it.predictionLength()).sum();
+
+        var protocol = constructor.getDeclaringClass().getDeclaredAnnotation(Protocol.class);
+        this.recycle = protocol != null && protocol.recycle();
     }
 
     @Override
@@ -78,9 +95,11 @@ public class ProtocolRegistration implements IProtocolRegistration {
             return;
         }
 
-        var beforeWriteIndex = byteBuf.writerIndex();
+        var beforeWriteIndex = -1;
 
+        // 预留协议体长度的位置，写完之后再调整，嵌套的协议不需要先遍历一遍计算长度
         if (compatible) {
+            beforeWriteIndex = byteBuf.writerIndex();
             ByteBufUtils.writeInt(byteBuf, predictionLength);
         } else {
             // equals with ByteBufUtils.writeInt(byteBuf, -1);
@@ -88,19 +107,40 @@ public class ProtocolRegistration implements IProtocolRegistration {
         }
 
         for (int i = 0, length = fields.length; i < length; i++) {
+            if (i == compatibleIndex) {
+                // 旧版本的读取方会跳过@Compatible字段，不能使用字符串字典
+                StringDictionary.suspend();
+            }
             Field field = fields[i];
             IFieldRegistration packetFieldRegistration = fieldRegistrations[i];
             ISerializer serializer = packetFieldRegistration.serializer();
             Object fieldValue = ReflectionUtils.getField(field, packet);
             serializer.writeObject(byteBuf, fieldValue, packetFieldRegistration);
         }
+        if (compatibleIndex < fields.length) {
+            StringDictionary.resume();
+        }
 
-        if (compatible) {
+        if (beforeWriteIndex >= 0) {
             // 因为写入的是可变长的int，如果预留的位置过多，则清除多余的位置
             ByteBufUtils.adjustPadding(byteBuf, predictionLength, beforeWriteIndex);
         }
     }
 
+    @Override
+    public int sizeOf(Object packet) {
+        if (packet == null) {
+            return 1;
+        }
+        var bodyLength = 0;
+        for (int i = 0, length = fields.length; i < length; i++) {
+            IFieldRegistration packetFieldRegistration = fieldRegistrations[i];
+            Object fieldValue = ReflectionUtils.getField(fields[i], packet);
+            bodyLength += packetFieldRegistration.serializer().sizeOf(fieldValue, packetFieldRegistration);
+        }
+        return compatible ? ByteBufUtils.writeIntCount(bodyLength) + bodyLength : 1 + bodyLength;
+    }
+
     @Override
     public Object read(ByteBuf byteBuf) {
         // length为-1代表协议没有可兼容的部分，0代表为空对象，正数代表需要兼容的协议长度
@@ -116,6 +156,9 @@ public class ProtocolRegistration implements IProtocolRegistration {
             var originFields = ProtocolAnalysis.getFields(packetClazz);
             var constructorParams = new Object[originFields.size()];
             for (int i = 0, j = fields.length; i < j; i++) {
+                if (i == compatibleIndex) {
+                    StringDictionary.suspend();
+                }
                 var field = fields[i];
                 var index = originFields.indexOf(field);
                 var packetFieldRegistration = fieldRegistrations[i];
@@ -133,8 +176,16 @@ public class ProtocolRegistration implements IProtocolRegistration {
             }
             object = ReflectionUtils.newInstance(constructor, constructorParams);
         } else {
-            object = ReflectionUtils.newInstance(constructor);
+            if (recycle) {
+                object = ProtocolRecycler.obtain(id);
+            }
+            if (object == null) {
+                object = ReflectionUtils.newInstance(constructor);
+            }
             for (int i = 0, j = fields.length; i < j; i++) {
+                if (i == compatibleIndex) {
+                    StringDictionary.suspend();
+                }
                 Field field = fields[i];
                 IFieldRegistration packetFieldRegistration = fieldRegistrations[i];
                 ISerializer serializer = packetFieldRegistration.serializer();
@@ -150,6 +201,10 @@ public class ProtocolRegistration implements IProtocolRegistration {
             }
         }
 
+        if (compatibleIndex < fields.length) {
+            StringDictionary.resume();
+        }
+
         if (length > 0) {
             byteBuf.readerIndex(beforeReadIndex + length);
         }
@@ -197,6 +252,10 @@ public class ProtocolRegistration implements IProtocolRegistration {
         this.constructor = constructor;
     }
 
+    public int getCompatibleIndex() {
+        return compatibleIndex;
+    }
+
     public boolean isCompatible() {
         return compatible;
     }
@@ -212,4 +271,12 @@ public class ProtocolRegistration implements IProtocolRegistration {
     public void setPredictionLength(int predictionLength) {
         this.predictionLength = predictionLength;
     }
+
+    public boolean isRecycle() {
+        return recycle;
+    }
+
+    public void setRecycle(boolean recycle) {
+        this.recycle = recycle;
+    }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.registration;
+
+/**
+ * EN: Time spent in each phase of protocol initialization, in milliseconds.
+ * CN: 协议初始化各个阶段的耗时，单位毫秒。analyze是解析协议类，generate是生成其它语言的协议文件，
+ * enhanceSource是生成字节码增强的源代码，enhanceCompile是加载编译期生成的增强类和编译增强类（可以多线程并行）
+ *
+ * @author godotg
+ */
+public class ProtocolStartupMetrics {
+
+    private long analyzeTime;
+    private long generateTime;
+    private long enhanceSourceTime;
+    private long enhanceCompileTime;
+
+    private int protocolCount;
+    private int enhanceCount;
+    // 直接加载编译期生成的增强类的协议数量
+    private int enhanceLoadCount;
+    private int enhanceThreads;
+
+    public long totalTime() {
+        return analyzeTime + generateTime + enhanceSourceTime + enhanceCompileTime;
+    }
+
+    public long getAnalyzeTime() {
+        return analyzeTime;
+    }
+
+    public void setAnalyzeTime(long analyzeTime) {
+        this.analyzeTime = analyzeTime;
+    }
+
+    public long getGenerateTime() {
+        return generateTime;
+    }
+
+    public void setGenerateTime(long generateTime) {
+        this.generateTime = generateTime;
+    }
+
+    public long getEnhanceSourceTime() {
+        return enhanceSourceTime;
+    }
+
+    public void setEnhanceSourceTime(long enhanceSourceTime) {
+        this.enhanceSourceTime = enhanceSourceTime;
+    }
+
+    public long getEnhanceCompileTime() {
+        return enhanceCompileTime;
+    }
+
+    public void setEnhanceCompileTime(long enhanceCompileTime) {
+        this.enhanceCompileTime = enhanceCompileTime;
+    }
+
+    public int getProtocolCount() {
+        return protocolCount;
+    }
+
+    public void setProtocolCount(int protocolCount) {
+        this.protocolCount = protocolCount;
+    }
+
+    public int getEnhanceCount() {
+        return enhanceCount;
+    }
+
+    public void setEnhanceCount(int enhanceCount) {
+        this.enhanceCount = enhanceCount;
+    }
+
+    public int getEnhanceLoadCount() {
+        return enhanceLoadCount;
+    }
+
+    public void setEnhanceLoadCount(int enhanceLoadCount) {
+        this.enhanceLoadCount = enhanceLoadCount;
+    }
+
+    public int getEnhanceThreads() {
+        return enhanceThreads;
+    }
+
+    public void setEnhanceThreads(int enhanceThreads) {
+        this.enhanceThreads = enhanceThreads;
+    }
+
+    @Override
+    public String toString() {
+        return "ProtocolStartupMetrics{" +
+                "protocols=" + protocolCount +
+                ", enhanced=" + enhanceCount +
+                ", loaded=" + enhanceLoadCount +
+                ", threads=" + enhanceThreads +
+                ", analyze=" + analyzeTime + "ms" +
+                ", generate=" + generateTime + "ms" +
+                ", enhanceSource=" + enhanceSourceTime + "ms" +
+                ", enhanceCompile=" + enhanceCompileTime + "ms" +
+                ", total=" + totalTime() + "ms" +
+                '}';
+    }
+}
@@ -23,11 +23,18 @@ public class ArrayField implements IFieldRegistration {
 
     private IFieldRegistration arrayElementRegistration;
     private Class<?> type;
+    // 是否使用@Delta的差值位打包格式
+    private boolean delta;
 
     public static ArrayField valueOf(IFieldRegistration arrayElementRegistration, Class<?> type) {
+        return valueOf(arrayElementRegistration, type, false);
+    }
+
+    public static ArrayField valueOf(IFieldRegistration arrayElementRegistration, Class<?> type, boolean delta) {
         ArrayField arrayField = new ArrayField();
         arrayField.arrayElementRegistration = arrayElementRegistration;
         arrayField.type = type;
+        arrayField.delta = delta;
         return arrayField;
     }
 
@@ -35,6 +42,10 @@ public class ArrayField implements IFieldRegistration {
         return type;
     }
 
+    public boolean isDelta() {
+        return delta;
+    }
+
     @Override
     public ISerializer serializer() {
         return ArraySerializer.INSTANCE;
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.registration.field;
+
+import com.zfoo.protocol.serializer.reflect.ISerializer;
+import com.zfoo.protocol.serializer.reflect.StringSerializer;
+
+/**
+ * 使用StringDictionary读写的String字段，序列化器还是StringSerializer，所以其它语言生成的协议和普通String相同
+ *
+ * @author godotg
+ */
+public class InternStringField implements IFieldRegistration {
+
+    public static final InternStringField INSTANCE = new InternStringField();
+
+    @Override
+    public ISerializer serializer() {
+        return StringSerializer.INSTANCE;
+    }
+
+}
@@ -25,11 +25,18 @@ public class ListField implements IFieldRegistration {
 
     private IFieldRegistration listElementRegistration;
     private Type type;
+    // 是否使用@Delta的差值位打包格式
+    private boolean delta;
 
     public static ListField valueOf(IFieldRegistration listElementRegistration, Type type) {
+        return valueOf(listElementRegistration, type, false);
+    }
+
+    public static ListField valueOf(IFieldRegistration listElementRegistration, Type type, boolean delta) {
         ListField listField = new ListField();
         listField.listElementRegistration = listElementRegistration;
         listField.type = type;
+        listField.delta = delta;
         return listField;
     }
 
@@ -46,4 +53,8 @@ public class ListField implements IFieldRegistration {
         return this.type;
     }
 
+    public boolean isDelta() {
+        return delta;
+    }
+
 }
@@ -12,6 +12,7 @@
 
 package com.zfoo.protocol.serializer;
 
+import com.zfoo.protocol.exception.RunException;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.registration.EnhanceUtils;
 import com.zfoo.protocol.registration.field.ArrayField;
@@ -43,6 +44,24 @@ public class CutDownArraySerializer implements ICutDownSerializer {
         var arrayName = getArrayClassName(arrayField);
         var flag = true;
 
+        if (arrayField.isDelta()) {
+            var deltaName = arrayName.equals("int") ? "Int" : "Long";
+            switch (language) {
+                case Enhance:
+                    builder.append(StringUtils.format("{}.write{}DeltaArray($1, {});", EnhanceUtils.byteBufUtils, deltaName, objectStr));
+                    break;
+                case CSharp:
+                    builder.append(StringUtils.format("buffer.Write{}DeltaArray({});", deltaName, objectStr)).append(LS);
+                    break;
+                case Java, TypeScript:
+                    builder.append(StringUtils.format("buffer.write{}DeltaArray({});", deltaName, objectStr)).append(LS);
+                    break;
+                default:
+                    throw new RunException("@Delta field [{}] is not supported in [{}]", field.getName(), language);
+            }
+            return true;
+        }
+
         // 直接在字节码里调用方法是为了减小生成字节码的体积，下面的代码去掉也不会有任何影响
         switch (arrayName) {
             case "boolean":
@@ -544,6 +563,27 @@ public class CutDownArraySerializer implements ICutDownSerializer {
         var array = "array" + GenerateProtocolFile.localVariableId++;
 
         var flag = true;
+
+        if (arrayField.isDelta()) {
+            var deltaName = arrayName.equals("int") ? "Int" : "Long";
+            switch (language) {
+                case Enhance:
+                    builder.append(StringUtils.format("{}[] {} = {}.read{}DeltaArray($1);", arrayName, array, EnhanceUtils.byteBufUtils, deltaName));
+                    break;
+                case CSharp:
+                    builder.append(StringUtils.format("var {} = buffer.Read{}DeltaArray();", array, deltaName)).append(LS);
+                    break;
+                case Java:
+                    builder.append(StringUtils.format("var {} = buffer.read{}DeltaArray();", array, deltaName)).append(LS);
+                    break;
+                case TypeScript:
+                    builder.append(StringUtils.format("const {} = buffer.read{}DeltaArray();", array, deltaName)).append(LS);
+                    break;
+                default:
+                    throw new RunException("@Delta field [{}] is not supported in [{}]", field.getName(), language);
+            }
+            return array;
+        }
         switch (arrayName) {
             case "boolean":
                 switch (language) {
@@ -12,6 +12,7 @@
 
 package com.zfoo.protocol.serializer;
 
+import com.zfoo.protocol.exception.RunException;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.registration.EnhanceUtils;
 import com.zfoo.protocol.registration.field.BaseField;
@@ -43,6 +44,24 @@ public class CutDownListSerializer implements ICutDownSerializer {
         var flag = true;
 
         var listName = getListClassName(listField);
+        if (listField.isDelta()) {
+            var deltaName = listName.equals("Integer") ? "Int" : "Long";
+            switch (language) {
+                case Enhance:
+                    builder.append(StringUtils.format("{}.write{}DeltaList($1, (List){});", EnhanceUtils.byteBufUtils, deltaName, objectStr));
+                    break;
+                case CSharp:
+                    builder.append(StringUtils.format("buffer.Write{}DeltaList({});", deltaName, objectStr)).append(LS);
+                    break;
+                case Java, TypeScript:
+                    builder.append(StringUtils.format("buffer.write{}DeltaList({});", deltaName, objectStr)).append(LS);
+                    break;
+                default:
+                    throw new RunException("@Delta field [{}] is not supported in [{}]", field.getName(), language);
+            }
+            return true;
+        }
+
         switch (listName) {
             case "Boolean":
                 switch (language) {
@@ -364,6 +383,27 @@ public class CutDownListSerializer implements ICutDownSerializer {
         var flag = true;
 
         var listName = getListClassName(listField);
+        if (listField.isDelta()) {
+            var deltaName = listName.equals("Integer") ? "Int" : "Long";
+            switch (language) {
+                case Enhance:
+                    builder.append(StringUtils.format("List {} = {}.read{}DeltaList($1);", list, EnhanceUtils.byteBufUtils, deltaName));
+                    break;
+                case CSharp:
+                    builder.append(StringUtils.format("var {} = buffer.Read{}DeltaList();", list, deltaName)).append(LS);
+                    break;
+                case Java:
+                    builder.append(StringUtils.format("var {} = buffer.read{}DeltaList();", list, deltaName)).append(LS);
+                    break;
+                case TypeScript:
+                    builder.append(StringUtils.format("const {} = buffer.read{}DeltaList();", list, deltaName)).append(LS);
+                    break;
+                default:
+                    throw new RunException("@Delta field [{}] is not supported in [{}]", field.getName(), language);
+            }
+            return list;
+        }
+
         switch (listName) {
             case "Boolean":
                 switch (language) {
@@ -13,6 +13,7 @@
 
 package com.zfoo.protocol.serializer.cpp;
 
+import com.zfoo.protocol.collection.PrimitiveCollectionUtils;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.model.Pair;
 import com.zfoo.protocol.registration.field.IFieldRegistration;
@@ -33,7 +34,7 @@ public class CppListSerializer implements ICppSerializer {
 
     @Override
     public Pair<String, String> fieldTypeDefaultValue(Field field, IFieldRegistration fieldRegistration) {
-        var type = CodeGenerateCpp.toCppClassName(field.getGenericType().toString());
+        var type = CodeGenerateCpp.toCppClassName(PrimitiveCollectionUtils.genericType(field).toString());
         return new Pair<>(type, "null");
     }
 
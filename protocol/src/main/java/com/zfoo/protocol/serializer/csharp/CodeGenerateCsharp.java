@@ -15,6 +15,7 @@ package com.zfoo.protocol.serializer.csharp;
 
 import com.zfoo.protocol.ProtocolManager;
 import com.zfoo.protocol.anno.Compatible;
+import com.zfoo.protocol.collection.PrimitiveCollectionUtils;
 import com.zfoo.protocol.generate.GenerateOperation;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.generate.GenerateProtocolNote;
@@ -223,7 +224,7 @@ public class CodeGenerateCsharp implements ICodeGenerate {
             var field = sequencedFields.get(i);
             IFieldRegistration fieldRegistration = fieldRegistrations[GenerateProtocolFile.indexOf(fields, field)];
             var fieldName = field.getName();
-            var propertyType = toCsClassName(field.getGenericType().getTypeName());
+            var propertyType = toCsClassName(PrimitiveCollectionUtils.genericType(field).getTypeName());
             var propertyFullName = StringUtils.format("public {} {};", propertyType, fieldName);
             // 生成注释
             var fieldNotes = GenerateProtocolNote.fieldNotes(protocolId, fieldName, CodeLanguage.CSharp);
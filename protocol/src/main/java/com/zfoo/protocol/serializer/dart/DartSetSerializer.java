@@ -13,6 +13,7 @@
 
 package com.zfoo.protocol.serializer.dart;
 
+import com.zfoo.protocol.collection.PrimitiveCollectionUtils;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.model.Pair;
 import com.zfoo.protocol.registration.field.IFieldRegistration;
@@ -32,7 +33,7 @@ public class DartSetSerializer implements IDartSerializer {
 
     @Override
     public Pair<String, String> fieldTypeDefaultValue(Field field, IFieldRegistration fieldRegistration) {
-        var type = StringUtils.format("{}", CodeGenerateDart.toDartClassName(field.getGenericType().toString()));
+        var type = StringUtils.format("{}", CodeGenerateDart.toDartClassName(PrimitiveCollectionUtils.genericType(field).toString()));
         return new Pair<>(type, "Set()");
     }
 
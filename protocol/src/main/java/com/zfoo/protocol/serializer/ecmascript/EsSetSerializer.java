@@ -13,6 +13,7 @@
 
 package com.zfoo.protocol.serializer.ecmascript;
 
+import com.zfoo.protocol.collection.PrimitiveCollectionUtils;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.model.Pair;
 import com.zfoo.protocol.registration.field.IFieldRegistration;
@@ -32,7 +33,7 @@ import static com.zfoo.protocol.util.FileUtils.LS;
 public class EsSetSerializer implements IEsSerializer {
     @Override
     public Pair<String, String> fieldTypeDefaultValue(Field field, IFieldRegistration fieldRegistration) {
-        return new Pair<>(CodeGenerateTypeScript.toTsClassName(field.getGenericType().toString()), "new Set()");
+        return new Pair<>(CodeGenerateTypeScript.toTsClassName(PrimitiveCollectionUtils.genericType(field).toString()), "new Set()");
     }
 
     @Override
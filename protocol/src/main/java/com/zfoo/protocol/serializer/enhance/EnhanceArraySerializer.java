@@ -55,6 +55,43 @@ public class EnhanceArraySerializer implements IEnhanceSerializer {
         builder.append("}");
     }
 
+    @Override
+    public void sizeOf(StringBuilder builder, String objectStr, Field field, IFieldRegistration fieldRegistration) {
+        var arrayField = (ArrayField) fieldRegistration;
+        var arrayName = CutDownArraySerializer.getInstance().getArrayClassName(arrayField);
+        if (arrayField.isDelta()) {
+            var method = arrayField.getType() == int.class ? "writeIntDeltaArrayCount" : "writeLongDeltaArrayCount";
+            builder.append(StringUtils.format("size += {}.{}(({}[]){});", EnhanceUtils.byteBufUtils, method, arrayName, objectStr));
+            return;
+        }
+
+        var collectionSizeOf = EnhanceUtils.collectionSizeOf(arrayField.getArrayElementRegistration()
+                , StringUtils.format("({}[]){}", arrayName, objectStr)
+                , StringUtils.format("ArrayUtils.length(({}[]){})", arrayName, objectStr)
+                , arrayField.getType().isPrimitive() ? "Array" : "BoxArray");
+        if (collectionSizeOf != null) {
+            builder.append(StringUtils.format("size += {};", collectionSizeOf));
+            return;
+        }
+
+        var array = "array" + GenerateProtocolFile.localVariableId++;
+        var length = "length" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("{}[] {} = {};", arrayName, array, objectStr));
+        builder.append(StringUtils.format("int {} = ArrayUtils.length({});", length, array));
+        builder.append(StringUtils.format("size += {}.writeIntCount({});", EnhanceUtils.byteBufUtils, length));
+
+        var i = "i" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("for(int {}=0; {}<{}; {}++){", i, i, length, i));
+
+        var element = "element" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("{} {} = {}[{}];", arrayName, element, array, i));
+
+        EnhanceUtils.enhanceSerializer(arrayField.getArrayElementRegistration().serializer())
+                .sizeOf(builder, element, field, arrayField.getArrayElementRegistration());
+
+        builder.append("}");
+    }
+
     @Override
     public String readObject(StringBuilder builder, Field field, IFieldRegistration fieldRegistration) {
         var cutDown = CutDownArraySerializer.getInstance().readObject(builder, field, fieldRegistration, CodeLanguage.Enhance);
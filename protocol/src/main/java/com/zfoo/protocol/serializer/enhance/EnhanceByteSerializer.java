@@ -34,6 +34,11 @@ public class EnhanceByteSerializer implements IEnhanceSerializer {
         }
     }
 
+    @Override
+    public void sizeOf(StringBuilder builder, String objectStr, Field field, IFieldRegistration fieldRegistration) {
+        builder.append("size += 1;");
+    }
+
     @Override
     public String readObject(StringBuilder builder, Field field, IFieldRegistration fieldRegistration) {
         var result = "result" + GenerateProtocolFile.localVariableId++;
@@ -34,6 +34,11 @@ public class EnhanceFloatSerializer implements IEnhanceSerializer {
         }
     }
 
+    @Override
+    public void sizeOf(StringBuilder builder, String objectStr, Field field, IFieldRegistration fieldRegistration) {
+        builder.append("size += 4;");
+    }
+
     @Override
     public String readObject(StringBuilder builder, Field field, IFieldRegistration fieldRegistration) {
         var result = "result" + GenerateProtocolFile.localVariableId++;
@@ -34,6 +34,15 @@ public class EnhanceIntSerializer implements IEnhanceSerializer {
         }
     }
 
+    @Override
+    public void sizeOf(StringBuilder builder, String objectStr, Field field, IFieldRegistration fieldRegistration) {
+        if (isPrimitiveField(field)) {
+            builder.append(StringUtils.format("size += {}.writeIntCount({});", EnhanceUtils.byteBufUtils, objectStr));
+        } else {
+            builder.append(StringUtils.format("size += {}.writeIntCount(ArrayUtils.intValue((Integer){}));", EnhanceUtils.byteBufUtils, objectStr));
+        }
+    }
+
     @Override
     public String readObject(StringBuilder builder, Field field, IFieldRegistration fieldRegistration) {
         var result = "result" + GenerateProtocolFile.localVariableId++;
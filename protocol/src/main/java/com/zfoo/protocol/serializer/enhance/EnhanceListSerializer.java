@@ -19,6 +19,7 @@ import com.zfoo.protocol.registration.field.IFieldRegistration;
 import com.zfoo.protocol.registration.field.ListField;
 import com.zfoo.protocol.serializer.CodeLanguage;
 import com.zfoo.protocol.serializer.CutDownListSerializer;
+import com.zfoo.protocol.serializer.reflect.IntSerializer;
 import com.zfoo.protocol.util.StringUtils;
 
 import java.lang.reflect.Field;
@@ -53,6 +54,39 @@ public class EnhanceListSerializer implements IEnhanceSerializer {
 
     }
 
+    @Override
+    public void sizeOf(StringBuilder builder, String objectStr, Field field, IFieldRegistration fieldRegistration) {
+        var listField = (ListField) fieldRegistration;
+        if (listField.isDelta()) {
+            var method = listField.getListElementRegistration().serializer() == IntSerializer.INSTANCE ? "writeIntDeltaListCount" : "writeLongDeltaListCount";
+            builder.append(StringUtils.format("size += {}.{}((List){});", EnhanceUtils.byteBufUtils, method, objectStr));
+            return;
+        }
+
+        var collectionSizeOf = EnhanceUtils.collectionSizeOf(listField.getListElementRegistration()
+                , StringUtils.format("(List){}", objectStr)
+                , StringUtils.format("CollectionUtils.size((List){})", objectStr)
+                , "Collection");
+        if (collectionSizeOf != null) {
+            builder.append(StringUtils.format("size += {};", collectionSizeOf));
+            return;
+        }
+
+        var list = "list" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("List {} = (List){};", list, objectStr));
+        builder.append(StringUtils.format("size += {}.writeIntCount(CollectionUtils.size({}));", EnhanceUtils.byteBufUtils, list));
+
+        var iterator = "iterator" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("Iterator {} = CollectionUtils.iterator({});", iterator, list));
+        builder.append(StringUtils.format("while({}.hasNext()){", iterator));
+
+        var element = "element" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("Object {}={}.next();", element, iterator));
+        EnhanceUtils.enhanceSerializer(listField.getListElementRegistration().serializer())
+                .sizeOf(builder, element, field, listField.getListElementRegistration());
+        builder.append("}");
+    }
+
     @Override
     public String readObject(StringBuilder builder, Field field, IFieldRegistration fieldRegistration) {
         var cutDown = CutDownListSerializer.getInstance().readObject(builder, field, fieldRegistration, CodeLanguage.Enhance);
@@ -80,7 +114,12 @@ public class EnhanceListSerializer implements IEnhanceSerializer {
     public String defaultValue(StringBuilder builder, Field field, IFieldRegistration fieldRegistration) {
         var listField = (ListField) fieldRegistration;
         var list = "list" + GenerateProtocolFile.localVariableId++;
-        builder.append(StringUtils.format("List {} = CollectionUtils.newList(0);", list));
+        var primitiveCollectionClass = EnhanceUtils.primitiveCollectionClass(fieldRegistration);
+        if (primitiveCollectionClass == null) {
+            builder.append(StringUtils.format("List {} = CollectionUtils.newList(0);", list));
+        } else {
+            builder.append(StringUtils.format("List {} = new {}(0);", list, primitiveCollectionClass.getCanonicalName()));
+        }
         return list;
     }
 
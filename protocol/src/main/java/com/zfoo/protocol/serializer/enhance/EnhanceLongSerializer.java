@@ -34,6 +34,15 @@ public class EnhanceLongSerializer implements IEnhanceSerializer {
         }
     }
 
+    @Override
+    public void sizeOf(StringBuilder builder, String objectStr, Field field, IFieldRegistration fieldRegistration) {
+        if (isPrimitiveField(field)) {
+            builder.append(StringUtils.format("size += {}.writeLongCount({});", EnhanceUtils.byteBufUtils, objectStr));
+        } else {
+            builder.append(StringUtils.format("size += {}.writeLongCount(ArrayUtils.longValue((Long){}));", EnhanceUtils.byteBufUtils, objectStr));
+        }
+    }
+
     @Override
     public String readObject(StringBuilder builder, Field field, IFieldRegistration fieldRegistration) {
         var result = "result" + GenerateProtocolFile.localVariableId++;
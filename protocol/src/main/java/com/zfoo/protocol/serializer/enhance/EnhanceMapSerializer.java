@@ -19,6 +19,8 @@ import com.zfoo.protocol.registration.field.IFieldRegistration;
 import com.zfoo.protocol.registration.field.MapField;
 import com.zfoo.protocol.serializer.CodeLanguage;
 import com.zfoo.protocol.serializer.CutDownMapSerializer;
+import com.zfoo.protocol.serializer.reflect.IntSerializer;
+import com.zfoo.protocol.serializer.reflect.LongSerializer;
 import com.zfoo.protocol.util.StringUtils;
 
 import java.lang.reflect.Field;
@@ -64,6 +66,55 @@ public class EnhanceMapSerializer implements IEnhanceSerializer {
         builder.append("}");
     }
 
+    @Override
+    public void sizeOf(StringBuilder builder, String objectStr, Field field, IFieldRegistration fieldRegistration) {
+        var mapField = (MapField) fieldRegistration;
+        var keyRegistration = mapField.getMapKeyRegistration();
+        var valueRegistration = mapField.getMapValueRegistration();
+
+        // key和value都是int或者long的Map直接不装箱遍历
+        var keySerializer = keyRegistration.serializer();
+        var valueSerializer = valueRegistration.serializer();
+        var keyName = keySerializer == IntSerializer.INSTANCE ? "Int" : keySerializer == LongSerializer.INSTANCE ? "Long" : null;
+        var valueName = valueSerializer == IntSerializer.INSTANCE ? "Int" : valueSerializer == LongSerializer.INSTANCE ? "Long" : null;
+        if (keyName != null && valueName != null) {
+            builder.append(StringUtils.format("size += {}.write{}{}MapCount((Map){});", EnhanceUtils.byteBufUtils, keyName, valueName, objectStr));
+            return;
+        }
+
+        var map = "map" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("Map {} = (Map){};", map, objectStr));
+
+        var length = StringUtils.format("{}.size()", map);
+        var keysSizeOf = EnhanceUtils.collectionSizeOf(keyRegistration, StringUtils.format("{}.keySet()", map), length, "Collection");
+        var valuesSizeOf = EnhanceUtils.collectionSizeOf(valueRegistration, StringUtils.format("{}.values()", map), length, "Collection");
+        if (keysSizeOf != null && valuesSizeOf != null) {
+            // keys和values各自都包括了一次map的长度，减去多出来的一次
+            builder.append(StringUtils.format("size += {} == null ? 1 : {} + {} - {}.writeIntCount({});", map, keysSizeOf, valuesSizeOf, EnhanceUtils.byteBufUtils, length));
+            return;
+        }
+
+        builder.append(StringUtils.format("size += {}.writeIntCount(CollectionUtils.size({}));", EnhanceUtils.byteBufUtils, map));
+
+        var iterator = "iterator" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("Iterator {} = CollectionUtils.iterator({});", iterator, map));
+        builder.append(StringUtils.format("while({}.hasNext()) {", iterator));
+
+        var entry = "entry" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("{} {}=({}){}.next();", Map.Entry.class.getCanonicalName(), entry, Map.Entry.class.getCanonicalName(), iterator));
+
+        var key = "key" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("Object {} = {}.getKey();", key, entry));
+
+        var value = "value" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("Object {} = {}.getValue();", value, entry));
+
+        EnhanceUtils.enhanceSerializer(keyRegistration.serializer()).sizeOf(builder, key, field, keyRegistration);
+        EnhanceUtils.enhanceSerializer(valueRegistration.serializer()).sizeOf(builder, value, field, valueRegistration);
+
+        builder.append("}");
+    }
+
     @Override
     public String readObject(StringBuilder builder, Field field, IFieldRegistration fieldRegistration) {
         var cutDown = CutDownMapSerializer.getInstance().readObject(builder, field, fieldRegistration, CodeLanguage.Enhance);
@@ -95,7 +146,12 @@ public class EnhanceMapSerializer implements IEnhanceSerializer {
     public String defaultValue(StringBuilder builder, Field field, IFieldRegistration fieldRegistration) {
         var mapField = (MapField) fieldRegistration;
         var map = "map" + GenerateProtocolFile.localVariableId++;
-        builder.append(StringUtils.format("Map {} = CollectionUtils.newMap(0);", map));
+        var primitiveCollectionClass = EnhanceUtils.primitiveCollectionClass(fieldRegistration);
+        if (primitiveCollectionClass == null) {
+            builder.append(StringUtils.format("Map {} = CollectionUtils.newMap(0);", map));
+        } else {
+            builder.append(StringUtils.format("Map {} = new {}(0);", map, primitiveCollectionClass.getCanonicalName()));
+        }
         return map;
     }
 
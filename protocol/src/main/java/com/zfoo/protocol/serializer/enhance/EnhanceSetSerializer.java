@@ -52,6 +52,33 @@ public class EnhanceSetSerializer implements IEnhanceSerializer {
 
     }
 
+    @Override
+    public void sizeOf(StringBuilder builder, String objectStr, Field field, IFieldRegistration fieldRegistration) {
+        var setField = (SetField) fieldRegistration;
+        var collectionSizeOf = EnhanceUtils.collectionSizeOf(setField.getSetElementRegistration()
+                , StringUtils.format("(Set){}", objectStr)
+                , StringUtils.format("CollectionUtils.size((Set){})", objectStr)
+                , "Collection");
+        if (collectionSizeOf != null) {
+            builder.append(StringUtils.format("size += {};", collectionSizeOf));
+            return;
+        }
+
+        var set = "set" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("Set {} = (Set){};", set, objectStr));
+        builder.append(StringUtils.format("size += {}.writeIntCount(CollectionUtils.size({}));", EnhanceUtils.byteBufUtils, set));
+
+        var iterator = "iterator" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("Iterator {} = CollectionUtils.iterator({});", iterator, set));
+        builder.append(StringUtils.format("while({}.hasNext()){", iterator));
+
+        var element = "element" + GenerateProtocolFile.localVariableId++;
+        builder.append(StringUtils.format("Object {}={}.next();", element, iterator));
+        EnhanceUtils.enhanceSerializer(setField.getSetElementRegistration().serializer())
+                .sizeOf(builder, element, field, setField.getSetElementRegistration());
+        builder.append("}");
+    }
+
     @Override
     public String readObject(StringBuilder builder, Field field, IFieldRegistration fieldRegistration) {
         var cutDown = CutDownSetSerializer.getInstance().readObject(builder, field, fieldRegistration, CodeLanguage.Enhance);
@@ -78,7 +105,12 @@ public class EnhanceSetSerializer implements IEnhanceSerializer {
     public String defaultValue(StringBuilder builder, Field field, IFieldRegistration fieldRegistration) {
         var setField = (SetField) fieldRegistration;
         var set = "set" + GenerateProtocolFile.localVariableId++;
-        builder.append(StringUtils.format("Set {} = CollectionUtils.newSet(0);", set));
+        var primitiveCollectionClass = EnhanceUtils.primitiveCollectionClass(fieldRegistration);
+        if (primitiveCollectionClass == null) {
+            builder.append(StringUtils.format("Set {} = CollectionUtils.newSet(0);", set));
+        } else {
+            builder.append(StringUtils.format("Set {} = new {}(0);", set, primitiveCollectionClass.getCanonicalName()));
+        }
         return set;
     }
 
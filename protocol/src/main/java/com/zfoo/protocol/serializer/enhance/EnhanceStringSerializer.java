@@ -16,6 +16,7 @@ package com.zfoo.protocol.serializer.enhance;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.registration.EnhanceUtils;
 import com.zfoo.protocol.registration.field.IFieldRegistration;
+import com.zfoo.protocol.registration.field.InternStringField;
 import com.zfoo.protocol.util.StringUtils;
 
 import java.lang.reflect.Field;
@@ -27,13 +28,20 @@ public class EnhanceStringSerializer implements IEnhanceSerializer {
 
     @Override
     public void writeObject(StringBuilder builder, String objectStr, Field field, IFieldRegistration fieldRegistration) {
-        builder.append(StringUtils.format("{}.writeString($1, (String){});", EnhanceUtils.byteBufUtils, objectStr));
+        var method = fieldRegistration instanceof InternStringField ? "writeInternString" : "writeString";
+        builder.append(StringUtils.format("{}.{}($1, (String){});", EnhanceUtils.byteBufUtils, method, objectStr));
+    }
+
+    @Override
+    public void sizeOf(StringBuilder builder, String objectStr, Field field, IFieldRegistration fieldRegistration) {
+        builder.append(StringUtils.format("size += {}.writeStringCount((String){});", EnhanceUtils.byteBufUtils, objectStr));
     }
 
     @Override
     public String readObject(StringBuilder builder, Field field, IFieldRegistration fieldRegistration) {
         var result = "result" + GenerateProtocolFile.localVariableId++;
-        builder.append(StringUtils.format("String {} = {}.readString($1);", result, EnhanceUtils.byteBufUtils));
+        var method = fieldRegistration instanceof InternStringField ? "readInternString" : "readString";
+        builder.append(StringUtils.format("String {} = {}.{}($1);", result, EnhanceUtils.byteBufUtils, method));
         return result;
     }
 
@@ -36,6 +36,12 @@ public interface IEnhanceSerializer {
      */
     void writeObject(StringBuilder builder, String objectStr, Field field, IFieldRegistration fieldRegistration);
 
+    /**
+     * IProtocolRegistration.int sizeOf(Object packet);
+     * 把写入这个值需要的字节数累加到局部变量size
+     */
+    void sizeOf(StringBuilder builder, String objectStr, Field field, IFieldRegistration fieldRegistration);
+
     /**
      * IProtocolRegistration.Object read(ByteBuf buffer);
      * $1=buffer
@@ -14,6 +14,7 @@
 package com.zfoo.protocol.serializer.gdscript;
 
 import com.zfoo.protocol.anno.Compatible;
+import com.zfoo.protocol.collection.PrimitiveCollectionUtils;
 import com.zfoo.protocol.generate.GenerateOperation;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.generate.GenerateProtocolNote;
@@ -242,7 +243,7 @@ public class CodeGenerateGdScript implements ICodeGenerate {
             // 生成类型的注释
             gdBuilder.append(StringUtils.format("var {}: {}", fieldName, fieldType));
             if (fieldType.equals("Dictionary") || fieldType.equals("Array")) {
-                var typeNote = CodeGenerateTypeScript.toTsClassName(field.getGenericType().toString());
+                var typeNote = CodeGenerateTypeScript.toTsClassName(PrimitiveCollectionUtils.genericType(field).toString());
                 gdBuilder.append(StringUtils.format(TAB_ASCII + "# {}", typeNote));
             }
             gdBuilder.append(LS);
@@ -14,6 +14,7 @@
 package com.zfoo.protocol.serializer.java;
 
 import com.zfoo.protocol.anno.Compatible;
+import com.zfoo.protocol.collection.PrimitiveCollectionUtils;
 import com.zfoo.protocol.generate.GenerateOperation;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.generate.GenerateProtocolNote;
@@ -284,7 +285,7 @@ public class CodeGenerateJava implements ICodeGenerate {
             var field = sequencedFields.get(i);
             IFieldRegistration fieldRegistration = fieldRegistrations[GenerateProtocolFile.indexOf(fields, field)];
             var fieldName = field.getName();
-            var propertyType = toJavaClassName(field.getGenericType().getTypeName());
+            var propertyType = toJavaClassName(PrimitiveCollectionUtils.genericType(field).getTypeName());
             var propertyFullName = StringUtils.format("public {} {};", propertyType, fieldName);
             // 生成注释
             var fieldNotes = GenerateProtocolNote.fieldNotes(protocolId, fieldName, CodeLanguage.Java);
@@ -14,6 +14,7 @@
 package com.zfoo.protocol.serializer.lua;
 
 import com.zfoo.protocol.anno.Compatible;
+import com.zfoo.protocol.collection.PrimitiveCollectionUtils;
 import com.zfoo.protocol.generate.GenerateOperation;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.generate.GenerateProtocolNote;
@@ -272,7 +273,7 @@ public class CodeGenerateLua implements ICodeGenerate {
             } else {
                 luaBuilder.append(StringUtils.format("{} = {},", fieldName, fieldDefaultValue));
             }
-            var typeNote = CodeGenerateCsharp.toCsClassName(field.getGenericType().getTypeName());
+            var typeNote = CodeGenerateCsharp.toCsClassName(PrimitiveCollectionUtils.genericType(field).getTypeName());
             // 生成类型的注释
             luaBuilder.append(" -- ").append(typeNote).append(LS);
         }
@@ -14,6 +14,7 @@
 package com.zfoo.protocol.serializer.python;
 
 import com.zfoo.protocol.anno.Compatible;
+import com.zfoo.protocol.collection.PrimitiveCollectionUtils;
 import com.zfoo.protocol.generate.GenerateOperation;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.generate.GenerateProtocolNote;
@@ -251,7 +252,7 @@ public class CodeGeneratePython implements ICodeGenerate {
             var fieldDefaultValue = pySerializer(fieldRegistration.serializer()).fieldDefaultValue(field, fieldRegistration);
             // 生成类型的注释
             pyBuilder.append(StringUtils.format("{} = {}", fieldName, fieldDefaultValue));
-            pyBuilder.append(StringUtils.format("  # {}", CodeGenerateCsharp.toCsClassName(field.getGenericType().getTypeName())));
+            pyBuilder.append(StringUtils.format("  # {}", CodeGenerateCsharp.toCsClassName(PrimitiveCollectionUtils.genericType(field).getTypeName())));
             pyBuilder.append(LS);
         }
         return pyBuilder.toString();
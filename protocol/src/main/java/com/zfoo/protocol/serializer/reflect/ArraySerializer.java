@@ -29,6 +29,15 @@ public class ArraySerializer implements ISerializer {
 
     @Override
     public void writeObject(ByteBuf buffer, Object object, IFieldRegistration fieldRegistration) {
+        if (((ArrayField) fieldRegistration).isDelta()) {
+            if (object instanceof int[] ints) {
+                ByteBufUtils.writeIntDeltaArray(buffer, ints);
+            } else {
+                ByteBufUtils.writeLongDeltaArray(buffer, (long[]) object);
+            }
+            return;
+        }
+
         if (object == null) {
             ByteBufUtils.writeInt(buffer, 0);
             return;
@@ -50,10 +59,33 @@ public class ArraySerializer implements ISerializer {
         }
     }
 
+    @Override
+    public int sizeOf(Object object, IFieldRegistration fieldRegistration) {
+        ArrayField arrayField = (ArrayField) fieldRegistration;
+        if (arrayField.isDelta()) {
+            return object instanceof int[] ints ? ByteBufUtils.writeIntDeltaArrayCount(ints) : ByteBufUtils.writeLongDeltaArrayCount((long[]) object);
+        }
+
+        if (object == null) {
+            return 1;
+        }
+
+        int length = Array.getLength(object);
+        var size = ByteBufUtils.writeIntCount(length);
+        for (int i = 0; i < length; i++) {
+            size += arrayField.getArrayElementRegistration().serializer().sizeOf(Array.get(object, i), arrayField.getArrayElementRegistration());
+        }
+        return size;
+    }
+
     @Override
     public Object readObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
-        var length = ByteBufUtils.readInt(buffer);
         ArrayField arrayField = (ArrayField) fieldRegistration;
+        if (arrayField.isDelta()) {
+            return arrayField.getType() == int.class ? ByteBufUtils.readIntDeltaArray(buffer) : ByteBufUtils.readLongDeltaArray(buffer);
+        }
+
+        var length = ByteBufUtils.readInt(buffer);
         if (length <= 0) {
             return Array.newInstance(arrayField.getType(), 0);
         }
@@ -68,6 +100,20 @@ public class ArraySerializer implements ISerializer {
         return array;
     }
 
+    @Override
+    public void skipObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
+        ArrayField arrayField = (ArrayField) fieldRegistration;
+        if (arrayField.isDelta()) {
+            ByteBufUtils.skipDeltaArray(buffer);
+            return;
+        }
+
+        var length = ByteBufUtils.readInt(buffer);
+        for (var i = 0; i < length; i++) {
+            arrayField.getArrayElementRegistration().serializer().skipObject(buffer, arrayField.getArrayElementRegistration());
+        }
+    }
+
     @Override
     public Object defaultValue(IFieldRegistration fieldRegistration) {
         ArrayField arrayField = (ArrayField) fieldRegistration;
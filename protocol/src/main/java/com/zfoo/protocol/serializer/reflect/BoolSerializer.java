@@ -29,11 +29,21 @@ public class BoolSerializer implements ISerializer {
         ByteBufUtils.writeBoolBox(buffer, (Boolean) object);
     }
 
+    @Override
+    public int sizeOf(Object object, IFieldRegistration fieldRegistration) {
+        return 1;
+    }
+
     @Override
     public Object readObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
         return ByteBufUtils.readBoolBox(buffer);
     }
 
+    @Override
+    public void skipObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
+        buffer.skipBytes(1);
+    }
+
     @Override
     public Object defaultValue(IFieldRegistration fieldRegistration) {
         return Boolean.FALSE;
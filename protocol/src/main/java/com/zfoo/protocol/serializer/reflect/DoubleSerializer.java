@@ -29,12 +29,22 @@ public class DoubleSerializer implements ISerializer {
         ByteBufUtils.writeDoubleBox(buffer, (Double) object);
     }
 
+    @Override
+    public int sizeOf(Object object, IFieldRegistration fieldRegistration) {
+        return 8;
+    }
+
     @Override
     public Object readObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
         return ByteBufUtils.readDoubleBox(buffer);
     }
 
 
+    @Override
+    public void skipObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
+        buffer.skipBytes(8);
+    }
+
     @Override
     public Object defaultValue(IFieldRegistration fieldRegistration) {
         return ByteBufUtils.ZERO_DOUBLE;
@@ -29,11 +29,21 @@ public class FloatSerializer implements ISerializer {
         ByteBufUtils.writeFloatBox(buffer, (Float) object);
     }
 
+    @Override
+    public int sizeOf(Object object, IFieldRegistration fieldRegistration) {
+        return 4;
+    }
+
     @Override
     public Object readObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
         return ByteBufUtils.readFloatBox(buffer);
     }
 
+    @Override
+    public void skipObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
+        buffer.skipBytes(4);
+    }
+
     @Override
     public Object defaultValue(IFieldRegistration fieldRegistration) {
         return ByteBufUtils.ZERO_FLOAT;
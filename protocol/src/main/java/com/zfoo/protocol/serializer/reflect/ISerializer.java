@@ -30,8 +30,20 @@ public interface ISerializer {
      */
     void writeObject(ByteBuf buffer, Object object, IFieldRegistration fieldRegistration);
 
+    /**
+     * writeObject写入这个值需要的精确字节数
+     */
+    int sizeOf(Object object, IFieldRegistration fieldRegistration);
+
     Object readObject(ByteBuf buffer, IFieldRegistration fieldRegistration);
 
+    /**
+     * 跳过buffer中的这个值，不需要反序列化出对象，延迟解码时用来记录每个字段的位置
+     */
+    default void skipObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
+        readObject(buffer, fieldRegistration);
+    }
+
     Object defaultValue(IFieldRegistration fieldRegistration);
 
     int predictionLength(IFieldRegistration fieldRegistration);
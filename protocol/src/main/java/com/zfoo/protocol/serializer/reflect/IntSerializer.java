@@ -29,11 +29,21 @@ public class IntSerializer implements ISerializer {
         ByteBufUtils.writeIntBox(buffer, (Integer) object);
     }
 
+    @Override
+    public int sizeOf(Object object, IFieldRegistration fieldRegistration) {
+        return ByteBufUtils.writeIntCount(object == null ? 0 : (Integer) object);
+    }
+
     @Override
     public Object readObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
         return ByteBufUtils.readIntBox(buffer);
     }
 
+    @Override
+    public void skipObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
+        ByteBufUtils.readInt(buffer);
+    }
+
     @Override
     public Object defaultValue(IFieldRegistration fieldRegistration) {
         return Integer.valueOf(0);
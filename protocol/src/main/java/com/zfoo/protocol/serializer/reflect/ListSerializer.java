@@ -14,6 +14,8 @@
 package com.zfoo.protocol.serializer.reflect;
 
 import com.zfoo.protocol.buffer.ByteBufUtils;
+import com.zfoo.protocol.collection.ArrayListInt;
+import com.zfoo.protocol.collection.ArrayListLong;
 import com.zfoo.protocol.collection.CollectionUtils;
 import com.zfoo.protocol.registration.field.IFieldRegistration;
 import com.zfoo.protocol.registration.field.ListField;
@@ -30,12 +32,31 @@ public class ListSerializer implements ISerializer {
     public static final ListSerializer INSTANCE = new ListSerializer();
 
     @Override
+    @SuppressWarnings("unchecked")
     public void writeObject(ByteBuf buffer, Object object, IFieldRegistration fieldRegistration) {
+        if (((ListField) fieldRegistration).isDelta()) {
+            if (((ListField) fieldRegistration).getListElementRegistration().serializer() == IntSerializer.INSTANCE) {
+                ByteBufUtils.writeIntDeltaList(buffer, (List<Integer>) object);
+            } else {
+                ByteBufUtils.writeLongDeltaList(buffer, (List<Long>) object);
+            }
+            return;
+        }
+
         if (object == null) {
             ByteBufUtils.writeInt(buffer, 0);
             return;
         }
 
+        // 基础类型的List不装箱直接写入
+        if (object instanceof ArrayListInt primitiveList) {
+            ByteBufUtils.writeIntCollection(buffer, primitiveList);
+            return;
+        } else if (object instanceof ArrayListLong primitiveList) {
+            ByteBufUtils.writeLongCollection(buffer, primitiveList);
+            return;
+        }
+
         List<?> list = (List<?>) object;
         ListField listField = (ListField) fieldRegistration;
 
@@ -51,10 +72,52 @@ public class ListSerializer implements ISerializer {
         }
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public int sizeOf(Object object, IFieldRegistration fieldRegistration) {
+        ListField listField = (ListField) fieldRegistration;
+        if (listField.isDelta()) {
+            return listField.getListElementRegistration().serializer() == IntSerializer.INSTANCE
+                    ? ByteBufUtils.writeIntDeltaListCount((List<Integer>) object)
+                    : ByteBufUtils.writeLongDeltaListCount((List<Long>) object);
+        }
+
+        if (object == null) {
+            return 1;
+        }
+
+        if (object instanceof ArrayListInt primitiveList) {
+            return ByteBufUtils.writeIntCollectionCount(primitiveList);
+        } else if (object instanceof ArrayListLong primitiveList) {
+            return ByteBufUtils.writeLongCollectionCount(primitiveList);
+        }
+
+        List<?> list = (List<?>) object;
+        var size = ByteBufUtils.writeIntCount(list.size());
+        for (Object element : list) {
+            size += listField.getListElementRegistration().serializer().sizeOf(element, listField.getListElementRegistration());
+        }
+        return size;
+    }
+
     @Override
     public Object readObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
-        var size = ByteBufUtils.readInt(buffer);
         var listField = (ListField) fieldRegistration;
+        if (listField.isDelta()) {
+            return listField.getListElementRegistration().serializer() == IntSerializer.INSTANCE
+                    ? ByteBufUtils.readIntDeltaList(buffer)
+                    : ByteBufUtils.readLongDeltaList(buffer);
+        }
+
+        // int和long直接读到基础类型的List里，和字节码增强的结果保持一致
+        var elementSerializer = listField.getListElementRegistration().serializer();
+        if (elementSerializer == IntSerializer.INSTANCE) {
+            return ByteBufUtils.readIntList(buffer);
+        } else if (elementSerializer == LongSerializer.INSTANCE) {
+            return ByteBufUtils.readLongList(buffer);
+        }
+
+        var size = ByteBufUtils.readInt(buffer);
         List<Object> list = CollectionUtils.newList(size);
         for (int i = 0; i < size; i++) {
             Object value = listField.getListElementRegistration().serializer().readObject(buffer, listField.getListElementRegistration());
@@ -64,8 +127,28 @@ public class ListSerializer implements ISerializer {
         return list;
     }
 
+    @Override
+    public void skipObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
+        var listField = (ListField) fieldRegistration;
+        if (listField.isDelta()) {
+            ByteBufUtils.skipDeltaArray(buffer);
+            return;
+        }
+
+        var size = ByteBufUtils.readInt(buffer);
+        for (var i = 0; i < size; i++) {
+            listField.getListElementRegistration().serializer().skipObject(buffer, listField.getListElementRegistration());
+        }
+    }
+
     @Override
     public Object defaultValue(IFieldRegistration fieldRegistration) {
+        var elementSerializer = ((ListField) fieldRegistration).getListElementRegistration().serializer();
+        if (elementSerializer == IntSerializer.INSTANCE) {
+            return new ArrayListInt(0);
+        } else if (elementSerializer == LongSerializer.INSTANCE) {
+            return new ArrayListLong(0);
+        }
         return new ArrayList<>();
     }
 
@@ -29,11 +29,21 @@ public class LongSerializer implements ISerializer {
         ByteBufUtils.writeLongBox(buffer, (Long) object);
     }
 
+    @Override
+    public int sizeOf(Object object, IFieldRegistration fieldRegistration) {
+        return ByteBufUtils.writeLongCount(object == null ? 0L : (Long) object);
+    }
+
     @Override
     public Object readObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
         return ByteBufUtils.readLongBox(buffer);
     }
 
+    @Override
+    public void skipObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
+        ByteBufUtils.readLong(buffer);
+    }
+
     @Override
     public Object defaultValue(IFieldRegistration fieldRegistration) {
         return Long.valueOf(0);
@@ -14,7 +14,7 @@
 package com.zfoo.protocol.serializer.reflect;
 
 import com.zfoo.protocol.buffer.ByteBufUtils;
-import com.zfoo.protocol.collection.CollectionUtils;
+import com.zfoo.protocol.collection.*;
 import com.zfoo.protocol.registration.field.IFieldRegistration;
 import com.zfoo.protocol.registration.field.MapField;
 import io.netty.buffer.ByteBuf;
@@ -36,6 +36,21 @@ public class MapSerializer implements ISerializer {
             return;
         }
 
+        // 基础类型的Map不装箱直接写入
+        if (object instanceof HashMapIntInt map) {
+            ByteBufUtils.writeIntIntMap(buffer, map);
+            return;
+        } else if (object instanceof HashMapIntLong map) {
+            ByteBufUtils.writeIntLongMap(buffer, map);
+            return;
+        } else if (object instanceof HashMapLongInt map) {
+            ByteBufUtils.writeLongIntMap(buffer, map);
+            return;
+        } else if (object instanceof HashMapLongLong map) {
+            ByteBufUtils.writeLongLongMap(buffer, map);
+            return;
+        }
+
         Map<?, ?> map = (Map<?, ?>) object;
         MapField mapField = (MapField) fieldRegistration;
 
@@ -55,10 +70,53 @@ public class MapSerializer implements ISerializer {
         }
     }
 
+    @Override
+    public int sizeOf(Object object, IFieldRegistration fieldRegistration) {
+        if (object == null) {
+            return 1;
+        }
+
+        if (object instanceof HashMapIntInt map) {
+            return ByteBufUtils.writeIntIntMapCount(map);
+        } else if (object instanceof HashMapIntLong map) {
+            return ByteBufUtils.writeIntLongMapCount(map);
+        } else if (object instanceof HashMapLongInt map) {
+            return ByteBufUtils.writeLongIntMapCount(map);
+        } else if (object instanceof HashMapLongLong map) {
+            return ByteBufUtils.writeLongLongMapCount(map);
+        }
+
+        Map<?, ?> map = (Map<?, ?>) object;
+        MapField mapField = (MapField) fieldRegistration;
+        var size = ByteBufUtils.writeIntCount(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            size += mapField.getMapKeyRegistration().serializer().sizeOf(entry.getKey(), mapField.getMapKeyRegistration());
+            size += mapField.getMapValueRegistration().serializer().sizeOf(entry.getValue(), mapField.getMapValueRegistration());
+        }
+        return size;
+    }
+
     @Override
     public Object readObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
-        var size = ByteBufUtils.readInt(buffer);
         var mapField = (MapField) fieldRegistration;
+        var keySerializer = mapField.getMapKeyRegistration().serializer();
+        var valueSerializer = mapField.getMapValueRegistration().serializer();
+        // key和value都是int或者long的时候直接读到HashMapIntInt这些基础类型的Map里，和字节码增强的结果保持一致
+        if (keySerializer == IntSerializer.INSTANCE) {
+            if (valueSerializer == IntSerializer.INSTANCE) {
+                return ByteBufUtils.readIntIntMap(buffer);
+            } else if (valueSerializer == LongSerializer.INSTANCE) {
+                return ByteBufUtils.readIntLongMap(buffer);
+            }
+        } else if (keySerializer == LongSerializer.INSTANCE) {
+            if (valueSerializer == IntSerializer.INSTANCE) {
+                return ByteBufUtils.readLongIntMap(buffer);
+            } else if (valueSerializer == LongSerializer.INSTANCE) {
+                return ByteBufUtils.readLongLongMap(buffer);
+            }
+        }
+
+        var size = ByteBufUtils.readInt(buffer);
         Map<Object, Object> map = CollectionUtils.newMap(size);
 
         for (int i = 0; i < size; i++) {
@@ -71,8 +129,34 @@ public class MapSerializer implements ISerializer {
         return map;
     }
 
+    @Override
+    public void skipObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
+        var mapField = (MapField) fieldRegistration;
+        var size = ByteBufUtils.readInt(buffer);
+        for (var i = 0; i < size; i++) {
+            mapField.getMapKeyRegistration().serializer().skipObject(buffer, mapField.getMapKeyRegistration());
+            mapField.getMapValueRegistration().serializer().skipObject(buffer, mapField.getMapValueRegistration());
+        }
+    }
+
     @Override
     public Object defaultValue(IFieldRegistration fieldRegistration) {
+        var mapField = (MapField) fieldRegistration;
+        var keySerializer = mapField.getMapKeyRegistration().serializer();
+        var valueSerializer = mapField.getMapValueRegistration().serializer();
+        if (keySerializer == IntSerializer.INSTANCE) {
+            if (valueSerializer == IntSerializer.INSTANCE) {
+                return new HashMapIntInt();
+            } else if (valueSerializer == LongSerializer.INSTANCE) {
+                return new HashMapIntLong();
+            }
+        } else if (keySerializer == LongSerializer.INSTANCE) {
+            if (valueSerializer == IntSerializer.INSTANCE) {
+                return new HashMapLongInt();
+            } else if (valueSerializer == LongSerializer.INSTANCE) {
+                return new HashMapLongLong();
+            }
+        }
         return new HashMap<>();
     }
 
@@ -15,6 +15,7 @@ package com.zfoo.protocol.serializer.reflect;
 
 import com.zfoo.protocol.ProtocolManager;
 import com.zfoo.protocol.registration.IProtocolRegistration;
+import com.zfoo.protocol.registration.LazyPacket;
 import com.zfoo.protocol.registration.field.IFieldRegistration;
 import com.zfoo.protocol.registration.field.ObjectProtocolField;
 import io.netty.buffer.ByteBuf;
@@ -38,6 +39,12 @@ public class ObjectProtocolSerializer implements ISerializer {
         protocol.write(buffer, object);
     }
 
+    @Override
+    public int sizeOf(Object object, IFieldRegistration fieldRegistration) {
+        ObjectProtocolField objectProtocolField = (ObjectProtocolField) fieldRegistration;
+        return ProtocolManager.getProtocol(objectProtocolField.getProtocolId()).sizeOf(object);
+    }
+
     @Override
     public Object readObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
         ObjectProtocolField objectProtocolField = (ObjectProtocolField) fieldRegistration;
@@ -45,6 +52,12 @@ public class ObjectProtocolSerializer implements ISerializer {
         return protocol.read(buffer);
     }
 
+    @Override
+    public void skipObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
+        ObjectProtocolField objectProtocolField = (ObjectProtocolField) fieldRegistration;
+        LazyPacket.skip(buffer, objectProtocolField.getProtocolId());
+    }
+
     @Override
     public Object defaultValue(IFieldRegistration fieldRegistration) {
         return null;
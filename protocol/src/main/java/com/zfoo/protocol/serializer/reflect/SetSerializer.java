@@ -15,6 +15,8 @@ package com.zfoo.protocol.serializer.reflect;
 
 import com.zfoo.protocol.buffer.ByteBufUtils;
 import com.zfoo.protocol.collection.CollectionUtils;
+import com.zfoo.protocol.collection.HashSetInt;
+import com.zfoo.protocol.collection.HashSetLong;
 import com.zfoo.protocol.registration.field.ArrayField;
 import com.zfoo.protocol.registration.field.IFieldRegistration;
 import com.zfoo.protocol.registration.field.SetField;
@@ -37,6 +39,15 @@ public class SetSerializer implements ISerializer {
             return;
         }
 
+        // 基础类型的Set不装箱直接写入
+        if (object instanceof HashSetInt primitiveSet) {
+            ByteBufUtils.writeIntCollection(buffer, primitiveSet);
+            return;
+        } else if (object instanceof HashSetLong primitiveSet) {
+            ByteBufUtils.writeLongCollection(buffer, primitiveSet);
+            return;
+        }
+
         Set<?> set = (Set<?>) object;
         SetField setField = (SetField) fieldRegistration;
 
@@ -52,10 +63,39 @@ public class SetSerializer implements ISerializer {
         }
     }
 
+    @Override
+    public int sizeOf(Object object, IFieldRegistration fieldRegistration) {
+        if (object == null) {
+            return 1;
+        }
+
+        if (object instanceof HashSetInt primitiveSet) {
+            return ByteBufUtils.writeIntCollectionCount(primitiveSet);
+        } else if (object instanceof HashSetLong primitiveSet) {
+            return ByteBufUtils.writeLongCollectionCount(primitiveSet);
+        }
+
+        Set<?> set = (Set<?>) object;
+        SetField setField = (SetField) fieldRegistration;
+        var size = ByteBufUtils.writeIntCount(set.size());
+        for (Object element : set) {
+            size += setField.getSetElementRegistration().serializer().sizeOf(element, setField.getSetElementRegistration());
+        }
+        return size;
+    }
+
     @Override
     public Object readObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
-        var size = ByteBufUtils.readInt(buffer);
         var setField = (SetField) fieldRegistration;
+        // int和long直接读到基础类型的Set里，和字节码增强的结果保持一致
+        var elementSerializer = setField.getSetElementRegistration().serializer();
+        if (elementSerializer == IntSerializer.INSTANCE) {
+            return ByteBufUtils.readIntSet(buffer);
+        } else if (elementSerializer == LongSerializer.INSTANCE) {
+            return ByteBufUtils.readLongSet(buffer);
+        }
+
+        var size = ByteBufUtils.readInt(buffer);
         Set<Object> set = CollectionUtils.newSet(size);
 
         for (int i = 0; i < size; i++) {
@@ -66,8 +106,23 @@ public class SetSerializer implements ISerializer {
         return set;
     }
 
+    @Override
+    public void skipObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
+        var setField = (SetField) fieldRegistration;
+        var size = ByteBufUtils.readInt(buffer);
+        for (var i = 0; i < size; i++) {
+            setField.getSetElementRegistration().serializer().skipObject(buffer, setField.getSetElementRegistration());
+        }
+    }
+
     @Override
     public Object defaultValue(IFieldRegistration fieldRegistration) {
+        var elementSerializer = ((SetField) fieldRegistration).getSetElementRegistration().serializer();
+        if (elementSerializer == IntSerializer.INSTANCE) {
+            return new HashSetInt();
+        } else if (elementSerializer == LongSerializer.INSTANCE) {
+            return new HashSetLong();
+        }
         return new HashSet<>();
     }
 
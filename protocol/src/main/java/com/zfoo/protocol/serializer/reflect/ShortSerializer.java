@@ -29,11 +29,21 @@ public class ShortSerializer implements ISerializer {
         ByteBufUtils.writeShortBox(buffer, (Short) object);
     }
 
+    @Override
+    public int sizeOf(Object object, IFieldRegistration fieldRegistration) {
+        return 2;
+    }
+
     @Override
     public Object readObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
         return ByteBufUtils.readShortBox(buffer);
     }
 
+    @Override
+    public void skipObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
+        buffer.skipBytes(2);
+    }
+
     @Override
     public Object defaultValue(IFieldRegistration fieldRegistration) {
         return Short.valueOf((short) 0);
@@ -14,7 +14,9 @@
 package com.zfoo.protocol.serializer.reflect;
 
 import com.zfoo.protocol.buffer.ByteBufUtils;
+import com.zfoo.protocol.buffer.StringDictionary;
 import com.zfoo.protocol.registration.field.IFieldRegistration;
+import com.zfoo.protocol.registration.field.InternStringField;
 import com.zfoo.protocol.util.StringUtils;
 import io.netty.buffer.ByteBuf;
 
@@ -27,14 +29,40 @@ public class StringSerializer implements ISerializer {
 
     @Override
     public void writeObject(ByteBuf buffer, Object object, IFieldRegistration fieldRegistration) {
+        if (fieldRegistration instanceof InternStringField) {
+            ByteBufUtils.writeInternString(buffer, (String) object);
+            return;
+        }
         ByteBufUtils.writeString(buffer, (String) object);
     }
 
+    @Override
+    public int sizeOf(Object object, IFieldRegistration fieldRegistration) {
+        // @Intern字符串在绑定了StringDictionary时写入的是引用或者负数长度，不会超过普通字符串的字节数
+        return ByteBufUtils.writeStringCount((String) object);
+    }
+
     @Override
     public Object readObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
+        if (fieldRegistration instanceof InternStringField) {
+            return ByteBufUtils.readInternString(buffer);
+        }
         return ByteBufUtils.readString(buffer);
     }
 
+    @Override
+    public void skipObject(ByteBuf buffer, IFieldRegistration fieldRegistration) {
+        if (fieldRegistration instanceof InternStringField && StringDictionary.current() != null) {
+            // 需要按顺序把新字符串加入到字典中，不能直接跳过
+            ByteBufUtils.readInternString(buffer);
+            return;
+        }
+        var length = ByteBufUtils.readInt(buffer);
+        if (length > 0) {
+            buffer.skipBytes(length);
+        }
+    }
+
     @Override
     public Object defaultValue(IFieldRegistration fieldRegistration) {
         return StringUtils.EMPTY;
@@ -14,6 +14,7 @@
 package com.zfoo.protocol.serializer.ruby;
 
 import com.zfoo.protocol.anno.Compatible;
+import com.zfoo.protocol.collection.PrimitiveCollectionUtils;
 import com.zfoo.protocol.generate.GenerateOperation;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.generate.GenerateProtocolNote;
@@ -247,7 +248,7 @@ public class CodeGenerateRuby implements ICodeGenerate {
             }
             // 生成类型的注释
             rbBuilder.append(StringUtils.format("attr_accessor :{}", fieldName));
-            rbBuilder.append(StringUtils.format("  # {}", CodeGenerateCsharp.toCsClassName(field.getGenericType().getTypeName())));
+            rbBuilder.append(StringUtils.format("  # {}", CodeGenerateCsharp.toCsClassName(PrimitiveCollectionUtils.genericType(field).getTypeName())));
             rbBuilder.append(LS);
         }
         return rbBuilder.toString();
@@ -13,6 +13,7 @@
 
 package com.zfoo.protocol.serializer.rust;
 
+import com.zfoo.protocol.collection.PrimitiveCollectionUtils;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.model.Pair;
 import com.zfoo.protocol.registration.field.IFieldRegistration;
@@ -32,7 +33,7 @@ public class RustListSerializer implements IRustSerializer {
 
     @Override
     public Pair<String, String> fieldTypeDefaultValue(Field field, IFieldRegistration fieldRegistration) {
-        var type = StringUtils.format("{}", CodeGenerateRust.toRustClassName(field.getGenericType().toString()));
+        var type = StringUtils.format("{}", CodeGenerateRust.toRustClassName(PrimitiveCollectionUtils.genericType(field).toString()));
         return new Pair<>(type, "Vec::new()");
     }
 
@@ -13,6 +13,7 @@
 
 package com.zfoo.protocol.serializer.typescript;
 
+import com.zfoo.protocol.collection.PrimitiveCollectionUtils;
 import com.zfoo.protocol.generate.GenerateProtocolFile;
 import com.zfoo.protocol.model.Pair;
 import com.zfoo.protocol.registration.field.IFieldRegistration;
@@ -32,7 +33,7 @@ public class TsListSerializer implements ITsSerializer {
 
     @Override
     public Pair<String, String> fieldTypeDefaultValue(Field field, IFieldRegistration fieldRegistration) {
-        var type = StringUtils.format("{}", CodeGenerateTypeScript.toTsClassName(field.getGenericType().toString()));
+        var type = StringUtils.format("{}", CodeGenerateTypeScript.toTsClassName(PrimitiveCollectionUtils.genericType(field).toString()));
         return new Pair<>(type, "[]");
     }
 
@@ -13,6 +13,7 @@
 package com.zfoo.protocol.util;
 
 import com.zfoo.protocol.collection.ArrayUtils;
+import com.zfoo.protocol.collection.PrimitiveCollectionUtils;
 import com.zfoo.protocol.exception.RunException;
 
 import java.io.File;
@@ -387,9 +388,9 @@ public abstract class ClassUtils {
                 Class<?> arrayClazz = fieldType.getComponentType();
                 relevantClass0(arrayClazz, classSet);
             } else if (Set.class.isAssignableFrom(fieldType)) {
-                AssertionUtils.isTrue(fieldType.equals(Set.class), "[class:{}]类型声明不正确，必须是Set接口类型", clazz.getCanonicalName());
+                AssertionUtils.isTrue(fieldType.equals(Set.class) || PrimitiveCollectionUtils.isPrimitiveCollection(fieldType), "[class:{}]类型声明不正确，必须是Set接口类型", clazz.getCanonicalName());
 
-                var type = field.getGenericType();
+                var type = PrimitiveCollectionUtils.genericType(field);
                 AssertionUtils.isTrue(type instanceof ParameterizedType, "[class:{}]类型声明不正确，不是泛型类[field:{}]", clazz.getCanonicalName(), field.getName());
 
                 var types = ((ParameterizedType) type).getActualTypeArguments();
@@ -398,9 +399,9 @@ public abstract class ClassUtils {
                 relevantClass0(types[0], classSet);
             } else if (List.class.isAssignableFrom(fieldType)) {
                 // 是一个List
-                AssertionUtils.isTrue(fieldType.equals(List.class), "[class:{}]类型声明不正确，必须是List接口类型", clazz.getCanonicalName());
+                AssertionUtils.isTrue(fieldType.equals(List.class) || PrimitiveCollectionUtils.isPrimitiveCollection(fieldType), "[class:{}]类型声明不正确，必须是List接口类型", clazz.getCanonicalName());
 
-                var type = field.getGenericType();
+                var type = PrimitiveCollectionUtils.genericType(field);
                 AssertionUtils.isTrue(type instanceof ParameterizedType, "[class:{}]类型声明不正确，不是泛型类[field:{}]", clazz.getCanonicalName(), field.getName());
 
                 var types = ((ParameterizedType) type).getActualTypeArguments();
@@ -408,11 +409,11 @@ public abstract class ClassUtils {
 
                 relevantClass0(types[0], classSet);
             } else if (Map.class.isAssignableFrom(fieldType)) {
-                if (!fieldType.equals(Map.class)) {
+                if (!fieldType.equals(Map.class) && !PrimitiveCollectionUtils.isPrimitiveCollection(fieldType)) {
                     throw new RunException("[class:{}]类型声明不正确，必须是Map接口类型", clazz.getCanonicalName());
                 }
 
-                var type = field.getGenericType();
+                var type = PrimitiveCollectionUtils.genericType(field);
                 if (!(type instanceof ParameterizedType)) {
                     throw new RunException("[class:{}]中数组类型声明不正确，[field:{}]不是泛型类", clazz.getCanonicalName(), field.getName());
                 }
@@ -766,6 +766,163 @@ namespace zfoocs
             return array;
         }
 
+        // @Delta: length, first element, min delta as base, bit width, then (delta - base) packed from low bit to high bit
+        public void WriteLongDeltaArray(long[] array)
+        {
+            if ((array == null) || (array.Length == 0))
+            {
+                WriteInt(0);
+                return;
+            }
+
+            int length = array.Length;
+            WriteInt(length);
+            WriteLong(array[0]);
+            if (length == 1)
+            {
+                return;
+            }
+
+            long deltaBase = long.MaxValue;
+            for (int index = 1; index < length; index++)
+            {
+                deltaBase = Math.Min(deltaBase, array[index] - array[index - 1]);
+            }
+
+            ulong maxOffset = 0;
+            for (int index = 1; index < length; index++)
+            {
+                maxOffset |= (ulong) (array[index] - array[index - 1] - deltaBase);
+            }
+
+            int bitWidth = 0;
+            while (bitWidth < 64 && (maxOffset >> bitWidth) != 0)
+            {
+                bitWidth++;
+            }
+
+            WriteLong(deltaBase);
+            WriteByte((byte) bitWidth);
+            int bits = 0;
+            int bitCount = 0;
+            for (int index = 1; index < length; index++)
+            {
+                ulong offset = (ulong) (array[index] - array[index - 1] - deltaBase);
+                for (int done = 0; done < bitWidth;)
+                {
+                    int take = Math.Min(8 - bitCount, bitWidth - done);
+                    bits |= (int) ((offset >> done) & (ulong) ((1 << take) - 1)) << bitCount;
+                    bitCount += take;
+                    done += take;
+                    if (bitCount == 8)
+                    {
+                        WriteByte((byte) bits);
+                        bits = 0;
+                        bitCount = 0;
+                    }
+                }
+            }
+
+            if (bitCount > 0)
+            {
+                WriteByte((byte) bits);
+            }
+        }
+
+        public long[] ReadLongDeltaArray()
+        {
+            int size = ReadInt();
+            long[] array = new long[size];
+            if (size <= 0)
+            {
+                return array;
+            }
+
+            long value = ReadLong();
+            array[0] = value;
+            if (size == 1)
+            {
+                return array;
+            }
+
+            long deltaBase = ReadLong();
+            int bitWidth = ReadByte();
+            int bits = 0;
+            int bitCount = 0;
+            for (int index = 1; index < size; index++)
+            {
+                ulong offset = 0;
+                for (int done = 0; done < bitWidth;)
+                {
+                    if (bitCount == 0)
+                    {
+                        bits = ReadByte();
+                        bitCount = 8;
+                    }
+
+                    int take = Math.Min(bitCount, bitWidth - done);
+                    offset |= (ulong) (bits & ((1 << take) - 1)) << done;
+                    bits >>= take;
+                    bitCount -= take;
+                    done += take;
+                }
+
+                value += deltaBase + (long) offset;
+                array[index] = value;
+            }
+
+            return array;
+        }
+
+        public void WriteIntDeltaArray(int[] array)
+        {
+            if (array == null)
+            {
+                WriteInt(0);
+                return;
+            }
+
+            long[] longs = new long[array.Length];
+            for (int index = 0; index < array.Length; index++)
+            {
+                longs[index] = array[index];
+            }
+
+            WriteLongDeltaArray(longs);
+        }
+
+        public int[] ReadIntDeltaArray()
+        {
+            long[] longs = ReadLongDeltaArray();
+            int[] array = new int[longs.Length];
+            for (int index = 0; index < longs.Length; index++)
+            {
+                array[index] = (int) longs[index];
+            }
+
+            return array;
+        }
+
+        public void WriteIntDeltaList(List<int> list)
+        {
+            WriteIntDeltaArray(list == null ? null : list.ToArray());
+        }
+
+        public List<int> ReadIntDeltaList()
+        {
+            return new List<int>(ReadIntDeltaArray());
+        }
+
+        public void WriteLongDeltaList(List<long> list)
+        {
+            WriteLongDeltaArray(list == null ? null : list.ToArray());
+        }
+
+        public List<long> ReadLongDeltaList()
+        {
+            return new List<long>(ReadLongDeltaArray());
+        }
+
         public void WriteFloatArray(float[] array)
         {
             if ((array == null) || (array.Length == 0))
@@ -502,6 +502,129 @@ public class ByteBuffer {
         return array;
     }
 
+    // @Delta: length, first element, min delta as base, bit width, then (delta - base) packed from low bit to high bit
+    public void writeLongDeltaArray(long[] array) {
+        if ((array == null) || (array.length == 0)) {
+            writeInt(0);
+            return;
+        }
+        int length = array.length;
+        writeInt(length);
+        writeLong(array[0]);
+        if (length == 1) {
+            return;
+        }
+        long base = Long.MAX_VALUE;
+        for (int index = 1; index < length; index++) {
+            base = Math.min(base, array[index] - array[index - 1]);
+        }
+        long maxOffset = 0;
+        for (int index = 1; index < length; index++) {
+            maxOffset |= array[index] - array[index - 1] - base;
+        }
+        int bitWidth = 64 - Long.numberOfLeadingZeros(maxOffset);
+        writeLong(base);
+        writeByte((byte) bitWidth);
+        int bits = 0;
+        int bitCount = 0;
+        for (int index = 1; index < length; index++) {
+            long offset = array[index] - array[index - 1] - base;
+            for (int done = 0; done < bitWidth; ) {
+                int take = Math.min(8 - bitCount, bitWidth - done);
+                bits |= (int) ((offset >>> done) & ((1 << take) - 1)) << bitCount;
+                bitCount += take;
+                done += take;
+                if (bitCount == 8) {
+                    writeByte((byte) bits);
+                    bits = 0;
+                    bitCount = 0;
+                }
+            }
+        }
+        if (bitCount > 0) {
+            writeByte((byte) bits);
+        }
+    }
+
+    public long[] readLongDeltaArray() {
+        int size = readInt();
+        long[] array = new long[size];
+        if (size <= 0) {
+            return array;
+        }
+        long value = readLong();
+        array[0] = value;
+        if (size == 1) {
+            return array;
+        }
+        long base = readLong();
+        int bitWidth = readByte() & 0xFF;
+        int bits = 0;
+        int bitCount = 0;
+        for (int index = 1; index < size; index++) {
+            long offset = 0;
+            for (int done = 0; done < bitWidth; ) {
+                if (bitCount == 0) {
+                    bits = readByte() & 0xFF;
+                    bitCount = 8;
+                }
+                int take = Math.min(bitCount, bitWidth - done);
+                offset |= (long) (bits & ((1 << take) - 1)) << done;
+                bits >>>= take;
+                bitCount -= take;
+                done += take;
+            }
+            value += base + offset;
+            array[index] = value;
+        }
+        return array;
+    }
+
+    public void writeIntDeltaArray(int[] array) {
+        if (array == null) {
+            writeInt(0);
+            return;
+        }
+        long[] longs = new long[array.length];
+        for (int index = 0; index < array.length; index++) {
+            longs[index] = array[index];
+        }
+        writeLongDeltaArray(longs);
+    }
+
+    public int[] readIntDeltaArray() {
+        long[] longs = readLongDeltaArray();
+        int[] array = new int[longs.length];
+        for (int index = 0; index < longs.length; index++) {
+            array[index] = (int) longs[index];
+        }
+        return array;
+    }
+
+    public void writeIntDeltaList(List<Integer> list) {
+        writeIntDeltaArray(list == null ? null : list.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public List<Integer> readIntDeltaList() {
+        List<Integer> list = new ArrayList<>();
+        for (int value : readIntDeltaArray()) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    public void writeLongDeltaList(List<Long> list) {
+        writeLongDeltaArray(list == null ? null : list.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    public List<Long> readLongDeltaList() {
+        List<Long> list = new ArrayList<>();
+        for (long value : readLongDeltaArray()) {
+            list.add(value);
+        }
+        return list;
+    }
+
     public void writeFloatArray(float[] array) {
         if ((array == null) || (array.length == 0)) {
             writeInt(0);
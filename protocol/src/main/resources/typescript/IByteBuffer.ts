@@ -57,6 +57,14 @@ interface IByteBuffer {
     readByteList(): number[]
     writeShortList(list: Array<number> | null): void
     readShortList(): number[]
+    writeIntDeltaArray(array: Array<number> | null): void
+    readIntDeltaArray(): number[]
+    writeLongDeltaArray(array: Array<number> | null): void
+    readLongDeltaArray(): number[]
+    writeIntDeltaList(list: Array<number> | null): void
+    readIntDeltaList(): number[]
+    writeLongDeltaList(list: Array<number> | null): void
+    readLongDeltaList(): number[]
     writeIntList(list: Array<number> | null): void
     readIntList(): number[]
     writeLongList(list: Array<number> | null): void
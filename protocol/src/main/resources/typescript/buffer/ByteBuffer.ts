@@ -633,6 +633,114 @@ class ByteBuffer implements IByteBuffer{
         return this.readShortArray();
     }
 
+    // @Delta: length, first element, min delta as base, bit width, then (delta - base) packed from low bit to high bit
+    writeLongDeltaArray(array: Array<number> | null): void {
+        if (array === null || array.length === 0) {
+            this.writeInt(0);
+            return;
+        }
+        const length = array.length;
+        this.writeInt(length);
+        this.writeLong(array[0]);
+        if (length === 1) {
+            return;
+        }
+        let base = array[1] - array[0];
+        let maxDelta = base;
+        for (let index = 2; index < length; index++) {
+            const delta = array[index] - array[index - 1];
+            base = Math.min(base, delta);
+            maxDelta = Math.max(maxDelta, delta);
+        }
+        const maxOffset = maxDelta - base;
+        let bitWidth = 0;
+        while (maxOffset >= Math.pow(2, bitWidth)) {
+            bitWidth++;
+        }
+        this.writeLong(base);
+        this.writeByte(bitWidth);
+        let bits = 0;
+        let bitCount = 0;
+        for (let index = 1; index < length; index++) {
+            let offset = array[index] - array[index - 1] - base;
+            for (let done = 0; done < bitWidth;) {
+                const take = Math.min(8 - bitCount, bitWidth - done);
+                const pow = Math.pow(2, take);
+                const chunk = offset % pow;
+                offset = (offset - chunk) / pow;
+                bits |= chunk << bitCount;
+                bitCount += take;
+                done += take;
+                if (bitCount === 8) {
+                    this.writeByte(bits);
+                    bits = 0;
+                    bitCount = 0;
+                }
+            }
+        }
+        if (bitCount > 0) {
+            this.writeByte(bits);
+        }
+    }
+
+    readLongDeltaArray(): number[] {
+        const array: number[] = [];
+        const length = this.readInt();
+        if (length <= 0) {
+            return array;
+        }
+        let value = this.readLong();
+        array.push(value);
+        if (length === 1) {
+            return array;
+        }
+        const base = this.readLong();
+        const bitWidth = this.readByte() & 0xFF;
+        let bits = 0;
+        let bitCount = 0;
+        for (let index = 1; index < length; index++) {
+            let offset = 0;
+            for (let done = 0; done < bitWidth;) {
+                if (bitCount === 0) {
+                    bits = this.readByte() & 0xFF;
+                    bitCount = 8;
+                }
+                const take = Math.min(bitCount, bitWidth - done);
+                offset += (bits & ((1 << take) - 1)) * Math.pow(2, done);
+                bits >>>= take;
+                bitCount -= take;
+                done += take;
+            }
+            value += base + offset;
+            array.push(value);
+        }
+        return array;
+    }
+
+    writeIntDeltaArray(array: Array<number> | null): void {
+        this.writeLongDeltaArray(array);
+    }
+
+    readIntDeltaArray(): number[] {
+        return this.readLongDeltaArray();
+    }
+
+    writeIntDeltaList(list: Array<number> | null): void {
+        this.writeLongDeltaArray(list);
+    }
+
+    readIntDeltaList(): number[] {
+        return this.readLongDeltaArray();
+    }
+
+    writeLongDeltaList(list: Array<number> | null): void {
+        this.writeLongDeltaArray(list);
+    }
+
+    readLongDeltaList(): number[] {
+        return this.readLongDeltaArray();
+    }
+
     writeIntList(list: Array<number> | null): void {
         this.writeIntArray(list);
     }
@@ -459,7 +459,10 @@ public class BenchmarkTesting {
 
     static {
         // zfoo协议注册(其实就是：将Set里面的协议号和对应的类注册好，这样子就可以根据协议号知道是反序列化为哪个类)
-        ProtocolManager.initProtocolAuto(List.of(ComplexObject.class, NormalObject.class, SimpleObject.class, EmptyObject.class, VeryBigObject.class), GenerateOperation.NO_OPERATION);
+        // -DversionedProtocol=true测试版本化协议的性能，参考VersionedJmhBenchmark
+        var generateOperation = new GenerateOperation();
+        generateOperation.setVersionedProtocol(Boolean.getBoolean("versionedProtocol"));
+        ProtocolManager.initProtocolAuto(List.of(ComplexObject.class, NormalObject.class, SimpleObject.class, EmptyObject.class, VeryBigObject.class), generateOperation);
 
         for (int i = 0; i < executors.length; i++) {
             executors[i] = Executors.newSingleThreadExecutor();
@@ -0,0 +1,82 @@
+package com.zfoo.protocol;
+
+import com.zfoo.protocol.packet.ComplexObject;
+import com.zfoo.protocol.packet.NormalObject;
+import com.zfoo.protocol.packet.SimpleObject;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * 比较可变长整数直接读写底层内存(-Dzfoo.protocol.rawBuffer=true)和每个字节都经过ByteBuf检查的序列化性能
+ *
+ * @author godotg
+ */
+@Ignore
+@State(Scope.Thread)
+public class RawBufferJmhBenchmark {
+
+    public final SimpleObject simpleObject = BenchmarkTesting.simpleObject;
+    public final NormalObject normalObject = BenchmarkTesting.normalObject;
+    public final ComplexObject complexObject = BenchmarkTesting.complexObject;
+
+    @Param({"heap", "direct"})
+    public String bufferType;
+
+    public ByteBuf buffer;
+
+    @Setup
+    public void setup() {
+        buffer = "heap".equals(bufferType)
+                ? PooledByteBufAllocator.DEFAULT.heapBuffer(1_0000)
+                : PooledByteBufAllocator.DEFAULT.directBuffer(1_0000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.release();
+    }
+
+    @Benchmark
+    public Object simpleObject() {
+        buffer.clear();
+        ProtocolManager.write(buffer, simpleObject);
+        return ProtocolManager.read(buffer);
+    }
+
+    @Benchmark
+    public Object normalObject() {
+        buffer.clear();
+        ProtocolManager.write(buffer, normalObject);
+        return ProtocolManager.read(buffer);
+    }
+
+    @Benchmark
+    public Object complexObject() {
+        buffer.clear();
+        ProtocolManager.write(buffer, complexObject);
+        return ProtocolManager.read(buffer);
+    }
+
+    @Test
+    public void test() throws RunnerException {
+        // rawBuffer是静态常量，两种方式分别在不同的进程中测试
+        for (var rawBuffer : new boolean[]{false, true}) {
+            var opt = new OptionsBuilder()
+                    .include(RawBufferJmhBenchmark.class.getSimpleName())
+                    .jvmArgsAppend("-Dzfoo.protocol.rawBuffer=" + rawBuffer)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(rawBuffer ? "jmh-result-raw.json" : "jmh-result-checked.json")
+                    .forks(1)
+                    .build();
+            new Runner(opt).run();
+        }
+    }
+}
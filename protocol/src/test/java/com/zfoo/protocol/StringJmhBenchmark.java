@@ -0,0 +1,92 @@
+package com.zfoo.protocol;
+
+import com.zfoo.protocol.buffer.ByteBufUtils;
+import com.zfoo.protocol.util.StringUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.UnpooledHeapByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * 比较字符串的单次遍历写入和旧的预留长度再移动字节的写入方式
+ *
+ * @author godotg
+ */
+@Ignore
+@State(Scope.Thread)
+public class StringJmhBenchmark {
+
+    @Param({"ascii", "cjk", "emoji"})
+    public String type;
+
+    public String value;
+
+    public final ByteBuf buffer = new UnpooledHeapByteBuf(ByteBufAllocator.DEFAULT, 100, 10_0000);
+
+    @Setup
+    public void setup() {
+        value = switch (type) {
+            case "ascii" -> "hello world, this is a chat message from zfoo! ".repeat(4);
+            case "cjk" -> "你好，世界 hello 这是一条来自zfoo的聊天消息 ".repeat(4);
+            case "emoji" -> "😀👍🎉 emoji 🚀 ".repeat(4);
+            default -> StringUtils.EMPTY;
+        };
+    }
+
+    @Benchmark
+    public String writeString() {
+        buffer.clear();
+        ByteBufUtils.writeString(buffer, value);
+        return ByteBufUtils.readString(buffer);
+    }
+
+    @Benchmark
+    public String writeStringLegacy() {
+        buffer.clear();
+        legacyWriteString(buffer, value);
+        return ByteBufUtils.readString(buffer);
+    }
+
+    /**
+     * 旧的写入方式，按照utf8最大长度预留位置，预留的可变长int长度不对时需要再拷贝一次字符串内容
+     */
+    private static void legacyWriteString(ByteBuf byteBuf, String value) {
+        var beforeWriteIndex = byteBuf.writerIndex();
+        var maxLength = ByteBufUtil.utf8MaxBytes(value);
+        var writeIntCountByte = ByteBufUtils.writeInt(byteBuf, maxLength);
+        var length = byteBuf.writeCharSequence(value, StringUtils.DEFAULT_CHARSET);
+        var currentWriteIndex = byteBuf.writerIndex();
+        var padding = writeIntCountByte - ByteBufUtils.writeIntCount(length);
+        if (padding == 0) {
+            byteBuf.writerIndex(beforeWriteIndex);
+            ByteBufUtils.writeInt(byteBuf, length);
+            byteBuf.writerIndex(currentWriteIndex);
+        } else {
+            var retainedByteBuf = byteBuf.retainedSlice(currentWriteIndex - length, length);
+            byteBuf.writerIndex(beforeWriteIndex);
+            ByteBufUtils.writeInt(byteBuf, length);
+            byteBuf.writeBytes(retainedByteBuf);
+            ReferenceCountUtil.release(retainedByteBuf);
+        }
+    }
+
+    @Test
+    public void test() throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(StringJmhBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .forks(1)
+                .build();
+        new Runner(opt).run();
+    }
+}
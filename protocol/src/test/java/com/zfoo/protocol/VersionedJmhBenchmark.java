@@ -0,0 +1,67 @@
+package com.zfoo.protocol;
+
+import com.zfoo.protocol.packet.ComplexObject;
+import com.zfoo.protocol.packet.NormalObject;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.UnpooledHeapByteBuf;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * 比较版本化协议(所有的协议都写入长度)和默认的紧凑协议的序列化性能
+ *
+ * @author godotg
+ */
+@Ignore
+@State(Scope.Thread)
+public class VersionedJmhBenchmark {
+
+    public final NormalObject normalObject = BenchmarkTesting.normalObject;
+    public final ComplexObject complexObject = BenchmarkTesting.complexObject;
+
+    public final ByteBuf buffer = new UnpooledHeapByteBuf(ByteBufAllocator.DEFAULT, 100, 1_0000);
+
+    @Setup
+    public void setup() {
+        System.out.println();
+        System.out.println("versionedProtocol:" + Boolean.getBoolean("versionedProtocol")
+                + " normalObject size:" + ProtocolManager.sizeOf(normalObject)
+                + " complexObject size:" + ProtocolManager.sizeOf(complexObject));
+    }
+
+    @Benchmark
+    public Object normalObject() {
+        buffer.clear();
+        ProtocolManager.write(buffer, normalObject);
+        return ProtocolManager.read(buffer);
+    }
+
+    @Benchmark
+    public Object complexObject() {
+        buffer.clear();
+        ProtocolManager.write(buffer, complexObject);
+        return ProtocolManager.read(buffer);
+    }
+
+    @Test
+    public void test() throws RunnerException {
+        // 协议只能初始化一次，紧凑协议和版本化协议分别在不同的进程中测试
+        for (var versioned : new boolean[]{false, true}) {
+            var opt = new OptionsBuilder()
+                    .include(VersionedJmhBenchmark.class.getSimpleName())
+                    .jvmArgsAppend("-DversionedProtocol=" + versioned)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(versioned ? "jmh-result-versioned.json" : "jmh-result-compact.json")
+                    .forks(1)
+                    .build();
+            new Runner(opt).run();
+        }
+    }
+}
@@ -13,11 +13,18 @@
 
 package com.zfoo.protocol.buffer;
 
+import com.zfoo.protocol.collection.ArrayListLong;
+import com.zfoo.protocol.collection.HashMapIntLong;
+import com.zfoo.protocol.collection.HashMapLongLong;
+import com.zfoo.protocol.collection.HashSetInt;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
 /**
  * @author godotg
  */
@@ -100,6 +107,248 @@ public class ByteBufUtilsTest {
         Assert.assertEquals(result, str);
     }
 
+    @Test
+    public void stringLengthTest() {
+        // ascii，中文，emoji以及长度刚好跨越可变长int边界的字符串
+        var values = new String[]{"", "a", "hello 你好", "\uD83D\uDE00\uD83D\uDC4D emoji", "a".repeat(127), "a".repeat(128)
+                , "中".repeat(42), "中".repeat(43), "中".repeat(5461), "中".repeat(5462), "\uD83D\uDE00".repeat(4096)};
+        ByteBuf byteBuf = Unpooled.buffer();
+        for (var value : values) {
+            byteBuf.clear();
+            ByteBufUtils.writeString(byteBuf, value);
+            var length = value.getBytes(StandardCharsets.UTF_8).length;
+            Assert.assertEquals(ByteBufUtils.writeIntCount(length) + length, byteBuf.readableBytes());
+            Assert.assertEquals(value, ByteBufUtils.readString(byteBuf));
+            Assert.assertFalse(byteBuf.isReadable());
+        }
+    }
+
+    @Test
+    public void internStringTest() {
+        var values = new String[]{"item_1001", "world_chat", "", "item_1001", "locale.key.hello", "world_chat", "x".repeat(1000), "x".repeat(1000)};
+        var writeDictionary = new StringDictionary();
+        var readDictionary = new StringDictionary();
+        ByteBuf byteBuf = Unpooled.buffer();
+
+        StringDictionary.bind(writeDictionary);
+        for (var value : values) {
+            ByteBufUtils.writeInternString(byteBuf, value);
+        }
+        StringDictionary.unbind();
+
+        StringDictionary.bind(readDictionary);
+        var results = new String[values.length];
+        for (var i = 0; i < values.length; i++) {
+            results[i] = ByteBufUtils.readInternString(byteBuf);
+        }
+        StringDictionary.unbind();
+
+        Assert.assertArrayEquals(values, results);
+        // 重复的字符串直接返回字典中缓存的对象，超长的字符串不放入字典
+        Assert.assertSame(results[0], results[3]);
+        Assert.assertSame(results[1], results[5]);
+        Assert.assertNotSame(results[6], results[7]);
+        Assert.assertFalse(byteBuf.isReadable());
+
+        // 没有绑定字典时和普通字符串的格式相同
+        byteBuf.clear();
+        ByteBufUtils.writeInternString(byteBuf, "item_1001");
+        Assert.assertEquals("item_1001", ByteBufUtils.readString(byteBuf));
+    }
+
+    @Test
+    public void primitiveArrayTest() {
+        var ints = new int[]{0, 1, -1, 63, -64, 64, 8191, 8192, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        var longs = new long[]{0L, 1L, -1L, 1L << 35, -(1L << 49), 1L << 56, Long.MAX_VALUE, Long.MIN_VALUE};
+        var floats = new float[]{0F, -1.5F, Float.MAX_VALUE, Float.MIN_VALUE, Float.NaN};
+        var doubles = new double[]{0D, -1.5D, Double.MAX_VALUE, Double.MIN_VALUE, Double.NEGATIVE_INFINITY};
+
+        // 堆内存直接写底层数组，直接内存走批量拷贝，组合buffer走逐个元素写入，三种方式的字节必须完全相同
+        var buffers = new ByteBuf[]{Unpooled.buffer(1), Unpooled.directBuffer(1), Unpooled.compositeBuffer()};
+        for (var byteBuf : buffers) {
+            ByteBufUtils.writeIntArray(byteBuf, ints);
+            ByteBufUtils.writeLongArray(byteBuf, longs);
+            ByteBufUtils.writeFloatArray(byteBuf, floats);
+            ByteBufUtils.writeDoubleArray(byteBuf, doubles);
+        }
+        Assert.assertEquals(buffers[0], buffers[1]);
+        Assert.assertEquals(buffers[0], buffers[2]);
+
+        for (var byteBuf : buffers) {
+            Assert.assertArrayEquals(ints, ByteBufUtils.readIntArray(byteBuf));
+            Assert.assertArrayEquals(longs, ByteBufUtils.readLongArray(byteBuf));
+            Assert.assertArrayEquals(floats, ByteBufUtils.readFloatArray(byteBuf), 0F);
+            Assert.assertArrayEquals(doubles, ByteBufUtils.readDoubleArray(byteBuf), 0D);
+            Assert.assertFalse(byteBuf.isReadable());
+        }
+
+        // 批量写入和逐个元素的可变长写入格式相同
+        var byteBuf = Unpooled.buffer();
+        ByteBufUtils.writeIntArray(byteBuf, ints);
+        ByteBufUtils.writeLongArray(byteBuf, longs);
+        Assert.assertEquals(ints.length, ByteBufUtils.readInt(byteBuf));
+        for (var value : ints) {
+            Assert.assertEquals(value, ByteBufUtils.readInt(byteBuf));
+        }
+        Assert.assertEquals(longs.length, ByteBufUtils.readInt(byteBuf));
+        for (var value : longs) {
+            var beforeReadIndex = byteBuf.readerIndex();
+            Assert.assertEquals(value, ByteBufUtils.readLong(byteBuf));
+            Assert.assertEquals(ByteBufUtils.writeLongCount(value), byteBuf.readerIndex() - beforeReadIndex);
+        }
+    }
+
+    @Test
+    public void deltaTest() {
+        var arrays = new long[][]{
+                {},
+                {7L},
+                {1001L, 1002L, 1003L, 1010L, 1010L, 2000L},
+                {5L, 3L, -100L, 9L, 9L},
+                {Long.MIN_VALUE, Long.MAX_VALUE, 0L, -1L, Long.MIN_VALUE},
+                {1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L}
+        };
+        var byteBuf = Unpooled.buffer();
+        for (var array : arrays) {
+            byteBuf.clear();
+            ByteBufUtils.writeLongDeltaArray(byteBuf, array);
+            Assert.assertArrayEquals(array, ByteBufUtils.readLongDeltaArray(byteBuf));
+            Assert.assertFalse(byteBuf.isReadable());
+        }
+
+        var ints = new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE, 0, 10, 20, 30, -5};
+        byteBuf.clear();
+        ByteBufUtils.writeIntDeltaArray(byteBuf, ints);
+        ByteBufUtils.writeIntDeltaList(byteBuf, null);
+        ByteBufUtils.writeLongDeltaList(byteBuf, List.of(3L, 4L, 5L));
+        Assert.assertArrayEquals(ints, ByteBufUtils.readIntDeltaArray(byteBuf));
+        Assert.assertEquals(List.of(), ByteBufUtils.readIntDeltaList(byteBuf));
+        Assert.assertEquals(List.of(3L, 4L, 5L), ByteBufUtils.readLongDeltaList(byteBuf));
+
+        // 连续的id列表每个差值只需要0位，只有长度，第一个元素，base和位宽
+        var sequence = new long[1000];
+        for (var i = 0; i < sequence.length; i++) {
+            sequence[i] = 10_000_000L + i;
+        }
+        byteBuf.clear();
+        ByteBufUtils.writeLongDeltaArray(byteBuf, sequence);
+        Assert.assertEquals(2 + 4 + 1 + 1, byteBuf.readableBytes());
+        Assert.assertArrayEquals(sequence, ByteBufUtils.readLongDeltaArray(byteBuf));
+    }
+
+    @Test
+    public void sizeOfTest() {
+        var byteBuf = Unpooled.buffer();
+        for (var value : new String[]{null, "", "a", "你好hello😀", "x".repeat(300)}) {
+            byteBuf.clear();
+            ByteBufUtils.writeString(byteBuf, value);
+            Assert.assertEquals(byteBuf.readableBytes(), ByteBufUtils.writeStringCount(value));
+        }
+
+        var arrays = new long[][]{null, {}, {7L}, {1001L, 1002L, 1010L, 2000L}, {Long.MIN_VALUE, Long.MAX_VALUE, 0L, -1L}};
+        for (var array : arrays) {
+            byteBuf.clear();
+            ByteBufUtils.writeLongDeltaArray(byteBuf, array);
+            Assert.assertEquals(byteBuf.readableBytes(), ByteBufUtils.writeLongDeltaArrayCount(array));
+            byteBuf.clear();
+            ByteBufUtils.writeLongArray(byteBuf, array);
+            Assert.assertEquals(byteBuf.readableBytes(), ByteBufUtils.writeLongArrayCount(array));
+        }
+
+        var ints = new int[]{Integer.MIN_VALUE, -99, 0, 99, Integer.MAX_VALUE};
+        byteBuf.clear();
+        ByteBufUtils.writeIntDeltaArray(byteBuf, ints);
+        Assert.assertEquals(byteBuf.readableBytes(), ByteBufUtils.writeIntDeltaArrayCount(ints));
+        byteBuf.clear();
+        ByteBufUtils.writeIntArray(byteBuf, ints);
+        Assert.assertEquals(byteBuf.readableBytes(), ByteBufUtils.writeIntArrayCount(ints));
+
+        var list = new ArrayList<Integer>(List.of(1, -300000, 99999999));
+        list.add(null);
+        byteBuf.clear();
+        ByteBufUtils.writeIntList(byteBuf, list);
+        Assert.assertEquals(byteBuf.readableBytes(), ByteBufUtils.writeIntCollectionCount(list));
+
+        var strings = List.of("a", "", "你好");
+        byteBuf.clear();
+        ByteBufUtils.writeStringList(byteBuf, strings);
+        Assert.assertEquals(byteBuf.readableBytes(), ByteBufUtils.writeStringCollectionCount(strings));
+
+        var shorts = new short[]{1, 2, 3};
+        byteBuf.clear();
+        ByteBufUtils.writeShortArray(byteBuf, shorts);
+        Assert.assertEquals(byteBuf.readableBytes(), ByteBufUtils.writeFixedCount(shorts.length, 2));
+    }
+
+    @Test
+    public void reuseReadTest() {
+        var byteBuf = Unpooled.buffer();
+        ByteBufUtils.writeIntList(byteBuf, List.of(1, 2, 3));
+        ByteBufUtils.writeLongSet(byteBuf, Set.of(1L, 2L));
+        ByteBufUtils.writeIntLongMap(byteBuf, Map.of(1, 100L, 2, 200L));
+
+        var list = ByteBufUtils.readIntList(byteBuf);
+        var set = ByteBufUtils.readLongSet(byteBuf);
+        var map = ByteBufUtils.readIntLongMap(byteBuf);
+
+        // 复用读取会清空旧的内容，然后返回同一个集合对象
+        ByteBufUtils.writeIntList(byteBuf, List.of(4));
+        ByteBufUtils.writeLongSet(byteBuf, Set.of(3L));
+        ByteBufUtils.writeIntLongMap(byteBuf, Map.of(3, 300L));
+        Assert.assertSame(list, ByteBufUtils.readIntList(byteBuf, list));
+        Assert.assertSame(set, ByteBufUtils.readLongSet(byteBuf, set));
+        Assert.assertSame(map, ByteBufUtils.readIntLongMap(byteBuf, map));
+        Assert.assertEquals(List.of(4), list);
+        Assert.assertEquals(Set.of(3L), set);
+        Assert.assertEquals(Map.of(3, 300L), map);
+
+        // 不是基础类型的集合时重新分配
+        var arrayList = new ArrayList<Integer>();
+        ByteBufUtils.writeIntList(byteBuf, List.of(5, 6));
+        var result = ByteBufUtils.readIntList(byteBuf, arrayList);
+        Assert.assertNotSame(arrayList, result);
+        Assert.assertEquals(List.of(5, 6), result);
+        Assert.assertFalse(byteBuf.isReadable());
+    }
+
+    @Test
+    public void primitiveCollectionTest() {
+        var intLongMap = new HashMapIntLong(0);
+        var longLongMap = new HashMapLongLong(0);
+        var intSet = new HashSetInt(0);
+        var longList = new ArrayListLong(0);
+        for (var i = -100; i < 100; i++) {
+            intLongMap.putPrimitive(i * 1000, i * 100000000L);
+            longLongMap.putPrimitive(i * 100000000L, i);
+            intSet.add(i * 7);
+            longList.addPrimitive(i * 100000000L);
+        }
+        intLongMap.removePrimitive(0);
+
+        // 基础类型的集合不装箱写入，写入的字节和装箱的集合完全一样
+        var byteBuf = Unpooled.buffer();
+        var boxedBuf = Unpooled.buffer();
+        ByteBufUtils.writeIntLongMap(byteBuf, intLongMap);
+        ByteBufUtils.writeLongLongMap(byteBuf, longLongMap);
+        ByteBufUtils.writeIntSet(byteBuf, intSet);
+        ByteBufUtils.writeLongList(byteBuf, longList);
+        ByteBufUtils.writeIntLongMap(boxedBuf, new LinkedHashMap<>(intLongMap));
+        ByteBufUtils.writeLongLongMap(boxedBuf, new LinkedHashMap<>(longLongMap));
+        ByteBufUtils.writeIntSet(boxedBuf, new LinkedHashSet<>(intSet));
+        ByteBufUtils.writeLongList(boxedBuf, new ArrayList<>(longList));
+        Assert.assertEquals(boxedBuf, byteBuf);
+        Assert.assertEquals(byteBuf.readableBytes(), ByteBufUtils.writeIntLongMapCount(intLongMap)
+                + ByteBufUtils.writeLongLongMapCount(longLongMap)
+                + ByteBufUtils.writeIntCollectionCount(intSet)
+                + ByteBufUtils.writeLongCollectionCount(longList));
+
+        Assert.assertEquals(new HashMap<>(intLongMap), ByteBufUtils.readIntLongMap(byteBuf));
+        Assert.assertEquals(new HashMap<>(longLongMap), ByteBufUtils.readLongLongMap(byteBuf));
+        Assert.assertEquals(new HashSet<>(intSet), ByteBufUtils.readIntSet(byteBuf));
+        Assert.assertEquals(new ArrayList<>(longList), ByteBufUtils.readLongList(byteBuf));
+        Assert.assertFalse(byteBuf.isReadable());
+    }
+
     @Test
     public void adjustPaddingEqualTest() {
         var byteBuf = Unpooled.buffer();
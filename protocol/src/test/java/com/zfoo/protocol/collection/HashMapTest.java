@@ -506,4 +506,42 @@ public class HashMapTest {
         }
         Assert.assertTrue(myMap.isEmpty());
     }
+
+    @Test
+    public void equalsHashCodeTest() {
+        var map = new HashMapLongInt(0);
+        var otherMap = new HashMapLongInt(64);
+        var set = new HashSetInt(0);
+        var otherSet = new HashSetInt(64);
+        var list = new ArrayListLong(0);
+        var otherList = new ArrayListLong(64);
+        for (var i = 0; i < 50; i++) {
+            map.putPrimitive(i * 100000000L, -i);
+            otherMap.putPrimitive((49 - i) * 100000000L, i - 49);
+            set.add(i * 7);
+            otherSet.add((49 - i) * 7);
+            list.addPrimitive(i * 100000000L);
+            otherList.addPrimitive(i * 100000000L);
+        }
+
+        // 基础类型的集合之间，以及和jdk集合之间的equals和hashCode都要满足集合接口的约定，可以作为HashMap的key
+        Assert.assertEquals(map, otherMap);
+        Assert.assertEquals(new HashMap<>(map), map);
+        Assert.assertEquals(new HashMap<>(map).hashCode(), map.hashCode());
+        Assert.assertEquals(otherMap.hashCode(), map.hashCode());
+        Assert.assertEquals(set, otherSet);
+        Assert.assertEquals(new HashSet<>(set), set);
+        Assert.assertEquals(new HashSet<>(set).hashCode(), set.hashCode());
+        Assert.assertEquals(list, otherList);
+        Assert.assertEquals(new ArrayList<>(list), list);
+        Assert.assertEquals(new ArrayList<>(list).hashCode(), list.hashCode());
+        Assert.assertEquals("list", Map.of(new ArrayList<>(list), "list").get(list));
+
+        otherMap.putPrimitive(0L, 1);
+        otherSet.add(-1);
+        otherList.setPrimitive(0, 1L);
+        Assert.assertNotEquals(map, otherMap);
+        Assert.assertNotEquals(set, otherSet);
+        Assert.assertNotEquals(list, otherList);
+    }
 }
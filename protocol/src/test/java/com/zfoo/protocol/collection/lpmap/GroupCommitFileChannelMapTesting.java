@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.collection.lpmap;
+
+import com.zfoo.protocol.ProtocolManager;
+import com.zfoo.protocol.collection.lpmap.model.MyPacket;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author godotg
+ */
+@Ignore
+public class GroupCommitFileChannelMapTesting {
+
+    private static final int EXECUTOR_SIZE = Runtime.getRuntime().availableProcessors();
+
+    @BeforeClass
+    public static void init() {
+        ProtocolManager.initProtocol(Set.of(MyPacket.class));
+    }
+
+    @Test
+    public void test() throws IOException {
+        var map = new GroupCommitFileChannelMap<MyPacket>("db", MyPacket.class);
+        map.clear();
+        map.put(1, MyPacket.valueOf(1, "1"));
+        map.put(2, MyPacket.valueOf(2, "2"));
+        // 还没有提交也能读到
+        Assert.assertEquals(MyPacket.valueOf(1, "1"), map.put(1, MyPacket.valueOf(1, "one")));
+        map.flush();
+        Assert.assertEquals(MyPacket.valueOf(2, "2"), map.delete(2));
+        Assert.assertNull(map.get(2));
+        Assert.assertEquals(2, map.getMaxIndex());
+        map.close();
+
+        // 和FileChannelMap的文件格式相同
+        var fileMap = new FileChannelMap<MyPacket>("db", MyPacket.class);
+        Assert.assertEquals(MyPacket.valueOf(1, "one"), fileMap.get(1));
+        Assert.assertNull(fileMap.get(2));
+        fileMap.close();
+    }
+
+    @Test
+    public void benchmarkTest() throws IOException, InterruptedException {
+        var map = new GroupCommitFileChannelMap<MyPacket>("db", MyPacket.class);
+        map.clear();
+        var atomicInt = new AtomicInteger(0);
+        var count = 1000_0000;
+
+        var startTime = System.currentTimeMillis();
+        var countdown = new CountDownLatch(EXECUTOR_SIZE);
+        for (int i = 0; i < EXECUTOR_SIZE; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    var key = atomicInt.getAndIncrement();
+                    while (key < count) {
+                        var myPacket = MyPacket.valueOf(key, String.valueOf(key));
+                        map.put(key, myPacket);
+                        key = atomicInt.getAndIncrement();
+                    }
+                    countdown.countDown();
+                }
+            }).start();
+        }
+        countdown.await();
+        System.out.println("put time:" + (System.currentTimeMillis() - startTime));
+
+        for (var i = 0; i < count; i++) {
+            var myPacket = MyPacket.valueOf(i, String.valueOf(i));
+            var packet = map.get(i);
+            Assert.assertEquals(myPacket, packet);
+        }
+
+        map.close();
+        var newMap = new GroupCommitFileChannelMap<MyPacket>("db", MyPacket.class);
+        for (var i = 0; i < count; i++) {
+            var myPacket = MyPacket.valueOf(i, String.valueOf(i));
+            var packet = newMap.get(i);
+            Assert.assertEquals(myPacket, packet);
+        }
+        newMap.close();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.collection.lpmap;
+
+import com.zfoo.protocol.ProtocolManager;
+import com.zfoo.protocol.collection.lpmap.model.MyPacket;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Set;
+
+/**
+ * @author godotg
+ */
+@Ignore
+public class MappedLpMapTesting {
+
+    @BeforeClass
+    public static void init() {
+        ProtocolManager.initProtocol(Set.of(MyPacket.class));
+    }
+
+    @Test
+    public void test() throws IOException {
+        var map = new MappedLpMap<MyPacket>("db", MyPacket.class);
+        map.clear();
+        map.put(1, MyPacket.valueOf(1, "1"));
+        map.put(2, MyPacket.valueOf(2, "2"));
+        Assert.assertEquals(MyPacket.valueOf(1, "1"), map.put(1, MyPacket.valueOf(1, "one")));
+        Assert.assertEquals(MyPacket.valueOf(2, "2"), map.delete(2));
+        Assert.assertNull(map.get(2));
+        Assert.assertEquals(2, map.getMaxIndex());
+        map.close();
+
+        map = new MappedLpMap<MyPacket>("db", MyPacket.class);
+        Assert.assertEquals(MyPacket.valueOf(1, "one"), map.get(1));
+        Assert.assertNull(map.get(2));
+        Assert.assertEquals(2, map.getMaxIndex());
+        map.close();
+    }
+
+    /**
+     * 正常close之后把索引文件标记为未正常关闭，模拟进程崩溃，重新打开时从数据日志重建索引
+     */
+    @Test
+    public void recoverTest() throws IOException {
+        var map = new MappedLpMap<MyPacket>("db", MyPacket.class);
+        map.clear();
+        for (var i = 0; i < 1000; i++) {
+            map.put(i, MyPacket.valueOf(i, String.valueOf(i)));
+        }
+        map.delete(10);
+        map.put(20, MyPacket.valueOf(20, "twenty"));
+        map.close();
+        markUnclean();
+
+        var newMap = new MappedLpMap<MyPacket>("db", MyPacket.class);
+        Assert.assertNull(newMap.get(10));
+        Assert.assertEquals(MyPacket.valueOf(20, "twenty"), newMap.get(20));
+        Assert.assertEquals(MyPacket.valueOf(999, "999"), newMap.get(999));
+        Assert.assertEquals(999, newMap.getMaxIndex());
+        newMap.close();
+    }
+
+    /**
+     * 中间的一条记录损坏，恢复后这条记录之后的数据都被丢弃，之后追加的和旧记录一样长的记录不会让旧记录在下一次恢复时重新出现
+     */
+    @Test
+    public void recoverTailTest() throws IOException {
+        var map = new MappedLpMap<MyPacket>("db", MyPacket.class);
+        map.clear();
+        for (var i = 0; i < 1000; i++) {
+            map.put(i, MyPacket.valueOf(i, String.valueOf(i)));
+        }
+        map.close();
+
+        // 破坏key为500的记录的crc
+        try (var indexAccess = new RandomAccessFile(new File("db", "MyPacket.mindex"), "r");
+             var dataAccess = new RandomAccessFile(new File("db", "MyPacket.mdb"), "rw")) {
+            indexAccess.seek(64 + 500 * 8);
+            dataAccess.seek(indexAccess.readLong() - 1);
+            var crc = dataAccess.readInt();
+            dataAccess.seek(dataAccess.getFilePointer() - 4);
+            dataAccess.writeInt(~crc);
+        }
+        markUnclean();
+
+        map = new MappedLpMap<MyPacket>("db", MyPacket.class);
+        Assert.assertEquals(MyPacket.valueOf(499, "499"), map.get(499));
+        Assert.assertNull(map.get(500));
+        Assert.assertEquals(499, map.getMaxIndex());
+        map.put(500, MyPacket.valueOf(500, "500"));
+        map.close();
+        markUnclean();
+
+        map = new MappedLpMap<MyPacket>("db", MyPacket.class);
+        Assert.assertEquals(MyPacket.valueOf(500, "500"), map.get(500));
+        Assert.assertNull(map.get(501));
+        Assert.assertEquals(500, map.getMaxIndex());
+        map.close();
+    }
+
+    // 索引文件头的clean标记
+    private void markUnclean() throws IOException {
+        try (var indexAccess = new RandomAccessFile(new File("db", "MyPacket.mindex"), "rw")) {
+            indexAccess.seek(8);
+            indexAccess.writeInt(0);
+        }
+    }
+
+    @Test
+    public void compactTest() throws IOException {
+        var map = new MappedLpMap<MyPacket>("db", MyPacket.class);
+        map.clear();
+        var count = 10_0000;
+        for (var round = 0; round < 3; round++) {
+            for (var i = 0; i < count; i++) {
+                map.put(i, MyPacket.valueOf(i, round + "-" + i));
+            }
+        }
+        map.compact();
+        for (var i = 0; i < count; i++) {
+            Assert.assertEquals(MyPacket.valueOf(i, "2-" + i), map.get(i));
+        }
+        map.close();
+    }
+
+    @Test
+    public void benchmarkTest() throws IOException {
+        var map = new MappedLpMap<MyPacket>("db", MyPacket.class);
+        map.clear();
+        var count = 1000_0000;
+        var startTime = System.currentTimeMillis();
+        for (var i = 0; i < count; i++) {
+            var myPacket = MyPacket.valueOf(i, String.valueOf(i));
+            map.put(i, myPacket);
+        }
+        System.out.println("put time:" + (System.currentTimeMillis() - startTime));
+
+        startTime = System.currentTimeMillis();
+        for (var i = 0; i < count; i++) {
+            var myPacket = MyPacket.valueOf(i, String.valueOf(i));
+            var packet = map.get(i);
+            Assert.assertEquals(myPacket, packet);
+        }
+        System.out.println("get time:" + (System.currentTimeMillis() - startTime));
+        map.close();
+
+        map = new MappedLpMap<MyPacket>("db", MyPacket.class);
+        for (var i = 0; i < count; i++) {
+            var myPacket = MyPacket.valueOf(i, String.valueOf(i));
+            var packet = map.get(i);
+            Assert.assertEquals(myPacket, packet);
+        }
+        map.close();
+    }
+}
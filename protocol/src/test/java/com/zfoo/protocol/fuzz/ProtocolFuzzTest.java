@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.fuzz;
+
+import com.zfoo.protocol.ProtocolManager;
+import com.zfoo.protocol.buffer.ByteBufUtils;
+import com.zfoo.protocol.generate.GenerateOperation;
+import com.zfoo.protocol.registration.IProtocolRegistration;
+import com.zfoo.protocol.registration.ProtocolRegistration;
+import com.zfoo.protocol.util.DomUtils;
+import com.zfoo.protocol.util.StringUtils;
+import com.zfoo.protocol.xml.XmlProtocols;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 随机生成协议类和协议对象，检查字节码增强和反射两种序列化方式写出的字节完全一致，并且都能反序列化对方写出的字节，和原始对象相同，
+ * 最后输出每种协议结构编码和解码每个字节的耗时。
+ * <p>
+ * 默认使用固定的随机种子和很少的循环次数，只检查正确性；
+ * 复现失败的用例使用-Dzfoo.protocol.fuzz.seed=xxx，比较准确的吞吐量使用-Dzfoo.protocol.fuzz.iterations=10000
+ *
+ * @author godotg
+ */
+public class ProtocolFuzzTest {
+
+    private static final long SEED = Long.getLong("zfoo.protocol.fuzz.seed", 20200101L);
+
+    private static final int ITERATIONS = Integer.getInteger("zfoo.protocol.fuzz.iterations", 10);
+
+    private static final int RANDOM_PROTOCOL_NUM = 20;
+
+    // 每个协议生成的随机对象数量
+    private static final int PACKET_NUM = 32;
+
+    @Test
+    public void fuzzTest() {
+        var fuzzer = new ProtocolFuzzer(SEED);
+        fuzzer.generateSingleShapes();
+        fuzzer.generateRandom(RANDOM_PROTOCOL_NUM);
+        var classes = fuzzer.getClasses();
+        var reflectClasses = fuzzer.getReflectClasses();
+        ProtocolManager.initProtocol(xmlProtocols(classes, reflectClasses), GenerateOperation.NO_OPERATION);
+
+        var reports = new ArrayList<String>();
+        for (var index = 0; index < classes.size(); index++) {
+            var clazz = classes.get(index);
+            var enhance = ProtocolManager.getProtocol(clazz);
+            var reflect = ProtocolManager.getProtocol(reflectClasses.get(index));
+            Assert.assertFalse(enhance instanceof ProtocolRegistration);
+            Assert.assertTrue(reflect instanceof ProtocolRegistration);
+
+            var shape = fuzzer.shape(index).toString();
+            var packets = new ArrayList<>(PACKET_NUM);
+            var reflectPackets = new ArrayList<>(PACKET_NUM);
+            for (var i = 0; i < PACKET_NUM; i++) {
+                var pair = fuzzer.randomPackets(index);
+                var message = StringUtils.format("[seed:{}] [protocol:{}] [shape:{}] [packet:{}]", SEED, clazz.getSimpleName(), shape, i);
+                checkRoundTrip(message, enhance, reflect, pair[0], pair[1]);
+                packets.add(pair[0]);
+                reflectPackets.add(pair[1]);
+            }
+            reports.add(StringUtils.format("[{}] [shape:{}] [enhance:{}] [reflect:{}]", clazz.getSimpleName(), shape, throughput(enhance, packets), throughput(reflect, reflectPackets)));
+        }
+
+        System.out.println(StringUtils.format("协议序列化模糊测试 [seed:{}] [iterations:{}]", SEED, ITERATIONS));
+        reports.forEach(System.out::println);
+    }
+
+    /**
+     * 增强的协议使用id，反射的协议使用id + MAX_CLASS_NUM
+     */
+    private XmlProtocols xmlProtocols(List<Class<?>> classes, List<Class<?>> reflectClasses) {
+        var builder = new StringBuilder("<protocols>\n    <module id=\"1\" name=\"fuzz\">\n");
+        for (var i = 0; i < classes.size(); i++) {
+            builder.append(StringUtils.format("        <protocol id=\"{}\" location=\"{}\"/>\n", i, classes.get(i).getName()));
+            builder.append(StringUtils.format("        <protocol id=\"{}\" location=\"{}\" enhance=\"false\"/>\n", i + ProtocolFuzzer.MAX_CLASS_NUM, reflectClasses.get(i).getName()));
+        }
+        builder.append("    </module>\n</protocols>");
+        return DomUtils.string2Object(builder.toString(), XmlProtocols.class);
+    }
+
+    private void checkRoundTrip(String message, IProtocolRegistration enhance, IProtocolRegistration reflect, Object packet, Object reflectPacket) {
+        var enhanceBuffer = ByteBufAllocator.DEFAULT.heapBuffer();
+        var reflectBuffer = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            enhance.write(enhanceBuffer, packet);
+            reflect.write(reflectBuffer, reflectPacket);
+            var bytes = ByteBufUtils.readAllBytes(enhanceBuffer.duplicate());
+            Assert.assertArrayEquals(message, bytes, ByteBufUtils.readAllBytes(reflectBuffer.duplicate()));
+            Assert.assertEquals(message, bytes.length, enhance.sizeOf(packet));
+            Assert.assertEquals(message, bytes.length, reflect.sizeOf(reflectPacket));
+
+            // 两种方式都能读取对方写入的字节
+            var enhanceRead = enhance.read(reflectBuffer);
+            var reflectRead = reflect.read(enhanceBuffer);
+            Assert.assertEquals(message, 0, reflectBuffer.readableBytes());
+            Assert.assertEquals(message, 0, enhanceBuffer.readableBytes());
+            Assert.assertTrue(message, ProtocolFuzzer.deepEquals(packet, enhanceRead));
+            Assert.assertTrue(message, ProtocolFuzzer.deepEquals(reflectPacket, reflectRead));
+        } finally {
+            enhanceBuffer.release();
+            reflectBuffer.release();
+        }
+    }
+
+    /**
+     * 编码和解码每个字节的平均耗时，先预热一遍再计时
+     */
+    private String throughput(IProtocolRegistration registration, List<Object> packets) {
+        var buffer = ByteBufAllocator.DEFAULT.heapBuffer();
+        var encodedBuffers = new ArrayList<ByteBuf>(packets.size());
+        try {
+            var bytes = 0L;
+            for (var packet : packets) {
+                var encodedBuffer = ByteBufAllocator.DEFAULT.heapBuffer();
+                encodedBuffers.add(encodedBuffer);
+                registration.write(encodedBuffer, packet);
+                bytes += encodedBuffer.readableBytes();
+            }
+
+            var writeNanos = 0L;
+            var readNanos = 0L;
+            for (var round = 0; round < 2; round++) {
+                var startTime = System.nanoTime();
+                for (var i = 0; i < ITERATIONS; i++) {
+                    for (var packet : packets) {
+                        buffer.clear();
+                        registration.write(buffer, packet);
+                    }
+                }
+                writeNanos = System.nanoTime() - startTime;
+
+                startTime = System.nanoTime();
+                for (var i = 0; i < ITERATIONS; i++) {
+                    for (var encodedBuffer : encodedBuffers) {
+                        encodedBuffer.readerIndex(0);
+                        registration.read(encodedBuffer);
+                    }
+                }
+                readNanos = System.nanoTime() - startTime;
+            }
+
+            var totalBytes = Math.max(bytes * ITERATIONS, 1L);
+            return String.format("%d bytes, write %.2f ns/byte, read %.2f ns/byte", bytes / packets.size(), (double) writeNanos / totalBytes, (double) readNanos / totalBytes);
+        } finally {
+            buffer.release();
+            encodedBuffers.forEach(ByteBuf::release);
+        }
+    }
+
+}
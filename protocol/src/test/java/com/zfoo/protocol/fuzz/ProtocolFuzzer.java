@@ -0,0 +1,550 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.fuzz;
+
+import com.zfoo.protocol.anno.Compatible;
+import com.zfoo.protocol.collection.ArrayListInt;
+import com.zfoo.protocol.collection.ArrayListLong;
+import com.zfoo.protocol.collection.HashMapIntInt;
+import com.zfoo.protocol.collection.HashSetInt;
+import com.zfoo.protocol.collection.PrimitiveCollectionUtils;
+import com.zfoo.protocol.exception.RunException;
+import com.zfoo.protocol.util.StringUtils;
+import javassist.ClassPool;
+import javassist.CtField;
+import javassist.CtNewConstructor;
+import javassist.Modifier;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.annotation.Annotation;
+import javassist.bytecode.annotation.IntegerMemberValue;
+
+import java.lang.reflect.Array;
+import java.util.*;
+
+/**
+ * 随机生成协议类和协议对象，用来做序列化的模糊测试。
+ * 生成的协议类只引用之前生成的协议类，不会有循环引用；协议字段都是public的field0，field1...，最后几个字段可能是@Compatible字段
+ * <p>
+ * 每个协议结构生成两个字段完全相同的类，FuzzProtocol使用字节码增强，FuzzReflectProtocol注册为enhance=false使用反射，
+ * 协议初始化以后反射的ProtocolRegistration会被增强类替换，所以用两个类分别走两条序列化路径，嵌套的子协议也一样
+ * <p>
+ * 协议增强的时候如果协议数量太多会使用多个独立的ClassPool并行编译，这些ClassPool找不到运行时生成的类，所以生成的协议数量要小于并行编译的阈值
+ *
+ * @author godotg
+ */
+public class ProtocolFuzzer {
+
+    public static final int MAX_CLASS_NUM = 60;
+
+    // 嵌套的深度，超过了以后集合为空，协议对象为null，控制生成的对象大小
+    private static final int MAX_DEPTH = 4;
+    private static final int MAX_SIZE = 16;
+
+    private static final Class<?>[] PRIMITIVES = {boolean.class, byte.class, short.class, int.class, long.class, float.class, double.class};
+    private static final Class<?>[] BOXES = {Boolean.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, String.class};
+    private static final Class<?>[] PRIMITIVE_COLLECTIONS = {ArrayListInt.class, ArrayListLong.class, HashSetInt.class, HashMapIntInt.class};
+
+    public enum Kind {
+        BASE, PRIMITIVE_COLLECTION, ARRAY, LIST, SET, MAP, OBJECT
+    }
+
+    /**
+     * 字段的类型，BASE和PRIMITIVE_COLLECTION使用clazz，OBJECT使用protocolIndex，ARRAY，LIST，SET使用element，MAP使用key和element
+     */
+    public static class FuzzType {
+        private Kind kind;
+        private Class<?> clazz;
+        private int protocolIndex;
+        private FuzzType key;
+        private FuzzType element;
+
+        public static FuzzType base(Class<?> clazz) {
+            var type = new FuzzType();
+            type.kind = PrimitiveCollectionUtils.isPrimitiveCollection(clazz) ? Kind.PRIMITIVE_COLLECTION : Kind.BASE;
+            type.clazz = clazz;
+            return type;
+        }
+
+        public static FuzzType object(int protocolIndex) {
+            var type = new FuzzType();
+            type.kind = Kind.OBJECT;
+            type.protocolIndex = protocolIndex;
+            return type;
+        }
+
+        public static FuzzType of(Kind kind, FuzzType element) {
+            var type = new FuzzType();
+            type.kind = kind;
+            type.element = element;
+            return type;
+        }
+
+        public static FuzzType map(FuzzType key, FuzzType value) {
+            var type = of(Kind.MAP, value);
+            type.key = key;
+            return type;
+        }
+
+        public boolean isGeneric() {
+            return kind == Kind.LIST || kind == Kind.SET || kind == Kind.MAP;
+        }
+
+        /**
+         * 擦除泛型后的类名，javassist用来创建字段
+         */
+        public String erasure(boolean reflect) {
+            return switch (kind) {
+                case BASE, PRIMITIVE_COLLECTION -> clazz.getName();
+                case ARRAY -> element.erasure(reflect) + "[]";
+                case LIST -> List.class.getName();
+                case SET -> Set.class.getName();
+                case MAP -> Map.class.getName();
+                case OBJECT -> protocolName(protocolIndex, reflect);
+            };
+        }
+
+        /**
+         * 字节码中的泛型签名，比如Ljava/util/List<Ljava/lang/Integer;>;，泛型参数不会是基础类型和数组
+         */
+        public String signature(boolean reflect) {
+            return switch (kind) {
+                case LIST -> genericSignature(reflect, List.class, element);
+                case SET -> genericSignature(reflect, Set.class, element);
+                case MAP -> genericSignature(reflect, Map.class, key, element);
+                default -> "L" + erasure(reflect).replace('.', '/') + ";";
+            };
+        }
+
+        private static String genericSignature(boolean reflect, Class<?> clazz, FuzzType... arguments) {
+            var builder = new StringBuilder("L").append(clazz.getName().replace('.', '/')).append("<");
+            for (var argument : arguments) {
+                builder.append(argument.signature(reflect));
+            }
+            return builder.append(">;").toString();
+        }
+
+        @Override
+        public String toString() {
+            return switch (kind) {
+                case BASE, PRIMITIVE_COLLECTION -> clazz.getSimpleName();
+                case ARRAY -> element + "[]";
+                case LIST -> "List<" + element + ">";
+                case SET -> "Set<" + element + ">";
+                case MAP -> "Map<" + key + ", " + element + ">";
+                case OBJECT -> protocolSimpleName(protocolIndex, false);
+            };
+        }
+    }
+
+    // 生成协议类
+    private final Random random;
+
+    // 生成协议对象，同一个种子生成的增强对象和反射对象的值完全相同
+    private final Random packetRandom = new Random();
+
+    private final List<Class<?>> classes = new ArrayList<>();
+
+    private final List<Class<?>> reflectClasses = new ArrayList<>();
+
+    private final List<List<FuzzType>> shapes = new ArrayList<>();
+
+    public ProtocolFuzzer(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static String protocolSimpleName(int protocolIndex, boolean reflect) {
+        return (reflect ? "FuzzReflectProtocol" : "FuzzProtocol") + protocolIndex;
+    }
+
+    public static String protocolName(int protocolIndex, boolean reflect) {
+        return ProtocolFuzzer.class.getPackageName() + "." + protocolSimpleName(protocolIndex, reflect);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 每一种字段类型生成一个只有一个字段的协议，可以单独统计每种类型的编解码速度
+     */
+    public void generateSingleShapes() {
+        for (var clazz : PRIMITIVES) {
+            generate(List.of(FuzzType.base(clazz)), 0);
+            generate(List.of(FuzzType.of(Kind.ARRAY, FuzzType.base(clazz))), 0);
+        }
+        for (var clazz : BOXES) {
+            generate(List.of(FuzzType.base(clazz)), 0);
+            generate(List.of(FuzzType.of(Kind.LIST, FuzzType.base(clazz))), 0);
+        }
+        for (var clazz : PRIMITIVE_COLLECTIONS) {
+            generate(List.of(FuzzType.base(clazz)), 0);
+        }
+        generate(List.of(FuzzType.of(Kind.SET, FuzzType.base(String.class))), 0);
+        generate(List.of(FuzzType.map(FuzzType.base(Integer.class), FuzzType.base(String.class))), 0);
+        generate(List.of(FuzzType.object(0)), 0);
+        generate(List.of(FuzzType.of(Kind.LIST, FuzzType.object(0))), 0);
+    }
+
+    /**
+     * 生成随机字段的协议
+     */
+    public void generateRandom(int num) {
+        for (var i = 0; i < num; i++) {
+            var fieldNum = 1 + random.nextInt(8);
+            var types = new ArrayList<FuzzType>(fieldNum);
+            for (var j = 0; j < fieldNum; j++) {
+                types.add(randomFieldType());
+            }
+            generate(types, random.nextInt(4) == 0 ? 1 + random.nextInt(fieldNum) : 0);
+        }
+    }
+
+    private void generate(List<FuzzType> types, int compatibleNum) {
+        var index = classes.size();
+        if (index >= MAX_CLASS_NUM) {
+            throw new RunException("fuzz protocol num can not exceed [{}]", MAX_CLASS_NUM);
+        }
+        try {
+            classes.add(makeClass(types, compatibleNum, index, false));
+            reflectClasses.add(makeClass(types, compatibleNum, index, true));
+            shapes.add(types);
+        } catch (Exception e) {
+            throw new RunException("generate fuzz protocol [{}] with fields {} exception", protocolSimpleName(index, false), types, e);
+        }
+    }
+
+    private Class<?> makeClass(List<FuzzType> types, int compatibleNum, int index, boolean reflect) throws Exception {
+        var classPool = ClassPool.getDefault();
+        var ctClass = classPool.makeClass(protocolName(index, reflect));
+        var constPool = ctClass.getClassFile().getConstPool();
+        for (var i = 0; i < types.size(); i++) {
+            var type = types.get(i);
+            var ctField = new CtField(classPool.get(type.erasure(reflect)), "field" + i, ctClass);
+            ctField.setModifiers(Modifier.PUBLIC);
+            if (type.isGeneric()) {
+                ctField.setGenericSignature(type.signature(reflect));
+            }
+            var compatibleOrder = i - (types.size() - compatibleNum) + 1;
+            if (compatibleOrder > 0) {
+                var attribute = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+                var annotation = new Annotation(Compatible.class.getName(), constPool);
+                annotation.addMemberValue("value", new IntegerMemberValue(constPool, compatibleOrder));
+                attribute.addAnnotation(annotation);
+                ctField.getFieldInfo().addAttribute(attribute);
+            }
+            ctClass.addField(ctField);
+        }
+        ctClass.addConstructor(CtNewConstructor.defaultConstructor(ctClass));
+        return ctClass.toClass(ProtocolFuzzer.class);
+    }
+
+    private FuzzType randomFieldType() {
+        switch (random.nextInt(10)) {
+            case 0, 1, 2:
+                return FuzzType.base(randomOf(PRIMITIVES));
+            case 3, 4:
+                return FuzzType.base(randomOf(BOXES));
+            case 5:
+                // 数组只支持一维的基础类型和协议对象
+                var component = classes.isEmpty() || random.nextBoolean() ? FuzzType.base(random.nextBoolean() ? randomOf(PRIMITIVES) : String.class) : randomObjectType();
+                return FuzzType.of(Kind.ARRAY, component);
+            case 6:
+                return FuzzType.base(randomOf(PRIMITIVE_COLLECTIONS));
+            case 7:
+                return classes.isEmpty() ? randomCollectionType(1) : randomObjectType();
+            default:
+                return randomCollectionType(1);
+        }
+    }
+
+    /**
+     * Set的元素和Map的key只使用基础类型，协议对象没有重写equals和hashCode
+     */
+    private FuzzType randomCollectionType(int depth) {
+        return switch (random.nextInt(3)) {
+            case 0 -> FuzzType.of(Kind.LIST, randomGenericType(depth));
+            case 1 -> FuzzType.of(Kind.SET, FuzzType.base(randomOf(BOXES)));
+            default -> FuzzType.map(FuzzType.base(randomOf(BOXES)), randomGenericType(depth));
+        };
+    }
+
+    private FuzzType randomGenericType(int depth) {
+        var choice = random.nextInt(6);
+        if (choice == 0 && !classes.isEmpty()) {
+            return randomObjectType();
+        }
+        if (choice == 1 && depth < 3) {
+            return randomCollectionType(depth + 1);
+        }
+        return FuzzType.base(randomOf(BOXES));
+    }
+
+    private FuzzType randomObjectType() {
+        return FuzzType.object(random.nextInt(classes.size()));
+    }
+
+    private Class<?> randomOf(Class<?>[] array) {
+        return array[random.nextInt(array.length)];
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 生成一对值完全相同的随机协议对象，第一个是增强的FuzzProtocol，第二个是反射的FuzzReflectProtocol
+     */
+    public Object[] randomPackets(int protocolIndex) {
+        var seed = random.nextLong();
+        packetRandom.setSeed(seed);
+        var packet = randomPacket(classes, protocolIndex, 0);
+        packetRandom.setSeed(seed);
+        var reflectPacket = randomPacket(reflectClasses, protocolIndex, 0);
+        return new Object[]{packet, reflectPacket};
+    }
+
+    private Object randomPacket(List<Class<?>> variant, int protocolIndex, int depth) {
+        try {
+            var clazz = variant.get(protocolIndex);
+            var packet = clazz.getConstructor().newInstance();
+            var types = shapes.get(protocolIndex);
+            for (var i = 0; i < types.size(); i++) {
+                clazz.getField("field" + i).set(packet, randomValue(variant, types.get(i), depth));
+            }
+            return packet;
+        } catch (ReflectiveOperationException e) {
+            throw new RunException(e);
+        }
+    }
+
+    private Object randomValue(List<Class<?>> variant, FuzzType type, int depth) {
+        switch (type.kind) {
+            case BASE:
+                return randomBase(type.clazz);
+            case PRIMITIVE_COLLECTION:
+                return randomPrimitiveCollection(type.clazz, depth);
+            case ARRAY: {
+                var size = randomSize(depth);
+                var componentClass = type.element.kind == Kind.OBJECT ? variant.get(type.element.protocolIndex) : type.element.clazz;
+                var array = Array.newInstance(componentClass, size);
+                for (var i = 0; i < size; i++) {
+                    Array.set(array, i, randomValue(variant, type.element, depth + 1));
+                }
+                return array;
+            }
+            case LIST: {
+                var size = randomSize(depth);
+                var list = new ArrayList<>(size);
+                for (var i = 0; i < size; i++) {
+                    list.add(randomValue(variant, type.element, depth + 1));
+                }
+                return list;
+            }
+            case SET: {
+                var size = randomSize(depth);
+                var set = new HashSet<>();
+                for (var i = 0; i < size; i++) {
+                    set.add(randomValue(variant, type.element, depth + 1));
+                }
+                return set;
+            }
+            case MAP: {
+                var size = randomSize(depth);
+                var map = new HashMap<>();
+                for (var i = 0; i < size; i++) {
+                    map.put(randomValue(variant, type.key, depth + 1), randomValue(variant, type.element, depth + 1));
+                }
+                return map;
+            }
+            case OBJECT:
+                return depth >= MAX_DEPTH || packetRandom.nextInt(8) == 0 ? null : randomPacket(variant, type.protocolIndex, depth + 1);
+            default:
+                throw new RunException("unknown fuzz type [{}]", type);
+        }
+    }
+
+    private int randomSize(int depth) {
+        return depth >= MAX_DEPTH ? 0 : packetRandom.nextInt((MAX_SIZE >> depth) + 1);
+    }
+
+    private Object randomPrimitiveCollection(Class<?> clazz, int depth) {
+        var size = randomSize(depth);
+        if (clazz == ArrayListInt.class) {
+            var list = new ArrayListInt(size);
+            for (var i = 0; i < size; i++) {
+                list.add(randomInt());
+            }
+            return list;
+        } else if (clazz == ArrayListLong.class) {
+            var list = new ArrayListLong(size);
+            for (var i = 0; i < size; i++) {
+                list.add(randomLong());
+            }
+            return list;
+        } else if (clazz == HashSetInt.class) {
+            var set = new HashSetInt();
+            for (var i = 0; i < size; i++) {
+                set.add(randomInt());
+            }
+            return set;
+        } else if (clazz == HashMapIntInt.class) {
+            var map = new HashMapIntInt();
+            for (var i = 0; i < size; i++) {
+                map.put(randomInt(), randomInt());
+            }
+            return map;
+        }
+        throw new RunException("unknown primitive collection [{}]", clazz);
+    }
+
+    private Object randomBase(Class<?> clazz) {
+        if (clazz == boolean.class || clazz == Boolean.class) {
+            return packetRandom.nextBoolean();
+        } else if (clazz == byte.class || clazz == Byte.class) {
+            return (byte) randomInt();
+        } else if (clazz == short.class || clazz == Short.class) {
+            return (short) randomInt();
+        } else if (clazz == int.class || clazz == Integer.class) {
+            return randomInt();
+        } else if (clazz == long.class || clazz == Long.class) {
+            return randomLong();
+        } else if (clazz == float.class || clazz == Float.class) {
+            return (float) randomDouble();
+        } else if (clazz == double.class || clazz == Double.class) {
+            return randomDouble();
+        } else if (clazz == String.class) {
+            return randomString();
+        }
+        throw new RunException("unknown base type [{}]", clazz);
+    }
+
+    // 变长编码的长度和数值的大小有关，小数值，大数值，边界值都要覆盖到
+    private int randomInt() {
+        return switch (packetRandom.nextInt(4)) {
+            case 0 -> packetRandom.nextInt(128) - 64;
+            case 1 -> packetRandom.nextInt(1 << 21) - (1 << 20);
+            case 2 -> packetRandom.nextInt();
+            default -> new int[]{0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE}[packetRandom.nextInt(4)];
+        };
+    }
+
+    private long randomLong() {
+        return switch (packetRandom.nextInt(4)) {
+            case 0 -> randomInt();
+            case 1 -> packetRandom.nextLong() >> packetRandom.nextInt(Long.SIZE);
+            case 2 -> packetRandom.nextLong();
+            default -> new long[]{0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE}[packetRandom.nextInt(4)];
+        };
+    }
+
+    private double randomDouble() {
+        return switch (packetRandom.nextInt(4)) {
+            case 0 -> packetRandom.nextInt(1000);
+            case 1 -> packetRandom.nextGaussian() * 1_0000;
+            case 2 -> packetRandom.nextDouble();
+            default -> new double[]{0D, -0D, Double.NaN, Double.MAX_VALUE, Double.NEGATIVE_INFINITY}[packetRandom.nextInt(5)];
+        };
+    }
+
+    // ascii，中文和4个字节的utf8字符
+    private String randomString() {
+        var length = packetRandom.nextInt(24);
+        if (length == 0) {
+            return StringUtils.EMPTY;
+        }
+        var builder = new StringBuilder(length);
+        for (var i = 0; i < length; i++) {
+            switch (packetRandom.nextInt(8)) {
+                case 0 -> builder.append((char) (0x4e00 + packetRandom.nextInt(0x51a5)));
+                case 1 -> builder.appendCodePoint(0x1F600 + packetRandom.nextInt(0x40));
+                default -> builder.append((char) (0x20 + packetRandom.nextInt(0x5f)));
+            }
+        }
+        return builder.toString();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 比较原始的协议对象和反序列化后的协议对象，数组和List按顺序比较，Set和Map不关心顺序，Float和Double的NaN相等
+     */
+    public static boolean deepEquals(Object a, Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        if (a.getClass().isArray()) {
+            if (!b.getClass().isArray() || Array.getLength(a) != Array.getLength(b)) {
+                return false;
+            }
+            for (int i = 0, length = Array.getLength(a); i < length; i++) {
+                if (!deepEquals(Array.get(a, i), Array.get(b, i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof List<?> listA && b instanceof List<?> listB) {
+            if (listA.size() != listB.size()) {
+                return false;
+            }
+            var iteratorA = listA.iterator();
+            var iteratorB = listB.iterator();
+            while (iteratorA.hasNext()) {
+                if (!deepEquals(iteratorA.next(), iteratorB.next())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof Map<?, ?> mapA && b instanceof Map<?, ?> mapB) {
+            if (mapA.size() != mapB.size()) {
+                return false;
+            }
+            for (var entry : mapA.entrySet()) {
+                if (!mapB.containsKey(entry.getKey()) || !deepEquals(entry.getValue(), mapB.get(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a.getClass().getPackageName().equals(ProtocolFuzzer.class.getPackageName())) {
+            if (a.getClass() != b.getClass()) {
+                return false;
+            }
+            try {
+                for (var field : a.getClass().getFields()) {
+                    if (!deepEquals(field.get(a), field.get(b))) {
+                        return false;
+                    }
+                }
+            } catch (IllegalAccessException e) {
+                throw new RunException(e);
+            }
+            return true;
+        }
+        // Set的元素都是基础类型
+        return a.equals(b);
+    }
+
+    public List<Class<?>> getClasses() {
+        return classes;
+    }
+
+    public List<Class<?>> getReflectClasses() {
+        return reflectClasses;
+    }
+
+    public List<FuzzType> shape(int protocolIndex) {
+        return shapes.get(protocolIndex);
+    }
+
+}
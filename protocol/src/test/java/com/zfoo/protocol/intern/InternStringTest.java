@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.intern;
+
+import com.zfoo.protocol.ProtocolManager;
+import com.zfoo.protocol.buffer.ByteBufUtils;
+import com.zfoo.protocol.buffer.StringDictionary;
+import com.zfoo.protocol.generate.GenerateOperation;
+import com.zfoo.protocol.intern.packet.InternNestedObject;
+import com.zfoo.protocol.intern.packet.InternObjectV1;
+import com.zfoo.protocol.intern.packet.InternObjectV2;
+import com.zfoo.protocol.registration.ProtocolRegistration;
+import com.zfoo.protocol.util.DomUtils;
+import com.zfoo.protocol.xml.XmlProtocols;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * 新版本的写入方和旧版本的读取方使用@Intern字符串字典，旧版本的协议使用反射，新版本的协议使用字节码增强
+ *
+ * @author godotg
+ */
+public class InternStringTest {
+
+    private static final String[] NAMES = {"sword", "shield", "potion", "arrow"};
+
+    @BeforeClass
+    public static void init() {
+        // 通过类注册的协议全部会被增强，使用xml注册才能指定不增强的协议
+        var xml = "<protocols>"
+                + "<module id=\"1\" name=\"intern\">"
+                + "<protocol location=\"" + InternObjectV1.class.getName() + "\" enhance=\"false\"/>"
+                + "<protocol location=\"" + InternObjectV2.class.getName() + "\"/>"
+                + "<protocol location=\"" + InternNestedObject.class.getName() + "\"/>"
+                + "</module>"
+                + "</protocols>";
+        ProtocolManager.initProtocol(DomUtils.string2Object(xml, XmlProtocols.class), GenerateOperation.NO_OPERATION);
+    }
+
+    @Test
+    public void registrationTest() {
+        Assert.assertTrue(ProtocolManager.getProtocol(InternObjectV1.class) instanceof ProtocolRegistration);
+        Assert.assertFalse(ProtocolManager.getProtocol(InternObjectV2.class) instanceof ProtocolRegistration);
+    }
+
+    /**
+     * 旧版本的读取方跳过不认识的@Compatible字段，之后的引用依然和写入方一致
+     */
+    @Test
+    public void oldSchemaReaderTest() {
+        var writeDictionary = new StringDictionary();
+        var readDictionary = new StringDictionary();
+        var buffer = Unpooled.buffer();
+        var v1 = ProtocolManager.getProtocol(InternObjectV1.class);
+
+        var firstSize = 0;
+        var lastSize = 0;
+        for (var i = 0; i < 100; i++) {
+            var packet = newPacket(i);
+            buffer.clear();
+            ProtocolManager.write(buffer, packet, writeDictionary);
+            var size = buffer.readableBytes();
+
+            StringDictionary.bind(readDictionary);
+            try {
+                Assert.assertEquals(ProtocolManager.protocolId(InternObjectV2.class), ByteBufUtils.readShort(buffer));
+                var old = (InternObjectV1) v1.read(buffer);
+                Assert.assertFalse(buffer.isReadable());
+                Assert.assertEquals(packet.id, old.id);
+                Assert.assertEquals(packet.name, old.name);
+                Assert.assertEquals(packet.type, old.type);
+                Assert.assertEquals(packet.nested.key, old.nested.key);
+                Assert.assertEquals(packet.nested.value, old.nested.value);
+            } finally {
+                StringDictionary.unbind();
+            }
+
+            if (i == 0) {
+                firstSize = size;
+            }
+            lastSize = size;
+        }
+        // 重复的字符串只发送引用
+        Assert.assertTrue(lastSize < firstSize);
+    }
+
+    /**
+     * 相同版本的读写，@Compatible字段按照普通字符串读写，其它的@Intern字段使用字典
+     */
+    @Test
+    public void sameSchemaTest() {
+        var writeDictionary = new StringDictionary();
+        var readDictionary = new StringDictionary();
+        var buffer = Unpooled.buffer();
+        for (var i = 0; i < 100; i++) {
+            var packet = newPacket(i);
+            ProtocolManager.write(buffer, packet, writeDictionary);
+            var result = (InternObjectV2) ProtocolManager.read(buffer, readDictionary);
+            Assert.assertEquals(packet.name, result.name);
+            Assert.assertEquals(packet.extra, result.extra);
+            Assert.assertEquals(packet.extraNested.key, result.extraNested.key);
+            Assert.assertEquals(packet.extraNested.value, result.extraNested.value);
+            Assert.assertEquals(packet.numbers, result.numbers);
+        }
+        Assert.assertFalse(buffer.isReadable());
+    }
+
+    /**
+     * 序列化失败的包没有发送给对方，包里新加入字典的字符串需要回滚
+     */
+    @Test
+    public void rollbackTest() {
+        var writeDictionary = new StringDictionary();
+        var readDictionary = new StringDictionary();
+        var buffer = Unpooled.buffer();
+
+        var failed = newPacket(0);
+        failed.name = "never_sent";
+        failed.type = "t".repeat(100);
+        try {
+            // 写入name之后超过buffer的最大容量
+            ProtocolManager.write(Unpooled.buffer(16, 64), failed, writeDictionary);
+            Assert.fail();
+        } catch (IndexOutOfBoundsException e) {
+            // 写了一半的包被丢弃
+        }
+
+        var packet = newPacket(1);
+        packet.name = "never_sent";
+        ProtocolManager.write(buffer, packet, writeDictionary);
+        var result = (InternObjectV2) ProtocolManager.read(buffer, readDictionary);
+        Assert.assertEquals("never_sent", result.name);
+        Assert.assertEquals(packet.type, result.type);
+    }
+
+    private InternObjectV2 newPacket(int i) {
+        var packet = new InternObjectV2();
+        packet.id = i;
+        packet.name = NAMES[i % NAMES.length];
+        packet.type = NAMES[(i + 1) % NAMES.length];
+        packet.numbers = List.of(i, i + 1);
+        packet.nested = InternNestedObject.valueOf(NAMES[(i + 2) % NAMES.length], "nested_" + (i % 3));
+        // 新版本的字段里也使用重复的字符串，旧版本的读取方会跳过
+        packet.extra = "extra_" + (i % 5);
+        packet.extraNested = InternNestedObject.valueOf("extra_key_" + (i % 7), "extra_value_" + (i % 2));
+        return packet;
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.intern.packet;
+
+import com.zfoo.protocol.anno.Compatible;
+import com.zfoo.protocol.anno.Intern;
+import com.zfoo.protocol.anno.Protocol;
+
+/**
+ * @author godotg
+ */
+@Protocol(id = 3)
+public class InternNestedObject {
+
+    @Intern
+    public String key;
+
+    @Compatible(1)
+    @Intern
+    public String value;
+
+    public static InternNestedObject valueOf(String key, String value) {
+        var packet = new InternNestedObject();
+        packet.key = key;
+        packet.value = value;
+        return packet;
+    }
+
+}
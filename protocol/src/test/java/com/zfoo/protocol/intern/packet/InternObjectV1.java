@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.intern.packet;
+
+import com.zfoo.protocol.anno.Intern;
+import com.zfoo.protocol.anno.Protocol;
+
+import java.util.List;
+
+/**
+ * 旧版本的协议
+ *
+ * @author godotg
+ */
+@Protocol(id = 1, enhance = false)
+public class InternObjectV1 {
+
+    public int id;
+
+    @Intern
+    public String name;
+
+    public InternNestedObject nested;
+
+    public List<Integer> numbers;
+
+    @Intern
+    public String type;
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.registration;
+
+import com.zfoo.protocol.ProtocolManager;
+import com.zfoo.protocol.anno.Protocol;
+import com.zfoo.protocol.generate.GenerateOperation;
+import com.zfoo.protocol.util.FileUtils;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 编译期生成的增强类的java源代码可以被javac编译和加载，序列化的结果和javassist增强的完全相同
+ *
+ * @author godotg
+ */
+public class EnhanceSourceTest {
+
+    @Protocol(id = 1)
+    public static class OuterObject {
+        public int id;
+        public String value$name;
+        public InnerObject inner;
+        public List<InnerObject> innerList;
+        public Map<Integer, InnerObject> innerMap;
+        public InnerObject[] innerArray;
+        public Set<String> names;
+    }
+
+    @Protocol(id = 2)
+    public static class InnerObject {
+        public long a$b;
+        public List<Integer> numbers;
+
+        public static InnerObject valueOf(long ab, List<Integer> numbers) {
+            var inner = new InnerObject();
+            inner.a$b = ab;
+            inner.numbers = numbers;
+            return inner;
+        }
+    }
+
+    private static File sourceDir;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        sourceDir = Files.createTempDirectory("enhance-source").toFile();
+        var generateOperation = new GenerateOperation();
+        generateOperation.setEnhanceSourcePath(sourceDir.getAbsolutePath());
+        ProtocolManager.initProtocol(Set.of(OuterObject.class, InnerObject.class), generateOperation);
+    }
+
+    @AfterClass
+    public static void destroy() {
+        FileUtils.deleteFile(sourceDir);
+    }
+
+    @Test
+    public void compileAndLoadTest() throws Exception {
+        // 嵌套类的名称和带有$的字段名称在java源代码中必须保持原样
+        var sources = new ArrayList<String>();
+        for (var protocolId : new short[]{1, 2}) {
+            var file = new File(sourceDir, EnhanceUtils.ENHANCE_SOURCE_PACKAGE.replace('.', '/') + "/" + ProtocolRegistration.class.getSimpleName() + protocolId + ".java");
+            Assert.assertTrue(file.exists());
+            var source = FileUtils.readFileToString(file);
+            Assert.assertTrue(source.contains(OuterObject.class.getCanonicalName()) || source.contains(InnerObject.class.getCanonicalName()));
+            Assert.assertFalse(source.contains(EnhanceSourceTest.class.getSimpleName() + "$"));
+            sources.add(file.getAbsolutePath());
+        }
+
+        var classDir = new File(sourceDir, "classes");
+        Assert.assertTrue(classDir.mkdirs());
+        var args = new ArrayList<>(List.of("-d", classDir.getAbsolutePath(), "-cp", System.getProperty("java.class.path"), "-nowarn"));
+        args.addAll(sources);
+        Assert.assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, args.toArray(new String[0])));
+
+        try (var classLoader = new URLClassLoader(new URL[]{classDir.toURI().toURL()}, getClass().getClassLoader())) {
+            var outerRegistration = newRegistration(classLoader, (short) 1);
+            var innerRegistration = newRegistration(classLoader, (short) 2);
+            setSubProtocol(outerRegistration, innerRegistration);
+
+            var inner = InnerObject.valueOf(Long.MIN_VALUE, List.of(1, -1, Integer.MAX_VALUE));
+            var packet = new OuterObject();
+            packet.id = 99;
+            packet.value$name = "dollar";
+            packet.inner = inner;
+            packet.innerList = List.of(inner, InnerObject.valueOf(7, List.of()));
+            packet.innerMap = Map.of(1, inner);
+            packet.innerArray = new InnerObject[]{inner, null};
+            packet.names = Set.of("a");
+
+            // javac编译的增强类和javassist增强的类写出的字节相同，并且可以互相读取
+            var enhanceBuffer = Unpooled.buffer();
+            ProtocolManager.getProtocol(OuterObject.class).write(enhanceBuffer, packet);
+            var sourceBuffer = Unpooled.buffer();
+            outerRegistration.write(sourceBuffer, packet);
+            Assert.assertArrayEquals(ByteBufUtil.getBytes(enhanceBuffer), ByteBufUtil.getBytes(sourceBuffer));
+            Assert.assertEquals(sourceBuffer.readableBytes(), outerRegistration.sizeOf(packet));
+
+            var result = (OuterObject) outerRegistration.read(enhanceBuffer);
+            Assert.assertEquals("dollar", result.value$name);
+            Assert.assertEquals(Long.MIN_VALUE, result.inner.a$b);
+            Assert.assertEquals(inner.numbers, result.innerList.get(0).numbers);
+            Assert.assertEquals(7L, result.innerList.get(1).a$b);
+            Assert.assertEquals(Long.MIN_VALUE, result.innerMap.get(1).a$b);
+            Assert.assertEquals(2, result.innerArray.length);
+            Assert.assertFalse(enhanceBuffer.isReadable());
+        }
+    }
+
+    private static IProtocolRegistration newRegistration(ClassLoader classLoader, short protocolId) throws Exception {
+        var clazz = classLoader.loadClass(EnhanceUtils.ENHANCE_SOURCE_PACKAGE + "." + ProtocolRegistration.class.getSimpleName() + protocolId);
+        return (IProtocolRegistration) clazz.getConstructor(Constructor.class).newInstance(ProtocolManager.getProtocol(protocolId).protocolConstructor());
+    }
+
+    private static void setSubProtocol(IProtocolRegistration registration, IProtocolRegistration subRegistration) throws Exception {
+        var field = registration.getClass().getDeclaredField(EnhanceUtils.getProtocolRegistrationFieldNameByProtocolId(subRegistration.protocolId()));
+        field.setAccessible(true);
+        field.set(registration, subRegistration);
+    }
+
+}
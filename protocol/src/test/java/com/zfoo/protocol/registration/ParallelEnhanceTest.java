@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.registration;
+
+import com.zfoo.protocol.ProtocolManager;
+import com.zfoo.protocol.generate.GenerateOperation;
+import com.zfoo.protocol.packet.*;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * 指定编译线程数之后，协议很少的时候也并行编译增强类
+ *
+ * @author godotg
+ */
+public class ParallelEnhanceTest {
+
+    private static final List<Class<?>> protocols = List.of(ComplexObject.class, NormalObject.class, SimpleObject.class, EmptyObject.class, VeryBigObject.class);
+
+    @BeforeClass
+    public static void init() {
+        var generateOperation = new GenerateOperation();
+        generateOperation.setEnhanceThreads(4);
+        ProtocolManager.initProtocolAuto(protocols, generateOperation);
+    }
+
+    @Test
+    public void enhanceTest() throws Exception {
+        var metrics = ProtocolManager.startupMetrics();
+        Assert.assertEquals(4, metrics.getEnhanceThreads());
+        Assert.assertEquals(metrics.getEnhanceCount(), metrics.getProtocolCount());
+
+        for (var clazz : protocols) {
+            Assert.assertFalse(ProtocolManager.getProtocol(clazz) instanceof ProtocolRegistration);
+        }
+
+        // VeryBigObject的静态初始化依赖BenchmarkTesting，只检查其它的协议
+        for (var clazz : List.of(ComplexObject.class, NormalObject.class, SimpleObject.class, EmptyObject.class)) {
+            // 不同线程的ClassPool编译的增强类互相引用子协议，序列化之后再反序列化，两次序列化的字节相同
+            var packet = clazz.getDeclaredConstructor().newInstance();
+            var buffer = Unpooled.buffer();
+            ProtocolManager.write(buffer, packet);
+            var bytes = ByteBufUtil.getBytes(buffer);
+            var copy = ProtocolManager.read(buffer);
+            buffer.clear();
+            ProtocolManager.write(buffer, copy);
+            Assert.assertArrayEquals(bytes, ByteBufUtil.getBytes(buffer));
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.registration;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author godotg
+ */
+public class ProtocolProfilerTest {
+
+    @Test
+    public void profileTest() {
+        ProtocolProfiler.reset();
+        short small = 30001;
+        short big = 30002;
+        for (var i = 0; i < 100; i++) {
+            ProtocolProfiler.recordWrite(small, 10, 100);
+            ProtocolProfiler.recordRead(small, 10, 200);
+        }
+        // 1%的大包
+        ProtocolProfiler.recordWrite(big, 5000, 10_0000);
+        ProtocolProfiler.recordWrite(big, 1000, 1000);
+        for (var i = 0; i < 98; i++) {
+            ProtocolProfiler.recordWrite(big, 100, 1000);
+        }
+
+        var profiles = ProtocolProfiler.profiles();
+        Assert.assertEquals(2, profiles.size());
+        // 按总字节数排序
+        Assert.assertEquals(big, profiles.get(0).getProtocolId());
+        Assert.assertEquals(small, profiles.get(1).getProtocolId());
+
+        var smallProfile = ProtocolProfiler.profile(small);
+        Assert.assertEquals(100, smallProfile.getWriteCount());
+        Assert.assertEquals(100, smallProfile.getReadCount());
+        Assert.assertEquals(2000, smallProfile.totalBytes());
+        // 10在[8, 16)的桶，100ns在[64, 128)的桶，200ns在[128, 256)的桶
+        Assert.assertEquals(15, smallProfile.sizePercentile(0.99));
+        Assert.assertEquals(127, smallProfile.writeTimePercentile(0.5));
+        Assert.assertEquals(255, smallProfile.readTimePercentile(0.5));
+
+        var bigProfile = ProtocolProfiler.profile(big);
+        Assert.assertEquals(0, bigProfile.getReadCount());
+        Assert.assertEquals(0, bigProfile.readTimePercentile(0.99));
+        Assert.assertEquals(127, bigProfile.sizePercentile(0.5));
+        Assert.assertEquals(127, bigProfile.sizePercentile(0.98));
+        Assert.assertEquals(1023, bigProfile.sizePercentile(0.99));
+        Assert.assertEquals(8191, bigProfile.sizePercentile(1));
+        Assert.assertEquals(131071, bigProfile.writeTimePercentile(1));
+
+        ProtocolProfiler.reset();
+        Assert.assertNull(ProtocolProfiler.profile(small));
+        Assert.assertTrue(ProtocolProfiler.profiles().isEmpty());
+    }
+
+}
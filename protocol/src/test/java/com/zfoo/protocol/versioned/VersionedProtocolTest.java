@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.versioned;
+
+import com.zfoo.protocol.ProtocolManager;
+import com.zfoo.protocol.buffer.ByteBufUtils;
+import com.zfoo.protocol.generate.GenerateOperation;
+import com.zfoo.protocol.registration.LazyPacket;
+import com.zfoo.protocol.registration.ProtocolRegistration;
+import com.zfoo.protocol.util.DomUtils;
+import com.zfoo.protocol.versioned.packet.*;
+import com.zfoo.protocol.xml.XmlProtocols;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 版本化的协议，旧版本的读取方使用反射，新版本的写入方使用字节码增强，两个版本的协议注册在同一个ProtocolManager中
+ *
+ * @author godotg
+ */
+public class VersionedProtocolTest {
+
+    @BeforeClass
+    public static void init() {
+        var xml = "<protocols>"
+                + "<module id=\"1\" name=\"versioned\">"
+                + "<protocol location=\"" + VersionedObjectV1.class.getName() + "\" enhance=\"false\"/>"
+                + "<protocol location=\"" + VersionedObjectV2.class.getName() + "\"/>"
+                + "<protocol location=\"" + VersionedNestedV1.class.getName() + "\" enhance=\"false\"/>"
+                + "<protocol location=\"" + VersionedNestedV2.class.getName() + "\"/>"
+                + "<protocol location=\"" + VersionedExtraObject.class.getName() + "\"/>"
+                + "</module>"
+                + "</protocols>";
+        var generateOperation = new GenerateOperation();
+        generateOperation.setVersionedProtocol(true);
+        ProtocolManager.initProtocol(DomUtils.string2Object(xml, XmlProtocols.class), generateOperation);
+    }
+
+    /**
+     * 没有@Compatible字段的协议在版本化模式下也写入协议体的长度
+     */
+    @Test
+    public void registrationTest() {
+        var v1 = (ProtocolRegistration) ProtocolManager.getProtocol(VersionedObjectV1.class);
+        var nestedV1 = (ProtocolRegistration) ProtocolManager.getProtocol(VersionedNestedV1.class);
+        Assert.assertTrue(v1.isCompatible());
+        Assert.assertTrue(nestedV1.isCompatible());
+        Assert.assertFalse(ProtocolManager.getProtocol(VersionedObjectV2.class) instanceof ProtocolRegistration);
+    }
+
+    /**
+     * 旧版本的读取方跳过末尾不认识的字段和不认识的嵌套协议，读取之后的位置和写入方一致
+     */
+    @Test
+    public void oldReaderTest() {
+        var packet = newPacket();
+        var buffer = Unpooled.buffer();
+        ProtocolManager.write(buffer, packet);
+        Assert.assertEquals(ProtocolManager.sizeOf(packet), buffer.readableBytes());
+        ByteBufUtils.writeInt(buffer, Integer.MAX_VALUE);
+
+        ByteBufUtils.readShort(buffer);
+        var v1 = (VersionedObjectV1) ProtocolManager.getProtocol(VersionedObjectV1.class).read(buffer);
+        Assert.assertEquals(Integer.MAX_VALUE, ByteBufUtils.readInt(buffer));
+        Assert.assertFalse(buffer.isReadable());
+
+        Assert.assertEquals(packet.id, v1.id);
+        Assert.assertEquals(packet.name, v1.name);
+        assertNested(packet.nested, v1.nested);
+        Assert.assertEquals(packet.nestedList.size(), v1.nestedList.size());
+        for (var i = 0; i < packet.nestedList.size(); i++) {
+            assertNested(packet.nestedList.get(i), v1.nestedList.get(i));
+        }
+    }
+
+    /**
+     * 新版本的读取方读取旧版本的包，新增加的字段为默认值
+     */
+    @Test
+    public void newReaderTest() {
+        var packet = new VersionedObjectV1();
+        packet.id = 7;
+        packet.name = "old";
+        packet.nested = new VersionedNestedV1();
+        packet.nested.a = 1;
+        packet.nested.b = "b";
+        packet.nestedList = List.of(packet.nested);
+
+        var buffer = Unpooled.buffer();
+        ProtocolManager.getProtocol(VersionedObjectV1.class).write(buffer, packet);
+        ByteBufUtils.writeInt(buffer, Integer.MAX_VALUE);
+
+        var v2 = (VersionedObjectV2) ProtocolManager.getProtocol(VersionedObjectV2.class).read(buffer);
+        Assert.assertEquals(Integer.MAX_VALUE, ByteBufUtils.readInt(buffer));
+        Assert.assertEquals(7, v2.id);
+        Assert.assertEquals("old", v2.name);
+        Assert.assertEquals(1, v2.nested.a);
+        Assert.assertEquals("b", v2.nested.b);
+        Assert.assertTrue(v2.nested.c.isEmpty());
+        Assert.assertEquals(1, v2.nestedList.size());
+        Assert.assertEquals(0L, v2.extraId);
+        Assert.assertNull(v2.extra);
+        Assert.assertTrue(v2.extraList.isEmpty());
+    }
+
+    /**
+     * 延迟读取跳过整个协议，跳过的长度和完整的读取相同
+     */
+    @Test
+    public void skipTest() {
+        var buffer = Unpooled.buffer();
+        ProtocolManager.getProtocol(VersionedObjectV2.class).write(buffer, newPacket());
+        var length = buffer.readableBytes();
+        LazyPacket.skip(buffer, ProtocolManager.protocolId(VersionedObjectV1.class));
+        Assert.assertEquals(length, buffer.readerIndex());
+    }
+
+    private static VersionedObjectV2 newPacket() {
+        var nested = VersionedNestedV2.valueOf(Integer.MIN_VALUE, "nested", List.of("x", "y", "z"));
+        var packet = new VersionedObjectV2();
+        packet.id = 99;
+        packet.name = "new";
+        packet.nested = nested;
+        packet.nestedList = List.of(nested, VersionedNestedV2.valueOf(2, "second", List.of()), VersionedNestedV2.valueOf(3, null, null));
+        packet.extraId = Long.MAX_VALUE;
+        packet.extra = VersionedExtraObject.valueOf(Map.of(1, "one", 2, "two"), nested);
+        packet.extraList = List.of(packet.extra, VersionedExtraObject.valueOf(Map.of(), null));
+        return packet;
+    }
+
+    private static void assertNested(VersionedNestedV2 expect, VersionedNestedV1 actual) {
+        Assert.assertEquals(expect.a, actual.a);
+        Assert.assertEquals(expect.b == null ? "" : expect.b, actual.b);
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.versioned.packet;
+
+import com.zfoo.protocol.anno.Protocol;
+
+import java.util.Map;
+
+/**
+ * 只有新版本的协议才会引用的协议，旧版本的读取方不认识
+ *
+ * @author godotg
+ */
+@Protocol(id = 5)
+public class VersionedExtraObject {
+
+    public Map<Integer, String> map;
+
+    public VersionedNestedV2 nested;
+
+    public static VersionedExtraObject valueOf(Map<Integer, String> map, VersionedNestedV2 nested) {
+        var packet = new VersionedExtraObject();
+        packet.map = map;
+        packet.nested = nested;
+        return packet;
+    }
+
+}
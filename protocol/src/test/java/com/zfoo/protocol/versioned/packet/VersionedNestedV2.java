@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.versioned.packet;
+
+import com.zfoo.protocol.anno.Compatible;
+import com.zfoo.protocol.anno.Protocol;
+
+import java.util.List;
+
+/**
+ * 新版本的嵌套协议，在VersionedNestedV1的基础上增加了兼容字段
+ *
+ * @author godotg
+ */
+@Protocol(id = 4)
+public class VersionedNestedV2 {
+
+    public int a;
+
+    public String b;
+
+    @Compatible(1)
+    public List<String> c;
+
+    public static VersionedNestedV2 valueOf(int a, String b, List<String> c) {
+        var packet = new VersionedNestedV2();
+        packet.a = a;
+        packet.b = b;
+        packet.c = c;
+        return packet;
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2020 The zfoo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.zfoo.protocol.versioned.packet;
+
+import com.zfoo.protocol.anno.Compatible;
+import com.zfoo.protocol.anno.Protocol;
+
+import java.util.List;
+
+/**
+ * 新版本的协议，嵌套的协议升级到了VersionedNestedV2，并且在末尾增加了兼容字段和旧版本不认识的协议
+ *
+ * @author godotg
+ */
+@Protocol(id = 2)
+public class VersionedObjectV2 {
+
+    public int id;
+
+    public VersionedNestedV2 nested;
+
+    public List<VersionedNestedV2> nestedList;
+
+    public String name;
+
+    @Compatible(1)
+    public long extraId;
+
+    @Compatible(2)
+    public VersionedExtraObject extra;
+
+    @Compatible(3)
+    public List<VersionedExtraObject> extraList;
+
+}